@@ -27,6 +27,7 @@ public final class Constants
     public static final String CLIENT_FOLDER           = "clients";
     public static final String SCANS_FOLDER            = "scans";
     public static final String SHAPES_FOLDER           = "shapes";
+    public static final String CACHE_FOLDER            = ".cache";
 
     /**
      * Maximum message size from client to server (Leaving some extra space).
@@ -14,10 +14,17 @@ import com.ldtteam.structurize.util.BlockInfo;
 import com.ldtteam.structurize.util.BlockUtils;
 import com.ldtteam.structurize.util.BlueprintPositionInfo;
 import com.ldtteam.structurize.util.RotationMirror;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMaps;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import it.unimi.dsi.fastutil.shorts.ShortList;
+import it.unimi.dsi.fastutil.shorts.ShortLists;
 import net.minecraft.CrashReportCategory;
 import net.minecraft.core.BlockPos;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.decoration.HangingEntity;
@@ -34,6 +41,7 @@ import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import static com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE.*;
@@ -50,6 +58,21 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private static final String ENTITY_POS = "Pos";
 
+    /**
+     * Shared empty entity array.
+     */
+    private static final CompoundTag[] NO_ENTITIES = new CompoundTag[0];
+
+    /**
+     * Max summed up volume of the memoised rotation/mirror variants, larger blueprints keep fewer variants.
+     */
+    private static final long MAX_VARIANT_VOLUME = 4_000_000;
+
+    /**
+     * Deprecated copying getters which were already reported, each one is only logged once.
+     */
+    private static final Set<String> reportedCopyGetters = ConcurrentHashMap.newKeySet();
+
     /**
      * The list of required mods.
      */
@@ -101,26 +124,42 @@ public class Blueprint implements IFakeLevelBlockGetter
     private String[] missingMods;
 
     /**
-     * The Schematic Data, each short represents an entry in the {@link Blueprint#palette}
+     * The Schematic Data, each short represents an entry in the {@link Blueprint#palette}.
+     * Flat array in y, z, x order, see {@link #getIndex(int, int, int)}.
      */
-    private short[][][] structure;
+    private short[] structure;
 
     /**
-     * The tileentities.
+     * The tileentities, keyed by their index in {@link #structure}.
      */
-    private CompoundTag[][][] tileEntities;
+    private Int2ObjectMap<CompoundTag> tileEntities;
 
     /**
      * The entities.
      */
-    private CompoundTag[] entities = new CompoundTag[0];
+    private CompoundTag[] entities = NO_ENTITIES;
+
+    /**
+     * Tile entities and entities of a streamed blueprint which are decoded on first access, null once decoded.
+     */
+    @Nullable
+    private volatile LazyContent lazyContent;
+
+    /**
+     * Set while the palette, block, tile entity and entity data may be shared with a copy or a memoised variant, it is copied before the next modification.
+     */
+    private volatile boolean sharedData = false;
+
+    /**
+     * Lazy views on the block data, these never copy the structure.
+     */
+    private final List<BlockInfo>          blockInfoView    = new BlockInfoList();
+    private final Map<BlockPos, BlockInfo> blockInfoMapView = new BlockInfoMap();
 
     /**
-     * Various caches for storing block data in prepared structures
+     * Cache for storing entities by position.
      */
-    private List<BlockInfo>              cacheBlockInfo    = null;
-    private Map<BlockPos, BlockInfo>     cacheBlockInfoMap = null;
-    private Map<BlockPos, CompoundTag[]> cacheEntitiesMap  = null;
+    private Map<BlockPos, CompoundTag[]> cacheEntitiesMap = null;
 
     /**
      * Cache for storing rotate/mirror anchor
@@ -132,6 +171,13 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private RotationMirror rotationMirror = RotationMirror.NONE;
 
+    /**
+     * Already computed variants of the data by their absolute rotation and mirror, except the current one, so returning to a variant doesn't transform it again.
+     * Dropped whenever the data is modified. The summed up volume is bounded by {@link #MAX_VARIANT_VOLUME}, only variants sharing data with another
+     * blueprint may go over it.
+     */
+    private final Map<RotationMirror, RotationVariant> variants = new EnumMap<>(RotationMirror.class);
+
     /**
      * Constructor of a new Blueprint.
      *
@@ -140,7 +186,7 @@ public class Blueprint implements IFakeLevelBlockGetter
      * @param sizeZ        the z size.
      * @param palleteSize  the size of the pallete.
      * @param pallete      the palette.
-     * @param structure    the structure data.
+     * @param structure    the structure data, the coordinate order is: y, z, x.
      * @param tileEntities the tileEntities.
      * @param requiredMods the required mods.
      */
@@ -153,6 +199,31 @@ public class Blueprint implements IFakeLevelBlockGetter
       short[][][] structure,
       CompoundTag[] tileEntities,
       List<String> requiredMods)
+    {
+        this(sizeX, sizeY, sizeZ, palleteSize, pallete, flatten(structure, sizeX, sizeY, sizeZ), tileEntities, requiredMods);
+    }
+
+    /**
+     * Constructor of a new Blueprint.
+     *
+     * @param sizeX        the x size.
+     * @param sizeY        the y size.
+     * @param sizeZ        the z size.
+     * @param palleteSize  the size of the pallete.
+     * @param pallete      the palette.
+     * @param structure    the flat structure data, see {@link #getIndex(int, int, int)} for the layout.
+     * @param tileEntities the tileEntities.
+     * @param requiredMods the required mods.
+     */
+    public Blueprint(
+      short sizeX,
+      short sizeY,
+      short sizeZ,
+      short palleteSize,
+      List<BlockState> pallete,
+      short[] structure,
+      CompoundTag[] tileEntities,
+      List<String> requiredMods)
     {
         this.sizeX = sizeX;
         this.sizeY = sizeY;
@@ -160,18 +231,42 @@ public class Blueprint implements IFakeLevelBlockGetter
         this.palleteSize = palleteSize;
         this.palette = pallete;
         this.structure = structure;
-        this.tileEntities = new CompoundTag[sizeY][sizeZ][sizeX];
+        this.tileEntities = new Int2ObjectOpenHashMap<>();
 
         for (final CompoundTag te : tileEntities)
         {
             if (te != null)
             {
-                this.tileEntities[te.getShort("y")][te.getShort("z")][te.getShort("x")] = te;
+                this.tileEntities.put(getIndex(te.getShort("x"), te.getShort("y"), te.getShort("z")), te);
             }
         }
         this.requiredMods = requiredMods;
     }
 
+    /**
+     * Constructor of a streamed Blueprint, the tile entities and entities are decoded on first access.
+     *
+     * @param sizeX        the x size.
+     * @param sizeY        the y size.
+     * @param sizeZ        the z size.
+     * @param pallete      the palette.
+     * @param structure    the flat structure data, see {@link #getIndex(int, int, int)} for the layout.
+     * @param lazyContent  the serialized tile entities and entities.
+     * @param requiredMods the required mods.
+     */
+    Blueprint(
+      short sizeX,
+      short sizeY,
+      short sizeZ,
+      List<BlockState> pallete,
+      short[] structure,
+      LazyContent lazyContent,
+      List<String> requiredMods)
+    {
+        this(sizeX, sizeY, sizeZ, (short) pallete.size(), pallete, structure, NO_ENTITIES, requiredMods);
+        this.lazyContent = lazyContent;
+    }
+
     /**
      * Constructor of a new Blueprint.
      *
@@ -184,8 +279,8 @@ public class Blueprint implements IFakeLevelBlockGetter
         this.sizeX = sizeX;
         this.sizeY = sizeY;
         this.sizeZ = sizeZ;
-        this.structure = new short[sizeY][sizeZ][sizeX];
-        this.tileEntities = new CompoundTag[sizeY][sizeZ][sizeX];
+        this.structure = new short[getVolume()];
+        this.tileEntities = new Int2ObjectOpenHashMap<>();
 
         this.requiredMods = new ArrayList<>();
         this.palette = new ArrayList<>();
@@ -193,6 +288,50 @@ public class Blueprint implements IFakeLevelBlockGetter
         this.palleteSize = 1;
     }
 
+    /**
+     * Copy constructor, the data is shared until either blueprint modifies it.
+     * Serialized content of a streamed blueprint stays serialized until either blueprint reads it.
+     *
+     * @param other the blueprint to copy.
+     */
+    private Blueprint(final Blueprint other)
+    {
+        other.sharedData = true;
+        this.sharedData = true;
+        // Read before the decoded data, so decoding on another thread can't be missed
+        this.lazyContent = other.lazyContent;
+        this.sizeX = other.sizeX;
+        this.sizeY = other.sizeY;
+        this.sizeZ = other.sizeZ;
+        this.palleteSize = other.palleteSize;
+        this.palette = other.palette;
+        this.requiredMods = new ArrayList<>(other.requiredMods);
+        this.structure = other.structure;
+        this.tileEntities = other.tileEntities;
+        this.entities = other.entities;
+        this.variants.putAll(other.variants);
+
+        this.name = other.name;
+        this.fileName = other.fileName;
+        this.filePath = other.filePath;
+        this.packName = other.packName;
+        this.architects = other.architects == null ? null : other.architects.clone();
+        this.missingMods = other.missingMods == null ? null : other.missingMods.clone();
+        this.cachePrimaryOffset = other.cachePrimaryOffset;
+        this.rotationMirror = other.rotationMirror;
+    }
+
+    /**
+     * Create an independent copy of this blueprint, cheap as the data is only copied once either blueprint modifies it.
+     * Rotating, mirroring or modifying the copy does not affect this instance.
+     *
+     * @return the new blueprint.
+     */
+    public Blueprint copy()
+    {
+        return new Blueprint(this);
+    }
+
     /**
      * @return the Size of the Structure on the X-Axis (without rotation and/or mirroring)
      */
@@ -241,6 +380,7 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     public void addBlockState(final BlockPos pos, final BlockState state)
     {
+        unshare();
         int index = -1;
         for (int i = 0; i < this.palette.size(); i++)
         {
@@ -258,32 +398,155 @@ public class Blueprint implements IFakeLevelBlockGetter
             this.palette.add(state);
         }
 
-        this.structure[pos.getY()][pos.getZ()][pos.getX()] = (short) index;
+        this.structure[getIndex(pos)] = (short) index;
+        variants.clear();
+        cacheReset(true);
+    }
+
+    /**
+     * Set or remove the tile entity data at a position.
+     *
+     * @param pos  the position in the structure.
+     * @param data the data (x, y and z need to be localized to coordinates within the structure) or null to remove it.
+     */
+    public void setTileEntityData(final BlockPos pos, @Nullable final CompoundTag data)
+    {
+        unshare();
+        if (data == null)
+        {
+            this.tileEntities.remove(getIndex(pos));
+        }
+        else
+        {
+            this.tileEntities.put(getIndex(pos), data);
+        }
+        variants.clear();
         cacheReset(true);
     }
 
     /**
-     * @return the structure (without rotation and/or mirroring) The Coordinate order is: y, z, x
+     * @return a copy of the structure (without rotation and/or mirroring) The Coordinate order is: y, z, x
+     * @deprecated allocates a full copy and writes to it are not applied to the blueprint, use {@link #getStructureData()} and {@link #addBlockState(BlockPos, BlockState)} instead
      */
+    @Deprecated(since = "1.20")
     public short[][][] getStructure()
     {
-        return this.structure;
+        reportCopyGetter("getStructure", "addBlockState");
+        final short[][][] result = new short[sizeY][sizeZ][sizeX];
+        int index = 0;
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                System.arraycopy(structure, index, result[y][z], 0, sizeX);
+                index += sizeX;
+            }
+        }
+        return result;
     }
 
     /**
-     * @return an array of serialized TileEntities (posX, posY and posZ tags have been localized to coordinates within the structure)
+     * @return a read only view of the flat structure data (without rotation and/or mirroring), see {@link #getIndex(int, int, int)} for the layout.
+     * Use {@link #addBlockState(BlockPos, BlockState)} for modifications, so cached rotation variants are dropped.
      */
+    public ShortList getStructureData()
+    {
+        return ShortLists.unmodifiable(ShortArrayList.wrap(this.structure));
+    }
+
+    /**
+     * @return a copy of the serialized TileEntities (posX, posY and posZ tags have been localized to coordinates within the structure)
+     * @deprecated allocates a full array and writes to it or its tags are not applied to the blueprint, use {@link #getTileEntityMap()} and
+     * {@link #setTileEntityData(BlockPos, CompoundTag)} instead
+     */
+    @Deprecated(since = "1.20")
     public CompoundTag[][][] getTileEntities()
     {
-        return this.tileEntities;
+        reportCopyGetter("getTileEntities", "setTileEntityData");
+        decodeLazyContent();
+        final CompoundTag[][][] result = new CompoundTag[sizeY][sizeZ][sizeX];
+        for (final Int2ObjectMap.Entry<CompoundTag> entry : tileEntities.int2ObjectEntrySet())
+        {
+            final int index = entry.getIntKey();
+            result[index / (sizeX * sizeZ)][(index / sizeX) % sizeZ][index % sizeX] = entry.getValue().copy();
+        }
+        return result;
+    }
+
+    /**
+     * Warn once about a deprecated getter which used to return the live data, writes through it are lost silently otherwise.
+     *
+     * @param getter the getter.
+     * @param setter the setter to use for writes instead.
+     */
+    private static void reportCopyGetter(final String getter, final String setter)
+    {
+        if (reportedCopyGetters.add(getter))
+        {
+            Log.getLogger().warn("Blueprint#" + getter + " is deprecated and returns a copy, writes to it are NOT applied to the blueprint. Use Blueprint#" + setter
+                                   + " to modify it.", new Throwable("Called from"));
+        }
+    }
+
+    /**
+     * @return a read only view of the serialized TileEntities by their index in {@link #getStructureData()} (posX, posY and posZ tags have been localized to coordinates within the structure).
+     * Use {@link #setTileEntityData(BlockPos, CompoundTag)} for modifications, so cached rotation variants are dropped.
+     */
+    public Int2ObjectMap<CompoundTag> getTileEntityMap()
+    {
+        decodeLazyContent();
+        return Int2ObjectMaps.unmodifiable(this.tileEntities);
+    }
+
+    /**
+     * Get the index of a position in the flat structure data.
+     * The coordinate order is: y, z, x.
+     *
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param z the z coordinate.
+     * @return the index.
+     */
+    public int getIndex(final int x, final int y, final int z)
+    {
+        return (y * sizeZ + z) * sizeX + x;
     }
 
     /**
-     * @return an array of serialized TileEntities (the Pos tag has been localized to coordinates within the structure)
+     * Get the index of a position in the flat structure data.
+     *
+     * @param pos the position.
+     * @return the index.
+     */
+    public int getIndex(final BlockPos pos)
+    {
+        return getIndex(pos.getX(), pos.getY(), pos.getZ());
+    }
+
+    /**
+     * Get the position of an index in the flat structure data.
+     *
+     * @param index the index.
+     * @return the position.
+     */
+    public BlockPos getPos(final int index)
+    {
+        return new BlockPos(index % sizeX, index / (sizeX * sizeZ), (index / sizeX) % sizeZ);
+    }
+
+    /**
+     * @return a copy of the serialized entities (the Pos tag has been localized to coordinates within the structure).
+     * Use {@link #setEntities(CompoundTag[])} for modifications, so cached rotation variants are dropped.
      */
     public CompoundTag[] getEntities()
     {
-        return this.entities;
+        decodeLazyContent();
+        final CompoundTag[] result = new CompoundTag[entities.length];
+        for (int i = 0; i < entities.length; i++)
+        {
+            result[i] = entities[i] == null ? null : entities[i].copy();
+        }
+        return result;
     }
 
     /**
@@ -291,7 +554,10 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     public void setEntities(CompoundTag[] entities)
     {
+        decodeLazyContent();
         this.entities = entities;
+        this.cacheEntitiesMap = null;
+        variants.clear();
     }
 
     /**
@@ -437,39 +703,35 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     public final List<CompoundTag> getEntitiesAsList()
     {
+        decodeLazyContent();
         return Arrays.stream(entities).collect(Collectors.toList());
     }
 
     /**
      * Get a list of all blockInfo objects in the blueprint.
+     * This is a read only view, the elements are created on access.
      *
      * @return a list of all blockinfo (position, blockState, tileEntityData).
      */
     public final List<BlockInfo> getBlockInfoAsList()
     {
-        if (cacheBlockInfo == null)
-        {
-            buildBlockInfoCaches();
-        }
-        return cacheBlockInfo;
+        return blockInfoView;
     }
 
     /**
      * Get a map of all blockpos->blockInfo objects in the blueprint.
+     * This is a read only view, the values are created on access.
      *
      * @return a map of all blockpos->blockInfo (position, blockState, tileEntityData).
      */
     public final Map<BlockPos, BlockInfo> getBlockInfoAsMap()
     {
-        if (cacheBlockInfoMap == null)
-        {
-            buildBlockInfoCaches();
-        }
-        return cacheBlockInfoMap;
+        return blockInfoMapView;
     }
 
     /**
      * Get a map of all entities by approx position.
+     * Only positions that contain entities are part of the map.
      *
      * @return the cached map of these.
      */
@@ -477,7 +739,7 @@ public class Blueprint implements IFakeLevelBlockGetter
     {
         if (cacheEntitiesMap == null)
         {
-            buildBlockInfoCaches();
+            buildEntitiesCache();
         }
         return cacheEntitiesMap;
     }
@@ -492,12 +754,19 @@ public class Blueprint implements IFakeLevelBlockGetter
     @Nullable
     public CompoundTag getTileEntityData(final BlockPos worldPos, final BlockPos structurePos)
     {
-        if (!getBlockInfoAsMap().containsKey(structurePos) || !getBlockInfoAsMap().get(structurePos).hasTileEntityData())
+        if (!isPosInside(structurePos))
+        {
+            return null;
+        }
+
+        decodeLazyContent();
+        final CompoundTag data = tileEntities.get(getIndex(structurePos));
+        if (data == null)
         {
             return null;
         }
 
-        final CompoundTag te = getBlockInfoAsMap().get(structurePos).getTileEntityData().copy();
+        final CompoundTag te = data.copy();
         final BlockPos tePos = structurePos.offset(worldPos);
         te.putInt("x", tePos.getX());
         te.putInt("y", tePos.getY());
@@ -514,15 +783,18 @@ public class Blueprint implements IFakeLevelBlockGetter
     @Nullable
     public Item getItem(final BlockPos pos)
     {
-        @Nullable
-        final BlockInfo info = this.getBlockInfoAsMap().getOrDefault(pos, null);
-        if (info == null || info.getState() == null || info.getState().isAir()
-            || BlockUtils.isLiquidOnlyBlock(info.getState().getBlock()))
+        if (!isPosInside(pos))
+        {
+            return null;
+        }
+
+        final BlockState state = getBlockState(pos);
+        if (state == null || state.isAir() || BlockUtils.isLiquidOnlyBlock(state.getBlock()))
         {
             return null;
         }
 
-        final ItemStack stack = BlockUtils.getItemStackFromBlockState(info.getState());
+        final ItemStack stack = BlockUtils.getItemStackFromBlockState(state);
 
         if (!ItemStackUtils.isEmpty(stack))
         {
@@ -533,30 +805,47 @@ public class Blueprint implements IFakeLevelBlockGetter
     }
 
     /**
-     * Build the caches.
+     * Create the block info of an index in the structure.
+     *
+     * @param index the index.
+     * @return the new block info.
      */
-    private void buildBlockInfoCaches()
+    private BlockInfo createBlockInfo(final int index)
     {
-        cacheBlockInfo = new ArrayList<>(getVolume());
-        cacheBlockInfoMap = new HashMap<>(getVolume());
-        cacheEntitiesMap = new HashMap<>(getEntities().length);
-        for (short y = 0; y < this.sizeY; y++)
+        decodeLazyContent();
+        // Copied, the tags may be shared with cached blueprints
+        final CompoundTag data = tileEntities.get(index);
+        return new BlockInfo(getPos(index), palette.get(structure[index] & 0xFFFF), data == null ? null : data.copy());
+    }
+
+    /**
+     * Build the entities cache, bucketing all entities by their floored position in a single pass.
+     */
+    private void buildEntitiesCache()
+    {
+        decodeLazyContent();
+        final Map<BlockPos, List<CompoundTag>> buckets = new HashMap<>();
+        for (final CompoundTag data : entities)
         {
-            for (short z = 0; z < this.sizeZ; z++)
+            if (data == null)
             {
-                for (short x = 0; x < this.sizeX; x++)
-                {
-                    final BlockPos tempPos = new BlockPos(x, y, z);
-                    final BlockInfo blockInfo = new BlockInfo(tempPos, palette.get(structure[y][z][x] & 0xFFFF), tileEntities[y][z][x]);
-                    cacheBlockInfo.add(blockInfo);
-                    cacheBlockInfoMap.put(tempPos, blockInfo);
-                    cacheEntitiesMap.put(tempPos,
-                        Arrays.stream(this.getEntities())
-                            .filter(data -> data != null && isAtPos(data, tempPos))
-                            .toArray(CompoundTag[]::new));
-                }
+                continue;
             }
+
+            final ListTag list = data.getList(ENTITY_POS, Tag.TAG_DOUBLE);
+            final BlockPos pos = BlockPos.containing(list.getDouble(0), list.getDouble(1), list.getDouble(2));
+            if (isPosInside(pos))
+            {
+                buckets.computeIfAbsent(pos, k -> new ArrayList<>(1)).add(data);
+            }
+        }
+
+        final Map<BlockPos, CompoundTag[]> result = new HashMap<>(buckets.size());
+        for (final Map.Entry<BlockPos, List<CompoundTag>> entry : buckets.entrySet())
+        {
+            result.put(entry.getKey(), entry.getValue().toArray(NO_ENTITIES));
         }
+        cacheEntitiesMap = result;
     }
 
     /**
@@ -567,6 +856,7 @@ public class Blueprint implements IFakeLevelBlockGetter
     public void setCachePrimaryOffset(final BlockPos cachePrimaryOffset)
     {
         this.cachePrimaryOffset = cachePrimaryOffset;
+        variants.clear();
     }
 
     /**
@@ -590,16 +880,43 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private BlockPos findPrimaryBlockOffset()
     {
-        final List<BlockInfo> list = getBlockInfoAsList().stream()
-            .filter(blockInfo -> blockInfo.getState().getBlock() instanceof IAnchorBlock ||
-                (blockInfo.hasTileEntityData() && blockInfo.getTileEntityData().contains(TAG_BLUEPRINTDATA)))
-            .toList();
+        decodeLazyContent();
+        final boolean[] anchors = new boolean[palette.size()];
+        for (int i = 0; i < anchors.length; i++)
+        {
+            anchors[i] = palette.get(i).getBlock() instanceof IAnchorBlock;
+        }
+
+        int found = -1;
+        for (int i = 0; i < structure.length; i++)
+        {
+            if (anchors[structure[i] & 0xFFFF])
+            {
+                if (found != -1)
+                {
+                    return new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2);
+                }
+                found = i;
+            }
+        }
 
-        if (list.size() != 1)
+        for (final Int2ObjectMap.Entry<CompoundTag> entry : tileEntities.int2ObjectEntrySet())
+        {
+            if (entry.getIntKey() != found && entry.getValue().contains(TAG_BLUEPRINTDATA))
+            {
+                if (found != -1)
+                {
+                    return new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2);
+                }
+                found = entry.getIntKey();
+            }
+        }
+
+        if (found == -1)
         {
             return new BlockPos(getSizeX() / 2, 0, getSizeZ() / 2);
         }
-        return list.get(0).getPos();
+        return getPos(found);
     }
 
     /**
@@ -609,12 +926,10 @@ public class Blueprint implements IFakeLevelBlockGetter
      */
     private void cacheReset(final boolean resetPrimaryOffset)
     {
-        cacheBlockInfo = null;
         if (resetPrimaryOffset)
         {
             cachePrimaryOffset = null;
         }
-        cacheBlockInfoMap = null;
         cacheEntitiesMap = null;
     }
 
@@ -633,6 +948,7 @@ public class Blueprint implements IFakeLevelBlockGetter
     /**
      * Rotates and mirrors entire content additively, formula:
      * current state + transformBy = target state
+     * Each rotation/mirror variant is only computed once, returning to a known one just swaps the data.
      * 
      * @param transformBy rot/mir to add
      * @param level world for entity construction
@@ -645,7 +961,42 @@ public class Blueprint implements IFakeLevelBlockGetter
             return;
         }
 
+        decodeLazyContent();
+        final RotationMirror target = this.rotationMirror.add(transformBy);
         final BlockPos primaryOffset = getPrimaryBlockOffset();
+        final RotationVariant current = new RotationVariant(sizeX, sizeZ, palette, structure, tileEntities, entities, primaryOffset);
+        // The variant swapped to lives in the fields from now on
+        final RotationVariant variant = variants.remove(target);
+
+        // Data shared with a copy or the cache is kept alive anyway, so even above the volume limit memoising it costs nothing
+        final long maxVariants = Math.max(MAX_VARIANT_VOLUME / Math.max(1, getVolume()), sharedData ? 1 : 0);
+        final Iterator<RotationMirror> iterator = variants.keySet().iterator();
+        while (variants.size() >= maxVariants && iterator.hasNext())
+        {
+            iterator.next();
+            iterator.remove();
+        }
+        if (variants.size() < maxVariants)
+        {
+            variants.put(this.rotationMirror, current);
+        }
+
+        if (variant != null)
+        {
+            sizeX = variant.sizeX();
+            sizeZ = variant.sizeZ();
+            this.palette = variant.palette();
+            this.structure = variant.structure();
+            this.tileEntities = variant.tileEntities();
+            this.entities = variant.entities();
+            this.cachePrimaryOffset = variant.primaryOffset();
+            this.rotationMirror = target;
+            // The variant may still be memoised by copies
+            this.sharedData = true;
+            cacheReset(false);
+            return;
+        }
+
         final short newSizeX, newSizeZ, newSizeY = sizeY;
 
         switch (transformBy.rotation())
@@ -662,9 +1013,9 @@ public class Blueprint implements IFakeLevelBlockGetter
                 break;
         }
 
-        final short[][][] newStructure = new short[newSizeY][newSizeZ][newSizeX];
+        final short[] newStructure = new short[structure.length];
         final CompoundTag[] newEntities = new CompoundTag[entities.length];
-        final CompoundTag[][][] newTileEntities = new CompoundTag[newSizeY][newSizeZ][newSizeX];
+        final Int2ObjectMap<CompoundTag> newTileEntities = new Int2ObjectOpenHashMap<>(tileEntities.size());
 
         final List<BlockState> palette = new ArrayList<>();
         for (int i = 0; i < this.palette.size(); i++)
@@ -686,24 +1037,28 @@ public class Blueprint implements IFakeLevelBlockGetter
 
         this.palette = palette;
 
-        for (short x = 0; x < this.sizeX; x++)
+        int index = 0;
+        for (short y = 0; y < this.sizeY; y++)
         {
-            for (short y = 0; y < this.sizeY; y++)
+            for (short z = 0; z < this.sizeZ; z++)
             {
-                for (short z = 0; z < this.sizeZ; z++)
+                for (short x = 0; x < this.sizeX; x++, index++)
                 {
-                    final short value = structure[y][z][x];
+                    final short value = structure[index];
                     final BlockState state = palette.get(value & 0xFFFF);
                     if (state.getBlock() == Blocks.STRUCTURE_VOID)
                     {
                         continue;
                     }
                     final BlockPos tempPos = transformBy.applyToPos(new BlockPos(x, y, z)).offset(minX, minY, minZ);
-                    newStructure[tempPos.getY()][tempPos.getZ()][tempPos.getX()] = value;
+                    final int newIndex = (tempPos.getY() * newSizeZ + tempPos.getZ()) * newSizeX + tempPos.getX();
+                    newStructure[newIndex] = value;
 
-                    final CompoundTag compound = tileEntities[y][z][x];
-                    if (compound != null)
+                    final CompoundTag original = tileEntities.get(index);
+                    if (original != null)
                     {
+                        // the original belongs to the previous variant, which may be reused later
+                        final CompoundTag compound = original.copy();
                         compound.putInt("x", tempPos.getX());
                         compound.putInt("y", tempPos.getY());
                         compound.putInt("z", tempPos.getZ());
@@ -740,8 +1095,8 @@ public class Blueprint implements IFakeLevelBlockGetter
                             BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_ONE, transformBy.applyToPos(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_ONE)));
                             BlockPosUtil.writeToNBT(dataCompound, TAG_CORNER_TWO, transformBy.applyToPos(BlockPosUtil.readFromNBT(dataCompound, TAG_CORNER_TWO)));
                         }
+                        newTileEntities.put(newIndex, compound);
                     }
-                    newTileEntities[tempPos.getY()][tempPos.getZ()][tempPos.getX()] = compound;
                 }
             }
         }
@@ -755,7 +1110,7 @@ public class Blueprint implements IFakeLevelBlockGetter
             }
         }
 
-        setCachePrimaryOffset(transformBy.applyToPos(primaryOffset).offset(minX, minY, minZ));
+        this.cachePrimaryOffset = transformBy.applyToPos(primaryOffset).offset(minX, minY, minZ);
 
         sizeX = newSizeX;
         sizeY = newSizeY;
@@ -764,7 +1119,8 @@ public class Blueprint implements IFakeLevelBlockGetter
         this.structure = newStructure;
         this.entities = newEntities;
         this.tileEntities = newTileEntities;
-        this.rotationMirror = this.rotationMirror.add(transformBy);
+        this.rotationMirror = target;
+        this.sharedData = false;
 
         cacheReset(false);
     }
@@ -828,6 +1184,63 @@ public class Blueprint implements IFakeLevelBlockGetter
         return null;
     }
 
+    /**
+     * Decode the tile entities and entities of a streamed blueprint, if not done yet.
+     */
+    private void decodeLazyContent()
+    {
+        if (lazyContent == null)
+        {
+            return;
+        }
+
+        synchronized (this)
+        {
+            final LazyContent content = lazyContent;
+            if (content != null)
+            {
+                // The empty map may be shared with copies, so it is replaced instead of filled
+                final CompoundTag[] decodedTileEntities = content.decodeTileEntities();
+                final Int2ObjectMap<CompoundTag> newTileEntities = new Int2ObjectOpenHashMap<>(decodedTileEntities.length);
+                for (final CompoundTag te : decodedTileEntities)
+                {
+                    if (te != null)
+                    {
+                        newTileEntities.put(getIndex(te.getShort("x"), te.getShort("y"), te.getShort("z")), te);
+                    }
+                }
+                this.tileEntities = newTileEntities;
+                this.entities = content.decodeEntities();
+                lazyContent = null;
+            }
+        }
+    }
+
+    /**
+     * Copy the data if it may be shared, before modifying it.
+     */
+    private void unshare()
+    {
+        decodeLazyContent();
+        if (sharedData)
+        {
+            this.palette = new ArrayList<>(palette);
+            this.structure = structure.clone();
+            this.tileEntities = new Int2ObjectOpenHashMap<>(tileEntities);
+            this.entities = entities.clone();
+            sharedData = false;
+        }
+    }
+
+    /**
+     * @return the amount of entities, without decoding them.
+     */
+    private int getEntityCount()
+    {
+        final LazyContent content = lazyContent;
+        return content == null ? entities.length : content.entityCount();
+    }
+
     private int getVolume()
     {
         return (int) sizeX * sizeY * sizeZ;
@@ -843,8 +1256,8 @@ public class Blueprint implements IFakeLevelBlockGetter
         result = prime * result + ((filePath == null) ? 0 : filePath.hashCode());
         result = prime * result + ((packName == null) ? 0 : packName.hashCode());
         result = prime * result + palleteSize;
-        result = prime * result + entities.length;
-        result = prime * result + tileEntities.length;
+        result = prime * result + getEntityCount();
+        result = prime * result + sizeY;
         result = prime * result + getVolume();
         // rot/mir intentionally not incluced
         return result;
@@ -866,8 +1279,8 @@ public class Blueprint implements IFakeLevelBlockGetter
                  && Objects.equals(filePath, other.filePath)
                  && Objects.equals(packName, other.packName)
                  && palleteSize == other.palleteSize
-                 && entities.length == other.entities.length
-                 && tileEntities.length == other.tileEntities.length
+                 && getEntityCount() == other.getEntityCount()
+                 && sizeY == other.sizeY
                  && getVolume() == other.getVolume();
         // rot/mir intentionally not incluced
     }
@@ -894,35 +1307,23 @@ public class Blueprint implements IFakeLevelBlockGetter
     public BlueprintPositionInfo getBluePrintPositionInfo(final BlockPos pos, final boolean includeEntities)
     {
         return new BlueprintPositionInfo(pos,
-            getBlockInfoAsMap().get(pos),
-            includeEntities ? getCachedEntitiesAsMap().getOrDefault(pos, new CompoundTag[0]) : new CompoundTag[0]);
-    }
-
-    /**
-     * Check if an entityData object is at the local position.
-     * 
-     * @param entityData the data object to check.
-     * @param pos        the pos to check.
-     * @return true if so.
-     */
-    private static boolean isAtPos(final CompoundTag entityData, final BlockPos pos)
-    {
-        final ListTag list = entityData.getList(ENTITY_POS, 6);
-        final int x = (int) list.getDouble(0);
-        final int y = (int) list.getDouble(1);
-        final int z = (int) list.getDouble(2);
-        return new BlockPos(x, y, z).equals(pos);
+            isPosInside(pos) ? createBlockInfo(getIndex(pos)) : null,
+            includeEntities ? getCachedEntitiesAsMap().getOrDefault(pos, NO_ENTITIES) : NO_ENTITIES);
     }
 
     /**
      * Get the blockstate at a pos.
      * 
      * @param pos the pos.
-     * @return the blockstate.
+     * @return the blockstate, air if outside of the blueprint.
      */
     public BlockState getBlockState(final BlockPos pos)
     {
-        return getBlockInfoAsMap().get(pos).getState();
+        if (!isPosInside(pos))
+        {
+            return Blocks.AIR.defaultBlockState();
+        }
+        return palette.get(structure[getIndex(pos)] & 0xFFFF);
     }
 
     @Override
@@ -953,7 +1354,7 @@ public class Blueprint implements IFakeLevelBlockGetter
     @javax.annotation.Nullable
     public BlockEntity getBlockEntity(final BlockPos pos)
     {
-        return BlueprintUtils.constructTileEntity(getBlockInfoAsMap().get(pos), null);
+        return isPosInside(pos) ? BlueprintUtils.constructTileEntity(createBlockInfo(getIndex(pos)), null) : null;
     }
 
     @Override
@@ -973,4 +1374,147 @@ public class Blueprint implements IFakeLevelBlockGetter
         category.setDetail("Blueprint size", () -> "%d %d %d".formatted(sizeX, sizeY, sizeZ));
         category.setDetail("Blueprint rotation mirror", () -> rotationMirror.name());
     }
+    /**
+     * Convert a structure array in y, z, x order to the flat layout.
+     *
+     * @param structure the structure.
+     * @param sizeX     the x size.
+     * @param sizeY     the y size.
+     * @param sizeZ     the z size.
+     * @return the flat structure.
+     */
+    private static short[] flatten(final short[][][] structure, final short sizeX, final short sizeY, final short sizeZ)
+    {
+        final short[] result = new short[sizeX * sizeY * sizeZ];
+        int index = 0;
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                System.arraycopy(structure[y][z], 0, result, index, sizeX);
+                index += sizeX;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The rotation dependent data of one rotation/mirror variant.
+     *
+     * @param sizeX         the x size.
+     * @param sizeZ         the z size.
+     * @param palette       the rotated palette.
+     * @param structure     the structure data.
+     * @param tileEntities  the tile entities.
+     * @param entities      the entities.
+     * @param primaryOffset the anchor offset.
+     */
+    private record RotationVariant(
+      short sizeX,
+      short sizeZ,
+      List<BlockState> palette,
+      short[] structure,
+      Int2ObjectMap<CompoundTag> tileEntities,
+      CompoundTag[] entities,
+      BlockPos primaryOffset)
+    {}
+
+    /**
+     * Read only list view of the structure, creating the block infos on access.
+     */
+    private class BlockInfoList extends AbstractList<BlockInfo> implements RandomAccess
+    {
+        @Override
+        public BlockInfo get(final int index)
+        {
+            Objects.checkIndex(index, structure.length);
+            return createBlockInfo(index);
+        }
+
+        @Override
+        public int size()
+        {
+            return structure.length;
+        }
+    }
+
+    /**
+     * Read only map view of the structure, creating the block infos on access.
+     */
+    private class BlockInfoMap extends AbstractMap<BlockPos, BlockInfo>
+    {
+        @Override
+        public BlockInfo get(final Object key)
+        {
+            return key instanceof final BlockPos pos && isPosInside(pos) ? createBlockInfo(getIndex(pos)) : null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key)
+        {
+            return key instanceof final BlockPos pos && isPosInside(pos);
+        }
+
+        @Override
+        public int size()
+        {
+            return structure.length;
+        }
+
+        @Override
+        public Set<Entry<BlockPos, BlockInfo>> entrySet()
+        {
+            return new AbstractSet<>()
+            {
+                @Override
+                public Iterator<Entry<BlockPos, BlockInfo>> iterator()
+                {
+                    final Iterator<BlockInfo> iterator = blockInfoView.iterator();
+                    return new Iterator<>()
+                    {
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return iterator.hasNext();
+                        }
+
+                        @Override
+                        public Entry<BlockPos, BlockInfo> next()
+                        {
+                            final BlockInfo info = iterator.next();
+                            return new SimpleImmutableEntry<>(info.getPos(), info);
+                        }
+                    };
+                }
+
+                @Override
+                public int size()
+                {
+                    return structure.length;
+                }
+            };
+        }
+    }
+
+    /**
+     * Serialized tile entities and entities, decoded on demand.
+     * Shared by copies, so implementations decode at most once and hand out the same read only result.
+     */
+    interface LazyContent
+    {
+        /**
+         * @return the amount of entities.
+         */
+        int entityCount();
+
+        /**
+         * @return the decoded and fixed tile entities.
+         */
+        CompoundTag[] decodeTileEntities();
+
+        /**
+         * @return the decoded and fixed entities.
+         */
+        CompoundTag[] decodeEntities();
+    }
 }
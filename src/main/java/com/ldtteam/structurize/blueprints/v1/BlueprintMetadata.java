@@ -0,0 +1,392 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import com.ldtteam.structurize.api.util.BlockPosUtil;
+import com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE;
+import com.ldtteam.structurize.blocks.interfaces.IInvisibleBlueprintAnchorBlock;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.world.level.block.state.BlockState;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.INVISIBLE_TAG;
+import static com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE.TAG_BLUEPRINTDATA;
+
+/**
+ * Lightweight header information of a blueprint.
+ * Contains everything needed to list and group blueprints without decoding the block, tile entity and entity data.
+ */
+public class BlueprintMetadata
+{
+    private static final String TAG_NAME          = "name";
+    private static final String TAG_SIZE_X        = "size_x";
+    private static final String TAG_SIZE_Y        = "size_y";
+    private static final String TAG_SIZE_Z        = "size_z";
+    private static final String TAG_OFFSET        = "primary_offset";
+    private static final String TAG_REQUIRED_MODS = "required_mods";
+    private static final String TAG_ANCHOR_STATE  = "anchor_state";
+    private static final String TAG_ANCHOR_DATA   = "anchor_data";
+
+    /**
+     * The name stored in the blueprint (not the file name).
+     */
+    @Nullable
+    private final String name;
+
+    /**
+     * The size of the blueprint.
+     */
+    private final short sizeX, sizeY, sizeZ;
+
+    /**
+     * The anchor offset.
+     */
+    private final BlockPos primaryOffset;
+
+    /**
+     * The list of required mods.
+     */
+    private final List<String> requiredMods;
+
+    /**
+     * The block at the anchor position.
+     */
+    private final BlockState anchorState;
+
+    /**
+     * The tile entity data at the anchor position (local coordinates).
+     */
+    @Nullable
+    private final CompoundTag anchorData;
+
+    /**
+     * The tag map, relative to the anchor block.
+     */
+    private final Map<BlockPos, List<String>> tags;
+
+    /**
+     * If the blueprint is hidden from normal players.
+     */
+    private final boolean invisible;
+
+    /**
+     * File information, not part of the blueprint data itself.
+     */
+    private String fileName;
+    private Path   filePath;
+    private String packName;
+
+    /**
+     * Create a new metadata object.
+     *
+     * @param name          the blueprint name.
+     * @param sizeX         the x size.
+     * @param sizeY         the y size.
+     * @param sizeZ         the z size.
+     * @param primaryOffset the anchor offset.
+     * @param requiredMods  the required mods.
+     * @param anchorState   the state at the anchor.
+     * @param anchorData    the tile entity data at the anchor.
+     */
+    public BlueprintMetadata(
+      @Nullable final String name,
+      final short sizeX,
+      final short sizeY,
+      final short sizeZ,
+      final BlockPos primaryOffset,
+      final List<String> requiredMods,
+      final BlockState anchorState,
+      @Nullable final CompoundTag anchorData)
+    {
+        this.name = name;
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.primaryOffset = primaryOffset;
+        this.requiredMods = requiredMods;
+        this.anchorState = anchorState;
+        this.anchorData = anchorData;
+        this.tags = anchorData == null ? new HashMap<>() : IBlueprintDataProviderBE.readTagPosMapFrom(anchorData.getCompound(TAG_BLUEPRINTDATA));
+
+        final boolean hiddenByBlock = anchorState.getBlock() instanceof IInvisibleBlueprintAnchorBlock invis && !invis.isVisible(anchorData);
+        this.invisible = hiddenByBlock || tags.getOrDefault(BlockPos.ZERO, Collections.emptyList()).contains(INVISIBLE_TAG);
+    }
+
+    /**
+     * Create the metadata of an already loaded blueprint.
+     *
+     * @param blueprint the blueprint.
+     * @return the metadata.
+     */
+    public static BlueprintMetadata of(final Blueprint blueprint)
+    {
+        final BlockPos offset = blueprint.getPrimaryBlockOffset();
+        return new BlueprintMetadata(blueprint.getName(),
+          blueprint.getSizeX(),
+          blueprint.getSizeY(),
+          blueprint.getSizeZ(),
+          offset,
+          new ArrayList<>(blueprint.getRequiredMods()),
+          blueprint.getBlockState(offset),
+          blueprint.getBlockInfoAsMap().get(offset).getTileEntityData())
+                 .setFileName(blueprint.getFileName())
+                 .setFilePath(blueprint.getFilePath())
+                 .setPackName(blueprint.getPackName());
+    }
+
+    /**
+     * @return the name stored in the blueprint.
+     */
+    @Nullable
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the Size of the Structure on the X-Axis (without rotation and/or mirroring)
+     */
+    public short getSizeX()
+    {
+        return sizeX;
+    }
+
+    /**
+     * @return the Size of the Structure on the Y-Axis (without rotation and/or mirroring)
+     */
+    public short getSizeY()
+    {
+        return sizeY;
+    }
+
+    /**
+     * @return the Size of the Structure on the Z-Axis (without rotation and/or mirroring)
+     */
+    public short getSizeZ()
+    {
+        return sizeZ;
+    }
+
+    /**
+     * @return the block volume of the blueprint.
+     */
+    public int getVolume()
+    {
+        return (int) sizeX * sizeY * sizeZ;
+    }
+
+    /**
+     * @return the anchor offset (without rotation and/or mirroring).
+     */
+    public BlockPos getPrimaryBlockOffset()
+    {
+        return primaryOffset;
+    }
+
+    /**
+     * @return a list of all required mods as modid's
+     */
+    public List<String> getRequiredMods()
+    {
+        return requiredMods;
+    }
+
+    /**
+     * @return the state of the anchor block.
+     */
+    public BlockState getAnchorState()
+    {
+        return anchorState;
+    }
+
+    /**
+     * Get the tile entity data of the anchor in world coordinates.
+     *
+     * @param worldPos the world position of the blueprint (not the anchor).
+     * @return a copy of the data or null if there is none.
+     */
+    @Nullable
+    public CompoundTag getAnchorData(final BlockPos worldPos)
+    {
+        if (anchorData == null)
+        {
+            return null;
+        }
+
+        final CompoundTag te = anchorData.copy();
+        final BlockPos tePos = primaryOffset.offset(worldPos);
+        te.putInt("x", tePos.getX());
+        te.putInt("y", tePos.getY());
+        te.putInt("z", tePos.getZ());
+        return te;
+    }
+
+    /**
+     * @return the tag map, relative to the anchor block.
+     */
+    public Map<BlockPos, List<String>> getTags()
+    {
+        return tags;
+    }
+
+    /**
+     * @return true if this blueprint should be hidden from normal players.
+     * @see BlueprintTagUtils#isInvisible(Blueprint)
+     */
+    public boolean isInvisible()
+    {
+        return invisible;
+    }
+
+    /**
+     * Sets the file name of the blueprint.
+     *
+     * @param fileName the file name to set.
+     * @return this object.
+     */
+    public BlueprintMetadata setFileName(final String fileName)
+    {
+        this.fileName = fileName;
+        return this;
+    }
+
+    /**
+     * @return the unique file name of the blueprint.
+     */
+    public String getFileName()
+    {
+        return fileName;
+    }
+
+    /**
+     * Sets the file path of the blueprint.
+     *
+     * @param filePath the file path to set (without the file name).
+     * @return this object.
+     */
+    public BlueprintMetadata setFilePath(final Path filePath)
+    {
+        this.filePath = filePath;
+        return this;
+    }
+
+    /**
+     * @return the file path of the blueprint (does not contain the file name).
+     */
+    public Path getFilePath()
+    {
+        return filePath;
+    }
+
+    /**
+     * Set the pack this blueprint is in.
+     *
+     * @param packName the id of the pack.
+     * @return this object.
+     */
+    public BlueprintMetadata setPackName(final String packName)
+    {
+        this.packName = packName;
+        return this;
+    }
+
+    /**
+     * @return the name of the pack this belongs to.
+     */
+    public String getPackName()
+    {
+        return packName;
+    }
+
+    /**
+     * @return the full path to the blueprint file.
+     */
+    public Path getFullPath()
+    {
+        return filePath.resolve(fileName + ".blueprint");
+    }
+
+    /**
+     * Check if this metadata describes the given blueprint file.
+     *
+     * @param blueprint the blueprint to compare to.
+     * @return true if both refer to the same file.
+     */
+    public boolean describes(@Nullable final Blueprint blueprint)
+    {
+        return blueprint != null
+                 && Objects.equals(fileName, blueprint.getFileName())
+                 && Objects.equals(filePath, blueprint.getFilePath())
+                 && Objects.equals(packName, blueprint.getPackName());
+    }
+
+    /**
+     * Serialize the metadata (without file information).
+     *
+     * @return the compound.
+     */
+    public CompoundTag write()
+    {
+        final CompoundTag tag = new CompoundTag();
+        if (name != null)
+        {
+            tag.putString(TAG_NAME, name);
+        }
+        tag.putShort(TAG_SIZE_X, sizeX);
+        tag.putShort(TAG_SIZE_Y, sizeY);
+        tag.putShort(TAG_SIZE_Z, sizeZ);
+        BlockPosUtil.writeToNBT(tag, TAG_OFFSET, primaryOffset);
+
+        final ListTag modsList = new ListTag();
+        for (final String mod : requiredMods)
+        {
+            modsList.add(StringTag.valueOf(mod));
+        }
+        tag.put(TAG_REQUIRED_MODS, modsList);
+        tag.put(TAG_ANCHOR_STATE, NbtUtils.writeBlockState(anchorState));
+        if (anchorData != null)
+        {
+            tag.put(TAG_ANCHOR_DATA, anchorData);
+        }
+        return tag;
+    }
+
+    /**
+     * Deserialize the metadata written by {@link #write()}.
+     *
+     * @param tag the compound.
+     * @return the metadata.
+     */
+    public static BlueprintMetadata read(final CompoundTag tag)
+    {
+        final List<String> requiredMods = new ArrayList<>();
+        final ListTag modsList = tag.getList(TAG_REQUIRED_MODS, Tag.TAG_STRING);
+        for (int i = 0; i < modsList.size(); i++)
+        {
+            requiredMods.add(modsList.getString(i));
+        }
+
+        return new BlueprintMetadata(tag.contains(TAG_NAME) ? tag.getString(TAG_NAME) : null,
+          tag.getShort(TAG_SIZE_X),
+          tag.getShort(TAG_SIZE_Y),
+          tag.getShort(TAG_SIZE_Z),
+          BlockPosUtil.readFromNBT(tag, TAG_OFFSET),
+          requiredMods,
+          NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), tag.getCompound(TAG_ANCHOR_STATE)),
+          tag.contains(TAG_ANCHOR_DATA) ? tag.getCompound(TAG_ANCHOR_DATA) : null);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BlueprintMetadata [size=[" + sizeX + ", " + sizeY + ", " + sizeZ + "], fileName=" + fileName + ", filePath=" + filePath + ", packName=" + packName
+                 + ", name=" + name + "]";
+    }
+}
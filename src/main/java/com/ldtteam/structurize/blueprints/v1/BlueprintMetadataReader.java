@@ -0,0 +1,488 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import com.ldtteam.structurize.api.util.BlockPosUtil;
+import com.ldtteam.structurize.blocks.interfaces.IAnchorBlock;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.*;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
+import static com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE.TAG_BLUEPRINTDATA;
+import static com.ldtteam.structurize.blueprints.v1.BlueprintUtil.DEFAULT_FIXER_IF_NOT_FOUND;
+import static com.ldtteam.structurize.blueprints.v1.BlueprintUtil.NBT_OPTIONAL_DATA_TAG;
+
+/**
+ * Streaming reader for the header of v1 blueprint files.
+ * Walks the compressed NBT stream directly and skips the block array and the entity list instead of inflating the whole tag tree.
+ * Only the block ids at the few positions relevant for the anchor are extracted from the block array.
+ * Blueprints from before 1.13 get the same block entity to block state fix as on a full load, so the anchor matches the loaded blueprint.
+ */
+public final class BlueprintMetadataReader
+{
+    private static final String TAG_BLOCKS        = "blocks";
+    private static final String TAG_ENTITIES      = "entities";
+    private static final String TAG_TILE_ENTITIES = "tile_entities";
+    private static final String TAG_PALETTE       = "palette";
+
+    /**
+     * Size of the chunks the block array is streamed in.
+     */
+    private static final int BLOCK_CHUNK_SIZE = 8192;
+
+    private BlueprintMetadataReader()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * Read the metadata of a blueprint file.
+     *
+     * @param path the blueprint file.
+     * @return the metadata, or null if the file is not a v1 blueprint.
+     * @throws IOException if reading failed.
+     */
+    @Nullable
+    public static BlueprintMetadata read(final Path path) throws IOException
+    {
+        final Header header = new Header();
+        try (final DataInputStream in = open(path))
+        {
+            readRoot(in, header, false);
+        }
+
+        if (header.tag.getByte("version") != 1)
+        {
+            return null;
+        }
+
+        if (!header.blocksScanned)
+        {
+            // The block array came before the anchor information, walk the stream a second time for the block array only.
+            try (final DataInputStream in = open(path))
+            {
+                readRoot(in, header, true);
+            }
+        }
+
+        return header.toMetadata()
+                 .setFileName(path.getFileName().toString().replace(".blueprint", ""))
+                 .setFilePath(path.getParent());
+    }
+
+    private static DataInputStream open(final Path path) throws IOException
+    {
+        return new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(path))));
+    }
+
+    /**
+     * Walk the root compound of the stream.
+     *
+     * @param in         the stream.
+     * @param header     the header to fill.
+     * @param blocksOnly if only the block array should be processed.
+     * @throws IOException if reading failed.
+     */
+    private static void readRoot(final DataInputStream in, final Header header, final boolean blocksOnly) throws IOException
+    {
+        if (in.readByte() != Tag.TAG_COMPOUND)
+        {
+            throw new IOException("Blueprint root tag is not a compound");
+        }
+        in.readUTF();
+
+        byte type;
+        while ((type = in.readByte()) != Tag.TAG_END)
+        {
+            final String key = in.readUTF();
+            final TagType<?> tagType = TagTypes.getType(type);
+
+            if (key.equals(TAG_BLOCKS) && type == Tag.TAG_INT_ARRAY && (blocksOnly || header.canResolveAnchorEarly()))
+            {
+                scanBlocks(in, header);
+                if (blocksOnly)
+                {
+                    return;
+                }
+            }
+            else if (blocksOnly || key.equals(TAG_BLOCKS) || key.equals(TAG_ENTITIES))
+            {
+                tagType.skip(in);
+            }
+            else if (key.equals(TAG_TILE_ENTITIES) && type == Tag.TAG_LIST)
+            {
+                readTileEntities(in, header);
+            }
+            else
+            {
+                header.tag.put(key, tagType.load(in, 1, NbtAccounter.UNLIMITED));
+            }
+        }
+    }
+
+    /**
+     * Read the tile entity list, keyed by their local position.
+     *
+     * @param in     the stream.
+     * @param header the header to fill.
+     * @throws IOException if reading failed.
+     */
+    private static void readTileEntities(final DataInputStream in, final Header header) throws IOException
+    {
+        final byte elementType = in.readByte();
+        final int length = in.readInt();
+        if (elementType != Tag.TAG_COMPOUND)
+        {
+            final TagType<?> tagType = TagTypes.getType(elementType);
+            for (int i = 0; i < length; i++)
+            {
+                tagType.skip(in);
+            }
+            return;
+        }
+
+        for (int i = 0; i < length; i++)
+        {
+            final CompoundTag te = CompoundTag.TYPE.load(in, 2, NbtAccounter.UNLIMITED);
+            header.tileEntities.put(new BlockPos(te.getInt("x"), te.getInt("y"), te.getInt("z")), te);
+        }
+        header.tileEntitiesRead = true;
+    }
+
+    /**
+     * Stream through the block array and only keep the palette ids at relevant positions.
+     *
+     * @param in     the stream, positioned right before the array length.
+     * @param header the header to fill.
+     * @throws IOException if reading failed.
+     */
+    private static void scanBlocks(final DataInputStream in, final Header header) throws IOException
+    {
+        final int length = in.readInt();
+        final Set<Integer> wantedIndices = header.getWantedIndices();
+        final Set<Integer> anchorIds = header.getAnchorPaletteIds();
+        final int lastWanted = anchorIds.isEmpty() ? wantedIndices.stream().mapToInt(Integer::intValue).max().orElse(-1) : Integer.MAX_VALUE;
+
+        final byte[] buffer = new byte[BLOCK_CHUNK_SIZE];
+        int read = 0;
+        while (read < length)
+        {
+            if (read * 2 > lastWanted)
+            {
+                in.skipNBytes((long) (length - read) * Integer.BYTES);
+                break;
+            }
+
+            final int ints = Math.min(buffer.length / Integer.BYTES, length - read);
+            in.readFully(buffer, 0, ints * Integer.BYTES);
+            for (int i = 0; i < ints; i++)
+            {
+                final int offset = i * Integer.BYTES;
+                final int value = (buffer[offset] & 0xFF) << 24 | (buffer[offset + 1] & 0xFF) << 16 | (buffer[offset + 2] & 0xFF) << 8 | (buffer[offset + 3] & 0xFF);
+                final int index = (read + i) * 2;
+                header.onBlock(index, (value >>> 16) & 0xFFFF, wantedIndices, anchorIds);
+                header.onBlock(index + 1, value & 0xFFFF, wantedIndices, anchorIds);
+            }
+            read += ints;
+        }
+        header.blocksScanned = true;
+    }
+
+    /**
+     * Intermediate data collected while walking the stream.
+     */
+    private static class Header
+    {
+        /**
+         * All small tags of the root compound.
+         */
+        private final CompoundTag tag = new CompoundTag();
+
+        /**
+         * Tile entities by local position, in file order.
+         */
+        private final Map<BlockPos, CompoundTag> tileEntities = new LinkedHashMap<>();
+
+        /**
+         * Palette ids found at the wanted indices.
+         */
+        private final Map<Integer, Integer> paletteIds = new HashMap<>();
+
+        /**
+         * Indices of blocks with an anchor block state.
+         */
+        private final List<Integer> anchorBlockIndices = new ArrayList<>();
+
+        /**
+         * Lazily fixed palette (only used when the anchor has to be searched).
+         */
+        private List<BlockState> palette;
+
+        /**
+         * Block states of the blocks changed by the pre 1.13 fix, by block index.
+         */
+        private final Map<Integer, BlockState> fixedStates = new HashMap<>();
+
+        /**
+         * State of the first block changed by the pre 1.13 fix, by its old palette id. The fix puts it into the palette slot of the old state.
+         */
+        private final Map<Integer, BlockState> firstFixedStates = new HashMap<>();
+
+        /**
+         * If the block array was processed.
+         */
+        private boolean blocksScanned = false;
+
+        /**
+         * If the tile entity list was read.
+         */
+        private boolean tileEntitiesRead = false;
+
+        private boolean canResolveAnchorEarly()
+        {
+            // The pre 1.13 fix needs the block ids at all tile entities
+            return tag.contains("size_x") && tag.contains("size_y") && tag.contains("size_z") && getExplicitOffset() != null
+                     && (tileEntitiesRead || !needsCross1343Fix());
+        }
+
+        private boolean needsCross1343Fix()
+        {
+            return getDataVersion() == DEFAULT_FIXER_IF_NOT_FOUND;
+        }
+
+        @Nullable
+        private BlockPos getExplicitOffset()
+        {
+            final CompoundTag optionalTag = tag.getCompound(NBT_OPTIONAL_DATA_TAG);
+            if (optionalTag.contains(MOD_ID))
+            {
+                return BlockPosUtil.readFromNBT(optionalTag.getCompound(MOD_ID), "primary_offset");
+            }
+            return null;
+        }
+
+        private int getDataVersion()
+        {
+            return tag.contains("mcversion") ? tag.getInt("mcversion") : DEFAULT_FIXER_IF_NOT_FOUND;
+        }
+
+        private int toIndex(final BlockPos pos)
+        {
+            return (pos.getY() * tag.getShort("size_z") + pos.getZ()) * tag.getShort("size_x") + pos.getX();
+        }
+
+        private BlockPos fromIndex(final int index)
+        {
+            final int sizeX = tag.getShort("size_x");
+            final int sizeZ = tag.getShort("size_z");
+            return new BlockPos(index % sizeX, index / (sizeX * sizeZ), (index / sizeX) % sizeZ);
+        }
+
+        private BlockPos getFallbackOffset()
+        {
+            return new BlockPos(tag.getShort("size_x") / 2, 0, tag.getShort("size_z") / 2);
+        }
+
+        /**
+         * @return the block indices we need the palette id of.
+         */
+        private Set<Integer> getWantedIndices()
+        {
+            final Set<Integer> wanted = new HashSet<>();
+            if (needsCross1343Fix())
+            {
+                for (final BlockPos pos : tileEntities.keySet())
+                {
+                    wanted.add(toIndex(pos));
+                }
+            }
+
+            final BlockPos explicitOffset = getExplicitOffset();
+            if (explicitOffset != null)
+            {
+                wanted.add(toIndex(explicitOffset));
+                return wanted;
+            }
+
+            wanted.add(toIndex(getFallbackOffset()));
+            for (final Map.Entry<BlockPos, CompoundTag> entry : tileEntities.entrySet())
+            {
+                if (entry.getValue().contains(TAG_BLUEPRINTDATA))
+                {
+                    wanted.add(toIndex(entry.getKey()));
+                }
+            }
+            return wanted;
+        }
+
+        /**
+         * @return the palette ids of anchor blocks, empty if the anchor is stored explicitly.
+         */
+        private Set<Integer> getAnchorPaletteIds()
+        {
+            if (getExplicitOffset() != null)
+            {
+                return Collections.emptySet();
+            }
+
+            final Set<Integer> ids = new HashSet<>();
+            final List<BlockState> states = getPalette();
+            for (int i = 0; i < states.size(); i++)
+            {
+                if (states.get(i) != null && states.get(i).getBlock() instanceof IAnchorBlock)
+                {
+                    ids.add(i);
+                }
+            }
+            return ids;
+        }
+
+        private List<BlockState> getPalette()
+        {
+            if (palette == null)
+            {
+                palette = BlueprintUtil.fixPalette(getDataVersion(), tag.getList(TAG_PALETTE, Tag.TAG_COMPOUND));
+            }
+            return palette;
+        }
+
+        private void onBlock(final int index, final int paletteId, final Set<Integer> wantedIndices, final Set<Integer> anchorIds)
+        {
+            if (wantedIndices.contains(index))
+            {
+                paletteIds.put(index, paletteId);
+            }
+            if (anchorIds.contains(paletteId))
+            {
+                paletteIds.put(index, paletteId);
+                anchorBlockIndices.add(index);
+            }
+        }
+
+        /**
+         * Apply {@link BlueprintUtil#fixCross1343(List, short[][][], CompoundTag[], CompoundTag[])} to the blocks with tile entity, like a full load does.
+         * Changed blocks lose their tile entity.
+         */
+        private void applyCross1343Fix()
+        {
+            if (!needsCross1343Fix())
+            {
+                return;
+            }
+
+            final List<BlockState> states = getPalette();
+            final Iterator<Map.Entry<BlockPos, CompoundTag>> iterator = tileEntities.entrySet().iterator();
+            while (iterator.hasNext())
+            {
+                final Map.Entry<BlockPos, CompoundTag> entry = iterator.next();
+                final int index = toIndex(entry.getKey());
+                final Integer paletteId = paletteIds.get(index);
+                if (paletteId == null || paletteId >= states.size() || !BlueprintUtil.isCross1343Fixed(states.get(paletteId)))
+                {
+                    continue;
+                }
+
+                final ListTag single = new ListTag();
+                single.add(entry.getValue());
+                final BlockState fixed = BlueprintUtil.fixCross1343(states.get(paletteId), BlueprintUtil.fixTileEntities(DEFAULT_FIXER_IF_NOT_FOUND, single)[0]);
+                fixedStates.put(index, fixed);
+                firstFixedStates.putIfAbsent(paletteId, fixed);
+                iterator.remove();
+            }
+        }
+
+        /**
+         * Same logic as {@link Blueprint#getPrimaryBlockOffset()}.
+         */
+        private BlockPos resolveOffset()
+        {
+            final BlockPos explicitOffset = getExplicitOffset();
+            if (explicitOffset != null)
+            {
+                return explicitOffset;
+            }
+
+            final Set<BlockPos> candidates = new HashSet<>();
+            for (final int index : anchorBlockIndices)
+            {
+                candidates.add(fromIndex(index));
+            }
+            for (final Map.Entry<BlockPos, CompoundTag> entry : tileEntities.entrySet())
+            {
+                if (entry.getValue().contains(TAG_BLUEPRINTDATA))
+                {
+                    candidates.add(entry.getKey());
+                }
+            }
+
+            return candidates.size() == 1 ? candidates.iterator().next() : getFallbackOffset();
+        }
+
+        private BlueprintMetadata toMetadata()
+        {
+            final int dataVersion = getDataVersion();
+            applyCross1343Fix();
+            final BlockPos offset = resolveOffset();
+
+            final BlockState anchorState;
+            final int paletteId = paletteIds.getOrDefault(toIndex(offset), 0);
+            final ListTag paletteTag = tag.getList(TAG_PALETTE, Tag.TAG_COMPOUND);
+            if (fixedStates.containsKey(toIndex(offset)))
+            {
+                anchorState = fixedStates.get(toIndex(offset));
+            }
+            else if (needsCross1343Fix() && paletteId < palette.size() && BlueprintUtil.isCross1343Fixed(palette.get(paletteId)))
+            {
+                // Without tile entity the block gets the state of the first changed block with the same palette id, or none at all
+                anchorState = firstFixedStates.getOrDefault(paletteId, Blocks.AIR.defaultBlockState());
+            }
+            else if (palette != null && paletteId < palette.size() && palette.get(paletteId) != null)
+            {
+                anchorState = palette.get(paletteId);
+            }
+            else if (paletteId < paletteTag.size())
+            {
+                final ListTag single = new ListTag();
+                single.add(paletteTag.getCompound(paletteId));
+                anchorState = BlueprintUtil.fixPalette(dataVersion, single).get(0);
+            }
+            else
+            {
+                anchorState = Blocks.AIR.defaultBlockState();
+            }
+
+            CompoundTag anchorData = tileEntities.get(offset);
+            if (anchorData != null)
+            {
+                final ListTag single = new ListTag();
+                single.add(anchorData);
+                anchorData = BlueprintUtil.fixTileEntities(dataVersion, single)[0];
+            }
+
+            final List<String> requiredMods = new ArrayList<>();
+            final ListTag modsList = tag.getList("required_mods", Tag.TAG_STRING);
+            for (int i = 0; i < modsList.size(); i++)
+            {
+                requiredMods.add(modsList.getString(i));
+            }
+
+            return new BlueprintMetadata(tag.contains("name") ? tag.getString("name") : null,
+              tag.getShort("size_x"),
+              tag.getShort("size_y"),
+              tag.getShort("size_z"),
+              offset,
+              requiredMods,
+              anchorState,
+              anchorData);
+        }
+    }
+}
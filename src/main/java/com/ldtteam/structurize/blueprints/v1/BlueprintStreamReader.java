@@ -0,0 +1,307 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import net.minecraft.nbt.*;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming reader for v1 blueprint files, the counterpart of {@link BlueprintUtil#readBlueprintFromNBT(CompoundTag)} without an intermediate tag tree.
+ * The block array is decoded into structure data sized by the size tags, straight from the stream if they came first.
+ * The tile entity and entity lists are kept in their serialized form and only decoded when the blueprint first accesses them.
+ * The blueprint itself is created by {@link BlueprintUtil#readBlueprint}, same as for the tag reader.
+ */
+public final class BlueprintStreamReader
+{
+    private static final String TAG_BLOCKS        = "blocks";
+    private static final String TAG_ENTITIES      = "entities";
+    private static final String TAG_TILE_ENTITIES = "tile_entities";
+
+    /**
+     * Size of the chunks the block array is streamed in.
+     */
+    private static final int BLOCK_CHUNK_SIZE = 8192;
+
+    private BlueprintStreamReader()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * Read a blueprint file.
+     *
+     * @param path the blueprint file.
+     * @return the blueprint, or null if the file is not a v1 blueprint.
+     * @throws IOException if reading failed.
+     */
+    @Nullable
+    public static Blueprint read(final Path path) throws IOException
+    {
+        try (final InputStream in = Files.newInputStream(path))
+        {
+            return read(in);
+        }
+    }
+
+    /**
+     * Read a blueprint from a compressed stream, the stream is not closed.
+     *
+     * @param compressed the compressed blueprint data.
+     * @return the blueprint, or null if the data is not a v1 blueprint.
+     * @throws IOException if reading failed.
+     */
+    @Nullable
+    public static Blueprint read(final InputStream compressed) throws IOException
+    {
+        final RecordingInputStream recorder = new RecordingInputStream(new BufferedInputStream(new GZIPInputStream(compressed)));
+        final DataInputStream in = new DataInputStream(recorder);
+
+        if (in.readByte() != Tag.TAG_COMPOUND)
+        {
+            throw new IOException("Blueprint root tag is not a compound");
+        }
+        in.readUTF();
+
+        final CompoundTag tag = new CompoundTag();
+        short[] structure = null;
+        byte[] packedBlocks = null;
+        byte[] tileEntities = null;
+        byte[] entities = null;
+
+        byte type;
+        while ((type = in.readByte()) != Tag.TAG_END)
+        {
+            final String key = in.readUTF();
+            final TagType<?> tagType = TagTypes.getType(type);
+
+            if (key.equals(TAG_BLOCKS) && type == Tag.TAG_INT_ARRAY)
+            {
+                final int length = in.readInt();
+                if (length < 0)
+                {
+                    throw new IOException("Negative block array length");
+                }
+
+                if (tag.contains("size_x") && tag.contains("size_y") && tag.contains("size_z"))
+                {
+                    structure = readBlocks(in, length, getVolume(tag));
+                }
+                else
+                {
+                    // The root compound is written in hash order, the sizes usually follow the block array, unpacked once they are known
+                    packedBlocks = new byte[length * Integer.BYTES];
+                    in.readFully(packedBlocks);
+                }
+            }
+            else if ((key.equals(TAG_TILE_ENTITIES) || key.equals(TAG_ENTITIES)) && type == Tag.TAG_LIST)
+            {
+                recorder.startRecording();
+                tagType.skip(in);
+                final byte[] data = recorder.stopRecording();
+                if (key.equals(TAG_TILE_ENTITIES))
+                {
+                    tileEntities = data;
+                }
+                else
+                {
+                    entities = data;
+                }
+            }
+            else
+            {
+                tag.put(key, tagType.load(in, 1, NbtAccounter.UNLIMITED));
+            }
+        }
+
+        if (tag.getByte("version") != 1)
+        {
+            return null;
+        }
+
+        if (structure == null)
+        {
+            structure = new short[getVolume(tag)];
+            if (packedBlocks != null)
+            {
+                unpackBlocks(packedBlocks, packedBlocks.length / Integer.BYTES, 0, structure);
+            }
+        }
+
+        final byte[] serializedTileEntities = tileEntities;
+        final byte[] serializedEntities = entities;
+        return BlueprintUtil.readBlueprint(tag,
+          structure,
+          new BlueprintUtil.ListContent(BlueprintUtil.getDataVersion(tag),
+            getListLength(serializedEntities),
+            () -> decodeList(serializedTileEntities),
+            () -> decodeList(serializedEntities)));
+    }
+
+    /**
+     * Get the volume of the blueprint from its size tags.
+     *
+     * @param tag the root compound.
+     * @return the volume.
+     */
+    private static int getVolume(final CompoundTag tag)
+    {
+        return tag.getShort("size_x") * tag.getShort("size_y") * tag.getShort("size_z");
+    }
+
+    /**
+     * Decode the block array into the flat structure data, two palette ids per int.
+     *
+     * @param in     the stream, positioned right after the array length.
+     * @param length the amount of ints in the array.
+     * @param volume the volume of the blueprint.
+     * @return the structure data.
+     * @throws IOException if reading failed.
+     */
+    private static short[] readBlocks(final DataInputStream in, final int length, final int volume) throws IOException
+    {
+        final short[] structure = new short[volume];
+        final byte[] buffer = new byte[BLOCK_CHUNK_SIZE];
+        int read = 0;
+        while (read < length)
+        {
+            final int ints = Math.min(buffer.length / Integer.BYTES, length - read);
+            in.readFully(buffer, 0, ints * Integer.BYTES);
+            unpackBlocks(buffer, ints, read * 2, structure);
+            read += ints;
+        }
+        return structure;
+    }
+
+    /**
+     * Unpack big endian ints holding two palette ids each into the structure data, ids past its end are dropped.
+     *
+     * @param data      the packed ints.
+     * @param ints      the amount of ints to unpack.
+     * @param start     the structure index of the first id.
+     * @param structure the structure data.
+     */
+    private static void unpackBlocks(final byte[] data, final int ints, final int start, final short[] structure)
+    {
+        for (int i = 0; i < ints; i++)
+        {
+            final int offset = i * Integer.BYTES;
+            final int index = start + i * 2;
+            if (index < structure.length)
+            {
+                structure[index] = (short) ((data[offset] & 0xFF) << 8 | (data[offset + 1] & 0xFF));
+            }
+            if (index + 1 < structure.length)
+            {
+                structure[index + 1] = (short) ((data[offset + 2] & 0xFF) << 8 | (data[offset + 3] & 0xFF));
+            }
+        }
+    }
+
+    /**
+     * Get the length of a serialized list, the payload starts with the element type and the length.
+     *
+     * @param data the list payload, or null.
+     * @return the length.
+     */
+    private static int getListLength(@Nullable final byte[] data)
+    {
+        return data == null || data.length < 5 ? 0 : (data[1] & 0xFF) << 24 | (data[2] & 0xFF) << 16 | (data[3] & 0xFF) << 8 | (data[4] & 0xFF);
+    }
+
+    /**
+     * Decode a serialized list.
+     *
+     * @param data the list payload, or null.
+     * @return the list, empty if there is no data.
+     */
+    private static ListTag decodeList(@Nullable final byte[] data)
+    {
+        if (data == null)
+        {
+            return new ListTag();
+        }
+
+        try
+        {
+            return ListTag.TYPE.load(new DataInputStream(new ByteArrayInputStream(data)), 1, NbtAccounter.UNLIMITED);
+        }
+        catch (final IOException e)
+        {
+            // The data was read successfully before, only an in memory stream is involved here
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Input stream which can record the bytes passing through it, including skipped ones.
+     */
+    private static class RecordingInputStream extends FilterInputStream
+    {
+        @Nullable
+        private ByteArrayOutputStream recording;
+
+        private RecordingInputStream(final InputStream in)
+        {
+            super(in);
+        }
+
+        private void startRecording()
+        {
+            recording = new ByteArrayOutputStream();
+        }
+
+        private byte[] stopRecording()
+        {
+            final byte[] data = recording.toByteArray();
+            recording = null;
+            return data;
+        }
+
+        @Override
+        public int read() throws IOException
+        {
+            final int value = super.read();
+            if (recording != null && value != -1)
+            {
+                recording.write(value);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException
+        {
+            final int read = super.read(buffer, offset, length);
+            if (recording != null && read > 0)
+            {
+                recording.write(buffer, offset, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException
+        {
+            if (recording == null)
+            {
+                return super.skip(n);
+            }
+
+            final byte[] buffer = new byte[(int) Math.min(n, BLOCK_CHUNK_SIZE)];
+            long skipped = 0;
+            while (skipped < n)
+            {
+                final int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read <= 0)
+                {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+    }
+}
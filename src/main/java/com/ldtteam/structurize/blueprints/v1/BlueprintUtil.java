@@ -3,34 +3,27 @@ package com.ldtteam.structurize.blueprints.v1;
 import com.ldtteam.structurize.api.util.BlockPosUtil;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE;
-import com.ldtteam.structurize.tag.ModTags;
+import it.unimi.dsi.fastutil.shorts.ShortList;
 import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.world.level.block.state.BlockState;
-import net.minecraft.world.level.chunk.LevelChunk;
 import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.entity.Entity;
-import net.minecraft.world.entity.decoration.HangingEntity;
 import net.minecraft.nbt.*;
 import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.SharedConstants;
 import net.minecraft.util.datafix.fixes.References;
 import net.minecraft.util.datafix.fixes.ChunkPalettedStorageFix;
-import net.minecraft.world.phys.AABB;
 import net.minecraft.core.BlockPos;
-import net.minecraft.world.phys.Vec3;
 import net.minecraft.world.level.Level;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraftforge.fml.ModList;
-import net.minecraftforge.registries.ForgeRegistries;
 import org.apache.commons.io.FilenameUtils;
-import org.apache.logging.log4j.LogManager;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.*;
 import java.util.function.Function;
-
-import static com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE.*;
+import java.util.function.Supplier;
 
 import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
 
@@ -65,136 +58,39 @@ public class BlueprintUtil
       String name,
       Optional<BlockPos> anchorPos)
     {
-        final List<BlockState> pallete = new ArrayList<>();
-        // Allways add AIR to Pallete
-        pallete.add(Blocks.AIR.defaultBlockState());
-        final short[][][] structure = new short[sizeY][sizeZ][sizeX];
-        final List<CompoundTag> tileEntities = new ArrayList<>();
-
-        final List<String> requiredMods = new ArrayList<>();
-
-        for (final BlockPos mutablePos : BlockPos.betweenClosed(pos, pos.offset(sizeX - 1, sizeY - 1, sizeZ - 1)))
-        {
-            BlockState state = world.getBlockState(mutablePos);
-            if (state.is(ModTags.BLUEPRINT_BLACKLIST))
-            {
-                continue;
-            }
-            String modName = ForgeRegistries.BLOCKS.getKey(state.getBlock()).getNamespace();
-
-            short x = (short) (mutablePos.getX() - pos.getX()), y = (short) (mutablePos.getY() - pos.getY()),
-              z = (short) (mutablePos.getZ() - pos.getZ());
-
-            if (!modName.equals("minecraft") && !modName.equals(MOD_ID))
-            {
-                if (!ModList.get().getModContainerById(modName).isPresent())
-                {
-                    structure[y][z][x] = (short) pallete.indexOf(Blocks.AIR.defaultBlockState());
-                    continue;
-                }
-                if (!requiredMods.contains(modName))
-                {
-                    requiredMods.add(modName);
-                }
-            }
-
-            final LevelChunk chunk = world.getChunkAt(mutablePos);
-            final BlockEntity te = chunk.getBlockEntities().containsKey(mutablePos) && !chunk.getBlockEntities().get(mutablePos).isRemoved() ? chunk.getBlockEntity(mutablePos) : world.getBlockEntity(mutablePos.immutable());
-            if (te != null)
-            {
-                CompoundTag teTag = te.saveWithFullMetadata();
-                teTag.putShort("x", x);
-                teTag.putShort("y", y);
-                teTag.putShort("z", z);
-                tileEntities.add(teTag);
-            }
-            if (!pallete.contains(state))
-            {
-                pallete.add(state);
-            }
-            structure[y][z][x] = (short) pallete.indexOf(state);
-        }
-
-        final CompoundTag[] tes = tileEntities.toArray(new CompoundTag[0]);
-
-        final List<CompoundTag> entitiesTag = new ArrayList<>();
-
-        List<Entity> entities = new ArrayList<>();
-        if (saveEntities)
-        {
-            entities = world.getEntities(null,
-              new AABB(pos.getX(), pos.getY(), pos.getZ(), pos.getX() + sizeX, pos.getY() + sizeY, pos.getZ() + sizeZ));
-        }
-
-        for (final Entity entity : entities)
-        {
-            if (!entity.getType().canSerialize())
-            {
-                continue;
-            }
-
-            final Vec3 oldPos = entity.position();
-            final CompoundTag entityTag = entity.serializeNBT();
-
-            final ListTag posList = new ListTag();
-            posList.add(DoubleTag.valueOf(oldPos.x - pos.getX()));
-            posList.add(DoubleTag.valueOf(oldPos.y - pos.getY()));
-            posList.add(DoubleTag.valueOf(oldPos.z - pos.getZ()));
-
-            BlockPos entityPos = entity.blockPosition();
-            if (entity instanceof HangingEntity)
-            {
-                entityPos = ((HangingEntity) entity).getPos();
-            }
-            entityTag.put("Pos", posList);
-            entityTag.put("TileX", IntTag.valueOf(entityPos.getX() - pos.getX()));
-            entityTag.put("TileY", IntTag.valueOf(entityPos.getY() - pos.getY()));
-            entityTag.put("TileZ", IntTag.valueOf(entityPos.getZ() - pos.getZ()));
-            entitiesTag.add(entityTag);
-        }
-
-        final Blueprint schem = new Blueprint(sizeX, sizeY, sizeZ, (short) pallete.size(), pallete, structure, tes, requiredMods);
-        schem.setEntities(entitiesTag.toArray(new CompoundTag[0]));
-
-        if (anchorPos.isPresent())
-        {
-            BlockPos relativeAnchorPos = new BlockPos(anchorPos.get().subtract(pos));
-
-            schem.setCachePrimaryOffset(relativeAnchorPos);
-        }
+        final Blueprint schem = ScanSnapshot.take(world, pos, saveEntities, sizeX, sizeY, sizeZ).toBlueprint(name, anchorPos);
+        updateAnchorBlockEntity(world, pos, schem, name);
+        return schem;
+    }
 
-        // Blueprints do auto-calc anchors when missing, so if it uses a blueprint provider as anchor we fill in the schematic data afterwards to both TE and blueprint
+    /**
+     * Fill in the schematic data of the blueprint provider used as anchor of a freshly scanned blueprint, if any.
+     *
+     * @param world The World the Blueprint was scanned in
+     * @param pos   The Position of the Blueprint
+     * @param schem The scanned Blueprint
+     * @param name  the Name of the Structure
+     */
+    public static void updateAnchorBlockEntity(final Level world, final BlockPos pos, final Blueprint schem, @Nullable final String name)
+    {
         final BlockEntity tile = world.getBlockEntity(pos.offset(schem.getPrimaryBlockOffset()));
         if (tile instanceof IBlueprintDataProviderBE)
         {
-            final CompoundTag blueprintData = (CompoundTag) schem.getBlockInfoAsMap().get(schem.getPrimaryBlockOffset()).getTileEntityData().get(TAG_BLUEPRINTDATA);
-
             if (name != null)
             {
-                final String fileName = FilenameUtils.getBaseName(name);
-                blueprintData.putString(TAG_SCHEMATIC_NAME, fileName);
-                ((IBlueprintDataProviderBE) tile).setSchematicName(fileName);
+                ((IBlueprintDataProviderBE) tile).setSchematicName(FilenameUtils.getBaseName(name));
                 ((IBlueprintDataProviderBE) tile).setBlueprintPath(name);
             }
 
             final BlockPos corner1 = BlockPos.ZERO.subtract(schem.getPrimaryBlockOffset());
-            final BlockPos corner2 = new BlockPos(sizeX - 1, sizeY - 1, sizeZ - 1).subtract(schem.getPrimaryBlockOffset());
+            final BlockPos corner2 = new BlockPos(schem.getSizeX() - 1, schem.getSizeY() - 1, schem.getSizeZ() - 1).subtract(schem.getPrimaryBlockOffset());
             ((IBlueprintDataProviderBE) tile).setSchematicCorners(corner1, corner2);
-            BlockPosUtil.writeToNBT(blueprintData, TAG_CORNER_ONE, corner1);
-            BlockPosUtil.writeToNBT(blueprintData, TAG_CORNER_TWO, corner2);
 
             if (!world.isClientSide)
             {
                 ((ServerLevel) world).getChunkSource().blockChanged(pos);
             }
         }
-
-        if (name != null)
-        {
-            schem.setName(name);
-        }
-
-        return schem;
     }
 
     /**
@@ -223,17 +119,17 @@ public class BlueprintUtil
         tag.put("palette", paletteTag);
 
         // Adding blocks
-        final int[] blockInt = convertBlocksToSaveData(schem.getStructure(), schem.getSizeX(), schem.getSizeY(), schem.getSizeZ());
+        final int[] blockInt = convertBlocksToSaveData(schem.getStructureData());
         tag.putIntArray("blocks", blockInt);
 
         // Adding Tile Entities
         final ListTag finishedTes = new ListTag();
-        final CompoundTag[] tes = Arrays.stream(schem.getTileEntities())
-                                    .flatMap(Arrays::stream)
-                                    .flatMap(Arrays::stream)
-                                    .filter(Objects::nonNull)
-                                    .toArray(CompoundTag[]::new);
-        finishedTes.addAll(Arrays.asList(tes));
+        final int[] teIndices = schem.getTileEntityMap().keySet().toIntArray();
+        Arrays.sort(teIndices);
+        for (final int index : teIndices)
+        {
+            finishedTes.add(schem.getTileEntityMap().get(index));
+        }
         tag.put("tile_entities", finishedTes);
 
         // Adding Entities
@@ -505,29 +401,75 @@ public class BlueprintUtil
         final int oldSize = palette.size();
         for (short i = 0; i < oldSize; i++)
         {
-            final BlockState bs = palette.get(i);
-            if (bs.getBlock() == Blocks.POTTED_CACTUS) // flower pot fix
-            {
-                teToBlockStateFix(palette, blocks, tileEntities, i, teCompound -> {
-                    final String type = teCompound.getString("Item") + teCompound.getInt("Data");
-                    return (CompoundTag) ChunkPalettedStorageFix.FLOWER_POT_MAP
-                                           .getOrDefault(type, ChunkPalettedStorageFix.FLOWER_POT_MAP.get("minecraft:air0"))
-                                           .getValue();
-                });
-            }
-            else if (bs.getBlock() == Blocks.NOTE_BLOCK) // note block fix
+            final Function<CompoundTag, CompoundTag> dataFixer = getCross1343Fixer(palette.get(i));
+            if (dataFixer != null)
             {
-                teToBlockStateFix(palette, blocks, tileEntities, i, teCompound -> {
-                    final String type = Boolean.toString(teCompound.getBoolean("powered"))
-                                          + (byte) Math.min(Math.max(teCompound.getInt("note"), 0), 24);
-                    return (CompoundTag) ChunkPalettedStorageFix.NOTE_BLOCK_MAP
-                                           .getOrDefault(type, ChunkPalettedStorageFix.NOTE_BLOCK_MAP.get("false0"))
-                                           .getValue();
-                });
+                teToBlockStateFix(palette, blocks, tileEntities, i, dataFixer);
             }
         }
     }
 
+    /**
+     * Get the block state {@link #fixCross1343(List, short[][][], CompoundTag[], CompoundTag[])} turns a block with block entity into.
+     * The block entity is dropped by the fix.
+     *
+     * @param state      the block state.
+     * @param teCompound the block entity data at the block.
+     * @return the fixed block state, or null if the block isn't changed by the fix.
+     */
+    @Nullable
+    public static BlockState fixCross1343(final BlockState state, final CompoundTag teCompound)
+    {
+        final Function<CompoundTag, CompoundTag> dataFixer = getCross1343Fixer(state);
+        return dataFixer == null ? null : NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), dataFixer.apply(teCompound));
+    }
+
+    /**
+     * Check if a palette entry is changed by {@link #fixCross1343(List, short[][][], CompoundTag[], CompoundTag[])}.
+     *
+     * @param state the block state.
+     * @return true if so.
+     */
+    public static boolean isCross1343Fixed(@Nullable final BlockState state)
+    {
+        return getCross1343Fixer(state) != null;
+    }
+
+    /**
+     * Get the block entity to block state fixer of a block.
+     *
+     * @param state the block state.
+     * @return the fixer or null if the block doesn't need one.
+     */
+    @Nullable
+    private static Function<CompoundTag, CompoundTag> getCross1343Fixer(@Nullable final BlockState state)
+    {
+        if (state == null)
+        {
+            return null;
+        }
+        if (state.getBlock() == Blocks.POTTED_CACTUS) // flower pot fix
+        {
+            return teCompound -> {
+                final String type = teCompound.getString("Item") + teCompound.getInt("Data");
+                return (CompoundTag) ChunkPalettedStorageFix.FLOWER_POT_MAP
+                                       .getOrDefault(type, ChunkPalettedStorageFix.FLOWER_POT_MAP.get("minecraft:air0"))
+                                       .getValue();
+            };
+        }
+        if (state.getBlock() == Blocks.NOTE_BLOCK) // note block fix
+        {
+            return teCompound -> {
+                final String type = Boolean.toString(teCompound.getBoolean("powered"))
+                                      + (byte) Math.min(Math.max(teCompound.getInt("note"), 0), 24);
+                return (CompoundTag) ChunkPalettedStorageFix.NOTE_BLOCK_MAP
+                                       .getOrDefault(type, ChunkPalettedStorageFix.NOTE_BLOCK_MAP.get("false0"))
+                                       .getValue();
+            };
+        }
+        return null;
+    }
+
     /**
      * Deserializes a Blueprint form the Given CompoundNBT
      *
@@ -536,81 +478,173 @@ public class BlueprintUtil
      */
     public static Blueprint readBlueprintFromNBT(final CompoundTag nbtTag)
     {
-        final CompoundTag tag = nbtTag;
-        byte version = tag.getByte("version");
-        if (version == 1)
-        {
-            short sizeX = tag.getShort("size_x"), sizeY = tag.getShort("size_y"), sizeZ = tag.getShort("size_z");
-
-            // Reading required Mods
-            List<String> requiredMods = new ArrayList<>();
-            List<String> missingMods = new ArrayList<>();
-            ListTag modsList = (ListTag) tag.get("required_mods");
-            short modListSize = (short) modsList.size();
-            for (int i = 0; i < modListSize; i++)
-            {
-                requiredMods.add((modsList.get(i)).getAsString());
-                if (!requiredMods.get(i).equals("minecraft") && !ModList.get().getModContainerById(requiredMods.get(i)).isPresent())
-                {
-                    LogManager.getLogger().warn("Found missing mods for Blueprint, some blocks may be missing: " + requiredMods.get(i));
-                    missingMods.add(requiredMods.get(i));
-                }
-            }
-
-            final int oldDataVersion = tag.contains("mcversion") ? tag.getInt("mcversion") : DEFAULT_FIXER_IF_NOT_FOUND;
-
-            // Reading Pallete
-            ListTag paletteTag = (ListTag) tag.get("palette");
-            List<BlockState> palette = fixPalette(oldDataVersion, paletteTag);
+        if (nbtTag.getByte("version") != 1)
+        {
+            return null;
+        }
 
-            // Reading Blocks
-            short[][][] blocks = convertSaveDataToBlocks(tag.getIntArray("blocks"), sizeX, sizeY, sizeZ);
+        final int volume = nbtTag.getShort("size_x") * nbtTag.getShort("size_y") * nbtTag.getShort("size_z");
+        final ListTag tileEntities = nbtTag.getList("tile_entities", Tag.TAG_COMPOUND);
+        final ListTag entities = nbtTag.getList("entities", Tag.TAG_COMPOUND);
+        return readBlueprint(nbtTag,
+          convertSaveDataToFlatBlocks(nbtTag.getIntArray("blocks"), volume),
+          new ListContent(getDataVersion(nbtTag), entities.size(), () -> tileEntities, () -> entities));
+    }
 
-            // Reading Tile Entities
-            CompoundTag[] tileEntities = fixTileEntities(oldDataVersion, (ListTag) tag.get("tile_entities"));
+    /**
+     * Get the data version a blueprint was written with.
+     *
+     * @param tag the root compound of the blueprint.
+     * @return the data version, 1.12.2 if not stored.
+     */
+    static int getDataVersion(final CompoundTag tag)
+    {
+        return tag.contains("mcversion") ? tag.getInt("mcversion") : DEFAULT_FIXER_IF_NOT_FOUND;
+    }
 
-            // Reading Entities
-            CompoundTag[] entities = fixEntities(oldDataVersion, (ListTag) tag.get("entities"));
+    /**
+     * Create a v1 blueprint, shared by {@link #readBlueprintFromNBT(CompoundTag)} and {@link BlueprintStreamReader}.
+     *
+     * @param tag     the root compound, only the small tags are used.
+     * @param blocks  the flat structure data in y, z, x order, sized by the size tags.
+     * @param content the tile entities and entities, decoded on first access unless the blueprint needs the 1.13 fixes.
+     * @return the blueprint.
+     */
+    static Blueprint readBlueprint(final CompoundTag tag, final short[] blocks, final ListContent content)
+    {
+        final short sizeX = tag.getShort("size_x"), sizeY = tag.getShort("size_y"), sizeZ = tag.getShort("size_z");
 
-            if (oldDataVersion == DEFAULT_FIXER_IF_NOT_FOUND)
+        // Reading required Mods
+        final List<String> requiredMods = new ArrayList<>();
+        final List<String> missingMods = new ArrayList<>();
+        final ListTag modsList = tag.getList("required_mods", Tag.TAG_STRING);
+        for (int i = 0; i < modsList.size(); i++)
+        {
+            final String modId = modsList.getString(i);
+            requiredMods.add(modId);
+            if (!modId.equals("minecraft") && !ModList.get().getModContainerById(modId).isPresent())
             {
-                fixCross1343(palette, blocks, tileEntities, entities);
+                Log.getLogger().warn("Found missing mods for Blueprint, some blocks may be missing: " + modId);
+                missingMods.add(modId);
             }
+        }
 
-            final Blueprint schem = new Blueprint(sizeX, sizeY, sizeZ, (short) palette.size(), palette, blocks, tileEntities, requiredMods)
-                                      .setMissingMods(missingMods.toArray(new String[0]));
+        final int dataVersion = getDataVersion(tag);
+        final List<BlockState> palette = fixPalette(dataVersion, tag.getList("palette", Tag.TAG_COMPOUND));
 
+        final Blueprint schem;
+        if (dataVersion == DEFAULT_FIXER_IF_NOT_FOUND)
+        {
+            // Legacy blueprints need their tile entities and entities right away to fix the blocks
+            final CompoundTag[] tileEntities = content.decodeTileEntities();
+            final CompoundTag[] entities = content.decodeEntities();
+            final short[][][] blocks3d = new short[sizeY][sizeZ][sizeX];
+            int index = 0;
+            for (int y = 0; y < sizeY; y++)
+            {
+                for (int z = 0; z < sizeZ; z++)
+                {
+                    System.arraycopy(blocks, index, blocks3d[y][z], 0, sizeX);
+                    index += sizeX;
+                }
+            }
+            fixCross1343(palette, blocks3d, tileEntities, entities);
+            schem = new Blueprint(sizeX, sizeY, sizeZ, (short) palette.size(), palette, blocks3d, tileEntities, requiredMods);
             schem.setEntities(entities);
+        }
+        else
+        {
+            schem = new Blueprint(sizeX, sizeY, sizeZ, palette, blocks, content, requiredMods);
+        }
+        schem.setMissingMods(missingMods.toArray(new String[0]));
 
-            if (tag.getAllKeys().contains("name"))
+        if (tag.contains("name"))
+        {
+            schem.setName(tag.getString("name"));
+        }
+        if (tag.contains("architects"))
+        {
+            final ListTag architectsTag = tag.getList("architects", Tag.TAG_STRING);
+            final String[] architects = new String[architectsTag.size()];
+            for (int i = 0; i < architectsTag.size(); i++)
             {
-                schem.setName(tag.getString("name"));
+                architects[i] = architectsTag.getString(i);
             }
-            if (tag.getAllKeys().contains("architects"))
+            schem.setArchitects(architects);
+        }
+
+        final CompoundTag optionalTag = tag.getCompound(NBT_OPTIONAL_DATA_TAG);
+        if (optionalTag.contains(MOD_ID))
+        {
+            schem.setCachePrimaryOffset(BlockPosUtil.readFromNBT(optionalTag.getCompound(MOD_ID), "primary_offset"));
+        }
+        return schem;
+    }
+
+    /**
+     * The tile entity and entity lists of a read blueprint, shared by all copies of it.
+     * Each list is decoded and fixed once, then its source is dropped.
+     */
+    static class ListContent implements Blueprint.LazyContent
+    {
+        private final int dataVersion;
+        private final int entityCount;
+
+        @Nullable
+        private Supplier<ListTag> tileEntities;
+
+        @Nullable
+        private Supplier<ListTag> entities;
+
+        @Nullable
+        private CompoundTag[] decodedTileEntities;
+
+        @Nullable
+        private CompoundTag[] decodedEntities;
+
+        /**
+         * Create the content.
+         *
+         * @param dataVersion  the data version the lists were written with.
+         * @param entityCount  the amount of entities.
+         * @param tileEntities supplies the tile entity list.
+         * @param entities     supplies the entity list.
+         */
+        ListContent(final int dataVersion, final int entityCount, final Supplier<ListTag> tileEntities, final Supplier<ListTag> entities)
+        {
+            this.dataVersion = dataVersion;
+            this.entityCount = entityCount;
+            this.tileEntities = tileEntities;
+            this.entities = entities;
+        }
+
+        @Override
+        public int entityCount()
+        {
+            return entityCount;
+        }
+
+        @Override
+        public synchronized CompoundTag[] decodeTileEntities()
+        {
+            if (decodedTileEntities == null)
             {
-                ListTag architectsTag = (ListTag) tag.get("architects");
-                String[] architects = new String[architectsTag.size()];
-                for (int i = 0; i < architectsTag.size(); i++)
-                {
-                    architects[i] = architectsTag.getString(i);
-                }
-                schem.setArchitects(architects);
+                decodedTileEntities = fixTileEntities(dataVersion, tileEntities.get());
+                tileEntities = null;
             }
+            return decodedTileEntities;
+        }
 
-            if (tag.getAllKeys().contains(NBT_OPTIONAL_DATA_TAG))
+        @Override
+        public synchronized CompoundTag[] decodeEntities()
+        {
+            if (decodedEntities == null)
             {
-                final CompoundTag optionalTag = tag.getCompound(NBT_OPTIONAL_DATA_TAG);
-                if (optionalTag.getAllKeys().contains(MOD_ID))
-                {
-                    final CompoundTag structurizeTag = optionalTag.getCompound(MOD_ID);
-                    BlockPos offsetPos = BlockPosUtil.readFromNBT(structurizeTag, "primary_offset");
-                    schem.setCachePrimaryOffset(offsetPos);
-                }
+                decodedEntities = fixEntities(dataVersion, entities.get());
+                entities = null;
             }
-
-            return schem;
+            return decodedEntities;
         }
-        return null;
     }
 
     /**
@@ -632,47 +666,43 @@ public class BlueprintUtil
     }
 
     /**
-     * Converts a 3 Dimensional short Array to a one Dimensional int Array
+     * Packs the flat short structure Array into an int Array, two shorts per int
      *
-     * @param multDimArray 3 Dimensional short Array
-     * @param sizeX        Sturcture size on the X-Axis
-     * @param sizeY        Sturcture size on the Y-Axis
-     * @param sizeZ        Sturcture size on the Z-Axis
+     * @param oneDimArray flat structure data in y, z, x order
      * @return An 1 Dimensional int array
      */
-    private static int[] convertBlocksToSaveData(short[][][] multDimArray, short sizeX, short sizeY, short sizeZ)
+    private static int[] convertBlocksToSaveData(final ShortList oneDimArray)
     {
-        // Converting 3 Dimensional Array to One DImensional
-        short[] oneDimArray = new short[sizeX * sizeY * sizeZ];
+        final int[] ints = new int[(oneDimArray.size() + 1) / 2];
 
-        int j = 0;
-        for (short y = 0; y < sizeY; y++)
+        for (int i = 1; i < oneDimArray.size(); i += 2)
         {
-            for (short z = 0; z < sizeZ; z++)
-            {
-                for (short x = 0; x < sizeX; x++)
-                {
-                    oneDimArray[j++] = multDimArray[y][z][x];
-                }
-            }
+            ints[i / 2] = oneDimArray.getShort(i - 1) << 16 | (oneDimArray.getShort(i) & 0xFFFF);
         }
-
-        // Converting short Array to int Array
-        int[] ints = new int[(int) Math.ceil(oneDimArray.length / 2f)];
-
-        int currentInt;
-        for (int i = 1; i < oneDimArray.length; i += 2)
+        if (oneDimArray.size() % 2 == 1)
         {
-            currentInt = oneDimArray[i - 1];
-            currentInt = currentInt << 16 | oneDimArray[i];
-            ints[(int) Math.ceil(i / 2f) - 1] = currentInt;
+            ints[ints.length - 1] = oneDimArray.getShort(oneDimArray.size() - 1) << 16;
         }
-        if (oneDimArray.length % 2 == 1)
+        return ints;
+    }
+
+    /**
+     * Unpacks the int Array to the flat short structure Array
+     *
+     * @param ints   1 Dimensioanl int Array
+     * @param volume the volume of the structure
+     * @return the flat structure data in y, z, x order
+     */
+    public static short[] convertSaveDataToFlatBlocks(final int[] ints, final int volume)
+    {
+        final short[] oneDimArray = new short[volume];
+        final int length = Math.min(ints.length * 2, volume);
+
+        for (int i = 0; i < length; i++)
         {
-            currentInt = oneDimArray[oneDimArray.length - 1] << 16;
-            ints[ints.length - 1] = currentInt;
+            oneDimArray[i] = (short) ((i & 1) == 0 ? ints[i >> 1] >> 16 : ints[i >> 1]);
         }
-        return ints;
+        return oneDimArray;
     }
 
     /**
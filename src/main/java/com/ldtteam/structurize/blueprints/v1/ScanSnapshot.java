@@ -0,0 +1,326 @@
+package com.ldtteam.structurize.blueprints.v1;
+
+import com.ldtteam.structurize.api.util.BlockPosUtil;
+import com.ldtteam.structurize.tag.ModTags;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.DoubleTag;
+import net.minecraft.nbt.IntTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.decoration.HangingEntity;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.chunk.PalettedContainer;
+import net.minecraft.world.phys.AABB;
+import net.minecraft.world.phys.Vec3;
+import net.minecraftforge.fml.ModList;
+import net.minecraftforge.registries.ForgeRegistries;
+import org.apache.commons.io.FilenameUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
+import static com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE.*;
+
+/**
+ * Copy of the world content of a scan area.
+ * Taken on the server thread, where only the chunk sections are copied and the block entities and entities are saved.
+ * The blueprint can then be built from it on any thread.
+ */
+public class ScanSnapshot
+{
+    /**
+     * The corner of the area with the lowest coordinates.
+     */
+    private final BlockPos pos;
+
+    /**
+     * The size of the area.
+     */
+    private final short sizeX, sizeY, sizeZ;
+
+    /**
+     * The area in chunk section coordinates.
+     */
+    private final int minSectionX, minSectionY, minSectionZ;
+    private final int sectionsX, sectionsZ;
+
+    /**
+     * Copies of the states of the sections in y, x, z order, null for empty or missing sections.
+     */
+    private final PalettedContainer<BlockState>[] sections;
+
+    /**
+     * The saved block entities, with positions relative to the area.
+     */
+    private final List<CompoundTag> tileEntities = new ArrayList<>();
+
+    /**
+     * The saved entities, with positions relative to the area.
+     */
+    private final List<CompoundTag> entities = new ArrayList<>();
+
+    @SuppressWarnings("unchecked")
+    private ScanSnapshot(final BlockPos pos, final short sizeX, final short sizeY, final short sizeZ)
+    {
+        this.pos = pos.immutable();
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.minSectionX = SectionPos.blockToSectionCoord(pos.getX());
+        this.minSectionY = SectionPos.blockToSectionCoord(pos.getY());
+        this.minSectionZ = SectionPos.blockToSectionCoord(pos.getZ());
+        this.sectionsX = SectionPos.blockToSectionCoord(pos.getX() + sizeX - 1) - minSectionX + 1;
+        this.sectionsZ = SectionPos.blockToSectionCoord(pos.getZ() + sizeZ - 1) - minSectionZ + 1;
+        final int sectionsY = SectionPos.blockToSectionCoord(pos.getY() + sizeY - 1) - minSectionY + 1;
+        this.sections = new PalettedContainer[sectionsY * sectionsX * sectionsZ];
+    }
+
+    /**
+     * Take a snapshot of an area, has to be called on the thread owning the world.
+     *
+     * @param world        the world.
+     * @param pos          the corner of the area with the lowest coordinates.
+     * @param saveEntities whether to save the entities in the area.
+     * @param sizeX        the size on the x axis.
+     * @param sizeY        the size on the y axis.
+     * @param sizeZ        the size on the z axis.
+     * @return the snapshot.
+     */
+    public static ScanSnapshot take(final Level world, final BlockPos pos, final boolean saveEntities, final short sizeX, final short sizeY, final short sizeZ)
+    {
+        final ScanSnapshot snapshot = new ScanSnapshot(pos, sizeX, sizeY, sizeZ);
+        final int sectionsY = snapshot.sections.length / (snapshot.sectionsX * snapshot.sectionsZ);
+
+        for (int sectionX = 0; sectionX < snapshot.sectionsX; sectionX++)
+        {
+            for (int sectionZ = 0; sectionZ < snapshot.sectionsZ; sectionZ++)
+            {
+                final LevelChunk chunk = world.getChunk(snapshot.minSectionX + sectionX, snapshot.minSectionZ + sectionZ);
+                for (int sectionY = 0; sectionY < sectionsY; sectionY++)
+                {
+                    final int chunkSectionIndex = chunk.getSectionIndexFromSectionY(snapshot.minSectionY + sectionY);
+                    if (chunkSectionIndex >= 0 && chunkSectionIndex < chunk.getSectionsCount())
+                    {
+                        final LevelChunkSection section = chunk.getSection(chunkSectionIndex);
+                        if (!section.hasOnlyAir())
+                        {
+                            snapshot.sections[(sectionY * snapshot.sectionsX + sectionX) * snapshot.sectionsZ + sectionZ] = section.getStates().copy();
+                        }
+                    }
+                }
+
+                for (final BlockEntity blockEntity : chunk.getBlockEntities().values())
+                {
+                    final BlockPos blockEntityPos = blockEntity.getBlockPos();
+                    if (!blockEntity.isRemoved() && snapshot.isInside(blockEntityPos))
+                    {
+                        final CompoundTag teTag = blockEntity.saveWithFullMetadata();
+                        teTag.putShort("x", (short) (blockEntityPos.getX() - pos.getX()));
+                        teTag.putShort("y", (short) (blockEntityPos.getY() - pos.getY()));
+                        teTag.putShort("z", (short) (blockEntityPos.getZ() - pos.getZ()));
+                        snapshot.tileEntities.add(teTag);
+                    }
+                }
+            }
+        }
+
+        if (saveEntities)
+        {
+            for (final Entity entity : world.getEntities(null, new AABB(pos.getX(), pos.getY(), pos.getZ(), pos.getX() + sizeX, pos.getY() + sizeY, pos.getZ() + sizeZ)))
+            {
+                if (entity.getType().canSerialize())
+                {
+                    snapshot.entities.add(saveEntity(entity, pos));
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Build the blueprint of the area, can be called on any thread.
+     * Blacklisted blocks and blocks of mods which aren't loaded are replaced with air.
+     *
+     * @param name      the name of the blueprint.
+     * @param anchorPos the anchor position in the world, if selected.
+     * @return the blueprint.
+     */
+    public Blueprint toBlueprint(@Nullable final String name, final Optional<BlockPos> anchorPos)
+    {
+        final List<BlockState> palette = new ArrayList<>();
+        // Always add air to the palette
+        palette.add(Blocks.AIR.defaultBlockState());
+        final Reference2IntMap<BlockState> paletteIndices = new Reference2IntOpenHashMap<>();
+        paletteIndices.defaultReturnValue(-1);
+        paletteIndices.put(Blocks.AIR.defaultBlockState(), 0);
+
+        final List<String> requiredMods = new ArrayList<>();
+        final short[] structure = new short[sizeX * sizeY * sizeZ];
+        int index = 0;
+        for (int y = 0; y < sizeY; y++)
+        {
+            for (int z = 0; z < sizeZ; z++)
+            {
+                for (int x = 0; x < sizeX; x++)
+                {
+                    final BlockState state = getBlockState(x, y, z);
+                    int paletteIndex = paletteIndices.getInt(state);
+                    if (paletteIndex == -1)
+                    {
+                        paletteIndex = isSaved(state, requiredMods) ? palette.size() : 0;
+                        if (paletteIndex != 0)
+                        {
+                            palette.add(state);
+                        }
+                        paletteIndices.put(state, paletteIndex);
+                    }
+                    structure[index++] = (short) paletteIndex;
+                }
+            }
+        }
+
+        final List<CompoundTag> savedTileEntities = new ArrayList<>(tileEntities.size());
+        for (final CompoundTag teTag : tileEntities)
+        {
+            if (structure[(teTag.getShort("y") * sizeZ + teTag.getShort("z")) * sizeX + teTag.getShort("x")] != 0)
+            {
+                savedTileEntities.add(teTag);
+            }
+        }
+
+        final Blueprint schem = new Blueprint(sizeX, sizeY, sizeZ, (short) palette.size(), palette, structure, savedTileEntities.toArray(new CompoundTag[0]), requiredMods);
+        schem.setEntities(entities.toArray(new CompoundTag[0]));
+
+        if (anchorPos.isPresent())
+        {
+            schem.setCachePrimaryOffset(new BlockPos(anchorPos.get().subtract(pos)));
+        }
+
+        // Blueprints do auto-calc anchors when missing, so if it uses a blueprint provider as anchor we fill in the schematic data
+        final CompoundTag anchorTag = schem.getTileEntityMap().get(schem.getIndex(schem.getPrimaryBlockOffset()));
+        if (anchorTag != null && anchorTag.contains(TAG_BLUEPRINTDATA))
+        {
+            final CompoundTag blueprintData = anchorTag.getCompound(TAG_BLUEPRINTDATA);
+            if (name != null)
+            {
+                blueprintData.putString(TAG_SCHEMATIC_NAME, FilenameUtils.getBaseName(name));
+            }
+
+            final BlockPos corner1 = BlockPos.ZERO.subtract(schem.getPrimaryBlockOffset());
+            final BlockPos corner2 = new BlockPos(sizeX - 1, sizeY - 1, sizeZ - 1).subtract(schem.getPrimaryBlockOffset());
+            BlockPosUtil.writeToNBT(blueprintData, TAG_CORNER_ONE, corner1);
+            BlockPosUtil.writeToNBT(blueprintData, TAG_CORNER_TWO, corner2);
+        }
+
+        if (name != null)
+        {
+            schem.setName(name);
+        }
+
+        return schem;
+    }
+
+    /**
+     * Get a state of the area.
+     *
+     * @param x the x position in the area.
+     * @param y the y position in the area.
+     * @param z the z position in the area.
+     * @return the state.
+     */
+    private BlockState getBlockState(final int x, final int y, final int z)
+    {
+        final int worldX = pos.getX() + x;
+        final int worldY = pos.getY() + y;
+        final int worldZ = pos.getZ() + z;
+        final int sectionIndex = ((SectionPos.blockToSectionCoord(worldY) - minSectionY) * sectionsX + SectionPos.blockToSectionCoord(worldX) - minSectionX) * sectionsZ
+                                   + SectionPos.blockToSectionCoord(worldZ) - minSectionZ;
+        final PalettedContainer<BlockState> section = sections[sectionIndex];
+        return section == null ? Blocks.AIR.defaultBlockState() : section.get(worldX & 15, worldY & 15, worldZ & 15);
+    }
+
+    /**
+     * Check if a world position is inside the area.
+     *
+     * @param worldPos the position.
+     * @return true if so.
+     */
+    private boolean isInside(final BlockPos worldPos)
+    {
+        final int x = worldPos.getX() - pos.getX();
+        final int y = worldPos.getY() - pos.getY();
+        final int z = worldPos.getZ() - pos.getZ();
+        return x >= 0 && y >= 0 && z >= 0 && x < sizeX && y < sizeY && z < sizeZ;
+    }
+
+    /**
+     * Check if a state should be saved, adds the mod of the state to the required mods if needed.
+     *
+     * @param state        the state.
+     * @param requiredMods the required mods.
+     * @return false if it should be replaced with air.
+     */
+    private static boolean isSaved(final BlockState state, final List<String> requiredMods)
+    {
+        if (state.is(ModTags.BLUEPRINT_BLACKLIST))
+        {
+            return false;
+        }
+
+        final String modName = ForgeRegistries.BLOCKS.getKey(state.getBlock()).getNamespace();
+        if (!modName.equals("minecraft") && !modName.equals(MOD_ID))
+        {
+            if (ModList.get().getModContainerById(modName).isEmpty())
+            {
+                return false;
+            }
+            if (!requiredMods.contains(modName))
+            {
+                requiredMods.add(modName);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Save an entity with positions relative to the area.
+     *
+     * @param entity the entity.
+     * @param pos    the corner of the area with the lowest coordinates.
+     * @return the entity data.
+     */
+    private static CompoundTag saveEntity(final Entity entity, final BlockPos pos)
+    {
+        final Vec3 oldPos = entity.position();
+        final CompoundTag entityTag = entity.serializeNBT();
+
+        final ListTag posList = new ListTag();
+        posList.add(DoubleTag.valueOf(oldPos.x - pos.getX()));
+        posList.add(DoubleTag.valueOf(oldPos.y - pos.getY()));
+        posList.add(DoubleTag.valueOf(oldPos.z - pos.getZ()));
+
+        BlockPos entityPos = entity.blockPosition();
+        if (entity instanceof HangingEntity)
+        {
+            entityPos = ((HangingEntity) entity).getPos();
+        }
+        entityTag.put("Pos", posList);
+        entityTag.put("TileX", IntTag.valueOf(entityPos.getX() - pos.getX()));
+        entityTag.put("TileY", IntTag.valueOf(entityPos.getY() - pos.getY()));
+        entityTag.put("TileZ", IntTag.valueOf(entityPos.getZ() - pos.getZ()));
+        return entityTag;
+    }
+}
@@ -98,6 +98,14 @@ public final class BlueprintHandler
         Minecraft.getInstance().getProfiler().pop();
     }
 
+    /**
+     * Uploads the finished mesh sections of all renderers, also of the ones not drawn anymore.
+     */
+    public void uploadFinishedSections()
+    {
+        BlueprintRenderer.uploadAllFinishedSections();
+    }
+
     /**
      * Cleans entries that are older than CACHE_EVICT_TIME.
      */
@@ -9,8 +9,8 @@ import com.ldtteam.structurize.client.fakelevel.BlueprintBlockAccess;
 import com.ldtteam.structurize.storage.rendering.RenderingCache;
 import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
 import com.ldtteam.structurize.tag.ModTags;
-import com.ldtteam.structurize.util.BlockInfo;
 import com.ldtteam.structurize.util.BlueprintMissHitResult;
+import com.ldtteam.structurize.util.WorldRenderMacros;
 import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.platform.GlStateManager.DestFactor;
 import com.mojang.blaze3d.platform.GlStateManager.SourceFactor;
@@ -21,6 +21,7 @@ import com.mojang.blaze3d.vertex.BufferBuilder;
 import com.mojang.blaze3d.vertex.BufferBuilder.RenderedBuffer;
 import com.mojang.blaze3d.vertex.PoseStack;
 import com.mojang.blaze3d.vertex.VertexBuffer;
+import it.unimi.dsi.fastutil.shorts.ShortList;
 import net.minecraft.CrashReport;
 import net.minecraft.CrashReportCategory;
 import net.minecraft.ReportedException;
@@ -35,9 +36,11 @@ import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.util.Mth;
 import net.minecraft.util.RandomSource;
+import net.minecraft.util.profiling.ProfilerFiller;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.inventory.InventoryMenu;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.CampfireBlock;
 import net.minecraft.world.level.block.RenderShape;
@@ -45,6 +48,7 @@ import net.minecraft.world.level.block.SkullBlock;
 import net.minecraft.world.level.block.entity.*;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.material.FluidState;
+import net.minecraft.world.phys.AABB;
 import net.minecraft.world.phys.HitResult;
 import net.minecraft.world.phys.Vec3;
 import net.minecraftforge.client.event.RenderLevelStageEvent;
@@ -55,9 +59,11 @@ import org.lwjgl.opengl.GL20C;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.util.*;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The renderer for blueprint.
@@ -66,9 +72,27 @@ import java.util.stream.Collectors;
 public class BlueprintRenderer implements AutoCloseable
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(BlueprintRenderer.class);
-    private static final Supplier<Map<RenderType, VertexBuffer>> blockVertexBuffersFactory = () -> RenderType.chunkBufferLayers()
-        .stream()
-        .collect(Collectors.toMap((type) -> type, (type) -> new VertexBuffer(VertexBuffer.Usage.STATIC)));
+    /**
+     * Edge length of the cubic sections the mesh is split into.
+     */
+    private static final int SECTION_SIZE = 16;
+    /**
+     * Amount of meshing threads, every thread may hold two buffer packs.
+     */
+    private static final int MESHING_THREADS = Mth.clamp(Runtime.getRuntime().availableProcessors() / 2, 1, 4);
+    private static final int MAX_BUFFER_PACKS = MESHING_THREADS * 2;
+    private static final BlockingQueue<ChunkBufferBuilderPack> freeBufferPacks = new LinkedBlockingQueue<>();
+    private static final AtomicInteger createdBufferPacks = new AtomicInteger();
+    private static ExecutorService meshingExecutor;
+    /**
+     * Liquid offset wrapper of each meshing thread, reused for all sections.
+     */
+    private static final ThreadLocal<ChunkOffsetBufferBuilderWrapper> liquidBuffers = ThreadLocal.withInitial(ChunkOffsetBufferBuilderWrapper::create);
+    /**
+     * Renderers with sections in work. Their finished sections are uploaded by {@link #uploadAllFinishedSections()} whether they are drawn or not,
+     * so the shared buffer packs the meshing threads wait for are always given back. Only accessed on the render thread.
+     */
+    private static final Set<BlueprintRenderer> buildingRenderers = Collections.newSetFromMap(new IdentityHashMap<>());
     // TODO: remove when forge events
     private static final RenderBuffers renderBuffers = new RenderBuffers();
     private static boolean hasWarnedExceptions = false;
@@ -76,7 +100,24 @@ public class BlueprintRenderer implements AutoCloseable
     private final BlueprintBlockAccess blockAccess;
     private List<Entity> entities;
     private List<BlockEntity> tileEntities;
-    private Map<RenderType, VertexBuffer> vertexBuffers;
+    /**
+     * Uploaded sections of the last finished mesh, null until the first mesh is ready.
+     */
+    private List<SectionBuffers> sections;
+    /**
+     * Sections passing frustum and distance culling in the current frame.
+     */
+    private final List<SectionBuffers> visibleSections = new ArrayList<>();
+    /**
+     * Sections of the mesh that is currently being built, shown once all are uploaded.
+     */
+    private List<SectionBuffers> builtSections;
+    private List<CompletableFuture<SectionMesh>> pendingSections;
+    private AtomicBoolean pendingCancelled;
+    /**
+     * Exceptions of sections uploaded outside of a draw, reported by the next draw.
+     */
+    private final Map<Object, Exception> uploadExceptions = new IdentityHashMap<>();
     private long lastGameTime;
     private boolean bypassMainFrustum = false;
     private Set<Object> crashingObjects = Collections.newSetFromMap(new IdentityHashMap<>());
@@ -111,12 +152,14 @@ public class BlueprintRenderer implements AutoCloseable
         }
     }
 
-    private void init(final Blueprint blueprint, final Map<Object, Exception> suppressedExceptions)
+    /**
+     * Instantiates (block) entities and starts building the mesh sections on the meshing threads.
+     * The sections are uploaded by {@link #uploadFinishedSections()} once ready.
+     *
+     * @param blueprint the blueprint to build.
+     */
+    private void init(final Blueprint blueprint)
     {
-        final BlockRenderDispatcher blockRenderer = Minecraft.getInstance().getBlockRenderer();
-        final RandomSource random = RandomSource.create();
-
-        clearVertexBuffers();
         final Map<BlockPos, ModelData> teModelData = new HashMap<>();
         final Map<BlockPos, BlockEntity> tileEntitiesMap = BlueprintUtils.instantiateTileEntities(blueprint, blockAccess, teModelData);
         entities = BlueprintUtils.instantiateEntities(blueprint, blockAccess);
@@ -124,22 +167,83 @@ public class BlueprintRenderer implements AutoCloseable
         blockAccess.setBlockEntities(tileEntitiesMap);
         blockAccess.setEntities(entities);
 
-        final PoseStack matrixStack = new PoseStack();
-        matrixStack.translate(0.01, 0.01, 0.01);
-        final ChunkBufferBuilderPack newBuffers = new OurChunkBufferBuilderPack();
-        final RenderType[] blockRenderTypes = RenderType.chunkBufferLayers().toArray(RenderType[]::new);
+        // meshing threads work on a snapshot where all states that need the real level are already resolved
+        final Blueprint snapshot = blueprint.copy();
+        if (Structurize.getConfig().getClient().renderPlaceholdersNice.get())
+        {
+            prepareSnapshotForRendering(snapshot, tileEntitiesMap, teModelData);
+        }
+        tileEntities = new ArrayList<>(tileEntitiesMap.values());
+
+        final BlueprintBlockAccess meshAccess = new BlueprintBlockAccess(snapshot);
+        meshAccess.setWorldPos(blockAccess.getWorldPos());
+        meshAccess.setBlockEntities(tileEntitiesMap);
+
+        cancelPendingSections();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+        pendingCancelled = cancelled;
+        pendingSections = new ArrayList<>();
+        builtSections = new ArrayList<>();
+        for (int y = 0; y < snapshot.getSizeY(); y += SECTION_SIZE)
+        {
+            for (int z = 0; z < snapshot.getSizeZ(); z += SECTION_SIZE)
+            {
+                for (int x = 0; x < snapshot.getSizeX(); x += SECTION_SIZE)
+                {
+                    final BlockPos origin = new BlockPos(x, y, z);
+                    pendingSections.add(CompletableFuture.supplyAsync(() -> buildSection(meshAccess, snapshot, origin, teModelData, cancelled),
+                        getMeshingExecutor()));
+                }
+            }
+        }
+        buildingRenderers.add(this);
+    }
+
+    /**
+     * Resolves all placeholder states in the snapshot on the render thread, as they may query the real level.
+     *
+     * @param snapshot        the blueprint copy to modify.
+     * @param tileEntitiesMap the instantiated block entities, tag substitutions are replaced by their replacement.
+     * @param teModelData     the model data of the block entities.
+     */
+    private void prepareSnapshotForRendering(final Blueprint snapshot,
+        final Map<BlockPos, BlockEntity> tileEntitiesMap,
+        final Map<BlockPos, ModelData> teModelData)
+    {
+        final BlockState[] palette = snapshot.getPalette();
+        final boolean[] placeholders = new boolean[palette.length];
+        boolean anyPlaceholder = false;
+        for (int i = 0; i < palette.length; i++)
+        {
+            final Block block = palette[i].getBlock();
+            placeholders[i] = block == ModBlocks.blockSolidSubstitution.get() || block == ModBlocks.blockFluidSubstitution.get()
+                || block == ModBlocks.blockSubstitution.get() || block == ModBlocks.blockTagSubstitution.get();
+            anyPlaceholder |= placeholders[i];
+        }
+        if (!anyPlaceholder)
+        {
+            return;
+        }
 
-        for (final BlockInfo blockInfo : blueprint.getBlockInfoAsList())
+        final ShortList structure = snapshot.getStructureData();
+        final Map<BlockPos, BlockState> prepared = new HashMap<>();
+        for (int i = 0; i < structure.size(); i++)
         {
-            final BlockPos blockPos = blockInfo.getPos();
-            BlockState state = blockInfo.getState();
+            final int id = structure.getShort(i) & 0xFFFF;
+            if (!placeholders[id])
+            {
+                continue;
+            }
+
+            final BlockPos blockPos = snapshot.getPos(i);
+            final BlockState state = palette[id];
             // specially handle blockTagSub here cuz of block entity changes
-            if (Structurize.getConfig().getClient().renderPlaceholdersNice.get() && state.getBlock() == ModBlocks.blockTagSubstitution.get())
+            if (state.getBlock() == ModBlocks.blockTagSubstitution.get())
             {
                 if (tileEntitiesMap.remove(blockPos) instanceof final BlockEntityTagSubstitution tagTE)
                 {
                     final BlockEntityTagSubstitution.ReplacementBlock replacement = tagTE.getReplacement();
-                    state = replacement.getBlockState();
+                    prepared.put(blockPos, replacement.getBlockState());
 
                     Optional.ofNullable(replacement.createBlockEntity(blockPos)).ifPresent(newBe -> {
                         newBe.setLevel(blockAccess);
@@ -149,73 +253,202 @@ public class BlueprintRenderer implements AutoCloseable
                 }
                 else
                 {
-                    state = Blocks.AIR.defaultBlockState();
+                    prepared.put(blockPos, Blocks.AIR.defaultBlockState());
                 }
             }
             else
             {
-                state = blockAccess.prepareBlockStateForRendering(state, blockPos);
+                prepared.put(blockPos, blockAccess.prepareBlockStateForRendering(state, blockPos));
             }
+        }
 
-            final FluidState fluidState = state.getFluidState();
-            try
-            {
-                if (!fluidState.isEmpty())
-                {
-                    final RenderType renderType = ItemBlockRenderTypes.getRenderLayer(fluidState);
+        prepared.forEach(snapshot::addBlockState);
+    }
 
-                    final int chunkOffsetX = blockPos.getX() - (blockPos.getX() & 15),
-                        chunkOffsetY = blockPos.getY() - (blockPos.getY() & 15),
-                        chunkOffsetZ = blockPos.getZ() - (blockPos.getZ() & 15);
+    /**
+     * Tessellates one section, runs on a meshing thread.
+     *
+     * @param meshAccess  the fake level of the snapshot.
+     * @param snapshot    the blueprint snapshot.
+     * @param origin      the lowest corner of the section.
+     * @param teModelData the model data of the block entities.
+     * @param cancelled   set once the result is not needed anymore.
+     * @return the built section.
+     */
+    private static SectionMesh buildSection(final BlueprintBlockAccess meshAccess,
+        final Blueprint snapshot,
+        final BlockPos origin,
+        final Map<BlockPos, ModelData> teModelData,
+        final AtomicBoolean cancelled)
+    {
+        final int maxX = Math.min(origin.getX() + SECTION_SIZE, snapshot.getSizeX());
+        final int maxY = Math.min(origin.getY() + SECTION_SIZE, snapshot.getSizeY());
+        final int maxZ = Math.min(origin.getZ() + SECTION_SIZE, snapshot.getSizeZ());
+        final AABB bounds = new AABB(origin.getX(), origin.getY(), origin.getZ(), maxX, maxY, maxZ);
+        if (cancelled.get())
+        {
+            return new SectionMesh(bounds, Map.of(), null, Map.of());
+        }
 
-                    final BufferBuilder buffer = ChunkOffsetBufferBuilderWrapper
-                        .setupGlobalInstance(newBuffers.builder(renderType), chunkOffsetX, chunkOffsetY, chunkOffsetZ);
-                    blockRenderer.renderLiquid(blockPos, blockAccess, buffer, state, fluidState);
-                }
+        final ChunkBufferBuilderPack buffers = acquireBufferPack();
+        final Map<Object, Exception> suppressedExceptions = new HashMap<>();
+        try
+        {
+            final BlockRenderDispatcher blockRenderer = Minecraft.getInstance().getBlockRenderer();
+            final RandomSource random = RandomSource.create();
+            final ChunkOffsetBufferBuilderWrapper liquidBuffer = liquidBuffers.get();
+            final PoseStack matrixStack = new PoseStack();
+            matrixStack.translate(0.01, 0.01, 0.01);
 
-                if (state.getRenderShape() != RenderShape.INVISIBLE)
+            for (int y = origin.getY(); y < maxY; y++)
+            {
+                for (int z = origin.getZ(); z < maxZ; z++)
                 {
-                    final BakedModel blockModel = blockRenderer.getBlockModel(state);
-                    final ModelData modelData = blockModel.getModelData(blockAccess, blockPos, state, teModelData.getOrDefault(blockPos, ModelData.EMPTY));
-
-                    matrixStack.pushPose();
-                    matrixStack.translate(blockPos.getX(), blockPos.getY(), blockPos.getZ());
-
-                    for (final RenderType renderType : blockModel.getRenderTypes(state, random, modelData))
+                    for (int x = origin.getX(); x < maxX; x++)
                     {
-                        final BufferBuilder buffer = newBuffers.builder(renderType);
-                        blockRenderer.renderBatched(state, blockPos, blockAccess, matrixStack, buffer, true, random, modelData, renderType);
-                        renderType.clearRenderState();
+                        final BlockPos blockPos = new BlockPos(x, y, z);
+                        final BlockState state = meshAccess.getBlockState(blockPos);
+                        if (state.isAir())
+                        {
+                            continue;
+                        }
+
+                        final FluidState fluidState = state.getFluidState();
+                        try
+                        {
+                            if (!fluidState.isEmpty())
+                            {
+                                final RenderType renderType = ItemBlockRenderTypes.getRenderLayer(fluidState);
+                                final BufferBuilder buffer = liquidBuffer.setup(buffers.builder(renderType), x - (x & 15), y - (y & 15), z - (z & 15));
+                                blockRenderer.renderLiquid(blockPos, meshAccess, buffer, state, fluidState);
+                            }
+
+                            if (state.getRenderShape() != RenderShape.INVISIBLE)
+                            {
+                                final BakedModel blockModel = blockRenderer.getBlockModel(state);
+                                final ModelData modelData = blockModel.getModelData(meshAccess, blockPos, state, teModelData.getOrDefault(blockPos, ModelData.EMPTY));
+
+                                matrixStack.pushPose();
+                                matrixStack.translate(x, y, z);
+
+                                for (final RenderType renderType : blockModel.getRenderTypes(state, random, modelData))
+                                {
+                                    blockRenderer.renderBatched(state, blockPos, meshAccess, matrixStack, buffers.builder(renderType), true, random, modelData, renderType);
+                                }
+                                matrixStack.popPose();
+                            }
+                        }
+                        catch (final ReportedException e)
+                        {
+                            suppressedExceptions.put(blockPos, e);
+                        }
                     }
-                    matrixStack.popPose();
                 }
-
             }
-            catch (final ReportedException e)
+
+            final Map<RenderType, RenderedBuffer> renderedBuffers = new HashMap<>();
+            for (final RenderType renderType : RenderType.chunkBufferLayers())
             {
-                suppressedExceptions.put(blockInfo, e);
+                final RenderedBuffer renderedBuffer = buffers.builder(renderType).endOrDiscardIfEmpty();
+                if (renderedBuffer != null)
+                {
+                    renderedBuffers.put(renderType, renderedBuffer);
+                }
             }
+            return new SectionMesh(bounds, renderedBuffers, buffers, suppressedExceptions);
+        }
+        catch (final RuntimeException e)
+        {
+            releaseBufferPack(buffers);
+            throw e;
+        }
+        finally
+        {
+            // don't keep the pack's builder referenced while the pack is used elsewhere
+            liquidBuffers.get().setup(null, 0, 0, 0);
         }
+    }
 
-        vertexBuffers = blockVertexBuffersFactory.get();
-        for (final RenderType renderType : blockRenderTypes)
+    /**
+     * Uploads the finished sections of all renderers, no matter which of them are drawn. Call regularly on the render thread.
+     */
+    public static void uploadAllFinishedSections()
+    {
+        for (final BlueprintRenderer renderer : new ArrayList<>(buildingRenderers))
         {
-            final RenderedBuffer newBuffer = newBuffers.builder(renderType).endOrDiscardIfEmpty();
-            if (newBuffer == null)
+            renderer.uploadFinishedSections();
+        }
+    }
+
+    /**
+     * Uploads all sections that finished meshing, the mesh is shown once all of them are uploaded.
+     * Exceptions of the meshing threads are collected for the next draw.
+     */
+    private void uploadFinishedSections()
+    {
+        if (pendingSections == null)
+        {
+            return;
+        }
+
+        final Iterator<CompletableFuture<SectionMesh>> iterator = pendingSections.iterator();
+        while (iterator.hasNext())
+        {
+            final CompletableFuture<SectionMesh> future = iterator.next();
+            if (!future.isDone())
             {
-                vertexBuffers.remove(renderType);
+                continue;
             }
-            else
+            iterator.remove();
+
+            final SectionMesh mesh;
+            try
             {
-                final VertexBuffer vertexBuffer = vertexBuffers.get(renderType);
-                vertexBuffer.bind();
-                vertexBuffer.upload(newBuffer);
+                mesh = future.join();
+            }
+            catch (final CompletionException | CancellationException e)
+            {
+                uploadExceptions.put(future, e);
+                continue;
+            }
+
+            uploadExceptions.putAll(mesh.suppressedExceptions());
+            final SectionBuffers section = mesh.upload();
+            if (section != null)
+            {
+                builtSections.add(section);
             }
         }
-        newBuffers.clearAll();
-        VertexBuffer.unbind();
 
-        tileEntities = new ArrayList<>(tileEntitiesMap.values());
+        if (pendingSections.isEmpty())
+        {
+            clearVertexBuffers();
+            sections = builtSections;
+            builtSections = null;
+            pendingSections = null;
+            pendingCancelled = null;
+            buildingRenderers.remove(this);
+        }
+    }
+
+    /**
+     * Drops the mesh that is currently being built, the buffers of sections still in work are released once they finish.
+     */
+    private void cancelPendingSections()
+    {
+        if (pendingSections != null)
+        {
+            pendingCancelled.set(true);
+            pendingSections.forEach(future -> future.thenAccept(SectionMesh::discard));
+            pendingSections = null;
+            pendingCancelled = null;
+        }
+        buildingRenderers.remove(this);
+        if (builtSections != null)
+        {
+            builtSections.forEach(SectionBuffers::close);
+            builtSections = null;
+        }
     }
 
     /**
@@ -279,6 +512,8 @@ public class BlueprintRenderer implements AutoCloseable
             LOGGER.error(crashReport.getDetails());
 
             crashingObjects = null;
+            // never drawn again, give back the buffer packs and drop the mesh
+            close();
             Minecraft.getInstance().player.sendSystemMessage(
                 Component.translatable("structurize.preview_renderer.cannot_render", previewData.getBlueprint().getName()));
         }
@@ -292,14 +527,27 @@ public class BlueprintRenderer implements AutoCloseable
     public Map<Object, Exception> drawUnsafe(final BlueprintPreviewData previewData, final BlockPos pos, final RenderLevelStageEvent ctx)
     {
         final BlockPos anchorPos = pos.subtract(previewData.getBlueprint().getPrimaryBlockOffset());
+        final Map<Object, Exception> suppressedExceptions = new IdentityHashMap<>();
+
+        // upload even if culled, finished sections hold on to shared buffer packs the meshing threads wait for
+        uploadFinishedSections();
+        suppressedExceptions.putAll(uploadExceptions);
+        uploadExceptions.clear();
 
         // cull entire rendering
         if (!ctx.getFrustum().isVisible(previewData.getBlueprint().getAABB().move(anchorPos)) && !bypassMainFrustum)
         {
-            return Map.of();
+            return suppressedExceptions;
+        }
+
+        final int maxDistance = Structurize.getConfig().getClient().rendererMaxDistance.get();
+        final Vec3 cameraPos = Minecraft.getInstance().gameRenderer.getMainCamera().getPosition();
+        if (distanceToSqr(previewData.getBlueprint().getAABB().move(anchorPos), cameraPos) > (double) maxDistance * maxDistance)
+        {
+            Minecraft.getInstance().getProfiler().incrementCounter("struct_render_culled_previews");
+            return suppressedExceptions;
         }
      
-        final Map<Object, Exception> suppressedExceptions = new IdentityHashMap<>();
         final Minecraft mc = Minecraft.getInstance();
         final long gameTime = mc.level.getGameTime();
         final PoseStack matrixStack = ctx.getPoseStack();
@@ -314,9 +562,9 @@ public class BlueprintRenderer implements AutoCloseable
         blockAccess.setWorldPos(anchorPos);
 
         // init
-        if (vertexBuffers == null)
+        if (sections == null && pendingSections == null)
         {
-            init(previewData.getBlueprint(), suppressedExceptions);
+            init(previewData.getBlueprint());
         }
 
         mc.getProfiler().popPush("struct_render_prepare");
@@ -345,6 +593,10 @@ public class BlueprintRenderer implements AutoCloseable
         blueprintLocalFrustum.prepare(ourCamera.getPosition().x(), ourCamera.getPosition().y(), ourCamera.getPosition().z());
         bypassMainFrustum = false;
 
+        final int detailDistance = Structurize.getConfig().getClient().rendererDetailDistance.get();
+        final double detailDistanceSqr = (double) detailDistance * detailDistance;
+        cullSections(blueprintLocalFrustum, ourCamera.getPosition(), (double) maxDistance * maxDistance);
+
         // missing chunk system! else done?
 
         Lighting.setupLevel(mvMatrix);
@@ -376,8 +628,25 @@ public class BlueprintRenderer implements AutoCloseable
 
         matrixStack.pushPose();
         matrixStack.translate(realRenderRootVecd.x(), realRenderRootVecd.y(), realRenderRootVecd.z());
+        if (sections == null)
+        {
+            // mesh is still being built
+            final Blueprint blueprint = previewData.getBlueprint();
+            WorldRenderMacros.renderWhiteLineBox(renderBufferSource,
+                matrixStack,
+                BlockPos.ZERO,
+                new BlockPos(blueprint.getSizeX() - 1, blueprint.getSizeY() - 1, blueprint.getSizeZ() - 1),
+                0.025f);
+        }
+        int culledEntities = 0;
         for (Entity entity : entities)
         {
+            if (entity.distanceToSqr(ourCamera.getPosition()) > detailDistanceSqr)
+            {
+                culledEntities++;
+                continue;
+            }
+
             if (!mc.getEntityRenderDispatcher()
                 .shouldRender(entity,
                     blueprintLocalFrustum,
@@ -422,6 +691,7 @@ public class BlueprintRenderer implements AutoCloseable
             }
         }
         matrixStack.popPose();
+        mc.getProfiler().incrementCounter("struct_render_culled_entities", culledEntities);
 
         mc.getProfiler().popPush("struct_render_entities_finish");
         renderBufferSource.endLastBatch();
@@ -433,8 +703,15 @@ public class BlueprintRenderer implements AutoCloseable
         // Block entities
 
         mc.getProfiler().popPush("struct_render_blockentities");
+        int culledBlockEntities = 0;
         for (final BlockEntity tileEntity : tileEntities)
         {
+            if (tileEntity.getBlockPos().distToCenterSqr(ourCamera.getPosition()) > detailDistanceSqr)
+            {
+                culledBlockEntities++;
+                continue;
+            }
+
             final BlockEntityRenderer<BlockEntity> renderer = mc.getBlockEntityRenderDispatcher().getRenderer(tileEntity);
             if (renderer == null || !renderer.shouldRender(tileEntity, ourCamera.getPosition()))
             {
@@ -493,6 +770,7 @@ public class BlueprintRenderer implements AutoCloseable
             mc.getBlockEntityRenderDispatcher().render(tileEntity, partialTicks, matrixStack, renderBufferSource);
             matrixStack.popPose();
         }
+        mc.getProfiler().incrementCounter("struct_render_culled_blockentities", culledBlockEntities);
 
         mc.getProfiler().popPush("struct_render_blockentities_finish");
         renderBufferSource.endBatch(RenderType.solid());
@@ -545,28 +823,73 @@ public class BlueprintRenderer implements AutoCloseable
         return suppressedExceptions;
     }
 
+    /**
+     * Collects the sections which are inside the frustum and the max render distance.
+     *
+     * @param frustum          the frustum in blueprint local coordinates.
+     * @param cameraPos        the camera position in blueprint local coordinates.
+     * @param maxDistanceSqr   the squared max render distance.
+     */
+    private void cullSections(final Frustum frustum, final Vec3 cameraPos, final double maxDistanceSqr)
+    {
+        visibleSections.clear();
+        if (sections == null)
+        {
+            return;
+        }
+
+        for (final SectionBuffers section : sections)
+        {
+            if (distanceToSqr(section.bounds(), cameraPos) <= maxDistanceSqr && frustum.isVisible(section.bounds()))
+            {
+                visibleSections.add(section);
+            }
+        }
+
+        final ProfilerFiller profiler = Minecraft.getInstance().getProfiler();
+        profiler.incrementCounter("struct_render_visible_sections", visibleSections.size());
+        profiler.incrementCounter("struct_render_culled_sections", sections.size() - visibleSections.size());
+    }
+
+    /**
+     * Squared distance from a point to the closest point of a box.
+     *
+     * @param box the box.
+     * @param pos the point.
+     * @return the squared distance, 0 if inside.
+     */
+    private static double distanceToSqr(final AABB box, final Vec3 pos)
+    {
+        final double dx = Math.max(Math.max(box.minX - pos.x, pos.x - box.maxX), 0);
+        final double dy = Math.max(Math.max(box.minY - pos.y, pos.y - box.maxY), 0);
+        final double dz = Math.max(Math.max(box.minZ - pos.z, pos.z - box.maxZ), 0);
+        return dx * dx + dy * dy + dz * dz;
+    }
+
     /**
      * Clears GL references and frees GL objects.
      */
     private void clearVertexBuffers()
     {
-        if (vertexBuffers != null)
+        if (sections != null)
         {
-            vertexBuffers.values().forEach(VertexBuffer::close);
-            vertexBuffers = null;
+            sections.forEach(SectionBuffers::close);
+            sections = null;
         }
+        visibleSections.clear();
     }
 
     @Override
     public void close()
     {
+        cancelPendingSections();
         clearVertexBuffers();
+        uploadExceptions.clear();
     }
 
     private void renderBlockLayer(final RenderType layerRenderType, final Matrix4f mvMatrix, final Matrix4f pMatrix, final Vector3f realRenderRootPos, final BlueprintPreviewData previewData)
     {
-        final VertexBuffer vertexBuffer = vertexBuffers.get(layerRenderType);
-        if (vertexBuffer == null)
+        if (visibleSections.stream().noneMatch(section -> section.buffers().containsKey(layerRenderType)))
         {
             return;
         }
@@ -642,8 +965,15 @@ public class BlueprintRenderer implements AutoCloseable
 
         TransparencyHack.apply(previewData.getOverridePreviewTransparency());
 
-        vertexBuffer.bind();
-        vertexBuffer.draw();
+        for (final SectionBuffers section : visibleSections)
+        {
+            final VertexBuffer vertexBuffer = section.buffers().get(layerRenderType);
+            if (vertexBuffer != null)
+            {
+                vertexBuffer.bind();
+                vertexBuffer.draw();
+            }
+        }
 
         TransparencyHack.reset();
 
@@ -658,6 +988,126 @@ public class BlueprintRenderer implements AutoCloseable
         layerRenderType.clearRenderState();
     }
 
+    private static synchronized ExecutorService getMeshingExecutor()
+    {
+        if (meshingExecutor == null)
+        {
+            final AtomicInteger threadId = new AtomicInteger();
+            meshingExecutor = Executors.newFixedThreadPool(MESHING_THREADS, runnable -> {
+                final Thread thread = new Thread(runnable, "Structurize Meshing Worker #" + threadId.getAndIncrement());
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((thread1, throwable) -> LOGGER.error("Structurize meshing thread errored! ", throwable));
+                return thread;
+            });
+        }
+        return meshingExecutor;
+    }
+
+    /**
+     * Get a free buffer pack, blocks until the render thread uploaded enough sections if all packs are in use.
+     *
+     * @return the buffer pack.
+     */
+    private static ChunkBufferBuilderPack acquireBufferPack()
+    {
+        final ChunkBufferBuilderPack pack = freeBufferPacks.poll();
+        if (pack != null)
+        {
+            return pack;
+        }
+        if (createdBufferPacks.getAndIncrement() < MAX_BUFFER_PACKS)
+        {
+            return new OurChunkBufferBuilderPack();
+        }
+        createdBufferPacks.decrementAndGet();
+
+        try
+        {
+            return freeBufferPacks.take();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a buffer pack", e);
+        }
+    }
+
+    private static void releaseBufferPack(final ChunkBufferBuilderPack pack)
+    {
+        pack.clearAll();
+        freeBufferPacks.add(pack);
+    }
+
+    /**
+     * Tessellated but not yet uploaded section.
+     *
+     * @param bounds               bounding box of the section in blueprint local coordinates.
+     * @param buffers              finished buffers by layer, reference memory of the pack.
+     * @param pack                 the buffer pack holding the memory, null if nothing was built.
+     * @param suppressedExceptions exceptions of single blocks.
+     */
+    private record SectionMesh(AABB bounds,
+        Map<RenderType, RenderedBuffer> buffers,
+        @Nullable ChunkBufferBuilderPack pack,
+        Map<Object, Exception> suppressedExceptions)
+    {
+        /**
+         * Uploads the buffers, must run on the render thread.
+         *
+         * @return the uploaded section, null if the section is empty.
+         */
+        @Nullable
+        private SectionBuffers upload()
+        {
+            if (buffers.isEmpty())
+            {
+                discard();
+                return null;
+            }
+
+            final Map<RenderType, VertexBuffer> vertexBuffers = new HashMap<>();
+            buffers.forEach((renderType, renderedBuffer) -> {
+                final VertexBuffer vertexBuffer = new VertexBuffer(VertexBuffer.Usage.STATIC);
+                vertexBuffer.bind();
+                vertexBuffer.upload(renderedBuffer);
+                vertexBuffers.put(renderType, vertexBuffer);
+            });
+            VertexBuffer.unbind();
+
+            if (pack != null)
+            {
+                releaseBufferPack(pack);
+            }
+            return new SectionBuffers(bounds, vertexBuffers);
+        }
+
+        /**
+         * Drops the buffers without uploading them.
+         */
+        private void discard()
+        {
+            buffers.values().forEach(RenderedBuffer::release);
+            if (pack != null)
+            {
+                releaseBufferPack(pack);
+            }
+        }
+    }
+
+    /**
+     * Uploaded section.
+     *
+     * @param bounds  bounding box of the section in blueprint local coordinates.
+     * @param buffers vertex buffers by layer.
+     */
+    private record SectionBuffers(AABB bounds, Map<RenderType, VertexBuffer> buffers)
+    {
+        private void close()
+        {
+            buffers.values().forEach(VertexBuffer::close);
+        }
+    }
+
     private static class OurChunkBufferBuilderPack extends ChunkBufferBuilderPack
     {
         @Override
@@ -35,11 +35,24 @@ public class ChunkOffsetBufferBuilderWrapper extends BufferBuilder
         final int offsetY,
         final int offsetZ)
     {
-        INSTANCE.delegate = delegate;
-        INSTANCE.offsetX = offsetX;
-        INSTANCE.offsetY = offsetY;
-        INSTANCE.offsetZ = offsetZ;
-        return INSTANCE;
+        return INSTANCE.setup(delegate, offsetX, offsetY, offsetZ);
+    }
+
+    /**
+     * @return new instance for threads other than the render thread, reuse it with {@link #setup(BufferBuilder, int, int, int)}
+     */
+    public static ChunkOffsetBufferBuilderWrapper create()
+    {
+        return new ChunkOffsetBufferBuilderWrapper();
+    }
+
+    public ChunkOffsetBufferBuilderWrapper setup(final BufferBuilder delegate, final int offsetX, final int offsetY, final int offsetZ)
+    {
+        this.delegate = delegate;
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.offsetZ = offsetZ;
+        return this;
     }
 
     @Override
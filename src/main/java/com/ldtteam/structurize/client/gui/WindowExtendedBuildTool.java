@@ -14,7 +14,7 @@ import com.ldtteam.structurize.blocks.interfaces.ILeveledBlueprintAnchorBlock;
 import com.ldtteam.structurize.blocks.interfaces.INamedBlueprintAnchorBlock;
 import com.ldtteam.structurize.blocks.interfaces.IRequirementsBlueprintAnchorBlock;
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
-import com.ldtteam.structurize.blueprints.v1.BlueprintTagUtils;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadata;
 import com.ldtteam.structurize.network.messages.BuildToolPlacementMessage;
 import com.ldtteam.structurize.network.messages.SyncPreviewCacheToServer;
 import com.ldtteam.structurize.storage.StructurePackMeta;
@@ -52,20 +52,12 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      * Default block requirement check
      */
     public static final Predicate<Blueprint> BLOCK_BLUEPRINT_REQUIREMENT = blueprint ->
-    {
-        final BlockState anchor = blueprint.getBlockState(blueprint.getPrimaryBlockOffset());
+      areAnchorRequirementsMet(blueprint.getBlockState(blueprint.getPrimaryBlockOffset()));
 
-        if (anchor.getBlock() instanceof final IRequirementsBlueprintAnchorBlock requirements)
-        {
-            return requirements.areRequirementsMet(Minecraft.getInstance().level,
-              RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos(),
-              Minecraft.getInstance().player);
-        }
-        else
-        {
-            return true;
-        }
-    };
+    /**
+     * Default block requirement check, evaluated on the blueprint metadata only.
+     */
+    public static final Predicate<BlueprintMetadata> BLOCK_METADATA_REQUIREMENT = metadata -> areAnchorRequirementsMet(metadata.getAnchorState());
 
     /**
      * Folder scrolling list.
@@ -115,13 +107,13 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
     /**
      * Blueprints at depth.
      */
-    private static final Map<String, Future<List<Blueprint>>> blueprintsAtDepth = new LinkedHashMap<>();
+    private static final Map<String, Future<List<BlueprintMetadata>>> blueprintsAtDepth = new LinkedHashMap<>();
 
     /**
      * Current blueprint mapping from depth to processed blueprints.
      * Depth -> Named -> Leveled.
      */
-    private static final Map<String, Map<String, Map<String, List<Blueprint>>>> currentBluePrintMappingAtDepthCache = new LinkedHashMap<>();
+    private static final Map<String, Map<String, Map<String, List<BlueprintMetadata>>>> currentBluePrintMappingAtDepthCache = new LinkedHashMap<>();
 
     /**
      * Current blueprint category.
@@ -143,6 +135,17 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      */
     private final Predicate<Blueprint> availableBlueprintPredicate;
 
+    /**
+     * Full blueprint currently being loaded for the preview.
+     */
+    @Nullable
+    private Future<Blueprint> pendingBlueprint = null;
+
+    /**
+     * Full blueprints loaded to evaluate a custom {@link #availableBlueprintPredicate} in the list.
+     */
+    private final Map<BlueprintMetadata, Future<Blueprint>> predicateBlueprints = new HashMap<>();
+
     /**
      * Type of button.
      */
@@ -217,6 +220,12 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         {
             depth = "";
             currentBluePrintMappingAtDepthCache.clear();
+            cancelPending(blueprintsAtDepth);
+            cancelPending(nextDepthMeta);
+            if (categoryFutures != null)
+            {
+                categoryFutures.cancel(false);
+            }
             blueprintsAtDepth.clear();
             nextDepthMeta.clear();
             categoryFutures = null;
@@ -289,6 +298,30 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
           availableBlueprintPredicate)).open();
     }
 
+    @Override
+    public void onClosed()
+    {
+        // Nobody waits for these anymore, the folder prefetches are kept for the next opening
+        if (pendingBlueprint != null)
+        {
+            pendingBlueprint.cancel(false);
+            pendingBlueprint = null;
+        }
+        cancelPending(predicateBlueprints);
+
+        super.onClosed();
+    }
+
+    /**
+     * Cancel the loads which didn't finish yet and drop them, so they are requested again when needed.
+     *
+     * @param futures the futures to check.
+     */
+    private static void cancelPending(final Map<?, ? extends Future<?>> futures)
+    {
+        futures.values().removeIf(future -> !future.isDone() && future.cancel(false));
+    }
+
     @Override
     protected void cancelClicked()
     {
@@ -343,6 +376,23 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
     public void onUpdate()
     {
         super.onUpdate();
+        if (pendingBlueprint != null && pendingBlueprint.isDone())
+        {
+            try
+            {
+                final Blueprint blueprint = pendingBlueprint.get();
+                if (blueprint != null)
+                {
+                    setBlueprint(blueprint);
+                }
+            }
+            catch (InterruptedException | ExecutionException e)
+            {
+                Log.getLogger().error("Failed loading selected blueprint", e);
+            }
+            pendingBlueprint = null;
+        }
+
         if (categoryFutures != null && categoryFutures.isDone())
         {
             final View categoryView = findPaneOfTypeByID("categories", View.class);
@@ -383,7 +433,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
 
                     if (category.isTerminal)
                     {
-                        blueprintsAtDepth.put(id, StructurePacks.getBlueprintsFuture(structurePack.getName(), id));
+                        blueprintsAtDepth.put(id, StructurePacks.getBlueprintMetadataFuture(structurePack.getName(), id));
                     }
                     else
                     {
@@ -411,7 +461,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                     if (subCats.isEmpty())
                     {
                         nextDepthMeta.remove(nextDepth);
-                        blueprintsAtDepth.put(nextDepth, StructurePacks.getBlueprintsFuture(id, nextDepth));
+                        blueprintsAtDepth.put(nextDepth, StructurePacks.getBlueprintMetadataFuture(id, nextDepth));
                     }
                     else
                     {
@@ -420,7 +470,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                             final String id = subCat.subPath;
                             if (subCat.isTerminal)
                             {
-                                blueprintsAtDepth.put(id, StructurePacks.getBlueprintsFuture(structurePack.getName(), id));
+                                blueprintsAtDepth.put(id, StructurePacks.getBlueprintMetadataFuture(structurePack.getName(), id));
                             }
                             else
                             {
@@ -439,7 +489,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         }
         else if (!nextDepth.isEmpty() && blueprintsAtDepth.containsKey(nextDepth))
         {
-            final Future<List<Blueprint>> blueprints = blueprintsAtDepth.get(nextDepth);
+            final Future<List<BlueprintMetadata>> blueprints = blueprintsAtDepth.get(nextDepth);
             if (blueprints.isDone())
             {
                 try
@@ -569,13 +619,14 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      * @param inputBluePrints the blueprints to display.
      * @param depth           the depth they're at.
      */
-    public void updateBlueprints(final List<Blueprint> inputBluePrints, final String depth)
+    public void updateBlueprints(final List<BlueprintMetadata> inputBluePrints, final String depth)
     {
         blueprintList.enable();
         blueprintList.show();
         folderList.disable();
         folderList.hide();
         hidePlacementGui();
+        cancelPending(predicateBlueprints);
 
         final List<ButtonData> blueprints = new ArrayList<>();
         if (!inputBluePrints.isEmpty())
@@ -590,12 +641,12 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             blueprints.add(new ButtonData(ButtonType.Back, parentCat));
         }
 
-        final Map<String, List<Blueprint>> blueprintMapping = new LinkedHashMap<>();
+        final Map<String, List<BlueprintMetadata>> blueprintMapping = new LinkedHashMap<>();
 
-        for (final Blueprint blueprint : inputBluePrints)
+        for (final BlueprintMetadata blueprint : inputBluePrints)
         {
-            final BlockState anchor = blueprint.getBlockState(blueprint.getPrimaryBlockOffset());
-            if (!Minecraft.getInstance().player.isCreative() && BlueprintTagUtils.isInvisible(blueprint))
+            final BlockState anchor = blueprint.getAnchorState();
+            if (!Minecraft.getInstance().player.isCreative() && blueprint.isInvisible())
             {
                 continue;
             }
@@ -603,9 +654,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             final String name;
             if (anchor.getBlock() instanceof ILeveledBlueprintAnchorBlock leveledAnchor)
             {
-                final int level =
-                  leveledAnchor.getLevel(blueprint.getTileEntityData(RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos(),
-                    blueprint.getPrimaryBlockOffset()));
+                final int level = leveledAnchor.getLevel(blueprint.getAnchorData(RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos()));
                 final String tempName = getCustomName(blueprint, blueprint.getFileName().replace(Integer.toString(level), ""));
                 name = tempName.isEmpty() ? getCustomName(blueprint, blueprint.getFileName()) : tempName;
             }
@@ -614,17 +663,17 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                 name = getCustomName(blueprint, blueprint.getFileName());
             }
 
-            final List<Blueprint> blueprintList = blueprintMapping.getOrDefault(name, new ArrayList<>());
+            final List<BlueprintMetadata> blueprintList = blueprintMapping.getOrDefault(name, new ArrayList<>());
             blueprintList.add(blueprint);
             blueprintMapping.put(name, blueprintList);
         }
 
-        final Map<String, Map<String, List<Blueprint>>> altBlueprintMapping = new LinkedHashMap<>();
+        final Map<String, Map<String, List<BlueprintMetadata>>> altBlueprintMapping = new LinkedHashMap<>();
 
-        for (final Map.Entry<String, List<Blueprint>> entry : blueprintMapping.entrySet())
+        for (final Map.Entry<String, List<BlueprintMetadata>> entry : blueprintMapping.entrySet())
         {
-            final Blueprint blueprint = entry.getValue().get(0);
-            final BlockState anchor = blueprint.getBlockState(blueprint.getPrimaryBlockOffset());
+            final BlueprintMetadata blueprint = entry.getValue().get(0);
+            final BlockState anchor = blueprint.getAnchorState();
             final String name;
             if (anchor.getBlock() instanceof INamedBlueprintAnchorBlock)
             {
@@ -635,14 +684,14 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
                 name = entry.getKey();
             }
 
-            final Map<String, List<Blueprint>> tempLeveledBlueprints = altBlueprintMapping.getOrDefault(name, new LinkedHashMap<>());
+            final Map<String, List<BlueprintMetadata>> tempLeveledBlueprints = altBlueprintMapping.getOrDefault(name, new LinkedHashMap<>());
             tempLeveledBlueprints.put(entry.getKey(), entry.getValue());
             altBlueprintMapping.put(name, tempLeveledBlueprints);
         }
 
         currentBluePrintMappingAtDepthCache.put(depth, altBlueprintMapping);
 
-        for (final Map.Entry<String, Map<String, List<Blueprint>>> entry : altBlueprintMapping.entrySet())
+        for (final Map.Entry<String, Map<String, List<BlueprintMetadata>>> entry : altBlueprintMapping.entrySet())
         {
             blueprints.add(new ButtonData(ButtonType.Blueprint, entry.getKey()));
         }
@@ -701,7 +750,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      *
      * @param bluePrintMapping the mapping of blueprint name to leveled blueprints.
      */
-    public void updateAlternatives(final Map<String, List<Blueprint>> bluePrintMapping, final String depth)
+    public void updateAlternatives(final Map<String, List<BlueprintMetadata>> bluePrintMapping, final String depth)
     {
         alternativesList.enable();
         alternativesList.show();
@@ -710,7 +759,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         settingsList.hide();
         settingsList.disable();
 
-        final List<Map.Entry<String, List<Blueprint>>> list = new ArrayList<>(bluePrintMapping.entrySet());
+        final List<Map.Entry<String, List<BlueprintMetadata>>> list = new ArrayList<>(bluePrintMapping.entrySet());
 
         alternativesList.setDataProvider(new ScrollingList.DataProvider()
         {
@@ -746,7 +795,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      *
      * @param blueprints the different blueprint levels.
      */
-    public void updateLevels(final List<Blueprint> blueprints, final String depth, final boolean hasAlternatives)
+    public void updateLevels(final List<BlueprintMetadata> blueprints, final String depth, final boolean hasAlternatives)
     {
         levelsList.enable();
         levelsList.show();
@@ -830,10 +879,10 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             }
             img.setID(depth + ":" + id);
 
-            final Map<String, List<Blueprint>> blueprintMap = currentBluePrintMappingAtDepthCache.get(depth).get(id);
-            final Blueprint firstBlueprint = blueprintMap.values().iterator().next().get(0);
+            final Map<String, List<BlueprintMetadata>> blueprintMap = currentBluePrintMappingAtDepthCache.get(depth).get(id);
+            final BlueprintMetadata firstBlueprint = blueprintMap.values().iterator().next().get(0);
 
-            final BlockState anchor = firstBlueprint.getBlockState(firstBlueprint.getPrimaryBlockOffset());
+            final BlockState anchor = firstBlueprint.getAnchorState();
             final List<MutableComponent> toolTip = new ArrayList<>();
             if (anchor.getBlock() instanceof INamedBlueprintAnchorBlock namedBlock)
             {
@@ -849,16 +898,16 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             img.setVisible(true);
             boolean allInvis = true;
             boolean isCurrentlySelected = false;
-            for (final List<Blueprint> blueprints : blueprintMap.values())
+            for (final List<BlueprintMetadata> blueprints : blueprintMap.values())
             {
-                for (final Blueprint blueprint : blueprints)
+                for (final BlueprintMetadata blueprint : blueprints)
                 {
-                    if (blueprint.equals(RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint()))
+                    if (blueprint.describes(RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint()))
                     {
                         isCurrentlySelected = true;
                     }
                 }
-                if (!BlueprintTagUtils.isInvisible(blueprints.get(0)))
+                if (!blueprints.get(0).isInvisible())
                 {
                     allInvis = false;
                 }
@@ -867,7 +916,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             boolean hasAlts = blueprintMap.values().size() > 1;
             boolean isLocked = false;
 
-            if (availableBlueprintPredicate != null && !availableBlueprintPredicate.test(firstBlueprint))
+            if (!isAvailable(firstBlueprint))
             {
                 if (anchor.getBlock() instanceof final IRequirementsBlueprintAnchorBlock requirements)
                 {
@@ -900,9 +949,9 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
      * @param defaultName the name to use if the blueprint doesn't have a custom name
      * @return            its custom name, or a default name
      */
-    private String getCustomName(final Blueprint blueprint, final String defaultName)
+    private String getCustomName(final BlueprintMetadata blueprint, final String defaultName)
     {
-        final Map<BlockPos, List<String>> tagPosMap = BlueprintTagUtils.getBlueprintTags(blueprint);
+        final Map<BlockPos, List<String>> tagPosMap = blueprint.getTags();
         final Optional<String> nameTag = tagPosMap.getOrDefault(BlockPos.ZERO, new ArrayList<>()).stream()
                 .filter(t -> t.startsWith("name=")).findFirst();
 
@@ -1042,7 +1091,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
     {
         final String[] split = categoryId.split(":");
         final String id = split[1];
-        final Map<String, List<Blueprint>> mapping = currentBluePrintMappingAtDepthCache.get(split[0]).get(id);
+        final Map<String, List<BlueprintMetadata>> mapping = currentBluePrintMappingAtDepthCache.get(split[0]).get(id);
         if (mapping == null)
         {
             Log.getLogger().error("Invalid blueprint name at depth: " + categoryId);
@@ -1070,7 +1119,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
             else
             {
                 updateAlternatives(Collections.emptyMap(), categoryId);
-                final List<Blueprint> leveled = mapping.values().iterator().next();
+                final List<BlueprintMetadata> leveled = mapping.values().iterator().next();
 
                 if (RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getBlueprint() == null || !onOpen)
                 {
@@ -1081,7 +1130,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         }
         else if (split.length == 3)
         {
-            final List<Blueprint> list = mapping.get(split[2]);
+            final List<BlueprintMetadata> list = mapping.get(split[2]);
             if (list == null || list.isEmpty())
             {
                 Log.getLogger().error("Invalid blueprint name at depth: " + categoryId);
@@ -1103,7 +1152,7 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         }
         else if (split.length == 4)
         {
-            final List<Blueprint> list = mapping.get(split[2]);
+            final List<BlueprintMetadata> list = mapping.get(split[2]);
             if (list == null || list.isEmpty())
             {
                 Log.getLogger().error("Invalid blueprint name at depth: " + categoryId);
@@ -1128,7 +1177,75 @@ public final class WindowExtendedBuildTool extends AbstractBlueprintManipulation
         updateFolders(Collections.emptyList(), split[0]);
     }
 
-    private void setBlueprint(Blueprint blueprint)
+    /**
+     * Select a blueprint from the list, the full blueprint is loaded in the background and applied once ready.
+     *
+     * @param metadata the metadata of the selected blueprint.
+     */
+    private void setBlueprint(final BlueprintMetadata metadata)
+    {
+        findPaneOfTypeByID("tree", Text.class).setText(Component.literal(structurePack.getName() + "/" + depth + "/" + metadata.getFileName()).setStyle(Style.EMPTY.withBold(true)));
+        if (pendingBlueprint != null)
+        {
+            pendingBlueprint.cancel(false);
+        }
+        pendingBlueprint = StructurePacks.getBlueprintFuture(metadata.getPackName(), metadata.getFullPath());
+    }
+
+    /**
+     * Check if the given blueprint is available to the player.
+     * The default predicate is evaluated on the metadata, custom predicates on the lazily loaded full blueprint.
+     *
+     * @param metadata the metadata of the blueprint.
+     * @return false if it is known to be unavailable.
+     */
+    private boolean isAvailable(final BlueprintMetadata metadata)
+    {
+        if (availableBlueprintPredicate == null)
+        {
+            return true;
+        }
+        if (availableBlueprintPredicate == BLOCK_BLUEPRINT_REQUIREMENT)
+        {
+            return BLOCK_METADATA_REQUIREMENT.test(metadata);
+        }
+
+        final Future<Blueprint> future =
+          predicateBlueprints.computeIfAbsent(metadata, m -> StructurePacks.getBlueprintFuture(m.getPackName(), m.getFullPath()));
+        if (!future.isDone())
+        {
+            return true;
+        }
+
+        try
+        {
+            final Blueprint blueprint = future.get();
+            return blueprint == null || availableBlueprintPredicate.test(blueprint);
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Check the requirements of an anchor block.
+     *
+     * @param anchor the anchor state.
+     * @return true if there are none or they are met.
+     */
+    private static boolean areAnchorRequirementsMet(final BlockState anchor)
+    {
+        if (anchor.getBlock() instanceof final IRequirementsBlueprintAnchorBlock requirements)
+        {
+            return requirements.areRequirementsMet(Minecraft.getInstance().level,
+              RenderingCache.getOrCreateBlueprintPreviewData("blueprint").getPos(),
+              Minecraft.getInstance().player);
+        }
+        return true;
+    }
+
+    private void setBlueprint(final Blueprint blueprint)
     {
         final BlueprintPreviewData data = RenderingCache.getOrCreateBlueprintPreviewData("blueprint");
 
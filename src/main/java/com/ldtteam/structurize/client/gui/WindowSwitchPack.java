@@ -168,7 +168,7 @@ public class WindowSwitchPack extends AbstractWindowSkeleton
         packMetas = Collections.emptyList();
         sortedPacks.clear();
 
-        packMetasFuture = IOPool.submit(() ->
+        packMetasFuture = IOPool.submit(IOPool.Lane.INTERACTIVE, () ->
         {
             if (!StructurePacks.waitUntilFinishedLoading())
             {
@@ -0,0 +1,205 @@
+package com.ldtteam.structurize.commands;
+
+import com.ldtteam.structurize.management.Manager;
+import com.ldtteam.structurize.management.OperationScheduler;
+import com.ldtteam.structurize.management.OperationScheduler.Priority;
+import com.ldtteam.structurize.management.OperationScheduler.ScheduledOperation;
+import com.mojang.authlib.GameProfile;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.entity.player.Player;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+
+/**
+ * Command for listing and controlling the queued world operations.
+ */
+public class OperationsCommand extends AbstractCommand
+{
+    /**
+     * Descriptive string.
+     */
+    public static final String NAME = "operations";
+
+    /**
+     * The operation id command argument.
+     */
+    private static final String ID = "id";
+
+    /**
+     * The permission level to control operations of other players.
+     */
+    private static final int ADMIN_PERMISSION_LEVEL = 2;
+
+    private static final String NONE_MESSAGE      = "com.structurize.command.operations.none";
+    private static final String ENTRY_MESSAGE     = "com.structurize.command.operations.entry";
+    private static final String NOT_FOUND_MESSAGE = "com.structurize.command.operations.notfound";
+    private static final String NO_PERMISSION     = "com.structurize.command.operations.no.perm";
+    private static final String PAUSED_MESSAGE    = "com.structurize.command.operations.paused";
+    private static final String RESUMED_MESSAGE   = "com.structurize.command.operations.resumed";
+    private static final String CANCELLED_MESSAGE = "com.structurize.command.operations.cancelled";
+    private static final String PRIORITY_MESSAGE  = "com.structurize.command.operations.priority";
+    private static final String STATE_PREFIX      = "com.structurize.command.operations.state.";
+    private static final String UNKNOWN           = "com.structurize.command.operations.unknown";
+
+    private static int onList(final CommandContext<CommandSourceStack> context)
+    {
+        final CommandSourceStack source = context.getSource();
+        int count = 0;
+        for (final OperationScheduler scheduler : Manager.getOperationSchedulers())
+        {
+            for (final ScheduledOperation entry : scheduler.getOperations())
+            {
+                final double progress = entry.getProgress();
+                final Component progressText = progress < 0 ? Component.translatable(UNKNOWN) : Component.literal((int) (progress * 100) + "%");
+                final Component message = Component.translatable(ENTRY_MESSAGE,
+                  scheduler.getPosition(entry),
+                  entry.getId(),
+                  entry.getOperation().getChangeStorage().getOperation(),
+                  entry.getDimension().location().toString(),
+                  getOwnerName(source, entry),
+                  getStateText(entry),
+                  progressText,
+                  getEtaText(entry));
+                source.sendSuccess(() -> message, false);
+                count++;
+            }
+        }
+
+        if (count == 0)
+        {
+            source.sendSuccess(() -> Component.translatable(NONE_MESSAGE), false);
+        }
+        return count;
+    }
+
+    private static int onPause(final CommandContext<CommandSourceStack> context)
+    {
+        final ScheduledOperation entry = getControllableOperation(context);
+        if (entry == null)
+        {
+            return 0;
+        }
+
+        entry.setPaused(true);
+        final int position = Manager.getOperationScheduler(entry.getDimension()).getPosition(entry);
+        context.getSource().sendSuccess(() -> Component.translatable(PAUSED_MESSAGE, entry.getId(), position), false);
+        return 1;
+    }
+
+    private static int onResume(final CommandContext<CommandSourceStack> context)
+    {
+        final ScheduledOperation entry = getControllableOperation(context);
+        if (entry == null)
+        {
+            return 0;
+        }
+
+        entry.setPaused(false);
+        final int position = Manager.getOperationScheduler(entry.getDimension()).getPosition(entry);
+        context.getSource().sendSuccess(() -> Component.translatable(RESUMED_MESSAGE, entry.getId(), position, getEtaText(entry)), false);
+        return 1;
+    }
+
+    private static int onCancel(final CommandContext<CommandSourceStack> context)
+    {
+        final ScheduledOperation entry = getControllableOperation(context);
+        if (entry == null || !Manager.getOperationScheduler(entry.getDimension()).cancel(entry))
+        {
+            return 0;
+        }
+
+        context.getSource().sendSuccess(() -> Component.translatable(CANCELLED_MESSAGE, entry.getId()), false);
+        return 1;
+    }
+
+    private static int onPriority(final CommandContext<CommandSourceStack> context, final Priority priority)
+    {
+        final ScheduledOperation entry = getControllableOperation(context);
+        if (entry == null)
+        {
+            return 0;
+        }
+
+        entry.setPriority(priority);
+        context.getSource().sendSuccess(() -> Component.translatable(PRIORITY_MESSAGE, entry.getId(), getPriorityText(priority)), false);
+        return 1;
+    }
+
+    /**
+     * Get the operation the command refers to, if the source may control it.
+     *
+     * @param context the command context.
+     * @return the operation or null if not found or not allowed, the source is notified then.
+     */
+    @Nullable
+    private static ScheduledOperation getControllableOperation(final CommandContext<CommandSourceStack> context)
+    {
+        final CommandSourceStack source = context.getSource();
+        final int id = IntegerArgumentType.getInteger(context, ID);
+        final ScheduledOperation entry = Manager.getQueuedOperation(id);
+        if (entry == null)
+        {
+            source.sendFailure(Component.translatable(NOT_FOUND_MESSAGE, id));
+            return null;
+        }
+
+        if (!source.hasPermission(ADMIN_PERMISSION_LEVEL) && !(source.getEntity() instanceof Player player && player.getUUID().equals(entry.getOwner())))
+        {
+            source.sendFailure(Component.translatable(NO_PERMISSION));
+            return null;
+        }
+        return entry;
+    }
+
+    private static Component getOwnerName(final CommandSourceStack source, final ScheduledOperation entry)
+    {
+        final Player player = source.getServer().getPlayerList().getPlayer(entry.getOwner());
+        if (player != null)
+        {
+            return player.getDisplayName();
+        }
+        return Component.literal(source.getServer().getProfileCache().get(entry.getOwner()).map(GameProfile::getName).orElse(entry.getOwner().toString()));
+    }
+
+    private static Component getStateText(final ScheduledOperation entry)
+    {
+        return entry.isPaused() ? Component.translatable(STATE_PREFIX + "paused") : getPriorityText(entry.getPriority());
+    }
+
+    private static Component getPriorityText(final Priority priority)
+    {
+        return Component.translatable(STATE_PREFIX + priority.name().toLowerCase(Locale.US));
+    }
+
+    private static Component getEtaText(final ScheduledOperation entry)
+    {
+        final long seconds = entry.getEtaSeconds();
+        if (seconds < 0 || entry.isPaused())
+        {
+            return Component.translatable(UNKNOWN);
+        }
+        return Component.literal(String.format("%d:%02d", seconds / 60, seconds % 60));
+    }
+
+    protected static LiteralArgumentBuilder<CommandSourceStack> build()
+    {
+        final RequiredArgumentBuilder<CommandSourceStack, Integer> priorityNode = newArgument(ID, IntegerArgumentType.integer(1));
+        for (final Priority priority : Priority.values())
+        {
+            priorityNode.then(newLiteral(priority.name().toLowerCase(Locale.US)).executes(context -> onPriority(context, priority)));
+        }
+
+        return newLiteral(NAME)
+          .then(newLiteral("list").executes(OperationsCommand::onList))
+          .then(newLiteral("pause").then(newArgument(ID, IntegerArgumentType.integer(1)).executes(OperationsCommand::onPause)))
+          .then(newLiteral("resume").then(newArgument(ID, IntegerArgumentType.integer(1)).executes(OperationsCommand::onResume)))
+          .then(newLiteral("cancel").then(newArgument(ID, IntegerArgumentType.integer(1)).executes(OperationsCommand::onCancel)))
+          .then(newLiteral("priority").then(priorityNode));
+    }
+}
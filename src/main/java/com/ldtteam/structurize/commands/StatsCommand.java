@@ -0,0 +1,71 @@
+package com.ldtteam.structurize.commands;
+
+import com.ldtteam.structurize.storage.BlueprintCache;
+import com.ldtteam.structurize.util.IOPool;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.network.chat.Component;
+
+import java.util.Locale;
+
+/**
+ * Command for showing runtime statistics of the caches and pools.
+ */
+public class StatsCommand extends AbstractCommand
+{
+    /**
+     * Descriptive string.
+     */
+    public static final String NAME = "stats";
+
+    /**
+     * The permission level to see the statistics.
+     */
+    private static final int PERMISSION_LEVEL = 2;
+
+    private static final String CACHE_MESSAGE = "com.structurize.command.stats.cache";
+    private static final String IO_MESSAGE    = "com.structurize.command.stats.io";
+
+    private static int onCache(final CommandContext<CommandSourceStack> context)
+    {
+        final long hits = BlueprintCache.getHits();
+        final long misses = BlueprintCache.getMisses();
+        final long hitRate = hits + misses == 0 ? 0 : Math.round(100.0 * hits / (hits + misses));
+        final Component message = Component.translatable(CACHE_MESSAGE,
+          BlueprintCache.getSize(),
+          BlueprintCache.getCachedVolume(),
+          hits,
+          misses,
+          hitRate,
+          BlueprintCache.getEvictions());
+        context.getSource().sendSuccess(() -> message, false);
+        return 1;
+    }
+
+    private static int onIO(final CommandContext<CommandSourceStack> context)
+    {
+        for (final IOPool.Lane lane : IOPool.Lane.values())
+        {
+            final IOPool.Statistics statistics = IOPool.getStatistics(lane);
+            final Component message = Component.translatable(IO_MESSAGE,
+              lane.name().toLowerCase(Locale.ROOT),
+              statistics.queued(),
+              statistics.completed(),
+              statistics.cancelled(),
+              String.format(Locale.ROOT, "%.1f", statistics.averageWaitMillis()),
+              String.format(Locale.ROOT, "%.1f", statistics.maxWaitMillis()),
+              String.format(Locale.ROOT, "%.1f", statistics.averageRunMillis()));
+            context.getSource().sendSuccess(() -> message, false);
+        }
+        return 1;
+    }
+
+    protected static LiteralArgumentBuilder<CommandSourceStack> build()
+    {
+        return newLiteral(NAME)
+          .requires(source -> source.hasPermission(PERMISSION_LEVEL))
+          .then(newLiteral("cache").executes(StatsCommand::onCache))
+          .then(newLiteral("io").executes(StatsCommand::onIO));
+    }
+}
@@ -5,6 +5,7 @@ import com.ldtteam.structurize.client.BlueprintHandler;
 import com.ldtteam.structurize.network.messages.SyncSettingsToServer;
 import com.ldtteam.structurize.storage.rendering.RenderingCache;
 import com.ldtteam.structurize.storage.rendering.types.BlueprintPreviewData;
+import com.ldtteam.structurize.util.IOPool;
 import io.netty.util.internal.shaded.org.jctools.queues.MessagePassingQueue.Consumer;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.common.ForgeConfigSpec.BooleanValue;
@@ -25,6 +26,17 @@ public class ClientConfiguration extends AbstractConfiguration
     public final BooleanValue displayShared;
     public final IntValue rendererLightLevel;
     public final DoubleValue rendererTransparency;
+    public final IntValue rendererMaxDistance;
+    public final IntValue rendererDetailDistance;
+
+    // blueprint cache
+
+    public final IntValue maxCachedSchematics;
+    public final IntValue maxCachedSchematicVolume;
+
+    // background work
+
+    public final IntValue ioThreads;
 
     /**
      * Builds client configuration.
@@ -41,6 +53,8 @@ public class ClientConfiguration extends AbstractConfiguration
         displayShared = defineBoolean(builder, "see_shared_previews", false);
         rendererLightLevel = defineInteger(builder, "light_level", 15, -1, 15);
         rendererTransparency = defineDouble(builder, "transparency", -1, -1, 1);
+        rendererMaxDistance = defineInteger(builder, "max_render_distance", 512, 16, 4096);
+        rendererDetailDistance = defineInteger(builder, "detail_render_distance", 96, 0, 4096);
 
         addWatcher(BlueprintHandler.getInstance()::clearCache, renderPlaceholdersNice, rendererLightLevel);
         addWatcher(displayShared, (oldValue, isSharingEnabled) -> {
@@ -58,6 +72,16 @@ public class ClientConfiguration extends AbstractConfiguration
             }
         });
 
+        swapToCategory(builder, "blueprint.cache");
+
+        maxCachedSchematics = defineInteger(builder, "max_cached_schematics", 50, 0, 100000);
+        maxCachedSchematicVolume = defineInteger(builder, "max_cached_schematic_volume", 5000000, 0, Integer.MAX_VALUE);
+
+        swapToCategory(builder, "io");
+
+        ioThreads = defineInteger(builder, "io_threads", 0, 0, 16);
+        addWatcher(ioThreads, (oldValue, newValue) -> IOPool.setConfiguredThreads(newValue));
+
         finishCategory(builder);
     }
 
@@ -71,5 +95,7 @@ public class ClientConfiguration extends AbstractConfiguration
         sink.accept(renderPlaceholdersNice);
         sink.accept(rendererLightLevel);
         sink.accept(rendererTransparency);
+        sink.accept(rendererMaxDistance);
+        sink.accept(rendererDetailDistance);
     }
 }
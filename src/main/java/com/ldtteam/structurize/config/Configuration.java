@@ -1,6 +1,7 @@
 package com.ldtteam.structurize.config;
 
 import com.ldtteam.structurize.config.AbstractConfiguration.ConfigWatcher;
+import com.ldtteam.structurize.util.IOPool;
 import net.minecraftforge.common.ForgeConfigSpec;
 import net.minecraftforge.common.ForgeConfigSpec.ConfigValue;
 import net.minecraftforge.common.ForgeConfigSpec.ValueSpec;
@@ -82,10 +83,15 @@ public class Configuration
         if (client != null && modConfig.getSpec() == client.getSpec())
         {
             clientConfig.watchers.forEach(ConfigWatcher::cacheLastValue);
+            IOPool.setConfiguredThreads(clientConfig.ioThreads.get());
         }
         else if (modConfig.getSpec() == server.getSpec())
         {
             serverConfig.watchers.forEach(ConfigWatcher::cacheLastValue);
+            if (FMLEnvironment.dist.isDedicatedServer())
+            {
+                IOPool.setConfiguredThreads(serverConfig.ioThreads.get());
+            }
         }
     }
 
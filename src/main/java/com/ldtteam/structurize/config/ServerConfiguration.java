@@ -1,8 +1,10 @@
 package com.ldtteam.structurize.config;
 
 import com.google.common.collect.Lists;
+import com.ldtteam.structurize.util.IOPool;
 import net.minecraft.core.Direction;
 import net.minecraftforge.common.ForgeConfigSpec;
+import net.minecraftforge.fml.loading.FMLEnvironment;
 
 import java.util.List;
 
@@ -23,20 +25,66 @@ public class ServerConfiguration extends AbstractConfiguration
     public final ForgeConfigSpec.BooleanValue allowPlayerSchematics;
 
     /**
-     * Max world operations per tick (Max blocks to place, remove or replace)
+     * Max world operations per operation step (Max blocks to place, remove or replace)
      */
     public final ForgeConfigSpec.IntValue maxOperationsPerTick;
 
+    /**
+     * Min milliseconds per tick spent on world operations, even if the server is busy
+     */
+    public final ForgeConfigSpec.IntValue minOperationMillisPerTick;
+
+    /**
+     * Max milliseconds per tick spent on world operations, even if the server is idle
+     */
+    public final ForgeConfigSpec.IntValue maxOperationMillisPerTick;
+
     /**
      * Max amount of changes cached to be able to undo
      */
     public final ForgeConfigSpec.IntValue maxCachedChanges;
 
+    /**
+     * Amount of the newest changes per player kept in memory, older ones are moved to disk
+     */
+    public final ForgeConfigSpec.IntValue changesInMemory;
+
+    /**
+     * Max megabytes of undo history kept in memory per player
+     */
+    public final ForgeConfigSpec.IntValue maxChangeMemoryPerPlayer;
+
+    /**
+     * Max megabytes of undo history kept in memory for all players together
+     */
+    public final ForgeConfigSpec.IntValue maxChangeMemory;
+
     /**
      * Max amount of schematics to be cached on the server
      */
     public final ForgeConfigSpec.IntValue maxCachedSchematics;
 
+    /**
+     * Max summed up block volume of the schematics cached on the server
+     */
+    public final ForgeConfigSpec.IntValue maxCachedSchematicVolume;
+
+    /**
+     * Max amount of structure pack bytes sent to a single player per tick
+     */
+    public final ForgeConfigSpec.IntValue packSyncBytesPerPlayer;
+
+    /**
+     * Max amount of structure pack bytes sent to all players together per tick
+     */
+    public final ForgeConfigSpec.IntValue packSyncBytesPerTick;
+
+    /**
+     * Amount of threads for file IO and other background work on a dedicated server, 0 to pick by processor count.
+     * The physical client uses its own setting, a remote server must not resize its pool.
+     */
+    public final ForgeConfigSpec.IntValue ioThreads;
+
     /**
      * Max amount of blocks checked by a possible worker.
      */
@@ -70,8 +118,17 @@ public class ServerConfiguration extends AbstractConfiguration
         ignoreSchematicsFromJar = defineBoolean(builder, "ignoreSchematicsFromJar", false);
         allowPlayerSchematics = defineBoolean(builder, "allowPlayerSchematics", true);
         maxOperationsPerTick = defineInteger(builder, "maxOperationsPerTick", 1000, 0, 100000);
+        minOperationMillisPerTick = defineInteger(builder, "minOperationMillisPerTick", 2, 1, 50);
+        maxOperationMillisPerTick = defineInteger(builder, "maxOperationMillisPerTick", 20, 1, 1000);
         maxCachedChanges = defineInteger(builder, "maxCachedChanges", 50, 0, 250);
+        changesInMemory = defineInteger(builder, "changesInMemory", 3, 1, 250);
+        maxChangeMemoryPerPlayer = defineInteger(builder, "maxChangeMemoryPerPlayer", 64, 1, 4096);
+        maxChangeMemory = defineInteger(builder, "maxChangeMemory", 512, 1, 65536);
         maxCachedSchematics = defineInteger(builder, "maxCachedSchematics", 100, 0, 100000);
+        maxCachedSchematicVolume = defineInteger(builder, "maxCachedSchematicVolume", 10000000, 0, Integer.MAX_VALUE);
+        packSyncBytesPerPlayer = defineInteger(builder, "packSyncBytesPerPlayer", 131072, 1024, 16777216);
+        packSyncBytesPerTick = defineInteger(builder, "packSyncBytesPerTick", 1048576, 1024, 134217728);
+        ioThreads = defineInteger(builder, "ioThreads", 0, 0, 16);
         maxBlocksChecked = defineInteger(builder, "maxBlocksChecked", 1000, 0, 100000);
         schematicBlockLimit = defineInteger(builder, "schematicBlockLimit", 100000, 1000, 1000000);
         iteratorType = defineString(builder, "iteratorType", "default");
@@ -89,5 +146,12 @@ public class ServerConfiguration extends AbstractConfiguration
         updateEndPos = builder.define("end", Lists.newArrayList(10,10));
 
         finishCategory(builder);
+
+        addWatcher(ioThreads, (oldValue, newValue) -> {
+            if (FMLEnvironment.dist.isDedicatedServer())
+            {
+                IOPool.setConfiguredThreads(newValue);
+            }
+        });
     }
 }
\ No newline at end of file
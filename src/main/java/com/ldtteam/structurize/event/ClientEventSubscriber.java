@@ -212,6 +212,9 @@ public class ClientEventSubscriber
         final Minecraft mc = Minecraft.getInstance();
         mc.getProfiler().push("structurize");
 
+        // renderers of an old rotation or another blueprint aren't drawn anymore but may still hold buffer packs
+        BlueprintHandler.getInstance().uploadFinishedSections();
+
         if (mc.level != null && mc.level.getGameTime() % (Constants.TICKS_SECOND * BlueprintHandler.CACHE_EXPIRE_CHECK_SECONDS) == 0)
         {
             mc.getProfiler().push("blueprint_manager_tick");
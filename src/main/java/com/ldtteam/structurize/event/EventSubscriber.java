@@ -4,12 +4,14 @@ import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.commands.EntryPoint;
 import com.ldtteam.structurize.management.Manager;
 import com.ldtteam.structurize.network.messages.ServerUUIDMessage;
+import com.ldtteam.structurize.placement.handlers.placement.PlacementHandlers;
 import com.ldtteam.structurize.util.BlockUtils;
 import com.ldtteam.structurize.util.IOPool;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraftforge.event.RegisterCommandsEvent;
+import net.minecraftforge.event.TagsUpdatedEvent;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.event.TickEvent.Phase;
 import net.minecraftforge.event.entity.player.PlayerEvent;
@@ -56,9 +58,22 @@ public class EventSubscriber
         if (event.getEntity() instanceof ServerPlayer serverPlayer)
         {
             Network.getNetwork().sendToPlayer(new ServerUUIDMessage(), serverPlayer);
+            // Starts reading the undo history, so it is complete by the time the player opens it
+            Manager.getChangeHistory(serverPlayer.getUUID());
         }
     }
 
+    /**
+     * Called when tags are (re)loaded, placement handlers may check tags.
+     *
+     * @param event event
+     */
+    @SubscribeEvent
+    public static void onTagsUpdated(final TagsUpdatedEvent event)
+    {
+        PlacementHandlers.invalidateCache();
+    }
+
     @SubscribeEvent
     public static void onWorldTick(final TickEvent.LevelTickEvent event)
     {
@@ -79,6 +94,7 @@ public class EventSubscriber
     @SubscribeEvent
     public static void onServerStopped(@NotNull final ServerStoppingEvent event)
     {
+        Manager.clearQueues();
         IOPool.shutdown();
     }
 }
@@ -9,13 +9,15 @@ import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.blockentities.interfaces.IBlueprintDataProviderBE;
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
 import com.ldtteam.structurize.blueprints.v1.BlueprintUtil;
+import com.ldtteam.structurize.blueprints.v1.ScanSnapshot;
 import com.ldtteam.structurize.client.gui.WindowScan;
 import com.ldtteam.structurize.commands.ScanCommand;
 import com.ldtteam.structurize.network.messages.SaveScanMessage;
 import com.ldtteam.structurize.network.messages.ShowScanMessage;
+import com.ldtteam.structurize.storage.ServerFutureProcessor;
 import com.ldtteam.structurize.storage.rendering.RenderingCache;
 import com.ldtteam.structurize.storage.rendering.types.BoxPreviewData;
-import com.ldtteam.structurize.util.BlockInfo;
+import com.ldtteam.structurize.util.IOPool;
 import com.ldtteam.structurize.util.ScanToolData;
 import com.mojang.brigadier.CommandDispatcher;
 import com.mojang.brigadier.ParseResults;
@@ -57,8 +59,8 @@ import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
 
 import static com.ldtteam.structurize.api.util.constant.Constants.MOD_ID;
 import static com.ldtteam.structurize.api.util.constant.TranslationConstants.ANCHOR_POS_OUTSIDE_SCHEMATIC;
@@ -170,21 +172,48 @@ public class ItemScanTool extends AbstractItemWithPosSelector implements IScroll
         }
 
         final BlockPos zero = new BlockPos(box.minX(), box.minY(), box.minZ());
-        final Blueprint bp = BlueprintUtil.createBlueprint(world, zero, saveEntities, (short) box.getXSpan(), (short) box.getYSpan(), (short) box.getZSpan(), fileName, slot.getBox().getAnchor());
+        final ScanSnapshot snapshot = ScanSnapshot.take(world, zero, saveEntities, (short) box.getXSpan(), (short) box.getYSpan(), (short) box.getZSpan());
+        final Optional<BlockPos> anchorPos = slot.getBox().getAnchor();
+        final String blueprintName = fileName;
 
-        if (slot.getBox().getAnchor().isEmpty() && bp.getPrimaryBlockOffset().equals(new BlockPos(bp.getSizeX() / 2, 0, bp.getSizeZ() / 2)))
-        {
-            final List<BlockInfo> list = bp.getBlockInfoAsList().stream()
-              .filter(blockInfo -> blockInfo.hasTileEntityData() && blockInfo.getTileEntityData().contains(TAG_BLUEPRINTDATA))
-              .collect(Collectors.toList());
+        final Future<ScanResult> future = IOPool.submit(IOPool.Lane.PLACEMENT, () -> {
+            final Blueprint bp = snapshot.toBlueprint(blueprintName, anchorPos);
 
-            if (list.size() > 1)
+            boolean badAnchor = false;
+            if (anchorPos.isEmpty() && bp.getPrimaryBlockOffset().equals(new BlockPos(bp.getSizeX() / 2, 0, bp.getSizeZ() / 2)))
             {
-                player.displayClientMessage(Component.translatable("com.ldtteam.structurize.gui.scantool.scanbadanchor", fileName), false);
+                badAnchor = bp.getTileEntityMap().values().stream().filter(tag -> tag.contains(TAG_BLUEPRINTDATA)).count() > 1;
             }
-        }
 
-        Network.getNetwork().sendToPlayer(new SaveScanMessage(BlueprintUtil.writeBlueprintToNBT(bp), fileName), (ServerPlayer) player);
+            return new ScanResult(bp, SaveScanMessage.compress(BlueprintUtil.writeBlueprintToNBT(bp), blueprintName), badAnchor);
+        });
+
+        ServerFutureProcessor.queueFuture(new ServerFutureProcessor.FutureProcessingData<>(future, world, result -> {
+            BlueprintUtil.updateAnchorBlockEntity(world, zero, result.blueprint(), blueprintName);
+
+            if (((ServerPlayer) player).hasDisconnected())
+            {
+                return;
+            }
+
+            if (result.badAnchor())
+            {
+                player.displayClientMessage(Component.translatable("com.ldtteam.structurize.gui.scantool.scanbadanchor", blueprintName), false);
+            }
+
+            Network.getNetwork().sendToPlayer(new SaveScanMessage(result.compressedData()), (ServerPlayer) player);
+        }));
+    }
+
+    /**
+     * The result of a scan, built off the server thread.
+     *
+     * @param blueprint      the scanned blueprint.
+     * @param compressedData the compressed scan message content.
+     * @param badAnchor      whether the anchor was guessed though there are multiple blueprint providers.
+     */
+    private record ScanResult(Blueprint blueprint, byte[] compressedData, boolean badAnchor)
+    {
     }
 
     @Override
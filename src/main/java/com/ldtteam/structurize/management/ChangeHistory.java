@@ -0,0 +1,706 @@
+package com.ldtteam.structurize.management;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.util.ChangeStorage;
+import com.ldtteam.structurize.util.IOPool;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The undo history of one player. Only the newest changes are kept in memory, older ones are written to a per player
+ * region file in the background and only read again when they are undone or redone. The file survives restarts.
+ * <p>
+ * The region file is a sequence of records: changes ({@link #RECORD_CHANGE}, sequence, body length, operation json, deflated body)
+ * and tombstones of removed changes ({@link #RECORD_TOMBSTONE}, offset of the change). It is rewritten without dead records
+ * when they take up more space than the live ones. Changes are spilled in any order, the sequence tells which one is newer.
+ * The file is scanned in the background before the first access to it, the found entries are added to the history afterwards.
+ */
+public class ChangeHistory
+{
+    /**
+     * Record types of the region file.
+     */
+    private static final byte RECORD_CHANGE    = 0;
+    private static final byte RECORD_TOMBSTONE = 1;
+
+    /**
+     * Size of a tombstone record.
+     */
+    private static final int TOMBSTONE_SIZE = 1 + Long.BYTES;
+
+    /**
+     * Min amount of dead bytes before the region file is rewritten.
+     */
+    private static final long MIN_GARBAGE_BYTES = 1024 * 1024;
+
+    /**
+     * The server, callbacks of background work run on its thread.
+     */
+    private final MinecraftServer server;
+
+    /**
+     * The player owning the history.
+     */
+    private final UUID player;
+
+    /**
+     * The region file.
+     */
+    private final Path file;
+
+    /**
+     * The entries, newest first. Only accessed on the server thread.
+     */
+    private final List<HistoryEntry> entries = new ArrayList<>();
+
+    /**
+     * Guards the region file and the disk position of all entries.
+     */
+    private final Object fileLock = new Object();
+
+    /**
+     * Entries with a record in the region file, by id. Guarded by the file lock.
+     */
+    private final Map<Integer, HistoryEntry> diskEntries = new HashMap<>();
+
+    /**
+     * Removed entries which still need a tombstone.
+     */
+    private final Queue<HistoryEntry> pendingRemovals = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Bytes of dead records in the region file. Guarded by the file lock.
+     */
+    private long garbageBytes = 0;
+
+    /**
+     * If the region file was scanned. Guarded by the file lock.
+     */
+    private boolean scanned = false;
+
+    /**
+     * Sequence of the newest entry. Only accessed on the server thread.
+     */
+    private long lastSequence = 0;
+
+    /**
+     * Create the history of a player and start reading the entries of the region file in the background. Only the record headers are read.
+     *
+     * @param server the server.
+     * @param player the player.
+     * @param folder the folder of the region files.
+     */
+    public ChangeHistory(final MinecraftServer server, final UUID player, final Path folder)
+    {
+        this.server = server;
+        this.player = player;
+        this.file = folder.resolve(player + ".history");
+        IOPool.execute(IOPool.Lane.PLACEMENT, () -> {
+            synchronized (fileLock)
+            {
+                ensureScanned();
+            }
+        });
+    }
+
+    /**
+     * @return the entries, newest first.
+     */
+    public List<HistoryEntry> getEntries()
+    {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Get an entry by its id.
+     *
+     * @param id the id.
+     * @return the entry or null if not in the history.
+     */
+    @Nullable
+    public HistoryEntry get(final int id)
+    {
+        for (final HistoryEntry entry : entries)
+        {
+            if (entry.id == id)
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if a storage is in this history.
+     *
+     * @param storage the storage.
+     * @return true if it is.
+     */
+    public boolean contains(final ChangeStorage storage)
+    {
+        return get(storage.getID()) != null;
+    }
+
+    /**
+     * Add a new change as the newest entry.
+     *
+     * @param storage the change.
+     */
+    public void add(final ChangeStorage storage)
+    {
+        entries.add(0, new HistoryEntry(storage.getID(), nextSequence(), storage.getOperation(), storage));
+    }
+
+    /**
+     * Get the sequence of a new entry. Based on the clock, so changes of a later session are newer even before the file was scanned.
+     *
+     * @return the sequence.
+     */
+    private long nextSequence()
+    {
+        lastSequence = Math.max(lastSequence + 1, System.currentTimeMillis());
+        return lastSequence;
+    }
+
+    /**
+     * Add the entries found in the region file. Called on the server thread.
+     *
+     * @param found the entries.
+     */
+    private void merge(final List<HistoryEntry> found)
+    {
+        for (final HistoryEntry entry : found)
+        {
+            lastSequence = Math.max(lastSequence, entry.sequence);
+        }
+        entries.addAll(found);
+        entries.sort(Comparator.comparingLong((HistoryEntry entry) -> entry.sequence).reversed());
+    }
+
+    /**
+     * Remove an entry, its record is marked dead in the background.
+     *
+     * @param entry the entry.
+     */
+    public void remove(final HistoryEntry entry)
+    {
+        if (!entries.remove(entry))
+        {
+            return;
+        }
+
+        entry.storage = null;
+        pendingRemovals.add(entry);
+        IOPool.execute(() -> {
+            synchronized (fileLock)
+            {
+                ensureScanned();
+                processRemovals();
+            }
+        });
+    }
+
+    /**
+     * Remove the oldest entry.
+     *
+     * @return the removed entry, null if empty.
+     */
+    @Nullable
+    public HistoryEntry removeOldest()
+    {
+        if (entries.isEmpty())
+        {
+            return null;
+        }
+        final HistoryEntry entry = entries.get(entries.size() - 1);
+        remove(entry);
+        return entry;
+    }
+
+    /**
+     * Get the change of an entry, reading it from the region file in the background if it is not in memory.
+     *
+     * @param entry    the entry.
+     * @param callback receives the change on the server thread, or null if it could not be read.
+     */
+    public void load(final HistoryEntry entry, final Consumer<ChangeStorage> callback)
+    {
+        final ChangeStorage loaded = entry.storage;
+        if (loaded != null)
+        {
+            callback.accept(loaded);
+            return;
+        }
+
+        IOPool.execute(IOPool.Lane.PLACEMENT, () -> {
+            final ChangeStorage storage;
+            synchronized (fileLock)
+            {
+                ensureScanned();
+                storage = read(entry);
+            }
+            server.execute(() -> {
+                if (storage != null && entries.contains(entry) && entry.storage == null)
+                {
+                    entry.storage = storage;
+                }
+                callback.accept(entry.storage != null ? entry.storage : storage);
+            });
+        });
+    }
+
+    /**
+     * Move the changes of an entry out of memory. They are written in the background unless already on disk.
+     * Changes used by a queued undo or redo stay in memory, a copy read back later wouldn't know about its progress.
+     *
+     * @param entry the entry.
+     */
+    public void spill(final HistoryEntry entry)
+    {
+        final ChangeStorage storage = entry.storage;
+        if (storage == null || entry.spilling || Manager.isInUse(storage))
+        {
+            return;
+        }
+
+        entry.spilling = true;
+        IOPool.execute(() -> {
+            final boolean written;
+            synchronized (fileLock)
+            {
+                ensureScanned();
+                written = write(entry, storage);
+            }
+            server.execute(() -> {
+                entry.spilling = false;
+                // An undo or redo may have been queued while writing
+                if (written && !Manager.isInUse(storage))
+                {
+                    entry.storage = null;
+                }
+            });
+        });
+    }
+
+    /**
+     * Write all entries which are only in memory and all pending removals, on the calling thread. Used when the server stops.
+     */
+    public void flush()
+    {
+        synchronized (fileLock)
+        {
+            ensureScanned();
+            processRemovals();
+            // Oldest first, so the file reads in order even without the sequence
+            for (int i = entries.size() - 1; i >= 0; i--)
+            {
+                final HistoryEntry entry = entries.get(i);
+                final ChangeStorage storage = entry.storage;
+                if (storage != null && entry.offset < 0)
+                {
+                    write(entry, storage);
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimate the heap used by the changes in memory.
+     *
+     * @return the estimate in bytes.
+     */
+    public long getMemoryUsage()
+    {
+        long usage = 0;
+        for (final HistoryEntry entry : entries)
+        {
+            final ChangeStorage storage = entry.storage;
+            if (storage != null && !entry.spilling)
+            {
+                usage += storage.getMemoryUsage();
+            }
+        }
+        return usage;
+    }
+
+    /**
+     * Get the oldest entry which is still in memory and can be spilled, except the newest one.
+     *
+     * @return the entry or null if none.
+     */
+    @Nullable
+    public HistoryEntry getOldestInMemory()
+    {
+        for (int i = entries.size() - 1; i > 0; i--)
+        {
+            final HistoryEntry entry = entries.get(i);
+            final ChangeStorage storage = entry.storage;
+            if (storage != null && !entry.spilling && !Manager.isInUse(storage))
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Scan the region file if not done yet, the found entries are added on the server thread. Called with the file lock held.
+     * Every file access calls this first, so entries written in this session are never mistaken for old ones.
+     */
+    private void ensureScanned()
+    {
+        if (scanned)
+        {
+            return;
+        }
+        scanned = true;
+
+        final List<HistoryEntry> found = scan();
+        if (!found.isEmpty())
+        {
+            server.execute(() -> merge(found));
+        }
+    }
+
+    /**
+     * Read the record headers of the region file. Called with the file lock held.
+     *
+     * @return the live entries, oldest first.
+     */
+    private List<HistoryEntry> scan()
+    {
+        if (!Files.exists(file))
+        {
+            return Collections.emptyList();
+        }
+
+        final Map<Long, HistoryEntry> byOffset = new LinkedHashMap<>();
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r"))
+        {
+            while (raf.getFilePointer() < raf.length())
+            {
+                final long offset = raf.getFilePointer();
+                final byte type = raf.readByte();
+                if (type == RECORD_CHANGE)
+                {
+                    final long sequence = raf.readLong();
+                    final int bodyLength = raf.readInt();
+                    final Component operation = Component.Serializer.fromJson(raf.readUTF());
+                    if (bodyLength < 0 || bodyLength > raf.length() - raf.getFilePointer())
+                    {
+                        Log.getLogger().warn("Corrupt undo history, ignoring the rest of: " + file);
+                        break;
+                    }
+                    final HistoryEntry entry = new HistoryEntry(ChangeStorage.nextID(), sequence, operation == null ? Component.empty() : operation, null);
+                    raf.seek(raf.getFilePointer() + bodyLength);
+                    entry.offset = offset;
+                    entry.length = (int) (raf.getFilePointer() - offset);
+                    byOffset.put(offset, entry);
+                }
+                else if (type == RECORD_TOMBSTONE)
+                {
+                    final HistoryEntry entry = byOffset.remove(raf.readLong());
+                    garbageBytes += TOMBSTONE_SIZE + (entry == null ? 0 : entry.length);
+                }
+                else
+                {
+                    Log.getLogger().warn("Corrupt undo history, ignoring the rest of: " + file);
+                    break;
+                }
+            }
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            Log.getLogger().warn("Unable to read undo history: " + file, e);
+        }
+
+        final List<HistoryEntry> found = new ArrayList<>(byOffset.values());
+        found.sort(Comparator.comparingLong(entry -> entry.sequence));
+        for (final HistoryEntry entry : found)
+        {
+            diskEntries.put(entry.id, entry);
+        }
+        return found;
+    }
+
+    /**
+     * Append a change to the region file if not written yet. Called with the file lock held.
+     *
+     * @param entry   the entry.
+     * @param storage the change.
+     * @return true if the change is in the region file.
+     */
+    private boolean write(final HistoryEntry entry, final ChangeStorage storage)
+    {
+        if (entry.removed || entry.offset >= 0)
+        {
+            return entry.offset >= 0;
+        }
+
+        try
+        {
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(body, deflater)))
+            {
+                storage.write(out);
+            }
+            finally
+            {
+                deflater.end();
+            }
+
+            final ByteArrayOutputStream record = new ByteArrayOutputStream(body.size() + 256);
+            final DataOutputStream out = new DataOutputStream(record);
+            out.writeByte(RECORD_CHANGE);
+            out.writeLong(entry.sequence);
+            out.writeInt(body.size());
+            out.writeUTF(Component.Serializer.toJson(entry.operation));
+            body.writeTo(out);
+
+            Files.createDirectories(file.getParent());
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"))
+            {
+                final long offset = raf.length();
+                raf.seek(offset);
+                raf.write(record.toByteArray());
+                entry.offset = offset;
+                entry.length = record.size();
+            }
+            diskEntries.put(entry.id, entry);
+            return true;
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to write undo history: " + file, e);
+            return false;
+        }
+    }
+
+    /**
+     * Read a change from the region file. Called with the file lock held.
+     *
+     * @param entry the entry.
+     * @return the change or null if it could not be read.
+     */
+    @Nullable
+    private ChangeStorage read(final HistoryEntry entry)
+    {
+        if (entry.offset < 0)
+        {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r"))
+        {
+            raf.seek(entry.offset);
+            if (raf.readByte() != RECORD_CHANGE)
+            {
+                return null;
+            }
+            raf.readLong();
+            final int bodyLength = raf.readInt();
+            raf.readUTF();
+            if (bodyLength < 0 || bodyLength > raf.length() - raf.getFilePointer())
+            {
+                Log.getLogger().warn("Corrupt undo history record at " + entry.offset + " in: " + file);
+                return null;
+            }
+            final byte[] body = new byte[bodyLength];
+            raf.readFully(body);
+
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(body)))))
+            {
+                return ChangeStorage.read(in, entry.id, entry.operation, player);
+            }
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            Log.getLogger().warn("Unable to read undo history: " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Mark the records of removed entries dead and rewrite the file if it is mostly dead. Called with the file lock held.
+     */
+    private void processRemovals()
+    {
+        HistoryEntry entry;
+        while ((entry = pendingRemovals.poll()) != null)
+        {
+            entry.removed = true;
+            if (entry.offset < 0)
+            {
+                continue;
+            }
+
+            diskEntries.remove(entry.id);
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"))
+            {
+                raf.seek(raf.length());
+                raf.writeByte(RECORD_TOMBSTONE);
+                raf.writeLong(entry.offset);
+                garbageBytes += TOMBSTONE_SIZE + entry.length;
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Unable to update undo history: " + file, e);
+            }
+        }
+
+        long liveBytes = 0;
+        for (final HistoryEntry diskEntry : diskEntries.values())
+        {
+            liveBytes += diskEntry.length;
+        }
+        if (garbageBytes >= MIN_GARBAGE_BYTES && garbageBytes > liveBytes)
+        {
+            rewrite();
+        }
+    }
+
+    /**
+     * Rewrite the region file with only the live records. Called with the file lock held.
+     */
+    private void rewrite()
+    {
+        final List<HistoryEntry> live = new ArrayList<>(diskEntries.values());
+        live.sort(Comparator.comparingLong(entry -> entry.offset));
+        final long[] newOffsets = new long[live.size()];
+
+        final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r");
+             OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile)))
+        {
+            long offset = 0;
+            for (int i = 0; i < live.size(); i++)
+            {
+                final HistoryEntry entry = live.get(i);
+                final byte[] record = new byte[entry.length];
+                in.seek(entry.offset);
+                in.readFully(record);
+                out.write(record);
+                newOffsets[i] = offset;
+                offset += record.length;
+            }
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to compact undo history: " + file, e);
+            return;
+        }
+
+        try
+        {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to compact undo history: " + file, e);
+            return;
+        }
+
+        for (int i = 0; i < live.size(); i++)
+        {
+            live.get(i).offset = newOffsets[i];
+        }
+        garbageBytes = 0;
+    }
+
+    /**
+     * An entry of the history.
+     */
+    public static class HistoryEntry
+    {
+        /**
+         * The id, also the id of the loaded change.
+         */
+        private final int id;
+
+        /**
+         * Orders the entries of the history, higher is newer. Stored with the record.
+         */
+        private final long sequence;
+
+        /**
+         * The operation which was done.
+         */
+        private final Component operation;
+
+        /**
+         * The change if in memory.
+         */
+        @Nullable
+        private volatile ChangeStorage storage;
+
+        /**
+         * If the change is being written to drop it from memory afterwards. Only accessed on the server thread.
+         */
+        private boolean spilling = false;
+
+        /**
+         * Position and size of the record in the region file, negative offset if not written. Guarded by the file lock.
+         */
+        private long offset = -1;
+        private int  length = 0;
+
+        /**
+         * If it was removed from the history. Guarded by the file lock.
+         */
+        private boolean removed = false;
+
+        private HistoryEntry(final int id, final long sequence, final Component operation, @Nullable final ChangeStorage storage)
+        {
+            this.id = id;
+            this.sequence = sequence;
+            this.operation = operation;
+            this.storage = storage;
+        }
+
+        /**
+         * @return the id.
+         */
+        public int getID()
+        {
+            return id;
+        }
+
+        /**
+         * @return the operation which was done.
+         */
+        public Component getOperation()
+        {
+            return operation;
+        }
+
+        /**
+         * @return the change if in memory, else null.
+         */
+        @Nullable
+        public ChangeStorage getStorage()
+        {
+            return storage;
+        }
+
+        /**
+         * @return true if the change is in memory.
+         */
+        public boolean isLoaded()
+        {
+            return storage != null;
+        }
+    }
+}
@@ -12,16 +12,21 @@ import com.ldtteam.structurize.util.ChangeStorage;
 import com.ldtteam.structurize.util.ITickedWorldOperation;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.Mirror;
 import net.minecraft.world.level.block.Rotation;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.storage.DimensionDataStorage;
+import net.minecraft.world.level.storage.LevelResource;
 import net.minecraftforge.server.ServerLifecycleHooks;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
@@ -39,14 +44,24 @@ public final class Manager
     private static boolean schematicDownloaded = false;
 
     /**
-     * List of the last changes to the world.
+     * The last changes to the world, by player.
      */
-    private static final Map<UUID, List<ChangeStorage>> changeQueue = new HashMap<>();
+    private static final Map<UUID, ChangeHistory> changeHistories = new HashMap<>();
 
     /**
-     * List of scanTool operations.
+     * Schedulers of the queued world operations, by level.
      */
-    private static final LinkedList<ITickedWorldOperation> scanToolOperationPool = new LinkedList<>();
+    private static final Map<ResourceKey<Level>, OperationScheduler> operationSchedulers = new HashMap<>();
+
+    /**
+     * Folder of the undo history files, in the world folder.
+     */
+    private static final String HISTORY_FOLDER = "structurize/history";
+
+    /**
+     * Bytes per megabyte, the unit of the history memory limits.
+     */
+    private static final long MEGABYTE = 1024 * 1024;
 
     /**
      * Pseudo unique id for the server
@@ -65,28 +80,144 @@ public final class Manager
      */
     public static void onWorldTick(final ServerLevel world)
     {
-        if (!scanToolOperationPool.isEmpty())
+        final OperationScheduler scheduler = operationSchedulers.get(world.dimension());
+        if (scheduler != null)
         {
-            final ITickedWorldOperation operation = scanToolOperationPool.peek();
-            if (operation != null && operation.apply(world))
+            scheduler.tick(world);
+        }
+    }
+
+    /**
+     * Add a new item to the scanTool operation queue.
+     *
+     * @param operation the operation to add.
+     */
+    public static void addToQueue(final ITickedWorldOperation operation)
+    {
+        addToQueue(operation, OperationScheduler.Priority.NORMAL);
+    }
+
+    /**
+     * Add a new item to the scanTool operation queue of the level the operation runs in.
+     * Operations which do not know their level run in the overworld.
+     *
+     * @param operation the operation to add.
+     * @param priority  the priority of the operation.
+     * @return the queued operation.
+     */
+    public static OperationScheduler.ScheduledOperation addToQueue(final ITickedWorldOperation operation, final OperationScheduler.Priority priority)
+    {
+        final ResourceKey<Level> dimension = operation.getDimension();
+        return getOperationScheduler(dimension == null ? Level.OVERWORLD : dimension).add(operation, priority);
+    }
+
+    /**
+     * Get the scheduler of the queued world operations of a level.
+     *
+     * @param dimension the level.
+     * @return the scheduler.
+     */
+    public static OperationScheduler getOperationScheduler(final ResourceKey<Level> dimension)
+    {
+        return operationSchedulers.computeIfAbsent(dimension, OperationScheduler::new);
+    }
+
+    /**
+     * @return the schedulers of all levels which had queued operations.
+     */
+    public static Collection<OperationScheduler> getOperationSchedulers()
+    {
+        return operationSchedulers.values();
+    }
+
+    /**
+     * Get a queued operation of any level by its id.
+     *
+     * @param id the id.
+     * @return the operation or null if not queued.
+     */
+    @Nullable
+    public static OperationScheduler.ScheduledOperation getQueuedOperation(final int id)
+    {
+        for (final OperationScheduler scheduler : operationSchedulers.values())
+        {
+            final OperationScheduler.ScheduledOperation entry = scheduler.get(id);
+            if (entry != null)
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if a change is used by a queued operation of any level.
+     *
+     * @param storage the change.
+     * @return true if so.
+     */
+    public static boolean isInUse(final ChangeStorage storage)
+    {
+        for (final OperationScheduler scheduler : operationSchedulers.values())
+        {
+            for (final OperationScheduler.ScheduledOperation entry : scheduler.getOperations())
             {
-                scanToolOperationPool.pop();
-                if (!(operation instanceof UndoOperation || operation instanceof RedoOperation))
+                if (entry.getOperation().isUsing(storage))
                 {
-                    addToUndoRedoCache(operation.getChangeStorage());
+                    return true;
                 }
             }
         }
+        return false;
     }
 
     /**
-     * Add a new item to the scanTool operation queue.
+     * Drop all queued operations of all levels and write the undo history of all players to disk.
+     */
+    public static void clearQueues()
+    {
+        operationSchedulers.clear();
+        for (final ChangeHistory history : changeHistories.values())
+        {
+            history.flush();
+        }
+        changeHistories.clear();
+    }
+
+    /**
+     * Get the undo history of a player, its file is read in the background on first access.
      *
-     * @param operation the operation to add.
+     * @param player the player.
+     * @return the history.
      */
-    public static void addToQueue(final ITickedWorldOperation operation)
+    public static ChangeHistory getChangeHistory(final UUID player)
     {
-        scanToolOperationPool.addLast(operation);
+        return changeHistories.computeIfAbsent(player, key -> {
+            final MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+            return new ChangeHistory(server, key, server.getWorldPath(LevelResource.ROOT).resolve(HISTORY_FOLDER));
+        });
+    }
+
+    /**
+     * Returns a list of the recently cached operations for this player
+     *
+     * @param player the player.
+     * @return the changes which are in memory, newest first.
+     * @deprecated older changes are kept on disk and left out here, use {@link #getChangeHistory(UUID)}.
+     */
+    @Deprecated
+    public static List<ChangeStorage> getChangeStoragesForPlayer(final UUID player)
+    {
+        final List<ChangeStorage> storages = new ArrayList<>();
+        for (final ChangeHistory.HistoryEntry entry : getChangeHistory(player).getEntries())
+        {
+            final ChangeStorage storage = entry.getStorage();
+            if (storage != null)
+            {
+                storages.add(storage);
+            }
+        }
+        return storages;
     }
 
     /**
@@ -96,26 +227,69 @@ public final class Manager
      */
     public static void addToUndoRedoCache(final ChangeStorage storage)
     {
-        final List<ChangeStorage> storages = changeQueue.computeIfAbsent(storage.getPlayerID(), key -> new ArrayList<>());
-        if (!storages.contains(storage))
+        final ChangeHistory history = getChangeHistory(storage.getPlayerID());
+        if (!history.contains(storage))
         {
-            storages.add(0, storage);
-            if (storages.size() >= Structurize.getConfig().getServer().maxCachedChanges.get())
+            storage.compact();
+            history.add(storage);
+            // Loop, the entries of the file may have been added since the last change
+            while (!history.getEntries().isEmpty() && history.getEntries().size() >= Structurize.getConfig().getServer().maxCachedChanges.get())
+            {
+                history.removeOldest();
+            }
+
+            // Oldest first, keeps the region file in order
+            final List<ChangeHistory.HistoryEntry> entries = history.getEntries();
+            for (int i = entries.size() - 1; i >= Structurize.getConfig().getServer().changesInMemory.get(); i--)
+            {
+                history.spill(entries.get(i));
+            }
+
+            final long playerLimit = Structurize.getConfig().getServer().maxChangeMemoryPerPlayer.get() * MEGABYTE;
+            ChangeHistory.HistoryEntry oldest;
+            while (history.getMemoryUsage() > playerLimit && (oldest = history.getOldestInMemory()) != null)
             {
-                storages.remove(storages.size() - 1);
+                history.spill(oldest);
             }
+            spillOldestChanges();
         }
     }
 
     /**
-     * Returns a list of the recently cached operations for this player
-     *
-     * @param player
-     * @return
+     * Move the oldest changes of any player to disk until the server wide history fits into its memory limit.
+     * The newest change of each player is always kept in memory.
      */
-    public static List<ChangeStorage> getChangeStoragesForPlayer(final UUID player)
+    private static void spillOldestChanges()
     {
-        return changeQueue.getOrDefault(player, new ArrayList<>());
+        final long limit = Structurize.getConfig().getServer().maxChangeMemory.get() * MEGABYTE;
+        long usage = 0;
+        for (final ChangeHistory history : changeHistories.values())
+        {
+            usage += history.getMemoryUsage();
+        }
+
+        while (usage > limit)
+        {
+            ChangeHistory oldestHistory = null;
+            ChangeHistory.HistoryEntry oldest = null;
+            for (final ChangeHistory history : changeHistories.values())
+            {
+                final ChangeHistory.HistoryEntry entry = history.getOldestInMemory();
+                if (entry != null && (oldest == null || entry.getID() < oldest.getID()))
+                {
+                    oldestHistory = history;
+                    oldest = entry;
+                }
+            }
+
+            if (oldest == null)
+            {
+                return;
+            }
+            usage -= oldestHistory.getMemoryUsage();
+            oldestHistory.spill(oldest);
+            usage += oldestHistory.getMemoryUsage();
+        }
     }
 
     /**
@@ -532,76 +706,75 @@ public final class Manager
     }
 
     /**
-     * Undo a change to the world made by a player.
+     * Undo a change to the world made by a player. Changes which were moved to disk are read in the background first.
      *
      * @param player      the player who made it.
      * @param operationID
      */
     public static void undo(final Player player, final int operationID)
     {
-        final List<ChangeStorage> list = changeQueue.get(player.getUUID());
-        if (list == null || list.isEmpty())
+        final ChangeHistory history = getChangeHistory(player.getUUID());
+        final ChangeHistory.HistoryEntry entry = history.get(operationID);
+        if (entry == null)
         {
             player.displayClientMessage(Component.translatable("structurize.gui.undoredo.undo.notfound"), false);
             return;
         }
 
-        for (final Iterator<ChangeStorage> iterator = list.iterator(); iterator.hasNext(); )
-        {
-            final ChangeStorage storage = iterator.next();
-            if (storage.getID() == operationID)
+        history.load(entry, storage -> {
+            if (storage == null)
             {
-                if (!storage.isDone())
-                {
-                    player.displayClientMessage(Component.translatable("structurize.gui.undoredo.undo.inprogress", storage.getOperation()), false);
-                    return;
-                }
+                player.displayClientMessage(Component.translatable("structurize.gui.undoredo.undo.notfound"), false);
+                return;
+            }
 
-                player.displayClientMessage(Component.translatable("structurize.gui.undoredo.undo.add", storage.getOperation()), false);
-                addToQueue(new UndoOperation(player, storage));
-                if (storage.getOperation().toString().indexOf(UNDO_PREFIX) == 0)
-                {
-                    iterator.remove();
-                }
+            if (!storage.isDone() || isInUse(storage))
+            {
+                player.displayClientMessage(Component.translatable("structurize.gui.undoredo.undo.inprogress", storage.getOperation()), false);
                 return;
             }
-        }
 
-        player.displayClientMessage(Component.translatable("structurize.gui.undoredo.undo.notfound"), false);
+            player.displayClientMessage(Component.translatable("structurize.gui.undoredo.undo.add", storage.getOperation()), false);
+            addToQueue(new UndoOperation(player, storage));
+            if (storage.getOperation().toString().indexOf(UNDO_PREFIX) == 0)
+            {
+                history.remove(entry);
+            }
+        });
     }
 
     /**
-     * Undo a change to the world made by a player.
+     * Redo a change to the world made by a player. Changes which were moved to disk are read in the background first.
      *
      * @param player      the player who made it.
      * @param operationID
      */
     public static void redo(final Player player, final int operationID)
     {
-        final List<ChangeStorage> list = changeQueue.get(player.getUUID());
-        if (list == null || list.isEmpty())
+        final ChangeHistory history = getChangeHistory(player.getUUID());
+        final ChangeHistory.HistoryEntry entry = history.get(operationID);
+        if (entry == null)
         {
             player.displayClientMessage(Component.translatable("structurize.gui.undoredo.redo.notfound"), false);
             return;
         }
 
-        for (final ChangeStorage storage : list)
-        {
-            if (storage.getID() == operationID)
+        history.load(entry, storage -> {
+            if (storage == null)
             {
-                if (!storage.isDone())
-                {
-                    player.displayClientMessage(Component.translatable("structurize.gui.undoredo.redo.inprogress", storage.getOperation()), false);
-                    return;
-                }
+                player.displayClientMessage(Component.translatable("structurize.gui.undoredo.redo.notfound"), false);
+                return;
+            }
 
-                player.displayClientMessage(Component.translatable("structurize.gui.undoredo.redo.add", storage.getOperation()), false);
-                addToQueue(new RedoOperation(player, storage));
+            if (!storage.isDone() || isInUse(storage))
+            {
+                player.displayClientMessage(Component.translatable("structurize.gui.undoredo.redo.inprogress", storage.getOperation()), false);
                 return;
             }
-        }
 
-        player.displayClientMessage(Component.translatable("structurize.gui.undoredo.redo.notfound"), false);
+            player.displayClientMessage(Component.translatable("structurize.gui.undoredo.redo.add", storage.getOperation()), false);
+            addToQueue(new RedoOperation(player, storage));
+        });
     }
 
     /**
@@ -0,0 +1,503 @@
+package com.ldtteam.structurize.management;
+
+import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.operations.RedoOperation;
+import com.ldtteam.structurize.operations.UndoOperation;
+import com.ldtteam.structurize.util.ITickedWorldOperation;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the queued world operations of one level within a per tick time budget.
+ * Players take turns and each player's operations take turns, so one huge operation does not hold up everybody else.
+ * The budget adapts to the measured tick time, so operations use the time the rest of the server leaves free.
+ * It is shared by the schedulers of all levels, each level with queued operations gets its part in the same server tick.
+ */
+public class OperationScheduler
+{
+    /**
+     * Nanoseconds of a tick at 20 TPS.
+     */
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * Share of the free tick time operations may use, the rest is left as safety margin.
+     */
+    private static final double HEADROOM_FACTOR = 0.75;
+
+    /**
+     * Smoothing factor of the average time spent per tick.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    /**
+     * How many steps an operation may do before the step deadline is checked again.
+     */
+    private static final int DEADLINE_CHECK_INTERVAL = 16;
+
+    /**
+     * Deadline of the currently running step, checked by operations while iterating.
+     */
+    private static long stepDeadline = Long.MAX_VALUE;
+
+    /**
+     * The thread running the current step, other threads never see the deadline.
+     */
+    @Nullable
+    private static Thread stepThread = null;
+
+    /**
+     * Simple id creator.
+     */
+    private static int operationIds = 1;
+
+    /**
+     * The server tick the budget was computed for.
+     */
+    private static int budgetTick = -1;
+
+    /**
+     * Budget left in the current server tick.
+     */
+    private static long remainingBudget = 0;
+
+    /**
+     * Time spent in the current server tick.
+     */
+    private static long spentThisTick = 0;
+
+    /**
+     * Smoothed time spent per tick, used to tell our own share of the tick time apart.
+     */
+    private static double averageSpent = 0;
+
+    /**
+     * Levels with queued operations in the current server tick.
+     */
+    private static int activeLevels = 0;
+
+    /**
+     * Levels expected to still run in the current server tick, based on the previous tick.
+     */
+    private static int pendingLevels = 0;
+
+    /**
+     * The level this scheduler runs operations in.
+     */
+    private final ResourceKey<Level> dimension;
+
+    /**
+     * The queued operations, in the order they get their next turn.
+     */
+    private final List<ScheduledOperation> operations = new ArrayList<>();
+
+    /**
+     * Create a scheduler for a level.
+     *
+     * @param dimension the level.
+     */
+    public OperationScheduler(final ResourceKey<Level> dimension)
+    {
+        this.dimension = dimension;
+    }
+
+    /**
+     * @return the level this scheduler runs operations in.
+     */
+    public ResourceKey<Level> getDimension()
+    {
+        return dimension;
+    }
+
+    /**
+     * Queue a new operation.
+     *
+     * @param operation the operation.
+     * @param priority  the priority.
+     * @return the scheduled operation.
+     */
+    public ScheduledOperation add(final ITickedWorldOperation operation, final Priority priority)
+    {
+        final ScheduledOperation entry = new ScheduledOperation(operationIds++, dimension, operation, priority);
+        operations.add(entry);
+        return entry;
+    }
+
+    /**
+     * Get a queued operation by its id.
+     *
+     * @param id the id.
+     * @return the operation or null if not queued.
+     */
+    @Nullable
+    public ScheduledOperation get(final int id)
+    {
+        for (final ScheduledOperation entry : operations)
+        {
+            if (entry.getId() == id)
+            {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the queued operations, in the order they get their next turn.
+     */
+    public List<ScheduledOperation> getOperations()
+    {
+        return Collections.unmodifiableList(operations);
+    }
+
+    /**
+     * Get the position of an operation in the queue.
+     *
+     * @param entry the operation.
+     * @return the one based position, or 0 if not queued.
+     */
+    public int getPosition(final ScheduledOperation entry)
+    {
+        return operations.indexOf(entry) + 1;
+    }
+
+    /**
+     * Cancel a queued operation. The changes done so far stay undoable.
+     *
+     * @param entry the operation.
+     * @return true if it was queued.
+     */
+    public boolean cancel(final ScheduledOperation entry)
+    {
+        if (!operations.remove(entry))
+        {
+            return false;
+        }
+        addToUndoRedoCache(entry.getOperation());
+        return true;
+    }
+
+    /**
+     * Run queued operations until this level's part of the budget is used up or no operation can progress.
+     * Levels which tick later in the server tick get the part left over by earlier ones.
+     *
+     * @param world the world which is ticking.
+     */
+    public void tick(final ServerLevel world)
+    {
+        updateBudget(world.getServer());
+        if (operations.isEmpty())
+        {
+            return;
+        }
+
+        activeLevels++;
+        final long share = remainingBudget / Math.max(1, pendingLevels);
+        pendingLevels = Math.max(0, pendingLevels - 1);
+        if (share <= 0)
+        {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final long deadline = start + share;
+        final Set<ScheduledOperation> stalled = new HashSet<>();
+
+        boolean ranAny = true;
+        while (ranAny && System.nanoTime() < deadline)
+        {
+            ranAny = false;
+            final Set<UUID> served = new HashSet<>();
+            for (final ScheduledOperation entry : new ArrayList<>(operations))
+            {
+                if (entry.isPaused() || stalled.contains(entry) || !served.add(entry.getOwner()))
+                {
+                    continue;
+                }
+                ranAny = true;
+
+                if (entry.lastTick != budgetTick)
+                {
+                    entry.lastTick = budgetTick;
+                    entry.ticksRun++;
+                }
+
+                boolean finished = false;
+                for (int step = 0; step < entry.getPriority().getWeight() && !finished; step++)
+                {
+                    final double progress = entry.getProgress();
+                    finished = runStep(entry.getOperation(), world, deadline);
+                    if (!finished && (progress < 0 || entry.getProgress() == progress))
+                    {
+                        stalled.add(entry);
+                        break;
+                    }
+                    if (System.nanoTime() >= deadline)
+                    {
+                        break;
+                    }
+                }
+
+                operations.remove(entry);
+                if (finished)
+                {
+                    addToUndoRedoCache(entry.getOperation());
+                }
+                else
+                {
+                    operations.add(entry);
+                }
+
+                if (System.nanoTime() >= deadline)
+                {
+                    break;
+                }
+            }
+        }
+
+        final long spent = System.nanoTime() - start;
+        spentThisTick += spent;
+        remainingBudget -= spent;
+    }
+
+    /**
+     * Check if the running step should stop, called by operations after each unit of work.
+     *
+     * @param count the units of work done in this step.
+     * @return true if the operation should return and continue in its next step.
+     */
+    public static boolean isStepOver(final int count)
+    {
+        return count >= Structurize.getConfig().getServer().maxOperationsPerTick.get() || isPastDeadline(count);
+    }
+
+    /**
+     * Check if the running step used up the time budget, for operations which limit their step size differently.
+     *
+     * @param count the units of work done in this step.
+     * @return true if the operation should return and continue in its next step.
+     */
+    public static boolean isPastDeadline(final int count)
+    {
+        return count % DEADLINE_CHECK_INTERVAL == 0 && stepThread == Thread.currentThread() && System.nanoTime() >= stepDeadline;
+    }
+
+    private static boolean runStep(final ITickedWorldOperation operation, final ServerLevel world, final long deadline)
+    {
+        stepDeadline = deadline;
+        stepThread = Thread.currentThread();
+        try
+        {
+            return operation.apply(world);
+        }
+        finally
+        {
+            stepDeadline = Long.MAX_VALUE;
+            stepThread = null;
+        }
+    }
+
+    private static void addToUndoRedoCache(final ITickedWorldOperation operation)
+    {
+        if (!(operation instanceof UndoOperation || operation instanceof RedoOperation))
+        {
+            Manager.addToUndoRedoCache(operation.getChangeStorage());
+        }
+    }
+
+    /**
+     * Compute the budget when a new server tick started. The budget is the tick time the rest of the server leaves free,
+     * which is the average tick time minus our own average share.
+     *
+     * @param server the server.
+     */
+    private static void updateBudget(final MinecraftServer server)
+    {
+        if (server.getTickCount() == budgetTick)
+        {
+            return;
+        }
+
+        averageSpent = averageSpent * (1 - SMOOTHING) + spentThisTick * SMOOTHING;
+        spentThisTick = 0;
+        budgetTick = server.getTickCount();
+        pendingLevels = activeLevels;
+        activeLevels = 0;
+
+        final long otherWork = Math.max(0, (long) (server.getAverageTickTime() * 1_000_000) - (long) averageSpent);
+        final long headroom = (long) ((TICK_NANOS - otherWork) * HEADROOM_FACTOR);
+        final long min = TimeUnit.MILLISECONDS.toNanos(Structurize.getConfig().getServer().minOperationMillisPerTick.get());
+        final long max = TimeUnit.MILLISECONDS.toNanos(Structurize.getConfig().getServer().maxOperationMillisPerTick.get());
+        remainingBudget = Math.max(min, Math.min(max, headroom));
+    }
+
+    /**
+     * Operation priorities, higher priorities get more steps per turn.
+     */
+    public enum Priority
+    {
+        LOW(1),
+        NORMAL(2),
+        HIGH(4);
+
+        /**
+         * The steps per turn.
+         */
+        private final int weight;
+
+        Priority(final int weight)
+        {
+            this.weight = weight;
+        }
+
+        /**
+         * @return the steps per turn.
+         */
+        public int getWeight()
+        {
+            return weight;
+        }
+    }
+
+    /**
+     * A queued operation.
+     */
+    public static class ScheduledOperation
+    {
+        /**
+         * The id, used to refer to it in commands.
+         */
+        private final int id;
+
+        /**
+         * The level it runs in.
+         */
+        private final ResourceKey<Level> dimension;
+
+        /**
+         * The operation.
+         */
+        private final ITickedWorldOperation operation;
+
+        /**
+         * The priority.
+         */
+        private Priority priority;
+
+        /**
+         * If it is paused.
+         */
+        private boolean paused = false;
+
+        /**
+         * The amount of ticks it ran in.
+         */
+        private int ticksRun = 0;
+
+        /**
+         * The last tick it ran in.
+         */
+        private int lastTick = -1;
+
+        private ScheduledOperation(final int id, final ResourceKey<Level> dimension, final ITickedWorldOperation operation, final Priority priority)
+        {
+            this.id = id;
+            this.dimension = dimension;
+            this.operation = operation;
+            this.priority = priority;
+        }
+
+        /**
+         * @return the id.
+         */
+        public int getId()
+        {
+            return id;
+        }
+
+        /**
+         * @return the level it runs in.
+         */
+        public ResourceKey<Level> getDimension()
+        {
+            return dimension;
+        }
+
+        /**
+         * @return the operation.
+         */
+        public ITickedWorldOperation getOperation()
+        {
+            return operation;
+        }
+
+        /**
+         * @return the player who started it.
+         */
+        public UUID getOwner()
+        {
+            return operation.getChangeStorage().getPlayerID();
+        }
+
+        /**
+         * @return the priority.
+         */
+        public Priority getPriority()
+        {
+            return priority;
+        }
+
+        /**
+         * @param priority the new priority.
+         */
+        public void setPriority(final Priority priority)
+        {
+            this.priority = priority;
+        }
+
+        /**
+         * @return true if paused.
+         */
+        public boolean isPaused()
+        {
+            return paused;
+        }
+
+        /**
+         * @param paused if it should be paused.
+         */
+        public void setPaused(final boolean paused)
+        {
+            this.paused = paused;
+        }
+
+        /**
+         * @return the progress between 0 and 1, or a negative value if unknown.
+         */
+        public double getProgress()
+        {
+            return operation.getProgress();
+        }
+
+        /**
+         * Estimate the remaining time from the progress per tick so far, assuming it keeps its share of the budget.
+         *
+         * @return the remaining seconds, or -1 if unknown.
+         */
+        public long getEtaSeconds()
+        {
+            final double progress = getProgress();
+            if (progress <= 0 || ticksRun == 0)
+            {
+                return -1;
+            }
+            return (long) Math.ceil(ticksRun * (1 - progress) / progress / 20);
+        }
+    }
+}
@@ -2,13 +2,16 @@ package com.ldtteam.structurize.network;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.api.util.constant.Constants;
 import com.ldtteam.structurize.network.messages.*;
+import com.ldtteam.structurize.network.messages.splitting.SplitPacketAssembly;
 import com.ldtteam.structurize.network.messages.splitting.SplitPacketMessage;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
+import net.minecraft.network.Connection;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
@@ -23,7 +26,6 @@ import net.minecraftforge.network.NetworkRegistry;
 import net.minecraftforge.network.PacketDistributor;
 import net.minecraftforge.network.simple.SimpleChannel;
 
-import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -51,12 +53,18 @@ public class NetworkChannel
      */
     private final Map<Class<? extends IMessage>, Integer> messageTypeToIdMap = Maps.newHashMap();
 
+    /**
+     * Max amount of bytes of partially received messages per connection.
+     */
+    public static final int MAX_IN_FLIGHT_BYTES = 128 * 1024 * 1024;
+
     /**
      * Cache of partially received messages, this holds the data untill it is processed.
      */
-    private final Cache<Integer, Map<Integer, byte[]>> messageCache = CacheBuilder.newBuilder()
+    private final Cache<SplitPacketAssembly.Key, SplitPacketAssembly> messageCache = CacheBuilder.newBuilder()
       .expireAfterAccess(1, TimeUnit.MINUTES)
       .concurrencyLevel(8)
+      .removalListener((RemovalNotification<SplitPacketAssembly.Key, SplitPacketAssembly> notification) -> notification.getValue().release())
       .build();
 
     /**
@@ -274,41 +282,48 @@ public class NetworkChannel
             throw new IllegalArgumentException("The message is unknown to this channel!");
         }
 
-        //Write the message into a buffer and copy that buffer into a byte array for processing.
+        //Write the message into a buffer, the parts are sent as slices of it.
         final ByteBuf buffer = Unpooled.buffer();
-        final FriendlyByteBuf innerFriendlyByteBuf = new FriendlyByteBuf(buffer);
-        msg.toBytes(innerFriendlyByteBuf);
-        final byte[] data = buffer.array();
-        buffer.release();
-
-        //Some tracking variables.
-        //Max packet size: 90% of maximum.
-        final int max_packet_size = msg.getExecutionSide() == LogicalSide.SERVER ? 30000 : 943718; //This is 90% of max packet size.
-        //The current index in the data array.
-        int currentIndex = 0;
-        //The current index for the split packets.
-        int packetIndex = 0;
-        //The communication id.
-        final int comId = messageCounter.getAndIncrement();
-
-        //Loop while data is available.
-        while (currentIndex < data.length)
+        try
         {
-            //Tell the network message entry that we are splitting a packet.
-            this.getMessagesTypes().get(messageId).onSplitting(packetIndex);
+            final FriendlyByteBuf innerFriendlyByteBuf = new FriendlyByteBuf(buffer);
+            msg.toBytes(innerFriendlyByteBuf);
+            final int length = buffer.readableBytes();
+
+            //Some tracking variables.
+            //Max packet size: 90% of maximum.
+            final int max_packet_size = msg.getExecutionSide() == LogicalSide.SERVER ? 30000 : 943718; //This is 90% of max packet size.
+            //The current index in the data buffer.
+            int currentIndex = 0;
+            //The current index for the split packets.
+            int packetIndex = 0;
+            //The communication id.
+            final int comId = messageCounter.getAndIncrement();
+
+            //Loop while data is available, messages without data still need their terminator.
+            do
+            {
+                //Tell the network message entry that we are splitting a packet.
+                this.getMessagesTypes().get(messageId).onSplitting(packetIndex);
 
-            final int extra = Math.min(max_packet_size, data.length - currentIndex);
-            //Extract the sub data array.
-            final byte[] subPacketData = Arrays.copyOfRange(data, currentIndex, currentIndex + extra);
+                final int extra = Math.min(max_packet_size, length - currentIndex);
+                //Slice the sub data, the channel encodes the message right away so the slice does not outlive the buffer.
+                final ByteBuf subPacketData = buffer.slice(buffer.readerIndex() + currentIndex, extra);
 
-            //Construct the wrapping packet.
-            final SplitPacketMessage splitPacketMessage = new SplitPacketMessage(comId, packetIndex++, (currentIndex + extra) >= data.length, messageId, subPacketData);
+                //Construct the wrapping packet.
+                final SplitPacketMessage splitPacketMessage = new SplitPacketMessage(comId, packetIndex++, (currentIndex + extra) >= length, messageId, subPacketData);
 
-            //Send the wrapping packet.
-            splitMessageConsumer.accept(splitPacketMessage);
+                //Send the wrapping packet.
+                splitMessageConsumer.accept(splitPacketMessage);
 
-            //Move our working index.
-            currentIndex += extra;
+                //Move our working index.
+                currentIndex += extra;
+            }
+            while (currentIndex < length);
+        }
+        finally
+        {
+            buffer.release();
         }
     }
 
@@ -317,11 +332,30 @@ public class NetworkChannel
      *
      * @return The message cache.
      */
-    public Cache<Integer, Map<Integer, byte[]>> getMessageCache()
+    public Cache<SplitPacketAssembly.Key, SplitPacketAssembly> getMessageCache()
     {
         return messageCache;
     }
 
+    /**
+     * Get the amount of bytes of partially received messages of a connection.
+     *
+     * @param connection the connection.
+     * @return the amount of buffered bytes.
+     */
+    public long getInFlightBytes(final Connection connection)
+    {
+        long bytes = 0;
+        for (final Map.Entry<SplitPacketAssembly.Key, SplitPacketAssembly> entry : messageCache.asMap().entrySet())
+        {
+            if (entry.getKey().connection() == connection)
+            {
+                bytes += entry.getValue().getSize();
+            }
+        }
+        return bytes;
+    }
+
     /**
      * Gives access to the internal index codec.
      *
@@ -7,8 +7,7 @@ import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Notify the client about the structure packs on the server side.
@@ -21,6 +20,11 @@ public class NotifyClientAboutStructurePacksMessage implements IMessage
      */
     private final Map<String, Double> serverStructurePacks = new HashMap<>();
 
+    /**
+     * The packs the server is going to transfer to the client.
+     */
+    private final Set<String> transferredPacks = new HashSet<>();
+
     /**
      * Public standard constructor.
      */
@@ -31,13 +35,15 @@ public class NotifyClientAboutStructurePacksMessage implements IMessage
         {
             this.serverStructurePacks.put(buf.readUtf(32767), buf.readDouble());
         }
+        this.transferredPacks.addAll(buf.readList(FriendlyByteBuf::readUtf));
     }
 
     /**
      * Notify the client about the server structurepacks.
      * @param clientStructurePacks the list of packs.
+     * @param transferredPacks the names of the packs which are going to be transferred.
      */
-    public NotifyClientAboutStructurePacksMessage(final Map<String, StructurePackMeta> clientStructurePacks)
+    public NotifyClientAboutStructurePacksMessage(final Map<String, StructurePackMeta> clientStructurePacks, final Collection<String> transferredPacks)
     {
         for (final StructurePackMeta pack : clientStructurePacks.values())
         {
@@ -46,6 +52,7 @@ public class NotifyClientAboutStructurePacksMessage implements IMessage
                 this.serverStructurePacks.put(pack.getName(), pack.getVersion());
             }
         }
+        this.transferredPacks.addAll(transferredPacks);
     }
 
     @Override
@@ -57,6 +64,7 @@ public class NotifyClientAboutStructurePacksMessage implements IMessage
             buf.writeUtf(packInfo.getKey());
             buf.writeDouble(packInfo.getValue());
         }
+        buf.writeCollection(this.transferredPacks, FriendlyByteBuf::writeUtf);
     }
 
     @Nullable
@@ -71,7 +79,7 @@ public class NotifyClientAboutStructurePacksMessage implements IMessage
     {
         if (!isLogicalServer)
         {
-            ClientStructurePackLoader.onServerSyncAttempt(this.serverStructurePacks);
+            ClientStructurePackLoader.onServerSyncAttempt(this.serverStructurePacks, this.transferredPacks);
         }
     }
 }
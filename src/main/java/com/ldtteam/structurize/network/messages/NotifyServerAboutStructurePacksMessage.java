@@ -1,5 +1,6 @@
 package com.ldtteam.structurize.network.messages;
 
+import com.ldtteam.structurize.storage.PackManifest;
 import com.ldtteam.structurize.storage.ServerStructurePackLoader;
 import com.ldtteam.structurize.storage.StructurePackMeta;
 import net.minecraft.network.FriendlyByteBuf;
@@ -22,6 +23,11 @@ public class NotifyServerAboutStructurePacksMessage implements IMessage
      */
     private final Map<String, Double> clientStructurePacks = new HashMap<>();
 
+    /**
+     * Content manifests of the client structure packs.
+     */
+    private final Map<String, PackManifest> clientManifests = new HashMap<>();
+
     /**
      * Public standard constructor.
      */
@@ -30,21 +36,26 @@ public class NotifyServerAboutStructurePacksMessage implements IMessage
         final int length = buf.readInt();
         for (int i = 0; i < length; i++)
         {
-            this.clientStructurePacks.put(buf.readUtf(32767), buf.readDouble());
+            final String packName = buf.readUtf(32767);
+            this.clientStructurePacks.put(packName, buf.readDouble());
+            this.clientManifests.put(packName, PackManifest.read(buf));
         }
     }
 
     /**
      * Notify the server about the client structurepacks.
      * @param clientStructurePacks the list of packs.
+     * @param clientManifests the content manifests of the packs.
      */
-    public NotifyServerAboutStructurePacksMessage(final Collection<StructurePackMeta> clientStructurePacks)
+    public NotifyServerAboutStructurePacksMessage(final Collection<StructurePackMeta> clientStructurePacks, final Map<String, PackManifest> clientManifests)
     {
         for (final StructurePackMeta pack : clientStructurePacks)
         {
-            if (!pack.isImmutable())
+            final PackManifest manifest = clientManifests.get(pack.getName());
+            if (!pack.isImmutable() && manifest != null)
             {
                 this.clientStructurePacks.put(pack.getName(), pack.getVersion());
+                this.clientManifests.put(pack.getName(), manifest);
             }
         }
     }
@@ -57,6 +68,7 @@ public class NotifyServerAboutStructurePacksMessage implements IMessage
         {
             buf.writeUtf(packInfo.getKey());
             buf.writeDouble(packInfo.getValue());
+            this.clientManifests.get(packInfo.getKey()).write(buf);
         }
     }
 
@@ -72,7 +84,7 @@ public class NotifyServerAboutStructurePacksMessage implements IMessage
     {
         if (isLogicalServer)
         {
-            ServerStructurePackLoader.onClientSyncAttempt(this.clientStructurePacks, ctxIn.getSender());
+            ServerStructurePackLoader.onClientSyncAttempt(this.clientStructurePacks, this.clientManifests, ctxIn.getSender());
         }
     }
 }
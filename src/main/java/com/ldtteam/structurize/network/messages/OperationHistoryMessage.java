@@ -2,8 +2,8 @@ package com.ldtteam.structurize.network.messages;
 
 import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.client.gui.WindowUndoRedo;
+import com.ldtteam.structurize.management.ChangeHistory;
 import com.ldtteam.structurize.management.Manager;
-import com.ldtteam.structurize.util.ChangeStorage;
 import net.minecraft.network.FriendlyByteBuf;
 import net.minecraft.util.Tuple;
 import net.minecraftforge.fml.LogicalSide;
@@ -66,11 +66,11 @@ public class OperationHistoryMessage implements IMessage
                 return;
             }
 
-            final List<ChangeStorage> operations = Manager.getChangeStoragesForPlayer(ctxIn.getSender().getUUID());
+            final List<ChangeHistory.HistoryEntry> operations = Manager.getChangeHistory(ctxIn.getSender().getUUID()).getEntries();
             operationIDs = new ArrayList<>();
-            for (final ChangeStorage storage : operations)
+            for (final ChangeHistory.HistoryEntry entry : operations)
             {
-                operationIDs.add(new Tuple<>(storage.getOperation().getString(), storage.getID()));
+                operationIDs.add(new Tuple<>(entry.getOperation().getString(), entry.getID()));
             }
 
             Network.getNetwork().sendToPlayer(this, ctxIn.getSender());
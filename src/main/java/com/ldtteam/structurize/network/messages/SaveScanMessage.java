@@ -11,6 +11,7 @@ import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 /**
@@ -24,6 +25,12 @@ public class SaveScanMessage implements IMessage
     private CompoundTag compoundNBT;
     private String      fileName;
 
+    /**
+     * The already compressed message content, if prepared off the network thread.
+     */
+    @Nullable
+    private byte[] compressedData;
+
     /**
      * Public standard constructor.
      */
@@ -58,9 +65,44 @@ public class SaveScanMessage implements IMessage
         this.compoundNBT = CompoundNBT;
     }
 
+    /**
+     * Send an already compressed scan to the client.
+     *
+     * @param compressedData the message content, see {@link #compress(CompoundTag, String)}.
+     */
+    public SaveScanMessage(final byte[] compressedData)
+    {
+        this.compressedData = compressedData;
+    }
+
+    /**
+     * Encode and compress the message content, can be called on any thread.
+     *
+     * @param compoundNBT the blueprint compound.
+     * @param fileName    String with the name of the file.
+     * @return the compressed content.
+     * @throws IOException if compression failed.
+     */
+    public static byte[] compress(final CompoundTag compoundNBT, final String fileName) throws IOException
+    {
+        final CompoundTag wrapperCompound = new CompoundTag();
+        wrapperCompound.putString(TAG_MILLIS, fileName);
+        wrapperCompound.put(TAG_SCHEMATIC, compoundNBT);
+
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        NbtIo.writeCompressed(wrapperCompound, stream);
+        return stream.toByteArray();
+    }
+
     @Override
     public void toBytes(final FriendlyByteBuf buf)
     {
+        if (compressedData != null)
+        {
+            buf.writeBytes(compressedData);
+            return;
+        }
+
         final CompoundTag wrapperCompound = new CompoundTag();
         wrapperCompound.putString(TAG_MILLIS, fileName);
         wrapperCompound.put(TAG_SCHEMATIC, compoundNBT);
@@ -8,8 +8,10 @@ import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.List;
+
 /**
- * Transfer a zipped structure pack to the client.
+ * Transfer a chunk of a zipped structure pack, or the changed files of it, to the client.
  */
 public class TransferStructurePackToClient implements IMessage
 {
@@ -28,6 +30,26 @@ public class TransferStructurePackToClient implements IMessage
      */
     private final boolean eol;
 
+    /**
+     * If the payload contains the whole pack (true), or only changed files on top of the client copy (false).
+     */
+    private final boolean fullSync;
+
+    /**
+     * Sub paths of files the client has to delete from its copy.
+     */
+    private final List<String> deletedFiles;
+
+    /**
+     * Offset of this chunk in the archive.
+     */
+    private final long offset;
+
+    /**
+     * Total size of the archive, negative if the transfer was aborted.
+     */
+    private final long totalSize;
+
     /**
      * Public standard constructor.
      */
@@ -35,20 +57,39 @@ public class TransferStructurePackToClient implements IMessage
     {
         this.packname = buf.readUtf(32767);
         this.eol = buf.readBoolean();
+        this.fullSync = buf.readBoolean();
+        this.deletedFiles = buf.readList(FriendlyByteBuf::readUtf);
+        this.offset = buf.readVarLong();
+        this.totalSize = buf.readLong();
         this.payload = Unpooled.wrappedBuffer(buf.readByteArray());
     }
 
     /**
-     * Transfer a zipped structure pack to the client.
+     * Transfer a chunk of a zipped structure pack to the client.
      * @param packName the name of the structure pack.
      * @param payload the payload.
-     * @param eol if last message to client.
+     * @param eol if the last pack sent to the client.
+     * @param fullSync if the archive contains the whole pack.
+     * @param deletedFiles the files to delete from the client copy.
+     * @param offset the offset of this chunk in the archive.
+     * @param totalSize the size of the archive, negative to abort the transfer.
      */
-    public TransferStructurePackToClient(final String packName, final ByteBuf payload, final boolean eol)
+    public TransferStructurePackToClient(
+      final String packName,
+      final ByteBuf payload,
+      final boolean eol,
+      final boolean fullSync,
+      final List<String> deletedFiles,
+      final long offset,
+      final long totalSize)
     {
         this.packname = packName;
         this.payload = payload;
         this.eol = eol;
+        this.fullSync = fullSync;
+        this.deletedFiles = deletedFiles;
+        this.offset = offset;
+        this.totalSize = totalSize;
     }
 
     @Override
@@ -56,7 +97,12 @@ public class TransferStructurePackToClient implements IMessage
     {
         buf.writeUtf(this.packname);
         buf.writeBoolean(this.eol);
-        buf.writeByteArray(this.payload.array());
+        buf.writeBoolean(this.fullSync);
+        buf.writeCollection(this.deletedFiles, FriendlyByteBuf::writeUtf);
+        buf.writeVarLong(this.offset);
+        buf.writeLong(this.totalSize);
+        buf.writeVarInt(this.payload.readableBytes());
+        buf.writeBytes(this.payload, this.payload.readerIndex(), this.payload.readableBytes());
         this.payload.release();
     }
 
@@ -72,7 +118,7 @@ public class TransferStructurePackToClient implements IMessage
     {
         if (!isLogicalServer)
         {
-            ClientStructurePackLoader.onStructurePackTransfer(this.packname, this.payload, this.eol);
+            ClientStructurePackLoader.onStructurePackChunk(this.packname, this.payload, this.eol, this.fullSync, this.deletedFiles, this.offset, this.totalSize);
         }
     }
 }
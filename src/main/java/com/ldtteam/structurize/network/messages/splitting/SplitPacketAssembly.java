@@ -0,0 +1,85 @@
+package com.ldtteam.structurize.network.messages.splitting;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.Connection;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A split message that is being received, the fragments are appended to a composite buffer without copying.
+ */
+public class SplitPacketAssembly
+{
+    /**
+     * The received fragments, in order. Null once handed over for decoding.
+     */
+    @Nullable
+    private CompositeByteBuf data = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+
+    /**
+     * The index of the next expected fragment.
+     */
+    private int nextPacketIndex = 0;
+
+    /**
+     * Appends the next fragment, takes ownership of the fragment.
+     *
+     * @param packetIndex the index of the fragment.
+     * @param fragment    the fragment data.
+     * @return false if the fragment is out of order or the assembly was already handed over.
+     */
+    public synchronized boolean add(final int packetIndex, final ByteBuf fragment)
+    {
+        if (data == null || packetIndex != nextPacketIndex)
+        {
+            fragment.release();
+            return false;
+        }
+
+        data.addComponent(true, fragment);
+        nextPacketIndex++;
+        return true;
+    }
+
+    /**
+     * @return the amount of bytes received so far.
+     */
+    public synchronized int getSize()
+    {
+        return data == null ? 0 : data.readableBytes();
+    }
+
+    /**
+     * Hands the assembled data over, the caller has to release it.
+     *
+     * @return the assembled data or null if already handed over.
+     */
+    @Nullable
+    public synchronized ByteBuf detach()
+    {
+        final ByteBuf result = data;
+        data = null;
+        return result;
+    }
+
+    /**
+     * Frees the received fragments if not handed over.
+     */
+    public synchronized void release()
+    {
+        if (data != null)
+        {
+            data.release();
+            data = null;
+        }
+    }
+
+    /**
+     * Cache key of an assembly. Communication ids are only unique per sender, so they are scoped by connection.
+     *
+     * @param connection      the connection the fragments arrive on.
+     * @param communicationId the id of the split message.
+     */
+    public record Key(Connection connection, int communicationId) { }
+}
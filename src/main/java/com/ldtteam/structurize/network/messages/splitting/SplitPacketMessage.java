@@ -1,7 +1,5 @@
 package com.ldtteam.structurize.network.messages.splitting;
 
-import com.google.common.collect.Maps;
-import com.google.common.primitives.Bytes;
 import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.network.NetworkChannel;
@@ -13,7 +11,6 @@ import net.minecraftforge.fml.LogicalSide;
 import net.minecraftforge.network.NetworkEvent;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -42,9 +39,9 @@ public class SplitPacketMessage implements IMessage
     private int innerMessageId = -1;
 
     /**
-     * The payload.
+     * The payload, a slice of the wrapped message data when sending.
      */
-    private byte[] payload;
+    private ByteBuf payload;
 
     /**
      * The network receiving constructor.
@@ -55,10 +52,10 @@ public class SplitPacketMessage implements IMessage
         this.packetIndex = buf.readVarInt();
         this.terminator = buf.readBoolean();
         this.innerMessageId = buf.readVarInt();
-        this.payload = buf.readByteArray();
+        this.payload = Unpooled.wrappedBuffer(buf.readByteArray());
     }
 
-    public SplitPacketMessage(final int communicationId, final int packetIndex, final boolean terminator, final int innerMessageId, final byte[] payload)
+    public SplitPacketMessage(final int communicationId, final int packetIndex, final boolean terminator, final int innerMessageId, final ByteBuf payload)
     {
         this.communicationId = communicationId;
         this.packetIndex = packetIndex;
@@ -74,7 +71,8 @@ public class SplitPacketMessage implements IMessage
         buf.writeVarInt(this.packetIndex);
         buf.writeBoolean(this.terminator);
         buf.writeVarInt(this.innerMessageId);
-        buf.writeByteArray(this.payload);
+        buf.writeVarInt(this.payload.readableBytes());
+        buf.writeBytes(this.payload, this.payload.readerIndex(), this.payload.readableBytes());
     }
 
     @Nullable
@@ -87,36 +85,59 @@ public class SplitPacketMessage implements IMessage
     @Override
     public void onExecute(final NetworkEvent.Context ctxIn, final boolean isLogicalServer)
     {
+        final NetworkChannel network = Network.getNetwork();
+        final SplitPacketAssembly.Key key = new SplitPacketAssembly.Key(ctxIn.getNetworkManager(), this.communicationId);
+        final ByteBuf packetData;
         try
         {
             //Sync on the message cache since this is still on the Netty thread.
-            synchronized (Network.getNetwork().getMessageCache())
+            synchronized (network.getMessageCache())
             {
-                Network.getNetwork().getMessageCache().get(this.communicationId, Maps::newConcurrentMap).put(this.packetIndex, this.payload);
-            }
-
-            if (!this.terminator)
-            {
-                //We are not the last message stop executing.
-                return;
+                if (network.getInFlightBytes(key.connection()) + this.payload.readableBytes() > NetworkChannel.MAX_IN_FLIGHT_BYTES)
+                {
+                    Log.getLogger().error("Dropping split packet {}, too much data of partially received messages on this connection.", this.communicationId);
+                    network.getMessageCache().invalidate(key);
+                    this.payload.release();
+                    return;
+                }
+
+                final SplitPacketAssembly assembly = network.getMessageCache().get(key, SplitPacketAssembly::new);
+                if (!assembly.add(this.packetIndex, this.payload))
+                {
+                    Log.getLogger().error("Dropping split packet {}, part {} arrived out of order.", this.communicationId, this.packetIndex);
+                    network.getMessageCache().invalidate(key);
+                    return;
+                }
+
+                if (!this.terminator)
+                {
+                    //We are not the last message stop executing.
+                    return;
+                }
+
+                //All data has arrived in order, decode straight from the assembled fragments.
+                packetData = assembly.detach();
+                network.getMessageCache().invalidate(key);
             }
+        }
+        catch (ExecutionException e)
+        {
+            Log.getLogger().error("Failed to handle split packet.", e);
+            return;
+        }
 
-            //No need to sync again, since we are now the last packet to arrive.
-            //All data gets sorted and appended.
-            final byte[] packetData = Network.getNetwork().getMessageCache().get(this.communicationId, Maps::newConcurrentMap).entrySet()
-                                        .stream()
-                                        .sorted(Map.Entry.comparingByKey())
-                                        .map(Map.Entry::getValue)
-                                        .reduce(new byte[0], Bytes::concat);
+        if (packetData == null)
+        {
+            return;
+        }
 
+        try
+        {
             //Grab the entry from the inner message id.
             final NetworkChannel.NetworkingMessageEntry<?> messageEntry = Network.getNetwork().getMessagesTypes().get(this.innerMessageId);
 
-            //Create a new buffer that reads from the packet data and then deserialize the inner message.
-            final ByteBuf buffer = Unpooled.wrappedBuffer(packetData);
             //Create a message.
-            final IMessage message = messageEntry.getCreator().apply(new FriendlyByteBuf(buffer));
-            buffer.release();
+            final IMessage message = messageEntry.getCreator().apply(new FriendlyByteBuf(packetData));
 
             //Execute the message.
             final LogicalSide packetOrigin = ctxIn.getDirection().getOriginationSide();
@@ -128,9 +149,9 @@ public class SplitPacketMessage implements IMessage
             // boolean param MUST equals true if packet arrived at logical server
             ctxIn.enqueueWork(() -> message.onExecute(ctxIn, packetOrigin.equals(LogicalSide.CLIENT)));
         }
-        catch (ExecutionException e)
+        finally
         {
-            Log.getLogger().error("Failed to handle split packet.", e);
+            packetData.release();
         }
     }
 }
@@ -1,13 +1,21 @@
 package com.ldtteam.structurize.operations;
 
 import com.ldtteam.structurize.Network;
-import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.management.OperationScheduler;
 import com.ldtteam.structurize.network.messages.UpdateClientRender;
 import com.ldtteam.structurize.util.ChangeStorage;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.UUID;
 
@@ -32,9 +40,31 @@ public abstract class AreaOperation extends BaseOperation
     protected final BlockPos endPos;
 
     /**
-     * The current iterator position.
+     * The level the area is in, the one the player was in when starting the operation.
      */
-    private BlockPos currentPos;
+    @Nullable
+    private final ResourceKey<Level> dimension;
+
+    /**
+     * The area in chunk section coordinates.
+     */
+    private final int minSectionX, minSectionY, minSectionZ;
+    private final int sectionsX, sectionsZ, sectionCount;
+
+    /**
+     * Index of the current section, in y, x, z order.
+     */
+    private int sectionIndex = 0;
+
+    /**
+     * Index of the next position in the part of the area inside the current section, in y, x, z order.
+     */
+    private int blockIndex = 0;
+
+    /**
+     * Amount of positions done or skipped.
+     */
+    private long processed = 0;
 
     /**
      * Default constructor.
@@ -50,38 +80,76 @@ public abstract class AreaOperation extends BaseOperation
         this.player = player;
         this.startPos = new BlockPos(Math.min(startPos.getX(), endPos.getX()), Math.min(startPos.getY(), endPos.getY()), Math.min(startPos.getZ(), endPos.getZ()));
         this.endPos = new BlockPos(Math.max(startPos.getX(), endPos.getX()), Math.max(startPos.getY(), endPos.getY()), Math.max(startPos.getZ(), endPos.getZ()));
-        this.currentPos = this.startPos;
+        this.dimension = player != null ? player.level().dimension() : null;
+
+        this.minSectionX = SectionPos.blockToSectionCoord(this.startPos.getX());
+        this.minSectionY = SectionPos.blockToSectionCoord(this.startPos.getY());
+        this.minSectionZ = SectionPos.blockToSectionCoord(this.startPos.getZ());
+        this.sectionsX = SectionPos.blockToSectionCoord(this.endPos.getX()) - minSectionX + 1;
+        this.sectionsZ = SectionPos.blockToSectionCoord(this.endPos.getZ()) - minSectionZ + 1;
+        this.sectionCount = (SectionPos.blockToSectionCoord(this.endPos.getY()) - minSectionY + 1) * sectionsX * sectionsZ;
     }
 
+    /**
+     * Runs the operation one chunk section at a time. Sections whose palette has no state the operation may apply to are skipped
+     * entirely, within a section positions are only visited if their state may match, read straight from the section.
+     *
+     * @param world the world.
+     * @return true if finished.
+     */
     @Override
     public final boolean apply(final ServerLevel world)
     {
-        if (player != null && player.level().dimension() != world.dimension())
-        {
-            return false;
-        }
-
         int count = 0;
-        for (int y = currentPos.getY(); y <= endPos.getY(); y++)
+        int visited = 0;
+        while (sectionIndex < sectionCount)
         {
-            for (int x = currentPos.getX(); x <= endPos.getX(); x++)
+            final int sectionX = minSectionX + (sectionIndex / sectionsZ) % sectionsX;
+            final int sectionY = minSectionY + sectionIndex / (sectionsX * sectionsZ);
+            final int sectionZ = minSectionZ + sectionIndex % sectionsZ;
+
+            final int minX = Math.max(startPos.getX(), SectionPos.sectionToBlockCoord(sectionX));
+            final int minY = Math.max(startPos.getY(), SectionPos.sectionToBlockCoord(sectionY));
+            final int minZ = Math.max(startPos.getZ(), SectionPos.sectionToBlockCoord(sectionZ));
+            final int sizeX = Math.min(endPos.getX(), SectionPos.sectionToBlockCoord(sectionX, 15)) - minX + 1;
+            final int sizeY = Math.min(endPos.getY(), SectionPos.sectionToBlockCoord(sectionY, 15)) - minY + 1;
+            final int sizeZ = Math.min(endPos.getZ(), SectionPos.sectionToBlockCoord(sectionZ, 15)) - minZ + 1;
+            final int volume = sizeX * sizeY * sizeZ;
+
+            final LevelChunk chunk = world.getChunk(sectionX, sectionZ);
+            final int chunkSectionIndex = chunk.getSectionIndexFromSectionY(sectionY);
+            final LevelChunkSection section = chunkSectionIndex >= 0 && chunkSectionIndex < chunk.getSectionsCount() ? chunk.getSection(chunkSectionIndex) : null;
+            if (section == null || (blockIndex == 0 && !mayApply(world, section)))
             {
-                for (int z = currentPos.getZ(); z <= endPos.getZ(); z++)
-                {
-                    final BlockPos here = new BlockPos(x, y, z);
+                processed += volume - blockIndex;
+                sectionIndex++;
+                blockIndex = 0;
+                continue;
+            }
 
-                    apply(world, here);
+            while (blockIndex < volume)
+            {
+                final int x = minX + (blockIndex / sizeZ) % sizeX;
+                final int y = minY + blockIndex / (sizeX * sizeZ);
+                final int z = minZ + blockIndex % sizeZ;
+                blockIndex++;
+                processed++;
+                visited++;
 
+                if (mayApply(world, section.getBlockState(x & 15, y & 15, z & 15)))
+                {
+                    apply(world, new BlockPos(x, y, z));
                     count++;
-                    if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get())
-                    {
-                        currentPos = here;
-                        return false;
-                    }
                 }
-                currentPos = new BlockPos(x, y, startPos.getZ());
+
+                if (OperationScheduler.isStepOver(count) || OperationScheduler.isPastDeadline(visited))
+                {
+                    return false;
+                }
             }
-            currentPos = new BlockPos(startPos.getX(), y, startPos.getZ());
+
+            sectionIndex++;
+            blockIndex = 0;
         }
 
         Network.getNetwork().sendToEveryone(new UpdateClientRender(startPos, endPos));
@@ -89,6 +157,48 @@ public abstract class AreaOperation extends BaseOperation
         return true;
     }
 
+    /**
+     * Check if a chunk section may contain a block the operation applies to.
+     *
+     * @param world   the world.
+     * @param section the section.
+     * @return false if the section can be skipped.
+     */
+    private boolean mayApply(final ServerLevel world, final LevelChunkSection section)
+    {
+        if (section.hasOnlyAir())
+        {
+            return mayApply(world, Blocks.AIR.defaultBlockState());
+        }
+        return section.getStates().maybeHas(state -> mayApply(world, state));
+    }
+
+    @Override
+    @Nullable
+    public ResourceKey<Level> getDimension()
+    {
+        return dimension;
+    }
+
+    @Override
+    public double getProgress()
+    {
+        final long volume = (endPos.getX() - startPos.getX() + 1L) * (endPos.getY() - startPos.getY() + 1L) * (endPos.getZ() - startPos.getZ() + 1L);
+        return (double) processed / volume;
+    }
+
+    /**
+     * Check if the operation may apply to a block with a state, to skip blocks and sections without asking {@link #apply(ServerLevel, BlockPos)}.
+     *
+     * @param world the world.
+     * @param state the state.
+     * @return false if the operation never applies to this state.
+     */
+    protected boolean mayApply(final ServerLevel world, final BlockState state)
+    {
+        return true;
+    }
+
     /**
      * Apply the operation on the world.
      *
@@ -1,5 +1,6 @@
 package com.ldtteam.structurize.operations;
 
+import com.ldtteam.structurize.blueprints.v1.Blueprint;
 import com.ldtteam.structurize.placement.BlockPlacementResult.Result;
 import com.ldtteam.structurize.placement.StructurePhasePlacementResult;
 import com.ldtteam.structurize.placement.StructurePlacer;
@@ -8,8 +9,10 @@ import com.ldtteam.structurize.util.BlockUtils;
 import com.ldtteam.structurize.util.ChangeStorage;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -112,4 +115,26 @@ public class PlaceStructureOperation extends BaseOperation
         }
         return false;
     }
+
+    @Override
+    public ResourceKey<Level> getDimension()
+    {
+        return placer.getHandler().getWorld().dimension();
+    }
+
+    @Override
+    public double getProgress()
+    {
+        if (currentPos == null)
+        {
+            return 1;
+        }
+
+        final Blueprint blueprint = placer.getHandler().getBluePrint();
+        final long sizeX = blueprint.getSizeX();
+        final long sizeZ = blueprint.getSizeZ();
+        final long volume = sizeX * blueprint.getSizeY() * sizeZ;
+        final long done = currentPos == NULL_POS ? 0 : (currentPos.getY() * sizeZ + currentPos.getZ()) * sizeX + currentPos.getX();
+        return (structurePhase + Math.max(0, Math.min(1, (double) done / volume))) / 5;
+    }
 }
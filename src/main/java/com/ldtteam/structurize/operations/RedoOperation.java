@@ -2,8 +2,11 @@ package com.ldtteam.structurize.operations;
 
 import com.ldtteam.structurize.util.ChangeStorage;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.UUID;
 
@@ -35,4 +38,23 @@ public class RedoOperation extends BaseOperation
     {
         return redoStorage.redo(world);
     }
+
+    @Override
+    public boolean isUsing(final ChangeStorage storage)
+    {
+        return super.isUsing(storage) || redoStorage == storage;
+    }
+
+    @Override
+    public double getProgress()
+    {
+        return redoStorage.getUnRedoProgress();
+    }
+
+    @Override
+    @Nullable
+    public ResourceKey<Level> getDimension()
+    {
+        return redoStorage.getDimension();
+    }
 }
@@ -1,12 +1,15 @@
 package com.ldtteam.structurize.operations;
 
-import com.ldtteam.structurize.util.BlockUtils;
+import com.ldtteam.structurize.util.BlockMatcher;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.List;
 
 /**
  * Operation for removing one type of block.
@@ -14,9 +17,9 @@ import net.minecraft.world.level.block.Blocks;
 public class RemoveBlockOperation extends AreaOperation
 {
     /**
-     * What type of block to remove.
+     * Matcher for the type of block to remove.
      */
-    private final ItemStack block;
+    private final BlockMatcher matcher;
 
     /**
      * Default constructor.
@@ -28,13 +31,19 @@ public class RemoveBlockOperation extends AreaOperation
     public RemoveBlockOperation(final Player player, final BlockPos startPos, final BlockPos endPos, final ItemStack block)
     {
         super(Component.translatable("com.ldtteam.structurize.remove_block", block.getDisplayName()), player, startPos, endPos);
-        this.block = block;
+        this.matcher = new BlockMatcher(List.of(block));
+    }
+
+    @Override
+    protected boolean mayApply(final ServerLevel world, final BlockState state)
+    {
+        return matcher.mayMatch(world, state);
     }
 
     @Override
     protected void apply(final ServerLevel world, final BlockPos position)
     {
-        if (BlockUtils.doBlocksMatch(block, world, position))
+        if (matcher.matches(world, position))
         {
             storage.addPreviousDataFor(position, world);
             world.removeBlock(position, false);
@@ -1,14 +1,17 @@
 package com.ldtteam.structurize.operations;
 
-import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.management.OperationScheduler;
 import com.ldtteam.structurize.util.ChangeStorage;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.phys.AABB;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.List;
 import java.util.UUID;
@@ -33,6 +36,12 @@ public class RemoveEntityOperation extends BaseOperation
      */
     private final EntityType<?> entityType;
 
+    /**
+     * The level the area is in, the one the player was in when starting the operation.
+     */
+    @Nullable
+    private final ResourceKey<Level> dimension;
+
     /**
      * Default constructor.
      *
@@ -47,6 +56,14 @@ public class RemoveEntityOperation extends BaseOperation
         this.startPos = startPos;
         this.endPos = endPos;
         this.entityType = entityType;
+        this.dimension = player != null ? player.level().dimension() : null;
+    }
+
+    @Override
+    @Nullable
+    public ResourceKey<Level> getDimension()
+    {
+        return dimension;
     }
 
     @Override
@@ -63,7 +80,7 @@ public class RemoveEntityOperation extends BaseOperation
                 entity.remove(Entity.RemovalReason.DISCARDED);
 
                 count++;
-                if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get())
+                if (OperationScheduler.isStepOver(count))
                 {
                     return false;
                 }
@@ -1,11 +1,12 @@
 package com.ldtteam.structurize.operations;
 
-import com.ldtteam.structurize.util.BlockUtils;
+import com.ldtteam.structurize.util.BlockMatcher;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.List;
 
@@ -15,9 +16,9 @@ import java.util.List;
 public class RemoveFilteredOperation extends AreaOperation
 {
     /**
-     * What type of blocks to remove.
+     * Matches the types of blocks to remove.
      */
-    private final List<ItemStack> blocks;
+    private final BlockMatcher matcher;
 
     /**
      * Default constructor.
@@ -29,20 +30,23 @@ public class RemoveFilteredOperation extends AreaOperation
     public RemoveFilteredOperation(final Player player, final BlockPos startPos, final BlockPos endPos, final List<ItemStack> blocks)
     {
         super(Component.translatable("com.ldtteam.structurize.remove_blocks"), player, startPos, endPos);
-        this.blocks = blocks;
+        this.matcher = new BlockMatcher(blocks);
+    }
+
+    @Override
+    protected boolean mayApply(final ServerLevel world, final BlockState state)
+    {
+        return matcher.mayMatch(world, state);
     }
 
     @Override
     protected void apply(final ServerLevel world, final BlockPos position)
     {
-        for (final ItemStack block : blocks)
+        if (matcher.matches(world, position))
         {
-            if (BlockUtils.doBlocksMatch(block, world, position))
-            {
-                storage.addPreviousDataFor(position, world);
-                world.removeBlock(position, false);
-                storage.addPostDataFor(position, world);
-            }
+            storage.addPreviousDataFor(position, world);
+            world.removeBlock(position, false);
+            storage.addPostDataFor(position, world);
         }
     }
 }
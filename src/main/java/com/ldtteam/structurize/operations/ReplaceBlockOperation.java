@@ -1,5 +1,6 @@
 package com.ldtteam.structurize.operations;
 
+import com.ldtteam.structurize.util.BlockMatcher;
 import com.ldtteam.structurize.util.BlockUtils;
 import com.mojang.authlib.GameProfile;
 import net.minecraft.core.BlockPos;
@@ -11,6 +12,7 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraftforge.common.util.FakePlayer;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -23,6 +25,11 @@ public class ReplaceBlockOperation extends AreaOperation
      */
     private final ItemStack fromBlock;
 
+    /**
+     * Matches the block to replace from.
+     */
+    private final BlockMatcher matcher;
+
     /**
      * The block to replace to.
      */
@@ -47,10 +54,17 @@ public class ReplaceBlockOperation extends AreaOperation
     {
         super(Component.translatable("com.ldtteam.structurize.replace_block", fromBlock.getDisplayName(), toBlock.getDisplayName()), player, startPos, endPos);
         this.fromBlock = fromBlock;
+        this.matcher = new BlockMatcher(List.of(fromBlock));
         this.toBlock = toBlock;
         this.percentage = Mth.clamp(0, 100, percentage);
     }
 
+    @Override
+    protected boolean mayApply(final ServerLevel world, final BlockState state)
+    {
+        return matcher.mayMatch(world, state);
+    }
+
     @Override
     protected void apply(final ServerLevel world, final BlockPos position)
     {
@@ -62,7 +76,7 @@ public class ReplaceBlockOperation extends AreaOperation
 
         final BlockState blockState = world.getBlockState(position);
 
-        if (BlockUtils.doBlocksMatch(fromBlock, world, position))
+        if (matcher.matches(world, position))
         {
             storage.addPreviousDataFor(position, world);
             BlockUtils.handleCorrectBlockPlacement(world, fakePlayer, toBlock, blockState, position);
@@ -2,8 +2,11 @@ package com.ldtteam.structurize.operations;
 
 import com.ldtteam.structurize.util.ChangeStorage;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.level.Level;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.UUID;
 
@@ -47,4 +50,23 @@ public class UndoOperation extends BaseOperation
     {
         return undoStorage.undo(world, storage);
     }
+
+    @Override
+    public boolean isUsing(final ChangeStorage storage)
+    {
+        return super.isUsing(storage) || undoStorage == storage;
+    }
+
+    @Override
+    public double getProgress()
+    {
+        return undoStorage == null ? -1 : undoStorage.getUnRedoProgress();
+    }
+
+    @Override
+    @Nullable
+    public ResourceKey<Level> getDimension()
+    {
+        return undoStorage == null ? null : undoStorage.getDimension();
+    }
 }
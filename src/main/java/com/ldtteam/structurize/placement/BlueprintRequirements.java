@@ -0,0 +1,319 @@
+package com.ldtteam.structurize.placement;
+
+import com.ldtteam.structurize.api.util.ItemStackUtils;
+import com.ldtteam.structurize.api.util.ItemStorage;
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.blueprints.FacingFixer;
+import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import com.ldtteam.structurize.placement.handlers.placement.IPlacementHandler;
+import com.ldtteam.structurize.placement.handlers.placement.PlacementHandlers;
+import com.ldtteam.structurize.util.BlockUtils;
+import com.ldtteam.structurize.util.IOPool;
+import com.ldtteam.structurize.util.RotationMirror;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraftforge.common.util.LogicalSidedProvider;
+import net.minecraftforge.fml.LogicalSide;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Computes the aggregated bill of materials of a whole blueprint.
+ * Counting each distinct state and block entity tag runs on the IO pool, asking the placement handlers about them needs the level and runs on its thread.
+ * Results of blueprints loaded from a pack are cached by file and modification time.
+ */
+public final class BlueprintRequirements
+{
+    /**
+     * Max amount of cached results.
+     */
+    private static final int MAX_CACHED_RESULTS = 32;
+
+    /**
+     * Keys of the position in a block entity tag, dropped so equal block entities at different positions are grouped.
+     */
+    private static final String[] POSITION_KEYS = {"x", "y", "z"};
+
+    /**
+     * Cached results by blueprint file, least recently used first.
+     */
+    private static final Map<Key, Future<List<ItemStorage>>> cache = new LinkedHashMap<>(MAX_CACHED_RESULTS, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, Future<List<ItemStorage>>> eldest)
+        {
+            return size() > MAX_CACHED_RESULTS;
+        }
+    };
+
+    private BlueprintRequirements()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * Compute the items needed to build a blueprint in the given rotation and mirror.
+     * The blueprint is copied on the calling thread, it may be rotated or changed afterwards.
+     * Placement handlers are asked at {@link BlockPos#ZERO}, like the scan tool does.
+     *
+     * @param blueprint      the blueprint.
+     * @param rotationMirror the rotation and mirror it will be placed with.
+     * @param world          the world it will be placed in.
+     * @return the future of the required items, with their total amounts, completed on the thread of the world.
+     */
+    public static Future<List<ItemStorage>> getRequirementsFuture(final Blueprint blueprint, final RotationMirror rotationMirror, final Level world)
+    {
+        final Blueprint snapshot = blueprint.copy();
+        final RotationMirror transform = snapshot.getRotationMirror().calcDifferenceTowards(rotationMirror);
+        final Key key = getKey(snapshot, rotationMirror, world);
+        if (key == null)
+        {
+            return computeRequirementsAsync(snapshot, transform, world);
+        }
+
+        synchronized (cache)
+        {
+            final Future<List<ItemStorage>> cached = cache.get(key);
+            if (cached != null)
+            {
+                return cached;
+            }
+
+            final Future<List<ItemStorage>> future = computeRequirementsAsync(snapshot, transform, world);
+            cache.put(key, future);
+            return future;
+        }
+    }
+
+    /**
+     * Compute the items needed to build a blueprint in the given rotation and mirror, on the calling thread.
+     *
+     * @param blueprint      the blueprint.
+     * @param rotationMirror the rotation and mirror it will be placed with.
+     * @param world          the world it will be placed in.
+     * @return the required items, with their total amounts.
+     */
+    public static List<ItemStorage> getRequirements(final Blueprint blueprint, final RotationMirror rotationMirror, final Level world)
+    {
+        return resolveRequirements(count(blueprint), blueprint.getRotationMirror().calcDifferenceTowards(rotationMirror), world);
+    }
+
+    private static CompletableFuture<List<ItemStorage>> computeRequirementsAsync(final Blueprint snapshot, final RotationMirror transform, final Level world)
+    {
+        final Executor levelThread = LogicalSidedProvider.WORKQUEUE.get(world.isClientSide() ? LogicalSide.CLIENT : LogicalSide.SERVER);
+        return CompletableFuture.supplyAsync(() -> count(snapshot), task -> IOPool.execute(IOPool.Lane.INTERACTIVE, task))
+                 .thenApplyAsync(counts -> resolveRequirements(counts, transform, world), levelThread);
+    }
+
+    /**
+     * Get the cache key of a blueprint, only blueprints with a file can be cached.
+     *
+     * @param blueprint      the blueprint.
+     * @param rotationMirror the requested rotation and mirror.
+     * @param world          the world it will be placed in.
+     * @return the key or null if not cacheable.
+     */
+    @Nullable
+    private static Key getKey(final Blueprint blueprint, final RotationMirror rotationMirror, final Level world)
+    {
+        if (blueprint.getPackName() == null || blueprint.getFilePath() == null || blueprint.getFileName() == null)
+        {
+            return null;
+        }
+
+        final Path file = blueprint.getFilePath().resolve(blueprint.getFileName() + ".blueprint");
+        try
+        {
+            return new Key(blueprint.getPackName(), file.toAbsolutePath().normalize().toString(), Files.getLastModifiedTime(file).toMillis(), rotationMirror, world.dimension());
+        }
+        catch (final IOException e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Count the plain palette entries, the distinct block entities and collect the entities. Doesn't touch the level.
+     *
+     * @param blueprint the blueprint.
+     * @return the counts.
+     */
+    private static Counts count(final Blueprint blueprint)
+    {
+        final BlockState[] palette = blueprint.getPalette();
+        final ShortList structure = blueprint.getStructureData();
+        final Int2ObjectMap<CompoundTag> tileEntities = blueprint.getTileEntityMap();
+
+        final int[] stateCounts = new int[palette.length];
+        final Object2IntMap<StateWithData> blockEntityCounts = new Object2IntOpenHashMap<>();
+        for (int index = 0; index < structure.size(); index++)
+        {
+            final int paletteIndex = structure.getShort(index) & 0xFFFF;
+            final CompoundTag tag = tileEntities.get(index);
+            if (tag == null)
+            {
+                stateCounts[paletteIndex]++;
+            }
+            else
+            {
+                final CompoundTag data = tag.copy();
+                for (final String positionKey : POSITION_KEYS)
+                {
+                    data.remove(positionKey);
+                }
+                blockEntityCounts.mergeInt(new StateWithData(paletteIndex, data), 1, Integer::sum);
+            }
+        }
+
+        return new Counts(palette, stateCounts, blockEntityCounts, blueprint.getEntities());
+    }
+
+    /**
+     * Ask the placement handlers and entities for their items, must run on the thread of the level.
+     *
+     * @param counts    the counted content.
+     * @param transform the rotation and mirror to apply to the states.
+     * @param world     the world it will be placed in.
+     * @return the required items, with their total amounts.
+     */
+    private static List<ItemStorage> resolveRequirements(final Counts counts, final RotationMirror transform, final Level world)
+    {
+        final BlockState[] palette = new BlockState[counts.palette().length];
+        for (int i = 0; i < palette.length; i++)
+        {
+            palette[i] = transform(counts.palette()[i], transform);
+        }
+
+        final Map<ItemStorage, ItemStorage> result = new LinkedHashMap<>();
+        for (int i = 0; i < palette.length; i++)
+        {
+            if (counts.stateCounts()[i] > 0)
+            {
+                addAll(result, getRequiredItems(world, palette[i], null), counts.stateCounts()[i]);
+            }
+        }
+
+        for (final Object2IntMap.Entry<StateWithData> entry : counts.blockEntityCounts().object2IntEntrySet())
+        {
+            final StateWithData stateWithData = entry.getKey();
+            addAll(result, getRequiredItems(world, palette[stateWithData.paletteIndex], stateWithData.data), entry.getIntValue());
+        }
+
+        for (final CompoundTag entityData : counts.entities())
+        {
+            if (entityData == null)
+            {
+                continue;
+            }
+
+            try
+            {
+                final Optional<EntityType<?>> type = EntityType.by(entityData);
+                final Entity entity = type.isPresent() ? type.get().create(world) : null;
+                if (entity != null)
+                {
+                    entity.deserializeNBT(entityData);
+                    addAll(result, ItemStackUtils.getListOfStackForEntity(entity, BlockPos.ZERO), 1);
+                }
+            }
+            catch (final RuntimeException e)
+            {
+                Log.getLogger().info("Couldn't compute the items of entity: " + entityData, e);
+            }
+        }
+
+        return new ArrayList<>(result.values());
+    }
+
+    private static List<ItemStack> getRequiredItems(final Level world, final BlockState state, @Nullable final CompoundTag data)
+    {
+        final IPlacementHandler handler = PlacementHandlers.getHandler(world, BlockPos.ZERO, state);
+        if (handler != null)
+        {
+            return handler.getRequiredItems(world, BlockPos.ZERO, state, data, false);
+        }
+        return Collections.singletonList(BlockUtils.getItemStackFromBlockState(state));
+    }
+
+    private static void addAll(final Map<ItemStorage, ItemStorage> result, final List<ItemStack> stacks, final int count)
+    {
+        for (final ItemStack stack : stacks)
+        {
+            if (ItemStackUtils.isEmpty(stack))
+            {
+                continue;
+            }
+
+            // The storage hash includes the stack size, so group single items
+            final ItemStack single = stack.copy();
+            single.setCount(1);
+            final ItemStorage storage = new ItemStorage(single);
+            storage.setAmount(stack.getCount() * count);
+            final ItemStorage existing = result.putIfAbsent(storage, storage);
+            if (existing != null)
+            {
+                existing.setAmount(existing.getAmount() + storage.getAmount());
+            }
+        }
+    }
+
+    /**
+     * Transform a state like rotating the blueprint does.
+     *
+     * @param state     the state.
+     * @param transform the rotation and mirror to apply.
+     * @return the transformed state.
+     */
+    private static BlockState transform(final BlockState state, final RotationMirror transform)
+    {
+        BlockState transformed = state;
+        if (transform.isMirrored())
+        {
+            transformed = FacingFixer.fixMirroredFacing(transformed.mirror(transform.mirror()), transformed);
+        }
+        return transformed.rotate(transform.rotation());
+    }
+
+    /**
+     * The counted content of a blueprint.
+     *
+     * @param palette           the palette.
+     * @param stateCounts       the amount of plain blocks by palette index.
+     * @param blockEntityCounts the amount of equal block entities.
+     * @param entities          the entities.
+     */
+    private record Counts(BlockState[] palette, int[] stateCounts, Object2IntMap<StateWithData> blockEntityCounts, CompoundTag[] entities)
+    {
+    }
+
+    /**
+     * Cache key, the blueprint file and its modification time with the requested rotation and level.
+     */
+    private record Key(String packName, String file, long lastModified, RotationMirror rotationMirror, ResourceKey<Level> dimension)
+    {
+    }
+
+    /**
+     * A palette entry with block entity data.
+     */
+    private record StateWithData(int paletteIndex, CompoundTag data)
+    {
+    }
+}
@@ -29,6 +29,17 @@ public interface IPlacementHandler
      */
     boolean canHandle(final Level world, final BlockPos pos, final BlockState blockState);
 
+    /**
+     * Check if {@link #canHandle} looks at the world or position and not only at the state.
+     * Handlers which do are asked on every lookup, the result of all others is cached per state.
+     *
+     * @return true if the result of canHandle can change for the same state.
+     */
+    default boolean isWorldDependent()
+    {
+        return false;
+    }
+
     /**
      * Method used to handle the processing of a Placement of a block.
      *
@@ -30,6 +30,9 @@ import org.jetbrains.annotations.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 import static com.ldtteam.structurize.api.util.constant.Constants.UPDATE_FLAG;
 
@@ -65,6 +68,11 @@ public final class PlacementHandlers
         handlers.add(new GeneralBlockPlacementHandler());
     }
 
+    /**
+     * Handler lookup table of the current handler list, replaced whenever the list changes.
+     */
+    private static volatile DispatchTable dispatchTable = null;
+
     /**
      * Allows for adding new handlers without having to clear the list
      * in other mods just to override one
@@ -78,6 +86,7 @@ public final class PlacementHandlers
             if (override.isInstance(handlers.get(i)))
             {
                 handlers.set(i, handler);
+                invalidateCache();
                 return;
             }
         }
@@ -93,6 +102,36 @@ public final class PlacementHandlers
     public static void add(IPlacementHandler handler)
     {
         handlers.add(1, handler);
+        invalidateCache();
+    }
+
+    /**
+     * Drop the cached handler lookups. Has to be called after changing {@link #handlers} directly.
+     */
+    public static void invalidateCache()
+    {
+        dispatchTable = null;
+    }
+
+    /**
+     * Get the first handler which can handle a state, same as asking all handlers in order.
+     * The result is cached per state, only handlers which depend on the world are asked every time.
+     *
+     * @param world the world.
+     * @param pos   the position.
+     * @param state the state.
+     * @return the handler or null if none can handle it.
+     */
+    @Nullable
+    public static IPlacementHandler getHandler(final Level world, final BlockPos pos, final BlockState state)
+    {
+        DispatchTable table = dispatchTable;
+        if (table == null)
+        {
+            table = new DispatchTable(handlers);
+            dispatchTable = table;
+        }
+        return table.getHandler(world, pos, state);
     }
 
     /**
@@ -667,6 +706,12 @@ public final class PlacementHandlers
                      && blockState.getBlock() == world.getBlockState(pos).getBlock();
         }
 
+        @Override
+        public boolean isWorldDependent()
+        {
+            return true;
+        }
+
         @Override
         public ActionProcessingResult handle(
           final Level world,
@@ -1064,12 +1109,10 @@ public final class PlacementHandlers
      */
     public static List<ItemStack> getRequiredItemsForState(final Level world, final BlockPos pos, final BlockState state, final CompoundTag data, final boolean complete)
     {
-        for (final IPlacementHandler placementHandler : PlacementHandlers.handlers)
+        final IPlacementHandler placementHandler = getHandler(world, pos, state);
+        if (placementHandler != null)
         {
-            if (placementHandler.canHandle(world, pos, state))
-            {
-                return placementHandler.getRequiredItems(world, pos, state, data, complete);
-            }
+            return placementHandler.getRequiredItems(world, pos, state, data, complete);
         }
         return Collections.emptyList();
     }
@@ -1109,4 +1152,69 @@ public final class PlacementHandlers
             return Collections.emptyList();
         }
     }
+
+    /**
+     * Handler lookup table of one handler list. Per state it caches the first handler which does not depend on the world
+     * and can handle it, world dependent handlers before it are still asked on each lookup.
+     */
+    private static class DispatchTable
+    {
+        /**
+         * Marks states no world independent handler can handle.
+         */
+        private static final int NO_HANDLER = Integer.MAX_VALUE;
+
+        /**
+         * The handlers, in order.
+         */
+        private final IPlacementHandler[] handlers;
+
+        /**
+         * Indices of the world dependent handlers, in order.
+         */
+        private final int[] worldDependent;
+
+        /**
+         * Index of the first world independent handler per state.
+         */
+        private final Map<BlockState, Integer> stateHandlers = new ConcurrentHashMap<>();
+
+        private DispatchTable(final List<IPlacementHandler> handlerList)
+        {
+            this.handlers = handlerList.toArray(new IPlacementHandler[0]);
+            this.worldDependent = IntStream.range(0, handlers.length).filter(i -> handlers[i].isWorldDependent()).toArray();
+        }
+
+        @Nullable
+        private IPlacementHandler getHandler(final Level world, final BlockPos pos, final BlockState state)
+        {
+            Integer index = stateHandlers.get(state);
+            if (index == null)
+            {
+                index = NO_HANDLER;
+                for (int i = 0; i < handlers.length; i++)
+                {
+                    if (!handlers[i].isWorldDependent() && handlers[i].canHandle(world, pos, state))
+                    {
+                        index = i;
+                        break;
+                    }
+                }
+                stateHandlers.put(state, index);
+            }
+
+            for (final int i : worldDependent)
+            {
+                if (i > index)
+                {
+                    break;
+                }
+                if (handlers[i].canHandle(world, pos, state))
+                {
+                    return handlers[i];
+                }
+            }
+            return index == NO_HANDLER ? null : handlers[index];
+        }
+    }
 }
@@ -0,0 +1,232 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import net.minecraftforge.server.ServerLifecycleHooks;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of decoded blueprints.
+ * Entries are bounded by amount and by total block volume, taken from the server config while a server runs in this process (dedicated or singleplayer)
+ * and from the client config otherwise.
+ * The cached instances are never handed out, callers always receive a copy they may rotate or modify freely.
+ * Copies share the data with the cached instance until they modify it, so neither caching nor a hit copies or decodes blueprint data.
+ */
+public final class BlueprintCache
+{
+    /**
+     * Access ordered map, the eldest entry is the least recently used one.
+     */
+    private static final LinkedHashMap<Key, Blueprint> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Current summed up block volume of all cached blueprints.
+     */
+    private static long cachedVolume = 0;
+
+    /**
+     * Statistic counters.
+     */
+    private static final AtomicLong hits      = new AtomicLong();
+    private static final AtomicLong misses    = new AtomicLong();
+    private static final AtomicLong evictions = new AtomicLong();
+
+    private BlueprintCache()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * Get a copy of a cached blueprint.
+     *
+     * @param packName     the pack the blueprint belongs to.
+     * @param subPath      the normalized sub path within the pack.
+     * @param lastModified the last modified time of the file.
+     * @return a fresh copy of the blueprint or null if not cached.
+     */
+    @Nullable
+    public static Blueprint get(final String packName, final String subPath, final long lastModified)
+    {
+        final Blueprint blueprint;
+        synchronized (cache)
+        {
+            blueprint = cache.get(new Key(packName, subPath, lastModified));
+        }
+
+        if (blueprint == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return blueprint.copy();
+    }
+
+    /**
+     * Put a freshly loaded blueprint into the cache.
+     * The given instance is copied, so the caller may keep using it.
+     *
+     * @param packName     the pack the blueprint belongs to.
+     * @param subPath      the normalized sub path within the pack.
+     * @param lastModified the last modified time of the file.
+     * @param blueprint    the blueprint to cache.
+     */
+    public static void put(final String packName, final String subPath, final long lastModified, final Blueprint blueprint)
+    {
+        final int maxEntries;
+        final long maxVolume;
+        if (ServerLifecycleHooks.getCurrentServer() != null)
+        {
+            // Dedicated or integrated server, the cache is shared by both sides of the process then.
+            maxEntries = Structurize.getConfig().getServer().maxCachedSchematics.get();
+            maxVolume = Structurize.getConfig().getServer().maxCachedSchematicVolume.get();
+        }
+        else
+        {
+            // The server config is only loaded while a world runs, the client one always is.
+            maxEntries = Structurize.getConfig().getClient().maxCachedSchematics.get();
+            maxVolume = Structurize.getConfig().getClient().maxCachedSchematicVolume.get();
+        }
+        final long volume = getVolume(blueprint);
+        if (maxEntries <= 0 || volume > maxVolume)
+        {
+            return;
+        }
+
+        final Blueprint copy = blueprint.copy();
+        synchronized (cache)
+        {
+            removeMatching(packName, subPath);
+            cache.put(new Key(packName, subPath, lastModified), copy);
+            cachedVolume += volume;
+
+            final Iterator<Blueprint> iterator = cache.values().iterator();
+            while (iterator.hasNext() && (cache.size() > maxEntries || cachedVolume > maxVolume))
+            {
+                cachedVolume -= getVolume(iterator.next());
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Invalidate all versions of a specific blueprint.
+     *
+     * @param packName the pack the blueprint belongs to.
+     * @param subPath  the normalized sub path within the pack.
+     */
+    public static void invalidate(final String packName, final String subPath)
+    {
+        synchronized (cache)
+        {
+            removeMatching(packName, subPath);
+        }
+    }
+
+    /**
+     * Invalidate all cached blueprints of a pack.
+     *
+     * @param packName the pack to invalidate.
+     */
+    public static void invalidatePack(final String packName)
+    {
+        synchronized (cache)
+        {
+            removeMatching(packName, null);
+        }
+    }
+
+    /**
+     * Clear the entire cache.
+     */
+    public static void clear()
+    {
+        synchronized (cache)
+        {
+            cache.clear();
+            cachedVolume = 0;
+        }
+    }
+
+    /**
+     * Remove all entries of the given pack and (optionally) sub path. Must be called while holding the cache lock.
+     *
+     * @param packName the pack.
+     * @param subPath  the sub path or null for all of the pack.
+     */
+    private static void removeMatching(final String packName, @Nullable final String subPath)
+    {
+        final Iterator<Map.Entry<Key, Blueprint>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext())
+        {
+            final Map.Entry<Key, Blueprint> entry = iterator.next();
+            if (entry.getKey().packName().equals(packName) && (subPath == null || entry.getKey().subPath().equals(subPath)))
+            {
+                cachedVolume -= getVolume(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long getVolume(final Blueprint blueprint)
+    {
+        return (long) blueprint.getSizeX() * blueprint.getSizeY() * blueprint.getSizeZ();
+    }
+
+    /**
+     * @return amount of cache hits since startup.
+     */
+    public static long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * @return amount of cache misses since startup.
+     */
+    public static long getMisses()
+    {
+        return misses.get();
+    }
+
+    /**
+     * @return amount of evicted entries since startup.
+     */
+    public static long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * @return amount of currently cached blueprints.
+     */
+    public static int getSize()
+    {
+        synchronized (cache)
+        {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return total block volume of all currently cached blueprints.
+     */
+    public static long getCachedVolume()
+    {
+        synchronized (cache)
+        {
+            return cachedVolume;
+        }
+    }
+
+    /**
+     * Cache key, the modification time makes sure changed files are never served from stale entries.
+     */
+    private record Key(String packName, String subPath, long lastModified) { }
+}
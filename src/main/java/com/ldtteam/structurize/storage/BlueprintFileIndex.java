@@ -0,0 +1,518 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * In memory index of the blueprint files of each pack, by file name.
+ * Built when a pack is discovered, mutable packs are kept up to date with one shared {@link WatchService} which is polled on each lookup.
+ * Packs which can't be watched or fully walked aren't served from the index, lookups then fall back to walking the folder.
+ */
+public final class BlueprintFileIndex
+{
+    /**
+     * Indices by pack root path.
+     */
+    private static final Map<Path, PackFiles> indices = new ConcurrentHashMap<>();
+
+    /**
+     * Watched folders of all packs by key.
+     */
+    private static final Map<WatchKey, WatchedFolder> watchedFolders = new ConcurrentHashMap<>();
+
+    /**
+     * Guards the watch service.
+     */
+    private static final Object watcherLock = new Object();
+
+    /**
+     * Watch service of all mutable packs, created on first use.
+     */
+    @Nullable
+    private static WatchService watcher;
+
+    /**
+     * Set if the watch service couldn't be created, until the next {@link #clear()}.
+     */
+    private static boolean watcherUnavailable = false;
+
+    private BlueprintFileIndex()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * Index the blueprint files of a pack, replacing an older index of the same folder.
+     * Does IO, call it off-thread.
+     *
+     * @param packMeta the pack.
+     */
+    public static void index(final StructurePackMeta packMeta)
+    {
+        final PackFiles old = indices.put(packMeta.getPath(), new PackFiles(packMeta.getPath(), !packMeta.isImmutable()));
+        if (old != null)
+        {
+            old.close();
+        }
+    }
+
+    /**
+     * Get the blueprint files with a given name in a folder or its sub folders.
+     *
+     * @param folder the folder.
+     * @param name   the file name without extension.
+     * @return the files in folder walking order, or null if the folder is not part of a usable index.
+     */
+    @Nullable
+    public static List<Path> getBlueprintFiles(final Path folder, final String name)
+    {
+        final PackFiles packFiles = getPackFiles(folder);
+        if (packFiles == null)
+        {
+            return null;
+        }
+
+        synchronized (packFiles)
+        {
+            if (!packFiles.refresh())
+            {
+                return null;
+            }
+
+            final Path normalizedFolder = folder.normalize();
+            final List<Path> files = new ArrayList<>();
+            for (final Path file : packFiles.byName.getOrDefault(name, Collections.emptyList()))
+            {
+                if (file.startsWith(normalizedFolder))
+                {
+                    files.add(file);
+                }
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Get all blueprint files in a folder or its sub folders.
+     *
+     * @param folder the folder.
+     * @return the files in folder walking order, or null if the folder is not part of a usable index.
+     */
+    @Nullable
+    public static List<Path> getBlueprintFiles(final Path folder)
+    {
+        final PackFiles packFiles = getPackFiles(folder);
+        if (packFiles == null)
+        {
+            return null;
+        }
+
+        synchronized (packFiles)
+        {
+            if (!packFiles.refresh())
+            {
+                return null;
+            }
+
+            final Path normalizedFolder = folder.normalize();
+            final List<Path> files = new ArrayList<>();
+            for (final Path file : packFiles.files)
+            {
+                if (file.startsWith(normalizedFolder))
+                {
+                    files.add(file);
+                }
+            }
+            return files;
+        }
+    }
+
+    /**
+     * Add a freshly written blueprint file, so it can be found before the watch service reports it.
+     *
+     * @param file the file.
+     */
+    public static void add(final Path file)
+    {
+        final PackFiles packFiles = getPackFiles(file);
+        if (packFiles != null)
+        {
+            synchronized (packFiles)
+            {
+                packFiles.addFile(file);
+            }
+        }
+    }
+
+    /**
+     * Drop all indices and stop watching their folders.
+     */
+    public static void clear()
+    {
+        indices.values().forEach(PackFiles::close);
+        indices.clear();
+        synchronized (watcherLock)
+        {
+            watchedFolders.clear();
+            watcherUnavailable = false;
+            if (watcher != null)
+            {
+                try
+                {
+                    watcher.close();
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Unable to close structure pack folder watcher", e);
+                }
+                watcher = null;
+            }
+        }
+    }
+
+    /**
+     * Get the shared watch service, creating it if needed.
+     *
+     * @return the watch service or null if watching isn't possible.
+     */
+    @Nullable
+    private static WatchService getWatcher()
+    {
+        synchronized (watcherLock)
+        {
+            if (watcher == null && !watcherUnavailable)
+            {
+                try
+                {
+                    watcher = FileSystems.getDefault().newWatchService();
+                }
+                catch (final IOException | UnsupportedOperationException e)
+                {
+                    watcherUnavailable = true;
+                    Log.getLogger().warn("Unable to watch structure pack folders, they are walked on each lookup instead", e);
+                }
+            }
+            return watcher;
+        }
+    }
+
+    /**
+     * Hand the events reported by the watch service since the last call to the packs they belong to.
+     */
+    private static void pollWatcher()
+    {
+        synchronized (watcherLock)
+        {
+            if (watcher == null)
+            {
+                return;
+            }
+
+            WatchKey key;
+            while ((key = watcher.poll()) != null)
+            {
+                final WatchedFolder watchedFolder = watchedFolders.get(key);
+                final List<WatchEvent<?>> events = key.pollEvents();
+                if (watchedFolder == null)
+                {
+                    // Left over events of a folder which isn't watched anymore
+                    continue;
+                }
+
+                for (final WatchEvent<?> event : events)
+                {
+                    watchedFolder.packFiles.pendingEvents.add(new FolderEvent(watchedFolder.folder, event));
+                }
+
+                if (!key.reset())
+                {
+                    watchedFolders.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the index of the pack containing a path.
+     *
+     * @param path the path.
+     * @return the index or null.
+     */
+    @Nullable
+    private static PackFiles getPackFiles(final Path path)
+    {
+        final Path normalized = path.normalize();
+        for (final PackFiles packFiles : indices.values())
+        {
+            if (normalized.getFileSystem() == packFiles.root.getFileSystem() && normalized.startsWith(packFiles.root))
+            {
+                return packFiles;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if a file is a blueprint, like the folder listings do.
+     *
+     * @param file the file.
+     * @return true if so.
+     */
+    private static boolean isBlueprint(final Path file)
+    {
+        return file.toString().endsWith("blueprint") && !Files.isDirectory(file);
+    }
+
+    /**
+     * Get the name a blueprint is found by.
+     *
+     * @param file the file.
+     * @return the file name without extension.
+     */
+    private static String getName(final Path file)
+    {
+        return file.getFileName().toString().replace(".blueprint", "");
+    }
+
+    /**
+     * A watched folder of a pack.
+     *
+     * @param packFiles the pack index.
+     * @param folder    the folder.
+     */
+    private record WatchedFolder(PackFiles packFiles, Path folder) { }
+
+    /**
+     * A watch event with the folder it happened in.
+     *
+     * @param folder the folder.
+     * @param event  the event.
+     */
+    private record FolderEvent(Path folder, WatchEvent<?> event) { }
+
+    /**
+     * The blueprint files of one pack.
+     */
+    private static class PackFiles
+    {
+        /**
+         * The pack root folder.
+         */
+        private final Path root;
+
+        /**
+         * If changes on disk have to be followed.
+         */
+        private final boolean watch;
+
+        /**
+         * All blueprint files, in folder walking order.
+         */
+        private final Set<Path> files = new LinkedHashSet<>();
+
+        /**
+         * Blueprint files by name.
+         */
+        private final Map<String, List<Path>> byName = new HashMap<>();
+
+        /**
+         * Keys of the folders watched for this pack.
+         */
+        private final Set<WatchKey> watchKeys = new HashSet<>();
+
+        /**
+         * Events handed over by {@link #pollWatcher()} which weren't applied yet.
+         */
+        private final Queue<FolderEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Set once the index can't be trusted anymore, lookups then walk the folders instead.
+         */
+        private volatile boolean unusable = false;
+
+        private PackFiles(final Path root, final boolean watch)
+        {
+            this.root = root.normalize();
+            this.watch = watch;
+            if (watch && (root.getFileSystem() != FileSystems.getDefault() || getWatcher() == null))
+            {
+                unusable = true;
+                return;
+            }
+            addFolder(this.root);
+        }
+
+        /**
+         * Walk a folder, adding all blueprints and watching all sub folders.
+         *
+         * @param folder the folder.
+         */
+        private void addFolder(final Path folder)
+        {
+            try (final Stream<Path> paths = Files.walk(folder))
+            {
+                paths.forEach(path -> {
+                    if (Files.isDirectory(path))
+                    {
+                        watch(path);
+                    }
+                    else
+                    {
+                        addFile(path);
+                    }
+                });
+            }
+            catch (final IOException | UncheckedIOException e)
+            {
+                unusable = true;
+                Log.getLogger().warn("Error indexing blueprints in: " + folder + ", the folder is walked on each lookup instead", e);
+            }
+        }
+
+        private void addFile(final Path file)
+        {
+            final Path normalized = file.normalize();
+            if (isBlueprint(normalized) && files.add(normalized))
+            {
+                byName.computeIfAbsent(getName(normalized), name -> new ArrayList<>()).add(normalized);
+            }
+        }
+
+        /**
+         * Remove a file or a folder with everything in it.
+         *
+         * @param path the path.
+         */
+        private void remove(final Path path)
+        {
+            final Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext())
+            {
+                final Path file = iterator.next();
+                if (file.startsWith(path))
+                {
+                    iterator.remove();
+                    final List<Path> named = byName.get(getName(file));
+                    if (named != null)
+                    {
+                        named.remove(file);
+                        if (named.isEmpty())
+                        {
+                            byName.remove(getName(file));
+                        }
+                    }
+                }
+            }
+
+            watchKeys.removeIf(key -> {
+                final WatchedFolder watchedFolder = watchedFolders.get(key);
+                if (watchedFolder != null && watchedFolder.folder.startsWith(path) && watchedFolders.remove(key, watchedFolder))
+                {
+                    key.cancel();
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        private void watch(final Path folder)
+        {
+            if (!watch || unusable)
+            {
+                return;
+            }
+
+            final WatchService watchService = getWatcher();
+            if (watchService == null)
+            {
+                unusable = true;
+                return;
+            }
+
+            try
+            {
+                // Registering a folder again returns its existing key, which then reports to this index
+                final WatchKey key = folder.register(watchService, ENTRY_CREATE, ENTRY_DELETE);
+                watchedFolders.put(key, new WatchedFolder(this, folder.normalize()));
+                watchKeys.add(key);
+            }
+            catch (final IOException | UnsupportedOperationException | ClosedWatchServiceException e)
+            {
+                unusable = true;
+                Log.getLogger().warn("Unable to watch folder: " + folder + ", the pack is walked on each lookup instead", e);
+            }
+        }
+
+        /**
+         * Apply the changes reported by the watch service since the last call.
+         *
+         * @return false if the index is not usable and the folders have to be walked instead.
+         */
+        private boolean refresh()
+        {
+            if (unusable)
+            {
+                return false;
+            }
+            if (!watch)
+            {
+                return true;
+            }
+
+            pollWatcher();
+            FolderEvent folderEvent;
+            while ((folderEvent = pendingEvents.poll()) != null)
+            {
+                if (folderEvent.event.kind() == OVERFLOW)
+                {
+                    rebuild();
+                    break;
+                }
+
+                final Path path = folderEvent.folder.resolve((Path) folderEvent.event.context()).normalize();
+                remove(path);
+                if (folderEvent.event.kind() == ENTRY_CREATE && Files.exists(path))
+                {
+                    addFolder(path);
+                }
+            }
+            return !unusable;
+        }
+
+        /**
+         * Re-index everything, used when watch events were lost.
+         */
+        private void rebuild()
+        {
+            pendingEvents.clear();
+            files.clear();
+            byName.clear();
+            addFolder(root);
+        }
+
+        private synchronized void close()
+        {
+            for (final WatchKey key : watchKeys)
+            {
+                final WatchedFolder watchedFolder = watchedFolders.get(key);
+                // A newer index of the same folder may have taken over the key
+                if (watchedFolder != null && watchedFolder.packFiles == this && watchedFolders.remove(key, watchedFolder))
+                {
+                    key.cancel();
+                }
+            }
+            watchKeys.clear();
+            pendingEvents.clear();
+        }
+    }
+}
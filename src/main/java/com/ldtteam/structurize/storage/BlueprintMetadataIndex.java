@@ -0,0 +1,301 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadata;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadataReader;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import net.minecraftforge.fml.loading.FMLPaths;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.BLUEPRINT_FOLDER;
+import static com.ldtteam.structurize.api.util.constant.Constants.CACHE_FOLDER;
+
+/**
+ * Persistent per pack index of {@link BlueprintMetadata}.
+ * Entries are validated against the file modification time and only re-read when the file changed,
+ * so browsing a pack never has to decode full blueprints.
+ */
+public final class BlueprintMetadataIndex
+{
+    /**
+     * Increase when the index or metadata format changes, old index files are then discarded.
+     */
+    private static final int INDEX_VERSION = 2;
+
+    private static final String TAG_VERSION = "version";
+    private static final String TAG_ENTRIES = "entries";
+    private static final String TAG_PATH    = "path";
+    private static final String TAG_MTIME   = "mtime";
+    private static final String TAG_DATA    = "data";
+
+    /**
+     * Loaded indices by pack root path.
+     */
+    private static final Map<Path, PackIndex> indices = new ConcurrentHashMap<>();
+
+    private BlueprintMetadataIndex()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * Get the metadata of all blueprints directly in a folder of a pack.
+     * This may do IO for changed files, call it off-thread.
+     *
+     * @param packMeta the pack.
+     * @param subFolder the folder.
+     * @return the metadata list, sorted by file name.
+     */
+    public static List<BlueprintMetadata> getMetadata(final StructurePackMeta packMeta, final Path subFolder)
+    {
+        final PackIndex index = getIndex(packMeta);
+        final Path folder = subFolder.normalize();
+        final List<BlueprintMetadata> result = new ArrayList<>();
+
+        synchronized (index)
+        {
+            final Set<String> present = new HashSet<>();
+            try (final Stream<Path> paths = Files.list(folder))
+            {
+                paths.forEach(file -> {
+                    if (!Files.isDirectory(file) && file.toString().endsWith("blueprint"))
+                    {
+                        present.add(index.key(file));
+                        final BlueprintMetadata metadata = index.get(file);
+                        if (metadata != null)
+                        {
+                            result.add(metadata);
+                        }
+                    }
+                });
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().error("Error loading blueprint metadata from folder: " + folder, e);
+            }
+
+            final String folderKey = index.key(folder);
+            index.entries.keySet().removeIf(key -> {
+                final int lastSlash = key.lastIndexOf('/');
+                final boolean inFolder = (lastSlash == -1 ? "" : key.substring(0, lastSlash)).equals(folderKey);
+                if (inFolder && !present.contains(key))
+                {
+                    index.dirty = true;
+                    return true;
+                }
+                return false;
+            });
+
+            index.save();
+        }
+
+        result.sort(Comparator.comparing(BlueprintMetadata::getFileName));
+        return result;
+    }
+
+    /**
+     * Get the metadata of a single blueprint file of a pack.
+     * This may do IO if the file changed, call it off-thread.
+     *
+     * @param packMeta the pack.
+     * @param file     the blueprint file.
+     * @param persist  if changes should be written to disk right away.
+     * @return the metadata or null if unreadable.
+     */
+    @Nullable
+    public static BlueprintMetadata getMetadata(final StructurePackMeta packMeta, final Path file, final boolean persist)
+    {
+        final PackIndex index = getIndex(packMeta);
+        synchronized (index)
+        {
+            final BlueprintMetadata metadata = index.get(file);
+            if (persist)
+            {
+                index.save();
+            }
+            return metadata;
+        }
+    }
+
+    /**
+     * Drop all in memory indices. The on disk data is kept and revalidated on next access.
+     */
+    public static void clear()
+    {
+        indices.clear();
+    }
+
+    private static PackIndex getIndex(final StructurePackMeta packMeta)
+    {
+        return indices.computeIfAbsent(packMeta.getPath(), path -> new PackIndex(packMeta));
+    }
+
+    /**
+     * The index of a single pack.
+     */
+    private static class PackIndex
+    {
+        /**
+         * The pack.
+         */
+        private final StructurePackMeta packMeta;
+
+        /**
+         * The file the index is persisted to.
+         */
+        private final Path indexFile;
+
+        /**
+         * Indexed entries by normalized sub path.
+         */
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        /**
+         * If there are unsaved changes.
+         */
+        private boolean dirty = false;
+
+        private PackIndex(final StructurePackMeta packMeta)
+        {
+            this.packMeta = packMeta;
+            this.indexFile = FMLPaths.GAMEDIR.get()
+                               .resolve(BLUEPRINT_FOLDER)
+                               .resolve(CACHE_FOLDER)
+                               .resolve(packMeta.getName().replaceAll("[^a-zA-Z0-9_.-]", "_") + "_" + Integer.toHexString(packMeta.getPath().toString().hashCode()) + ".index");
+            load();
+        }
+
+        private String key(final Path path)
+        {
+            final String subPath = packMeta.getSubPath(path).replace("\\", "/");
+            return path.equals(packMeta.getPath()) ? "" : subPath;
+        }
+
+        /**
+         * Get the metadata of a file, re-reading it if it is not indexed or changed.
+         *
+         * @param file the file.
+         * @return the metadata or null.
+         */
+        @Nullable
+        private BlueprintMetadata get(final Path file)
+        {
+            final String key = key(file);
+            try
+            {
+                final long lastModified = Files.getLastModifiedTime(file).toMillis();
+                final Entry entry = entries.get(key);
+                if (entry != null && entry.lastModified == lastModified)
+                {
+                    return entry.metadata;
+                }
+
+                final BlueprintMetadata metadata = BlueprintMetadataReader.read(file);
+                if (metadata == null)
+                {
+                    return null;
+                }
+                metadata.setPackName(packMeta.getName());
+                entries.put(key, new Entry(lastModified, metadata));
+                dirty = true;
+                return metadata;
+            }
+            catch (final Exception e)
+            {
+                Log.getLogger().error("Error loading blueprint metadata: " + packMeta.getName() + ":" + file, e);
+            }
+            return null;
+        }
+
+        private void load()
+        {
+            if (!Files.exists(indexFile))
+            {
+                return;
+            }
+
+            try (final InputStream inputStream = Files.newInputStream(indexFile))
+            {
+                final CompoundTag tag = NbtIo.readCompressed(inputStream);
+                if (tag.getInt(TAG_VERSION) != INDEX_VERSION)
+                {
+                    return;
+                }
+
+                final ListTag list = tag.getList(TAG_ENTRIES, Tag.TAG_COMPOUND);
+                for (int i = 0; i < list.size(); i++)
+                {
+                    final CompoundTag entryTag = list.getCompound(i);
+                    final String key = entryTag.getString(TAG_PATH);
+                    final Path file = packMeta.getPath().resolve(packMeta.getNormalizedSubPath(key));
+                    final BlueprintMetadata metadata = BlueprintMetadata.read(entryTag.getCompound(TAG_DATA))
+                                                         .setFileName(file.getFileName().toString().replace(".blueprint", ""))
+                                                         .setFilePath(file.getParent())
+                                                         .setPackName(packMeta.getName());
+                    entries.put(key, new Entry(entryTag.getLong(TAG_MTIME), metadata));
+                }
+            }
+            catch (final Exception e)
+            {
+                Log.getLogger().warn("Discarding unreadable blueprint index: " + indexFile, e);
+                entries.clear();
+            }
+        }
+
+        private void save()
+        {
+            if (!dirty)
+            {
+                return;
+            }
+
+            final CompoundTag tag = new CompoundTag();
+            tag.putInt(TAG_VERSION, INDEX_VERSION);
+            final ListTag list = new ListTag();
+            for (final Map.Entry<String, Entry> entry : entries.entrySet())
+            {
+                final CompoundTag entryTag = new CompoundTag();
+                entryTag.putString(TAG_PATH, entry.getKey());
+                entryTag.putLong(TAG_MTIME, entry.getValue().lastModified);
+                entryTag.put(TAG_DATA, entry.getValue().metadata.write());
+                list.add(entryTag);
+            }
+            tag.put(TAG_ENTRIES, list);
+
+            try
+            {
+                Files.createDirectories(indexFile.getParent());
+                final Path tempFile = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+                try (final OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile)))
+                {
+                    NbtIo.writeCompressed(tag, outputStream);
+                }
+                Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+                dirty = false;
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Unable to write blueprint index: " + indexFile, e);
+            }
+        }
+    }
+
+    /**
+     * An indexed file.
+     */
+    private record Entry(long lastModified, BlueprintMetadata metadata) { }
+}
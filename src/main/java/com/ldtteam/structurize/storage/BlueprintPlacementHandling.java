@@ -51,7 +51,7 @@ public class BlueprintPlacementHandling
         }
         else
         {
-            ServerFutureProcessor.queueBlueprint(new ServerFutureProcessor.BlueprintProcessingData(StructurePacks.getBlueprintFuture(message.structurePackId, message.blueprintPath),
+            ServerFutureProcessor.queueBlueprint(new ServerFutureProcessor.BlueprintProcessingData(IOPool.submit(IOPool.Lane.PLACEMENT, () -> StructurePacks.getBlueprint(message.structurePackId, message.blueprintPath)),
               message.world, (blueprint) -> process(blueprint, message)));
         }
     }
@@ -120,7 +120,7 @@ public class BlueprintPlacementHandling
      */
     public static void handlePlacement(final BlueprintSyncMessage blueprintSyncMessage, final ServerPlayer player)
     {
-        ServerFutureProcessor.queueBlueprint(new ServerFutureProcessor.BlueprintProcessingData(IOPool.submit(() ->
+        ServerFutureProcessor.queueBlueprint(new ServerFutureProcessor.BlueprintProcessingData(IOPool.submit(IOPool.Lane.PLACEMENT, () ->
         {
             final Path blueprintParentPath = new File(".").toPath()
               .resolve(BLUEPRINT_FOLDER)
@@ -1,30 +1,35 @@
 package com.ldtteam.structurize.storage;
 
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
+import net.minecraftforge.client.event.ClientPlayerNetworkEvent;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * Waits for blueprint futures to finish loading and then processes them.
+ * Results are handed to the client thread as soon as they are ready, and processed in completion order on its tick.
  */
 public class ClientFutureProcessor
 {
     /**
-     * Queue for processing blueprint futures.
+     * Max time per client tick spent on processing results, at least one is processed per tick.
      */
-    private static final Queue<BlueprintProcessingData> blueprintConsumerQueue = new LinkedList<>();
+    private static final long MAX_NANOS_PER_TICK = TimeUnit.MILLISECONDS.toNanos(5);
 
     /**
-     * Queue for processing data futures.
+     * Completed futures, all processed on the client thread.
      */
-    private static final Queue<BlueprintDataProcessingData> blueprintDataConsumerQueue = new LinkedList<>();
+    private static final CompletionInbox inbox = new CompletionInbox();
+
+    /**
+     * The inbox target of the client thread.
+     */
+    private static final Object CLIENT = new Object();
 
     /**
      * Queue processing data to be handled on tick.
@@ -32,7 +37,7 @@ public class ClientFutureProcessor
      */
     public static void queueBlueprint(@NotNull final ClientFutureProcessor.BlueprintProcessingData processingData)
     {
-        blueprintConsumerQueue.add(processingData);
+        queueFuture(processingData.blueprintFuture, processingData.consumer, CompletionInbox.LOG_ERROR, CompletionInbox.NO_TIMEOUT);
     }
 
     /**
@@ -41,7 +46,19 @@ public class ClientFutureProcessor
      */
     public static void queueBlueprintData(@NotNull final ClientFutureProcessor.BlueprintDataProcessingData processingData)
     {
-        blueprintDataConsumerQueue.add(processingData);
+        queueFuture(processingData.blueprintDataFuture, processingData.consumer, CompletionInbox.LOG_ERROR, CompletionInbox.NO_TIMEOUT);
+    }
+
+    /**
+     * Queue a future to be handled on tick.
+     * @param future        the future.
+     * @param consumer      the consumer of the result.
+     * @param errorHandler  called instead of the consumer if the future failed, was cancelled or timed out.
+     * @param timeoutMillis time after which the future is cancelled, {@link CompletionInbox#NO_TIMEOUT} to wait until done.
+     */
+    public static <T> void queueFuture(@NotNull final Future<T> future, @NotNull final Consumer<T> consumer, @NotNull final Consumer<Throwable> errorHandler, final long timeoutMillis)
+    {
+        inbox.add(CLIENT, future, consumer, errorHandler, timeoutMillis);
     }
 
     @SubscribeEvent
@@ -49,34 +66,17 @@ public class ClientFutureProcessor
     {
         if (event.phase == TickEvent.Phase.END)
         {
-            if (!blueprintConsumerQueue.isEmpty() && blueprintConsumerQueue.peek().blueprintFuture.isDone())
-            {
-                final BlueprintProcessingData data = blueprintConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-
-            if (!blueprintDataConsumerQueue.isEmpty() && blueprintDataConsumerQueue.peek().blueprintDataFuture.isDone())
-            {
-                final BlueprintDataProcessingData data = blueprintDataConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintDataFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
+            inbox.drain(CLIENT, MAX_NANOS_PER_TICK);
         }
     }
 
+    @SubscribeEvent
+    public static void onLoggingOut(final ClientPlayerNetworkEvent.LoggingOut event)
+    {
+        // Results of the left world must not reach the next one
+        inbox.clear();
+    }
+
     /**
      * Data to be processed.
      */
@@ -13,6 +13,7 @@ import com.ldtteam.structurize.util.IOPool;
 import com.ldtteam.structurize.util.JavaUtils;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
 import net.minecraft.client.Minecraft;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.network.chat.Component;
@@ -26,11 +27,7 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.stream.Stream;
+import java.util.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -57,6 +54,21 @@ public class ClientStructurePackLoader
      */
     public static volatile ClientLoadingState loadingState = ClientLoadingState.LOADING;
 
+    /**
+     * Pack archives which are still being received, by pack name. Only accessed on the client thread.
+     */
+    private static final Map<String, PendingTransfer> pendingTransfers = new HashMap<>();
+
+    /**
+     * Max size of a received pack archive, larger ones are rejected.
+     */
+    private static final long MAX_TRANSFER_SIZE = 512L * 1024 * 1024;
+
+    /**
+     * Initial capacity of the buffer of a received pack archive.
+     */
+    private static final int INITIAL_TRANSFER_CAPACITY = 64 * 1024;
+
     /**
      * Called on client mod construction.
      */
@@ -78,22 +90,13 @@ public class ClientStructurePackLoader
 
         final Path gameFolder = Minecraft.getInstance().gameDirectory.toPath();
 
-        IOPool.execute(() ->
+        IOPool.executeLoading(() ->
         {
-            // This loads from the jar
+            // Jar packs first, then the main folder, a later root replaces packs of the same name.
+            final List<PackDiscovery.Root> roots = new ArrayList<>();
             for (final Path modPath : modPaths)
             {
-                try
-                {
-                    try (final Stream<Path> paths = Files.list(modPath))
-                    {
-                        paths.forEach(element -> StructurePacks.discoverPackAtPath(element, true, modList, false, modPath.toString().split("/")[1]));
-                    }
-                }
-                catch (IOException e)
-                {
-                    Log.getLogger().warn("Failed loading packs from mod path: " + modPath.toString());
-                }
+                roots.add(new PackDiscovery.Root(modPath, true, false, modPath.toString().split("/")[1]));
             }
 
             // Now we load from the main folder.
@@ -126,16 +129,15 @@ public class ClientStructurePackLoader
                     Files.write(clientPackPath.resolve("pack.json"), jsonObject.toString().getBytes());
                 }
 
-                try (final Stream<Path> paths = Files.list(outputPath))
-                {
-                    paths.forEach(element -> StructurePacks.discoverPackAtPath(element, false, modList, false, LOCAL));
-                }
+                roots.add(new PackDiscovery.Root(outputPath, false, false, LOCAL));
             }
             catch (IOException e)
             {
                 Log.getLogger().warn("Failed loading packs from main folder path: " + gameFolder.toString());
             }
 
+            PackDiscovery.discover(roots, modList, gameFolder.resolve(BLUEPRINT_FOLDER), "client");
+
             Log.getLogger().warn("Finished discovering Client Structure packs");
 
             loadingState = ClientLoadingState.FINISHED_LOADING;
@@ -161,12 +163,25 @@ public class ClientStructurePackLoader
                 }
 
                 loadingState = ClientLoadingState.SYNCING;
-                Network.getNetwork().sendToServer(new NotifyServerAboutStructurePacksMessage(StructurePacks.getPackMetas()));
+                final List<StructurePackMeta> packs = new ArrayList<>(StructurePacks.getPackMetas());
+                IOPool.execute(() -> {
+                    final Map<String, PackManifest> manifests = new HashMap<>();
+                    for (final StructurePackMeta pack : packs)
+                    {
+                        if (!pack.isImmutable())
+                        {
+                            manifests.put(pack.getName(), PackManifest.of(pack.getPath()));
+                        }
+                    }
+                    Network.getNetwork().sendToServer(new NotifyServerAboutStructurePacksMessage(packs, manifests));
+                });
             }
             else if (Minecraft.getInstance().level == null && (loadingState == ClientLoadingState.SYNCING || loadingState == ClientLoadingState.FINISHED_SYNCING))
             {
                 Log.getLogger().warn("Client logged off. Resetting Pack Meta and Reloading State");
                 loadingState = ClientLoadingState.LOADING;
+                pendingTransfers.values().forEach(transfer -> transfer.data().release());
+                pendingTransfers.clear();
                 StructurePacks.clearPacks();
                 RenderingCache.clear();
                 onClientLoading();
@@ -178,8 +193,9 @@ public class ClientStructurePackLoader
      * On receiving server structure pack update.
      *
      * @param serverStructurePacks the server structure packs.
+     * @param transferredPacks     the packs the server is going to transfer.
      */
-    public static void onServerSyncAttempt(final Map<String, Double> serverStructurePacks)
+    public static void onServerSyncAttempt(final Map<String, Double> serverStructurePacks, final Set<String> transferredPacks)
     {
         Network.getNetwork().sendToServer(new SyncSettingsToServer());
 
@@ -214,16 +230,16 @@ public class ClientStructurePackLoader
                         StructurePacks.disablePack(pack.getName());
                     }
                 }
-                else if (version != pack.getVersion())
+                else if (transferredPacks.contains(pack.getName()))
                 {
-                    // Version on the client is outdated. Set that we got pending changes.
+                    // Content on the client is outdated. Set that we got pending changes.
                     StructurePacks.disablePack(pack.getName());
                     needsChanges = true;
                 }
             }
         }
 
-        for (final String packKey : serverStructurePacks.keySet())
+        for (final String packKey : transferredPacks)
         {
             if (!StructurePacks.hasPack(packKey))
             {
@@ -245,30 +261,115 @@ public class ClientStructurePackLoader
     }
 
     /**
-     * On reception of a new structure pack.
+     * On reception of a chunk of a structure pack archive.
+     *
+     * @param packName the name of the structure pack.
+     * @param payload the chunk data.
+     * @param eol if last pack of the sync.
+     * @param fullSync if the archive contains the whole pack, else only the changed files.
+     * @param deletedFiles the files to delete from the local copy, only set on the first chunk.
+     * @param offset the offset of the chunk in the archive.
+     * @param totalSize the size of the archive, negative if the server aborted the transfer.
+     */
+    public static void onStructurePackChunk(
+      final String packName,
+      final ByteBuf payload,
+      final boolean eol,
+      final boolean fullSync,
+      final List<String> deletedFiles,
+      final long offset,
+      final long totalSize)
+    {
+        if (totalSize > MAX_TRANSFER_SIZE)
+        {
+            Log.getLogger().error("Structure pack archive of " + packName + " is too large: " + totalSize + " bytes");
+        }
+
+        final boolean validSize = totalSize >= 0 && totalSize <= MAX_TRANSFER_SIZE;
+        // The buffer grows with the received data, so an announced size alone can't allocate much
+        final PendingTransfer transfer = offset == 0 && validSize
+                                           ? new PendingTransfer(Unpooled.buffer((int) Math.min(totalSize, INITIAL_TRANSFER_CAPACITY), (int) totalSize), deletedFiles, totalSize)
+                                           : pendingTransfers.get(packName);
+        if (!validSize || transfer == null || transfer.data().writerIndex() != offset || offset + payload.readableBytes() > transfer.totalSize())
+        {
+            Log.getLogger().error("Structure pack transfer of " + packName + " failed.");
+            payload.release();
+            final PendingTransfer dropped = pendingTransfers.remove(packName);
+            if (dropped != null)
+            {
+                dropped.data().release();
+            }
+            if (eol)
+            {
+                // Queue behind the packs which are still being unzipped.
+                IOPool.executeLoading(ClientStructurePackLoader::finishSyncing);
+            }
+            return;
+        }
+
+        final PendingTransfer previous = pendingTransfers.put(packName, transfer);
+        if (previous != null && previous != transfer)
+        {
+            previous.data().release();
+        }
+
+        final int lastProgress = transfer.getProgress();
+        transfer.data().writeBytes(payload);
+        payload.release();
+        if (transfer.getProgress() != lastProgress && Minecraft.getInstance().player != null)
+        {
+            Minecraft.getInstance().player.displayClientMessage(Component.translatable("structurize.pack.sync.progress", packName, transfer.getProgress()), true);
+        }
+
+        if (transfer.data().writerIndex() >= transfer.totalSize())
+        {
+            pendingTransfers.remove(packName);
+            onStructurePackTransfer(packName, transfer.data(), eol, fullSync, transfer.deletedFiles());
+        }
+    }
+
+    /**
+     * On reception of a complete structure pack archive.
      *
      * @param packName the name of the structure pack.
      * @param payload the payload of the pack.
      * @param eol if last sync.
+     * @param fullSync if the payload contains the whole pack, else only the changed files.
+     * @param deletedFiles the files to delete from the local copy.
      */
-    public static void onStructurePackTransfer(final String packName, final ByteBuf payload, final boolean eol)
+    private static void onStructurePackTransfer(final String packName, final ByteBuf payload, final boolean eol, final boolean fullSync, final List<String> deletedFiles)
     {
         Log.getLogger().warn("Received Structure pack from the Server: " + packName);
-        IOPool.execute(() ->
+        // The loader runs one task after another, so the eol pack is only handled after all previously received ones.
+        IOPool.executeLoading(() ->
         {
             final StructurePackMeta pack = StructurePacks.disablePack(packName);
-            if (pack != null && !pack.isImmutable() && !JavaUtils.deleteDirectory(pack.getPath()))
+            final Path structureFolder = Minecraft.getInstance().gameDirectory.toPath().resolve(BLUEPRINT_FOLDER);
+            final boolean applyDelta = !fullSync && pack != null && !pack.isImmutable();
+            if (!applyDelta && pack != null && !pack.isImmutable() && !JavaUtils.deleteDirectory(pack.getPath()))
             {
                 Log.getLogger().warn("Error trying to delete pack: ");
             }
 
             try (ZipInputStream zis = new ZipInputStream(new ByteBufInputStream(payload)))
             {
-                ZipEntry zipEntry = zis.getNextEntry();
-                final Path structureFolder = Minecraft.getInstance().gameDirectory.toPath().resolve(BLUEPRINT_FOLDER);
-                JavaUtils.deleteDirectory(structureFolder.resolve(packName));
-                final Path rootPath = Files.createDirectory(structureFolder.resolve(packName));
+                final Path rootPath;
+                if (applyDelta)
+                {
+                    // only changed files are sent, update the local copy in place.
+                    rootPath = pack.getPath();
+                    for (final String deletedFile : deletedFiles)
+                    {
+                        Files.deleteIfExists(zipSlipProtect(new ZipEntry(deletedFile), rootPath));
+                    }
+                }
+                else
+                {
+                    JavaUtils.deleteDirectory(structureFolder.resolve(packName));
+                    rootPath = Files.createDirectory(structureFolder.resolve(packName));
+                }
 
+                ZipEntry zipEntry = zis.getNextEntry();
                 while (zipEntry != null)
                 {
                     boolean isDirectory = zipEntry.isDirectory();
@@ -312,13 +413,42 @@ public class ClientStructurePackLoader
             payload.release();
             if (eol)
             {
-                loadingState = ClientLoadingState.FINISHED_SYNCING;
-                StructurePacks.setFinishedLoading();
-                StructurePacks.selectedPack = StructurePacks.getPackMetas().iterator().next();
+                finishSyncing();
             }
         });
     }
 
+    /**
+     * Conclude syncing after the last pack was received.
+     */
+    private static void finishSyncing()
+    {
+        loadingState = ClientLoadingState.FINISHED_SYNCING;
+        StructurePacks.setFinishedLoading();
+        if (!StructurePacks.getPackMetas().isEmpty())
+        {
+            StructurePacks.selectedPack = StructurePacks.getPackMetas().iterator().next();
+        }
+    }
+
+    /**
+     * A pack archive which is still being received.
+     *
+     * @param data         the received data.
+     * @param deletedFiles the files to delete from the local copy.
+     * @param totalSize    the size of the archive.
+     */
+    private record PendingTransfer(ByteBuf data, List<String> deletedFiles, long totalSize)
+    {
+        /**
+         * @return the progress in percent.
+         */
+        private int getProgress()
+        {
+            return totalSize == 0 ? 100 : (int) (data.writerIndex() * 100 / totalSize);
+        }
+    }
+
     public static Path zipSlipProtect(ZipEntry zipEntry, Path targetDir) throws IOException
     {
         Path targetDirResolved = targetDir.resolve(zipEntry.getName());
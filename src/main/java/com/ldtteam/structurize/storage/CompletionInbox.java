@@ -0,0 +1,217 @@
+package com.ldtteam.structurize.storage;
+
+import com.ldtteam.structurize.api.util.Log;
+import com.ldtteam.structurize.util.IOPool;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Hands the results of futures over to the thread which owns their target, like a level.
+ * Futures put their result into the inbox of their target when they complete, the owning thread drains it in completion order within a time budget.
+ * Futures which can't report their completion are polled while draining.
+ * Safe to use from any thread, {@link #drain(Object, long)} must only be called by the owner of the target.
+ */
+public class CompletionInbox
+{
+    /**
+     * Timeout of futures which wait until done, a queued task may wait behind long running ones without failing.
+     */
+    public static final long NO_TIMEOUT = -1;
+
+    /**
+     * Default error handler, only logs the error.
+     */
+    public static final Consumer<Throwable> LOG_ERROR = throwable -> Log.getLogger().error("Error while waiting for a result: ", throwable);
+
+    /**
+     * Completed entries by target, in completion order.
+     */
+    private final Map<Object, Queue<Entry<?>>> inboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Entries which aren't handed over yet.
+     */
+    private final Set<Entry<?>> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Add a future.
+     *
+     * @param target        the target the result belongs to, the consumer runs on the thread draining its inbox.
+     * @param future        the future.
+     * @param consumer      the consumer of the result.
+     * @param errorHandler  called instead of the consumer if the future failed, was cancelled or timed out.
+     * @param timeoutMillis time after which the future is cancelled and the error handler is called, {@link #NO_TIMEOUT} to wait until done.
+     */
+    public <T> void add(final Object target, final Future<T> future, final Consumer<T> consumer, final Consumer<Throwable> errorHandler, final long timeoutMillis)
+    {
+        final long deadline = timeoutMillis < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeoutMillis;
+        final Entry<T> entry = new Entry<>(target, future, consumer, errorHandler, deadline);
+        pending.add(entry);
+        entry.completionAware = IOPool.whenDone(future, () -> handOver(entry));
+    }
+
+    /**
+     * Process the completed entries of a target, at least one if there is any.
+     *
+     * @param target      the target.
+     * @param budgetNanos the time to spend at most.
+     */
+    public void drain(final Object target, final long budgetNanos)
+    {
+        final long now = System.currentTimeMillis();
+        for (final Entry<?> entry : pending)
+        {
+            if (entry.target != target)
+            {
+                continue;
+            }
+
+            if (!entry.completionAware && entry.future.isDone())
+            {
+                handOver(entry);
+            }
+            else if (now > entry.deadline && entry.handedOver.compareAndSet(false, true))
+            {
+                pending.remove(entry);
+                entry.future.cancel(false);
+                entry.timedOut = true;
+                getInbox(target).add(entry);
+            }
+        }
+
+        final Queue<Entry<?>> inbox = inboxes.get(target);
+        if (inbox == null)
+        {
+            return;
+        }
+
+        final long start = System.nanoTime();
+        Entry<?> entry;
+        while ((entry = inbox.poll()) != null)
+        {
+            entry.process();
+            if (System.nanoTime() - start >= budgetNanos)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop a target with all its pending and completed entries, cancelling the futures.
+     *
+     * @param target the target.
+     */
+    public void remove(final Object target)
+    {
+        inboxes.remove(target);
+        pending.removeIf(entry -> {
+            if (entry.target == target)
+            {
+                entry.handedOver.set(true);
+                entry.future.cancel(false);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Drop everything, cancelling the futures.
+     */
+    public void clear()
+    {
+        inboxes.keySet().forEach(this::remove);
+        pending.forEach(entry -> remove(entry.target));
+    }
+
+    private void handOver(final Entry<?> entry)
+    {
+        if (entry.handedOver.compareAndSet(false, true))
+        {
+            pending.remove(entry);
+            getInbox(entry.target).add(entry);
+        }
+    }
+
+    private Queue<Entry<?>> getInbox(final Object target)
+    {
+        return inboxes.computeIfAbsent(target, key -> new ConcurrentLinkedQueue<>());
+    }
+
+    /**
+     * A future with its consumers.
+     */
+    private static class Entry<T>
+    {
+        private final Object              target;
+        private final Future<T>           future;
+        private final Consumer<T>         consumer;
+        private final Consumer<Throwable> errorHandler;
+        private final long                deadline;
+
+        /**
+         * Set once the entry was put into the inbox or dropped.
+         */
+        private final AtomicBoolean handedOver = new AtomicBoolean();
+
+        /**
+         * If the future reports its completion, else it is polled.
+         */
+        private volatile boolean completionAware;
+
+        /**
+         * If the entry ran into its timeout.
+         */
+        private boolean timedOut = false;
+
+        private Entry(final Object target, final Future<T> future, final Consumer<T> consumer, final Consumer<Throwable> errorHandler, final long deadline)
+        {
+            this.target = target;
+            this.future = future;
+            this.consumer = consumer;
+            this.errorHandler = errorHandler;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Pass the result to the consumer, or the error to the error handler.
+         */
+        private void process()
+        {
+            final T result;
+            try
+            {
+                if (timedOut)
+                {
+                    throw new TimeoutException("Result not ready in time");
+                }
+                result = future.get();
+            }
+            catch (final ExecutionException e)
+            {
+                errorHandler.accept(e.getCause());
+                return;
+            }
+            catch (final InterruptedException | CancellationException | TimeoutException e)
+            {
+                errorHandler.accept(e);
+                return;
+            }
+
+            try
+            {
+                consumer.accept(result);
+            }
+            catch (final RuntimeException e)
+            {
+                Log.getLogger().error("Error while processing a result: ", e);
+            }
+        }
+    }
+}
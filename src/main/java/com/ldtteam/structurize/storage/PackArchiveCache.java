@@ -0,0 +1,196 @@
+package com.ldtteam.structurize.storage;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.ldtteam.structurize.api.util.Log;
+import net.minecraftforge.fml.loading.FMLPaths;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.BLUEPRINT_FOLDER;
+import static com.ldtteam.structurize.api.util.constant.Constants.CACHE_FOLDER;
+
+/**
+ * On disk cache of zipped structure pack content, shared by all players receiving the same files.
+ * Archives are named by the content hash of the included files, so a changed pack automatically gets a new archive.
+ * The hashes are taken from the bytes written, a file changed after the manifest was built ends up in an archive named by its new content.
+ */
+public final class PackArchiveCache
+{
+    /**
+     * Archives which were not used for this long are deleted on server start.
+     */
+    private static final long MAX_ARCHIVE_AGE = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * Locks by archive file, so concurrent requests for the same content build it only once. Removed once the build finished.
+     */
+    private static final Map<Path, Object> buildLocks = new ConcurrentHashMap<>();
+
+    private PackArchiveCache()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * Get the archive of the given files of a pack, builds it if not cached yet. This does IO, call it off-thread.
+     *
+     * @param pack     the pack.
+     * @param manifest the current manifest of the pack.
+     * @param files    the sub paths of the files to include.
+     * @return the path to the archive.
+     * @throws IOException if the archive could not be built.
+     */
+    public static Path getArchive(final StructurePackMeta pack, final PackManifest manifest, final List<String> files) throws IOException
+    {
+        final Path archive = getArchivePath(pack, manifest.getContentHash(files));
+        while (true)
+        {
+            final Object lock = buildLocks.computeIfAbsent(archive, path -> new Object());
+            synchronized (lock)
+            {
+                if (buildLocks.get(archive) != lock)
+                {
+                    // Dropped by the previous holder, the next requests use a new lock
+                    continue;
+                }
+
+                try
+                {
+                    return buildArchive(pack, manifest, files, archive);
+                }
+                finally
+                {
+                    buildLocks.remove(archive, lock);
+                }
+            }
+        }
+    }
+
+    /**
+     * Build an archive if it doesn't exist yet, the caller holds the lock of the archive.
+     *
+     * @param pack     the pack.
+     * @param manifest the current manifest of the pack.
+     * @param files    the sub paths of the files to include.
+     * @param archive  the path of the archive by the manifest.
+     * @return the path to the archive.
+     * @throws IOException if the archive could not be built.
+     */
+    private static Path buildArchive(final StructurePackMeta pack, final PackManifest manifest, final List<String> files, final Path archive) throws IOException
+    {
+        if (Files.exists(archive))
+        {
+            Files.setLastModifiedTime(archive, FileTime.fromMillis(System.currentTimeMillis()));
+            return archive;
+        }
+
+        Files.createDirectories(archive.getParent());
+        final Path tempFile = archive.resolveSibling(archive.getFileName() + ".tmp");
+        final Map<String, HashCode> writtenHashes = new HashMap<>();
+        try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))))
+        {
+            for (final String file : files)
+            {
+                zos.putNextEntry(new ZipEntry(file));
+                // Not closed, that would close the zip
+                final HashingOutputStream hashingStream = new HashingOutputStream(Hashing.sha256(), zos);
+                Files.copy(pack.getPath().resolve(file), hashingStream);
+                writtenHashes.put(file, hashingStream.hash());
+                zos.closeEntry();
+            }
+        }
+        catch (final IOException e)
+        {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        final HashCode writtenHash = PackManifest.getContentHash(writtenHashes, files);
+        if (writtenHash.equals(manifest.getContentHash(files)))
+        {
+            Files.move(tempFile, archive, StandardCopyOption.REPLACE_EXISTING);
+            return archive;
+        }
+
+        // Files changed since the manifest was built, store it by what was actually written
+        Log.getLogger().info("Files of structure pack " + pack.getName() + " changed while archiving them");
+        final Path writtenArchive = getArchivePath(pack, writtenHash);
+        try
+        {
+            Files.move(tempFile, writtenArchive);
+        }
+        catch (final FileAlreadyExistsException e)
+        {
+            // Same content, built meanwhile
+            Files.delete(tempFile);
+        }
+        return writtenArchive;
+    }
+
+    /**
+     * Get the path of the archive with the given content.
+     *
+     * @param pack        the pack.
+     * @param contentHash the content hash of the included files.
+     * @return the path.
+     */
+    private static Path getArchivePath(final StructurePackMeta pack, final HashCode contentHash)
+    {
+        return getArchiveFolder().resolve(pack.getName().replaceAll("[^a-zA-Z0-9_.-]", "_") + "_" + contentHash + ".zip");
+    }
+
+    /**
+     * Delete archives which were not used for a while.
+     */
+    public static void prune()
+    {
+        final Path folder = getArchiveFolder();
+        if (!Files.exists(folder))
+        {
+            return;
+        }
+
+        final long threshold = System.currentTimeMillis() - MAX_ARCHIVE_AGE;
+        try (final Stream<Path> paths = Files.list(folder))
+        {
+            paths.forEach(file -> {
+                try
+                {
+                    if (Files.getLastModifiedTime(file).toMillis() < threshold)
+                    {
+                        Files.delete(file);
+                    }
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Unable to delete outdated pack archive: " + file, e);
+                }
+            });
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to prune pack archives: " + folder, e);
+        }
+    }
+
+    private static Path getArchiveFolder()
+    {
+        return FMLPaths.GAMEDIR.get().resolve(BLUEPRINT_FOLDER).resolve(CACHE_FOLDER).resolve("archives");
+    }
+}
@@ -0,0 +1,500 @@
+package com.ldtteam.structurize.storage;
+
+import com.google.gson.JsonParser;
+import com.ldtteam.structurize.api.util.Log;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.Tag;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.ldtteam.structurize.api.util.constant.Constants.CACHE_FOLDER;
+
+/**
+ * Discovers the structure packs in a list of root folders, like the blueprint folder of a mod jar or the main blueprint folder.
+ * Roots and the packs in them are read in parallel on a bounded fork join pool, packs are registered in root order afterwards,
+ * so a later root still replaces a pack of the same name from an earlier root.
+ * The pack folders and pack.json contents of each folder root are cached on disk, an unchanged root is neither listed nor are its pack.json files re-read.
+ * Jar roots are always read.
+ */
+public final class PackDiscovery
+{
+    /**
+     * Increase when the cache format changes, old cache files are then discarded.
+     */
+    private static final int CACHE_VERSION = 1;
+
+    private static final String TAG_VERSION = "version";
+    private static final String TAG_ROOTS   = "roots";
+    private static final String TAG_KEY     = "key";
+    private static final String TAG_MTIME   = "mtime";
+    private static final String TAG_PACKS   = "packs";
+    private static final String TAG_FOLDER  = "folder";
+    private static final String TAG_JSON    = "json";
+
+    /**
+     * Max amount of threads reading roots.
+     */
+    private static final int MAX_THREADS = 4;
+
+    /**
+     * Modification time of a file which doesn't exist.
+     */
+    private static final long NO_FILE = -1;
+
+    /**
+     * Modification time of a file whose time can't be read, never matches a cached time.
+     */
+    private static final long UNKNOWN = -2;
+
+    /**
+     * Files changed less than this ago aren't cached, a change within the timestamp granularity could go unnoticed otherwise.
+     */
+    private static final long SETTLE_MILLIS = 2000;
+
+    private PackDiscovery()
+    {
+        // Intentionally left empty.
+    }
+
+    /**
+     * A folder containing structure pack folders.
+     *
+     * @param path       the folder.
+     * @param immutable  if jar (true), else false.
+     * @param clientPack if the packs are client packs.
+     * @param owner      the owner of the packs.
+     */
+    public record Root(Path path, boolean immutable, boolean clientPack, String owner) { }
+
+    /**
+     * Discover and register the structure packs in the given roots.
+     * Does IO and blocks until done, call it off-thread.
+     *
+     * @param roots     the roots, in registration order.
+     * @param modList   the list of mods loaded on this instance.
+     * @param cacheRoot the blueprint folder to put the cache in.
+     * @param cacheName the name of the cache file, separate per side.
+     */
+    public static void discover(final List<Root> roots, final List<String> modList, final Path cacheRoot, final String cacheName)
+    {
+        final long start = System.nanoTime();
+        final Path cacheFile = cacheRoot.resolve(CACHE_FOLDER).resolve(cacheName + ".discovery");
+        final Map<String, CachedRoot> cache = load(cacheFile);
+
+        final ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())), PackDiscovery::newThread, null, false);
+        final List<RootResult> results;
+        try
+        {
+            results = pool.invoke(new DiscoveryTask(roots, modList, cache));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        final Map<String, CachedRoot> newCache = new LinkedHashMap<>();
+        int packCount = 0;
+        for (final RootResult result : results)
+        {
+            for (final StructurePackMeta pack : result.packs)
+            {
+                StructurePacks.registerPack(pack, result.root.clientPack);
+            }
+            packCount += result.packs.size();
+
+            if (result.cacheEntry != null)
+            {
+                newCache.put(key(result.root.path), result.cacheEntry);
+            }
+            final String timing = String.format("Discovered %d structure packs in %s in %.1f ms%s",
+              result.packs.size(), result.root.path, result.nanos / 1_000_000.0, result.cached ? " (cached)" : "");
+            if (result.packs.isEmpty())
+            {
+                Log.getLogger().debug(timing);
+            }
+            else
+            {
+                Log.getLogger().info(timing);
+            }
+        }
+
+        if (!newCache.equals(cache))
+        {
+            save(cacheFile, newCache);
+        }
+        Log.getLogger().info(String.format("Discovered %d structure packs in %d roots in %d ms", packCount, roots.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    private static ForkJoinWorkerThread newThread(final ForkJoinPool pool)
+    {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("Structurize Pack Discovery #" + thread.getPoolIndex());
+        // Mod classes have to be reachable for the json and nbt code running on these threads
+        thread.setContextClassLoader(PackDiscovery.class.getClassLoader());
+        return thread;
+    }
+
+    /**
+     * Get the key a root is cached by, unique across jars.
+     *
+     * @param path the root folder.
+     * @return the key.
+     */
+    private static String key(final Path path)
+    {
+        try
+        {
+            return path.toUri().toString();
+        }
+        catch (final Exception e)
+        {
+            return path.toString();
+        }
+    }
+
+    /**
+     * Get the modification time of a file.
+     *
+     * @param path the file.
+     * @return the time, {@link #NO_FILE} or {@link #UNKNOWN}.
+     */
+    private static long lastModified(final Path path)
+    {
+        try
+        {
+            return Files.getLastModifiedTime(path).toMillis();
+        }
+        catch (final NoSuchFileException e)
+        {
+            return NO_FILE;
+        }
+        catch (final IOException | UnsupportedOperationException e)
+        {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * Check if a modification time can be cached.
+     *
+     * @param mtime the time.
+     * @return true if the file exists or doesn't and the time isn't too recent.
+     */
+    private static boolean isSettled(final long mtime)
+    {
+        return mtime == NO_FILE || (mtime >= 0 && System.currentTimeMillis() - mtime > SETTLE_MILLIS);
+    }
+
+    private static Map<String, CachedRoot> load(final Path cacheFile)
+    {
+        final Map<String, CachedRoot> cache = new HashMap<>();
+        if (!Files.exists(cacheFile))
+        {
+            return cache;
+        }
+
+        try (final InputStream inputStream = Files.newInputStream(cacheFile))
+        {
+            final CompoundTag tag = NbtIo.readCompressed(inputStream);
+            if (tag.getInt(TAG_VERSION) != CACHE_VERSION)
+            {
+                return cache;
+            }
+
+            final ListTag rootList = tag.getList(TAG_ROOTS, Tag.TAG_COMPOUND);
+            for (int i = 0; i < rootList.size(); i++)
+            {
+                final CompoundTag rootTag = rootList.getCompound(i);
+                final ListTag packList = rootTag.getList(TAG_PACKS, Tag.TAG_COMPOUND);
+                final List<CachedPack> packs = new ArrayList<>(packList.size());
+                for (int j = 0; j < packList.size(); j++)
+                {
+                    final CompoundTag packTag = packList.getCompound(j);
+                    packs.add(new CachedPack(packTag.getString(TAG_FOLDER), packTag.getLong(TAG_MTIME), packTag.contains(TAG_JSON) ? packTag.getString(TAG_JSON) : null));
+                }
+                cache.put(rootTag.getString(TAG_KEY), new CachedRoot(rootTag.getLong(TAG_MTIME), packs));
+            }
+        }
+        catch (final Exception e)
+        {
+            Log.getLogger().warn("Discarding unreadable structure pack discovery cache: " + cacheFile, e);
+            cache.clear();
+        }
+        return cache;
+    }
+
+    private static void save(final Path cacheFile, final Map<String, CachedRoot> cache)
+    {
+        final CompoundTag tag = new CompoundTag();
+        tag.putInt(TAG_VERSION, CACHE_VERSION);
+        final ListTag rootList = new ListTag();
+        for (final Map.Entry<String, CachedRoot> entry : cache.entrySet())
+        {
+            final CompoundTag rootTag = new CompoundTag();
+            rootTag.putString(TAG_KEY, entry.getKey());
+            rootTag.putLong(TAG_MTIME, entry.getValue().mtime);
+            final ListTag packList = new ListTag();
+            for (final CachedPack pack : entry.getValue().packs)
+            {
+                final CompoundTag packTag = new CompoundTag();
+                packTag.putString(TAG_FOLDER, pack.folder);
+                packTag.putLong(TAG_MTIME, pack.mtime);
+                if (pack.json != null)
+                {
+                    packTag.putString(TAG_JSON, pack.json);
+                }
+                packList.add(packTag);
+            }
+            rootTag.put(TAG_PACKS, packList);
+            rootList.add(rootTag);
+        }
+        tag.put(TAG_ROOTS, rootList);
+
+        try
+        {
+            Files.createDirectories(cacheFile.getParent());
+            final Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+            try (final OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile)))
+            {
+                NbtIo.writeCompressed(tag, outputStream);
+            }
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to write structure pack discovery cache: " + cacheFile, e);
+        }
+    }
+
+    /**
+     * A cached root.
+     *
+     * @param mtime the modification time of the root folder, changes when pack folders are added or removed.
+     * @param packs the folders in the root.
+     */
+    private record CachedRoot(long mtime, List<CachedPack> packs) { }
+
+    /**
+     * A cached folder of a root.
+     *
+     * @param folder the folder name.
+     * @param mtime  the modification time of its pack.json, or {@link #NO_FILE}.
+     * @param json   the contents of its pack.json, null if there is none or it wasn't read yet.
+     */
+    private record CachedPack(String folder, long mtime, @Nullable String json) { }
+
+    /**
+     * The outcome of a root.
+     *
+     * @param root       the root.
+     * @param packs      the usable packs, in folder order.
+     * @param cacheEntry the entry to cache, null if the root can't be cached.
+     * @param cached     if neither the root was listed nor a pack.json re-read.
+     * @param nanos      the time spent on the root, including indexing its packs.
+     */
+    private record RootResult(Root root, List<StructurePackMeta> packs, @Nullable CachedRoot cacheEntry, boolean cached, long nanos) { }
+
+    /**
+     * The outcome of a pack folder.
+     *
+     * @param pack       the usable pack, or null.
+     * @param cacheEntry the entry to cache, null if it can't be cached.
+     * @param cached     if the pack.json wasn't re-read.
+     */
+    private record PackResult(@Nullable StructurePackMeta pack, @Nullable CachedPack cacheEntry, boolean cached) { }
+
+    /**
+     * Reads all roots in parallel.
+     */
+    private static class DiscoveryTask extends RecursiveTask<List<RootResult>>
+    {
+        private final List<Root>              roots;
+        private final List<String>            modList;
+        private final Map<String, CachedRoot> cache;
+
+        private DiscoveryTask(final List<Root> roots, final List<String> modList, final Map<String, CachedRoot> cache)
+        {
+            this.roots = roots;
+            this.modList = modList;
+            this.cache = cache;
+        }
+
+        @Override
+        protected List<RootResult> compute()
+        {
+            final List<RootTask> tasks = new ArrayList<>(roots.size());
+            for (final Root root : roots)
+            {
+                // Jar entries can carry fixed times (reproducible builds), so a replaced jar could look unchanged. Reading them is cheap anyway.
+                tasks.add(new RootTask(root, modList, root.immutable ? null : cache.get(key(root.path))));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            final List<RootResult> results = new ArrayList<>(tasks.size());
+            for (final RootTask task : tasks)
+            {
+                results.add(task.join());
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Reads the pack folders of a root in parallel.
+     */
+    private static class RootTask extends RecursiveTask<RootResult>
+    {
+        private final Root         root;
+        private final List<String> modList;
+
+        @Nullable
+        private final CachedRoot cached;
+
+        private RootTask(final Root root, final List<String> modList, @Nullable final CachedRoot cached)
+        {
+            this.root = root;
+            this.modList = modList;
+            this.cached = cached;
+        }
+
+        @Override
+        protected RootResult compute()
+        {
+            final long start = System.nanoTime();
+            // Read before listing, so a change while listing is seen on the next discovery
+            final long mtime = lastModified(root.path);
+            final boolean rootCached = cached != null && mtime >= 0 && cached.mtime == mtime;
+
+            final List<CachedPack> folders;
+            if (rootCached)
+            {
+                folders = cached.packs;
+            }
+            else
+            {
+                final Map<String, CachedPack> oldPacks = new HashMap<>();
+                if (cached != null)
+                {
+                    cached.packs.forEach(pack -> oldPacks.put(pack.folder, pack));
+                }
+
+                folders = new ArrayList<>();
+                try (final Stream<Path> paths = Files.list(root.path))
+                {
+                    paths.forEach(path -> {
+                        final String folder = path.getFileName().toString();
+                        folders.add(oldPacks.getOrDefault(folder, new CachedPack(folder, UNKNOWN, null)));
+                    });
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Failed loading packs from path: " + root.path);
+                    return new RootResult(root, Collections.emptyList(), null, false, System.nanoTime() - start);
+                }
+            }
+
+            final List<PackTask> tasks = new ArrayList<>(folders.size());
+            for (final CachedPack folder : folders)
+            {
+                tasks.add(new PackTask(root, folder, modList));
+            }
+            ForkJoinTask.invokeAll(tasks);
+
+            final List<StructurePackMeta> packs = new ArrayList<>();
+            final List<CachedPack> cacheEntries = new ArrayList<>(tasks.size());
+            boolean cacheable = !root.immutable && isSettled(mtime);
+            boolean allCached = rootCached;
+            for (final PackTask task : tasks)
+            {
+                final PackResult result = task.join();
+                if (result.pack != null)
+                {
+                    packs.add(result.pack);
+                }
+                if (result.cacheEntry == null)
+                {
+                    cacheable = false;
+                }
+                else
+                {
+                    cacheEntries.add(result.cacheEntry);
+                }
+                allCached &= result.cached;
+            }
+
+            return new RootResult(root, packs, cacheable ? new CachedRoot(mtime, cacheEntries) : null, allCached, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads and indexes a pack folder.
+     */
+    private static class PackTask extends RecursiveTask<PackResult>
+    {
+        private final Root         root;
+        private final CachedPack   cached;
+        private final List<String> modList;
+
+        private PackTask(final Root root, final CachedPack cached, final List<String> modList)
+        {
+            this.root = root;
+            this.cached = cached;
+            this.modList = modList;
+        }
+
+        @Override
+        protected PackResult compute()
+        {
+            final Path element = root.path.resolve(cached.folder);
+            final Path packJsonPath = element.resolve("pack.json");
+            final long mtime = lastModified(packJsonPath);
+            final boolean jsonCached = mtime >= 0 && cached.mtime == mtime && cached.json != null;
+            if (mtime == NO_FILE || (mtime == UNKNOWN && !Files.exists(packJsonPath)))
+            {
+                return new PackResult(null, new CachedPack(cached.folder, NO_FILE, null), cached.mtime == NO_FILE);
+            }
+
+            final String json;
+            try
+            {
+                json = jsonCached ? cached.json : Files.readString(packJsonPath, StandardCharsets.UTF_8);
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Error Reading pack: ", e);
+                return new PackResult(null, null, false);
+            }
+
+            final CachedPack cacheEntry = isSettled(mtime) ? new CachedPack(cached.folder, mtime, json) : null;
+            try
+            {
+                final StructurePackMeta pack = StructurePacks.loadPack(JsonParser.parseString(json).getAsJsonObject(), element, root.immutable, modList, root.owner);
+                if (pack != null)
+                {
+                    BlueprintFileIndex.index(pack);
+                }
+                return new PackResult(pack, cacheEntry, jsonCached);
+            }
+            catch (final Exception e)
+            {
+                Log.getLogger().warn("Error Reading Json: " + element, e);
+                return new PackResult(null, cacheEntry, jsonCached);
+            }
+        }
+    }
+}
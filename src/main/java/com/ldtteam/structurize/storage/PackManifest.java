@@ -0,0 +1,246 @@
+package com.ldtteam.structurize.storage;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+import com.ldtteam.structurize.api.util.Log;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Content hashes of all files of a structure pack, used to only sync changed files.
+ */
+public class PackManifest
+{
+    /**
+     * Known file hashes by pack root, files are only re-hashed if their size or modification time changed.
+     */
+    private static final Map<Path, Map<String, FileHash>> hashCache = new ConcurrentHashMap<>();
+
+    /**
+     * Max amount of files a received manifest may list.
+     */
+    private static final int MAX_FILES = 100_000;
+
+    /**
+     * Max length of a received sub path.
+     */
+    private static final int MAX_PATH_LENGTH = 1024;
+
+    /**
+     * Length of the file hashes in bytes.
+     */
+    private static final int HASH_LENGTH = Hashing.sha256().bits() / Byte.SIZE;
+
+    /**
+     * Hash by sub path (with forward slashes).
+     */
+    private final Map<String, HashCode> files;
+
+    /**
+     * Create a new manifest.
+     *
+     * @param files the file hashes by sub path.
+     */
+    private PackManifest(final Map<String, HashCode> files)
+    {
+        this.files = files;
+    }
+
+    /**
+     * Compute the manifest of the pack at the given root. This does IO, call it off-thread.
+     *
+     * @param root the pack root folder.
+     * @return the manifest, empty if the folder is not readable.
+     */
+    public static PackManifest of(final Path root)
+    {
+        final Map<String, FileHash> cachedHashes = hashCache.computeIfAbsent(root.toAbsolutePath().normalize(), path -> new HashMap<>());
+        final Map<String, HashCode> files = new HashMap<>();
+
+        synchronized (cachedHashes)
+        {
+            try (final Stream<Path> paths = Files.walk(root))
+            {
+                paths.forEach(file -> {
+                    try
+                    {
+                        final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        if (!attributes.isRegularFile())
+                        {
+                            return;
+                        }
+
+                        final String subPath = root.relativize(file).toString().replace("\\", "/");
+                        if (subPath.length() > MAX_PATH_LENGTH)
+                        {
+                            Log.getLogger().warn("Pack file path too long to sync: " + file);
+                            return;
+                        }
+                        final long lastModified = attributes.lastModifiedTime().toMillis();
+                        FileHash fileHash = cachedHashes.get(subPath);
+                        if (fileHash == null || fileHash.size() != attributes.size() || fileHash.lastModified() != lastModified)
+                        {
+                            fileHash = new FileHash(attributes.size(), lastModified, MoreFiles.asByteSource(file).hash(Hashing.sha256()));
+                            cachedHashes.put(subPath, fileHash);
+                        }
+                        files.put(subPath, fileHash.hash());
+                    }
+                    catch (final IOException e)
+                    {
+                        Log.getLogger().warn("Unable to hash pack file: " + file, e);
+                    }
+                });
+            }
+            catch (final IOException e)
+            {
+                Log.getLogger().warn("Unable to build manifest of pack: " + root, e);
+            }
+
+            cachedHashes.keySet().retainAll(files.keySet());
+        }
+
+        return new PackManifest(files);
+    }
+
+    /**
+     * Get the files that have to be sent so the holder of the given manifest ends up with this manifest.
+     *
+     * @param other the manifest of the receiving side.
+     * @return the sub paths of missing or changed files.
+     */
+    public List<String> getChangedFiles(final PackManifest other)
+    {
+        final List<String> changed = new ArrayList<>();
+        for (final Map.Entry<String, HashCode> entry : files.entrySet())
+        {
+            if (!entry.getValue().equals(other.files.get(entry.getKey())))
+            {
+                changed.add(entry.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Get the files the holder of the given manifest has to delete to end up with this manifest.
+     *
+     * @param other the manifest of the receiving side.
+     * @return the sub paths of files not in this manifest.
+     */
+    public List<String> getDeletedFiles(final PackManifest other)
+    {
+        final List<String> deleted = new ArrayList<>();
+        for (final String file : other.files.keySet())
+        {
+            if (!files.containsKey(file))
+            {
+                deleted.add(file);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Get a hash identifying the content of the given files, used to share archives of equal content.
+     *
+     * @param subPaths the files to include.
+     * @return the combined hash.
+     */
+    public HashCode getContentHash(final Collection<String> subPaths)
+    {
+        return getContentHash(files, subPaths);
+    }
+
+    /**
+     * Get a hash identifying the content of the given files.
+     *
+     * @param hashes   the file hashes by sub path.
+     * @param subPaths the files to include.
+     * @return the combined hash.
+     */
+    static HashCode getContentHash(final Map<String, HashCode> hashes, final Collection<String> subPaths)
+    {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        for (final String subPath : new TreeSet<>(subPaths))
+        {
+            hasher.putString(subPath, StandardCharsets.UTF_8);
+            hasher.putByte((byte) 0);
+            final HashCode hash = hashes.get(subPath);
+            if (hash != null)
+            {
+                hasher.putBytes(hash.asBytes());
+            }
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * @return the file hashes by sub path.
+     */
+    public Map<String, HashCode> getFiles()
+    {
+        return Collections.unmodifiableMap(files);
+    }
+
+    /**
+     * Write the manifest to a buffer.
+     *
+     * @param buf the buffer.
+     */
+    public void write(final FriendlyByteBuf buf)
+    {
+        buf.writeVarInt(files.size());
+        for (final Map.Entry<String, HashCode> entry : files.entrySet())
+        {
+            buf.writeUtf(entry.getKey(), MAX_PATH_LENGTH);
+            buf.writeByteArray(entry.getValue().asBytes());
+        }
+    }
+
+    /**
+     * Read a manifest written by {@link #write(FriendlyByteBuf)}.
+     *
+     * The data comes from the other side, so sizes are checked before anything is read or allocated.
+     *
+     * @param buf the buffer.
+     * @return the manifest.
+     * @throws DecoderException if the data exceeds the limits.
+     */
+    public static PackManifest read(final FriendlyByteBuf buf)
+    {
+        final int size = buf.readVarInt();
+        if (size < 0 || size > MAX_FILES)
+        {
+            throw new DecoderException("Pack manifest lists " + size + " files, max is " + MAX_FILES);
+        }
+
+        final Map<String, HashCode> files = new HashMap<>();
+        for (int i = 0; i < size; i++)
+        {
+            final String subPath = buf.readUtf(MAX_PATH_LENGTH);
+            final byte[] hash = buf.readByteArray(HASH_LENGTH);
+            if (hash.length != HASH_LENGTH)
+            {
+                throw new DecoderException("Pack manifest hash of " + subPath + " has " + hash.length + " bytes, expected " + HASH_LENGTH);
+            }
+            files.put(subPath, HashCode.fromBytes(hash));
+        }
+        return new PackManifest(files);
+    }
+
+    /**
+     * Cached hash of a single file.
+     */
+    private record FileHash(long size, long lastModified, HashCode hash) { }
+}
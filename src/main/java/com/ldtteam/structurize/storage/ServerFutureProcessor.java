@@ -3,35 +3,31 @@ package com.ldtteam.structurize.storage;
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
 import net.minecraft.world.level.Level;
 import net.minecraftforge.event.TickEvent;
+import net.minecraftforge.event.level.LevelEvent;
+import net.minecraftforge.event.server.ServerStoppingEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 /**
  * Waits for blueprint futures to finish loading and then processes them.
+ * Results are handed to the level they belong to as soon as they are ready, and processed in completion order on its tick.
  */
 public class ServerFutureProcessor
 {
     /**
-     * Queue for processing blueprint futures.
+     * Max time per level tick spent on processing results, at least one is processed per tick.
      */
-    private static final Queue<BlueprintProcessingData> blueprintConsumerQueue = new LinkedList<>();
+    private static final long MAX_NANOS_PER_TICK = TimeUnit.MILLISECONDS.toNanos(5);
 
     /**
-     * Queue for processing blueprint data futures.
+     * Completed futures by level.
      */
-    private static final Queue<BlueprintDataProcessingData> blueprintDataConsumerQueue = new LinkedList<>();
-
-    /**
-     * Queue for processing blueprint futures.
-     */
-    private static final Queue<BlueprintListProcessingData> blueprintListConsumerQueue = new LinkedList<>();
+    private static final CompletionInbox inbox = new CompletionInbox();
 
     /**
      * Queue processing data to be handled on tick.
@@ -39,7 +35,7 @@ public class ServerFutureProcessor
      */
     public static void queueBlueprint(@NotNull final BlueprintProcessingData processingData)
     {
-        blueprintConsumerQueue.add(processingData);
+        queueFuture(new FutureProcessingData<>(processingData.blueprintFuture, processingData.level, processingData.consumer));
     }
 
     /**
@@ -48,7 +44,7 @@ public class ServerFutureProcessor
      */
     public static void queueBlueprintList(@NotNull final BlueprintListProcessingData processingData)
     {
-        blueprintListConsumerQueue.add(processingData);
+        queueFuture(new FutureProcessingData<>(processingData.blueprintFuture, processingData.level, processingData.consumer));
     }
 
     /**
@@ -57,55 +53,42 @@ public class ServerFutureProcessor
      */
     public static void queueBlueprintData(@NotNull final BlueprintDataProcessingData processingData)
     {
-        blueprintDataConsumerQueue.add(processingData);
+        queueFuture(new FutureProcessingData<>(processingData.blueprintDataFuture, processingData.level, processingData.consumer));
+    }
+
+    /**
+     * Queue processing data to be handled on tick.
+     * @param processingData the data to be processed.
+     */
+    public static void queueFuture(@NotNull final FutureProcessingData<?> processingData)
+    {
+        processingData.queue();
     }
 
     @SubscribeEvent
     public static void onWorldTick(final TickEvent.LevelTickEvent event)
     {
-        if (event.phase == TickEvent.Phase.END)
+        if (event.phase == TickEvent.Phase.END && !event.level.isClientSide())
+        {
+            inbox.drain(event.level, MAX_NANOS_PER_TICK);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onWorldUnload(final LevelEvent.Unload event)
+    {
+        if (event.getLevel() instanceof final Level level && !level.isClientSide())
         {
-            if (!blueprintConsumerQueue.isEmpty() && blueprintConsumerQueue.peek().level == event.level && blueprintConsumerQueue.peek().blueprintFuture.isDone())
-            {
-                final BlueprintProcessingData data = blueprintConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-
-            if (!blueprintDataConsumerQueue.isEmpty() && blueprintDataConsumerQueue.peek().level == event.level && blueprintDataConsumerQueue.peek().blueprintDataFuture.isDone())
-            {
-                final BlueprintDataProcessingData data = blueprintDataConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintDataFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
-
-            if (!blueprintListConsumerQueue.isEmpty() && blueprintListConsumerQueue.peek().level == event.level && blueprintListConsumerQueue.peek().blueprintFuture.isDone())
-            {
-                final BlueprintListProcessingData data = blueprintListConsumerQueue.poll();
-                try
-                {
-                    data.consumer.accept(data.blueprintFuture.get());
-                }
-                catch (InterruptedException | ExecutionException e)
-                {
-                    e.printStackTrace();
-                }
-            }
+            inbox.remove(level);
         }
     }
 
+    @SubscribeEvent
+    public static void onServerStopping(final ServerStoppingEvent event)
+    {
+        inbox.clear();
+    }
+
     /**
      * Data to be processed.
      */
@@ -120,4 +103,29 @@ public class ServerFutureProcessor
      * Data to be processed.
      */
     public record BlueprintListProcessingData(Future<List<Blueprint>> blueprintFuture, Level level, Consumer<List<Blueprint>> consumer) { }
+
+    /**
+     * Data to be processed.
+     *
+     * @param future        the future.
+     * @param level         the level to process the result on.
+     * @param consumer      the consumer of the result.
+     * @param errorHandler  called instead of the consumer if the future failed, was cancelled or timed out.
+     * @param timeoutMillis time after which the future is cancelled, {@link CompletionInbox#NO_TIMEOUT} to wait until done.
+     */
+    public record FutureProcessingData<T>(Future<T> future, Level level, Consumer<T> consumer, Consumer<Throwable> errorHandler, long timeoutMillis)
+    {
+        /**
+         * Data to be processed without timeout, errors are logged.
+         */
+        public FutureProcessingData(final Future<T> future, final Level level, final Consumer<T> consumer)
+        {
+            this(future, level, consumer, CompletionInbox.LOG_ERROR, CompletionInbox.NO_TIMEOUT);
+        }
+
+        private void queue()
+        {
+            inbox.add(level, future, consumer, errorHandler, timeoutMillis);
+        }
+    }
 }
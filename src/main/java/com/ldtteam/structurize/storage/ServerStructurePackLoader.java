@@ -1,28 +1,28 @@
 package com.ldtteam.structurize.storage;
 
 import com.ldtteam.structurize.Network;
+import com.ldtteam.structurize.Structurize;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.network.messages.NotifyClientAboutStructurePacksMessage;
 import com.ldtteam.structurize.network.messages.TransferStructurePackToClient;
 import com.ldtteam.structurize.util.IOPool;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.Unpooled;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraftforge.event.TickEvent;
 import net.minecraftforge.eventbus.api.SubscribeEvent;
 import net.minecraftforge.fml.ModList;
 import net.minecraftforge.forgespi.language.IModInfo;
+import net.minecraftforge.server.ServerLifecycleHooks;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import static com.ldtteam.structurize.api.util.constant.Constants.*;
 
@@ -43,14 +43,24 @@ public class ServerStructurePackLoader
     }
 
     /**
-     * Bytebuffers that have to be synced to the client. Each buffer represents one structurepack.
+     * Size of the chunks pack archives are streamed in.
      */
-    private static ConcurrentLinkedQueue<PackagedPack> messageSendTasks = new ConcurrentLinkedQueue<>();
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    /**
+     * Pack archives that have to be streamed to the clients, by player. Only accessed on the server thread.
+     */
+    private static final Map<UUID, Deque<PackTransfer>> pendingTransfers = new LinkedHashMap<>();
+
+    /**
+     * Rotates the player that is served first each tick, so the global budget is shared fairly.
+     */
+    private static int transferRotation = 0;
 
     /**
      * Map of the client sync requests that have to be handled yet.
      */
-    private static Map<UUID, Map<String, Double>> clientSyncRequests = new HashMap<>();
+    private static Map<UUID, ClientSyncRequest> clientSyncRequests = new HashMap<>();
 
     /**
      * Set after the client finished loading the schematics.
@@ -73,58 +83,25 @@ public class ServerStructurePackLoader
 
         final Path gameFolder = new File(".").toPath();
 
-        IOPool.execute(() ->
+        IOPool.executeLoading(() ->
         {
             try
             {
-                // This loads from the jar
+                // Jar packs first, then the main folder and the client caches, a later root replaces packs of the same name.
+                final List<PackDiscovery.Root> roots = new ArrayList<>();
                 for (final Path modPath : modPaths)
                 {
-                    try
-                    {
-                        try (final Stream<Path> paths = Files.list(modPath))
-                        {
-                            paths.forEach(element -> StructurePacks.discoverPackAtPath(element, true, modList, false, modPath.toString().split("/")[1]));
-                        }
-                    }
-                    catch (IOException e)
-                    {
-                        Log.getLogger().warn("Failed loading packs from mod path: " + modPath.toString());
-                    }
+                    roots.add(new PackDiscovery.Root(modPath, true, false, modPath.toString().split("/")[1]));
                 }
 
-                // Now we load from the main folder.
-                try
-                {
-                    try (final Stream<Path> paths = Files.list(gameFolder.resolve(BLUEPRINT_FOLDER)))
-                    {
-                        paths.forEach(element -> StructurePacks.discoverPackAtPath(element, false, modList, false, LOCAL));
-                    }
-                }
-                catch (IOException e)
-                {
-                    Log.getLogger().warn("Failed loading packs from main folder path: " + gameFolder);
-                }
+                final Path blueprintFolder = gameFolder.resolve(BLUEPRINT_FOLDER);
+                roots.add(new PackDiscovery.Root(blueprintFolder, false, false, LOCAL));
 
-                // Now we load from the client caches.
                 try
                 {
-                    try (final Stream<Path> paths = Files.list(gameFolder.resolve(BLUEPRINT_FOLDER).resolve(CLIENT_FOLDER)))
+                    try (final Stream<Path> paths = Files.list(blueprintFolder.resolve(CLIENT_FOLDER)))
                     {
-                        paths.forEach(element ->
-                        {
-                            try
-                            {
-                                try (final Stream<Path> subPaths = Files.list(element))
-                                {
-                                    subPaths.forEach(subElement -> StructurePacks.discoverPackAtPath(subElement, false, modList, true, LOCAL));
-                                }
-                            }
-                            catch (IOException e)
-                            {
-                                Log.getLogger().warn("Failed loading client pack from folder path: " + element);
-                            }
-                        });
+                        paths.forEach(element -> roots.add(new PackDiscovery.Root(element, false, true, LOCAL)));
                     }
                 }
                 catch (IOException e)
@@ -132,7 +109,10 @@ public class ServerStructurePackLoader
                     Log.getLogger().warn("Failed loading client packs from main folder path: " + gameFolder);
                 }
 
+                PackDiscovery.discover(roots, modList, blueprintFolder, "server");
+
                 Log.getLogger().warn("Finished discovering Server Structure packs");
+                PackArchiveCache.prune();
 
                 for (final StructurePackMeta pack : StructurePacks.getPackMetas())
                 {
@@ -157,23 +137,26 @@ public class ServerStructurePackLoader
     /**
      * Called on client sync attempt.
      * @param clientStructurePacks the client structure packs.
+     * @param clientManifests the content manifests of the client structure packs.
+     * @param player the player.
      */
-    public static void onClientSyncAttempt(final Map<String, Double> clientStructurePacks, final ServerPlayer player)
+    public static void onClientSyncAttempt(final Map<String, Double> clientStructurePacks, final Map<String, PackManifest> clientManifests, final ServerPlayer player)
     {
         if (loadingState == ServerLoadingState.UNINITIALIZED)
         {
-            Network.getNetwork().sendToPlayer(new NotifyClientAboutStructurePacksMessage(Collections.emptyMap()), player);
+            Network.getNetwork().sendToPlayer(new NotifyClientAboutStructurePacksMessage(Collections.emptyMap(), Collections.emptyList()), player);
             // Noop Single Player, Nothing to do here.
             return;
         }
 
+        final ClientSyncRequest request = new ClientSyncRequest(clientStructurePacks, clientManifests);
         if (loadingState == ServerLoadingState.FINISHED_LOADING)
         {
-            handleClientUpdate(clientStructurePacks, player);
+            handleClientUpdate(request, player);
         }
         else
         {
-            clientSyncRequests.put(player.getUUID(), clientStructurePacks);
+            clientSyncRequests.put(player.getUUID(), request);
         }
     }
 
@@ -185,7 +168,7 @@ public class ServerStructurePackLoader
             if (event.level.getGameTime() % 20 == 0 && loadingState == ServerLoadingState.FINISHED_LOADING && !clientSyncRequests.isEmpty())
             {
                 loadingState = ServerLoadingState.FINISHED_SYNCING;
-                for (final Map.Entry<UUID, Map<String, Double>> entry : clientSyncRequests.entrySet())
+                for (final Map.Entry<UUID, ClientSyncRequest> entry : clientSyncRequests.entrySet())
                 {
                     final ServerPlayer player = (ServerPlayer) event.level.getPlayerByUUID(entry.getKey());
                     if (player != null)
@@ -195,109 +178,150 @@ public class ServerStructurePackLoader
                 }
                 clientSyncRequests.clear();
             }
+        }
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(final TickEvent.ServerTickEvent event)
+    {
+        if (event.phase != TickEvent.Phase.END || pendingTransfers.isEmpty())
+        {
+            return;
+        }
 
-            if (!messageSendTasks.isEmpty())
+        final MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        final int playerBudget = Structurize.getConfig().getServer().packSyncBytesPerPlayer.get();
+        int globalBudget = Structurize.getConfig().getServer().packSyncBytesPerTick.get();
+
+        final List<UUID> players = new ArrayList<>(pendingTransfers.keySet());
+        transferRotation = (transferRotation + 1) % players.size();
+        for (int i = 0; i < players.size() && globalBudget > 0; i++)
+        {
+            final UUID uuid = players.get((transferRotation + i) % players.size());
+            final Deque<PackTransfer> transfers = pendingTransfers.get(uuid);
+            final ServerPlayer player = server.getPlayerList().getPlayer(uuid);
+            // If the player logged off, we can just skip.
+            if (player == null)
             {
-                final PackagedPack packData = messageSendTasks.poll();
-                final ServerPlayer player = (ServerPlayer) event.level.getPlayerByUUID(packData.player);
-                // If the player logged off, we can just skip.
-                if (player != null)
+                transfers.forEach(PackTransfer::close);
+                pendingTransfers.remove(uuid);
+                continue;
+            }
+
+            int budget = Math.min(playerBudget, globalBudget);
+            while (budget > 0 && !transfers.isEmpty())
+            {
+                final PackTransfer transfer = transfers.peek();
+                final int length = (int) Math.min(Math.min(CHUNK_SIZE, budget), transfer.size - transfer.position);
+                try
+                {
+                    final long offset = transfer.position;
+                    final ByteBuf chunk = transfer.read(length);
+                    Network.getNetwork()
+                      .sendToPlayer(new TransferStructurePackToClient(transfer.structurePack,
+                        chunk,
+                        transfer.eol,
+                        transfer.fullSync,
+                        offset == 0 ? transfer.deletedFiles : Collections.emptyList(),
+                        offset,
+                        transfer.size), player);
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().error("Unable to stream structure pack " + transfer.structurePack + " to " + player.getName().getString(), e);
+                    // tell the client to drop the partial data
+                    Network.getNetwork()
+                      .sendToPlayer(new TransferStructurePackToClient(transfer.structurePack, Unpooled.EMPTY_BUFFER, transfer.eol, transfer.fullSync, Collections.emptyList(), 0, -1), player);
+                    transfer.position = transfer.size;
+                }
+
+                budget -= length;
+                globalBudget -= length;
+                if (transfer.position >= transfer.size)
                 {
-                    Network.getNetwork().sendToPlayer(new TransferStructurePackToClient(packData.structurePack, packData.buf, packData.eol), player);
+                    transfer.close();
+                    transfers.poll();
                 }
             }
+
+            if (transfers.isEmpty())
+            {
+                pendingTransfers.remove(uuid);
+            }
         }
     }
 
     /**
      * Handle the client update for a given player and their packs.
-     * @param clientStructurePacks the client structure packs.
+     * Only files which are missing or changed on the client are sent, based on the content manifests.
+     * @param request the client structure packs.
      * @param player the player.
      */
-    private static void handleClientUpdate(final Map<String, Double> clientStructurePacks, final ServerPlayer player)
+    private static void handleClientUpdate(final ClientSyncRequest request, final ServerPlayer player)
     {
         final UUID uuid = player.getUUID();
-        final Map<String, StructurePackMeta> missingPacks = new HashMap<>();
         final Map<String, StructurePackMeta> packsToSync = new HashMap<>();
 
         for (final StructurePackMeta pack : StructurePacks.getPackMetas())
         {
             if (!pack.isImmutable())
             {
-                if (clientStructurePacks.getOrDefault(pack.getName(), -1.0) != pack.getVersion())
-                {
-                    missingPacks.put(pack.getName(), pack);
-                }
-                else
-                {
-                    packsToSync.put(pack.getName(), pack);
-                }
+                packsToSync.put(pack.getName(), pack);
             }
         }
 
-        packsToSync.putAll(missingPacks);
-        Network.getNetwork().sendToPlayer(new NotifyClientAboutStructurePacksMessage(packsToSync), player);
-
         IOPool.execute(() -> {
-            int index = 1;
-            for (final StructurePackMeta pack : new ArrayList<>(missingPacks.values()))
+            final List<PackTransfer> transfers = new ArrayList<>();
+            for (final StructurePackMeta pack : packsToSync.values())
             {
-                final ByteBuf outputBuf = zipPack(pack.getPath());
-                if (outputBuf != null)
+                final PackManifest serverManifest = PackManifest.of(pack.getPath());
+                final PackManifest clientManifest = request.manifests().get(pack.getName());
+                final boolean fullSync = clientManifest == null;
+                final List<String> changedFiles = fullSync ? new ArrayList<>(serverManifest.getFiles().keySet()) : serverManifest.getChangedFiles(clientManifest);
+                final List<String> deletedFiles = fullSync ? Collections.emptyList() : serverManifest.getDeletedFiles(clientManifest);
+                if (changedFiles.isEmpty() && deletedFiles.isEmpty()
+                      && request.versions().getOrDefault(pack.getName(), -1.0) == pack.getVersion())
                 {
-                    messageSendTasks.add(new PackagedPack(pack.getName(), uuid, outputBuf, index == missingPacks.size()));
+                    continue;
                 }
-                index++;
-            }
-        });
-    }
 
-    /**
-     * ZIP up the data from the pack path and put it into a bytebuffer.
-     * @param sourcePath the source path.
-     * @return the bytebuffer to serialize it on the network.
-     */
-    private static ByteBuf zipPack(final Path sourcePath)
-    {
-        final ByteBuf buffer = Unpooled.buffer();
-        try (ByteBufOutputStream stream = new ByteBufOutputStream(buffer))
-        {
-            ZipOutputStream zos = new ZipOutputStream(stream);
-            Files.walkFileTree(sourcePath, new SimpleFileVisitor<>()
-            {
-                @Override
-                public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException
+                try
                 {
-                    if (!sourcePath.equals(dir))
-                    {
-                        zos.putNextEntry(new ZipEntry(sourcePath.relativize(dir) + File.separator));
-                        zos.closeEntry();
-                    }
-                    return FileVisitResult.CONTINUE;
+                    final Path archive = PackArchiveCache.getArchive(pack, serverManifest, changedFiles);
+                    transfers.add(new PackTransfer(pack.getName(), archive, Files.size(archive), fullSync, deletedFiles));
                 }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Unable to ZIP up: " + pack.getPath().toString(), e);
+                }
+            }
 
-                @Override
-                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException
+            final List<String> transferredPacks = new ArrayList<>();
+            for (final PackTransfer transfer : transfers)
+            {
+                transferredPacks.add(transfer.structurePack);
+            }
+            if (!transfers.isEmpty())
+            {
+                transfers.get(transfers.size() - 1).eol = true;
+            }
+
+            // the client has to know which packs are transferred before the first one arrives.
+            player.getServer().execute(() -> {
+                Network.getNetwork().sendToPlayer(new NotifyClientAboutStructurePacksMessage(packsToSync, transferredPacks), player);
+                final Deque<PackTransfer> previous = pendingTransfers.put(uuid, new ArrayDeque<>(transfers));
+                if (previous != null)
                 {
-                    zos.putNextEntry(new ZipEntry(sourcePath.relativize(file).toString()));
-                    Files.copy(file, zos);
-                    zos.closeEntry();
-                    return FileVisitResult.CONTINUE;
+                    previous.forEach(PackTransfer::close);
                 }
             });
-        }
-        catch (IOException e)
-        {
-            Log.getLogger().warn("Unable to ZIP up: " + sourcePath.toString());
-            return null;
-        }
-        return buffer;
+        });
     }
 
     /**
-     * Data required to send a structure pack to a client.
+     * A pack archive being streamed to a client.
      */
-    private static class PackagedPack
+    private static class PackTransfer
     {
         /**
          * The unique name of the structure pack.
@@ -305,33 +329,108 @@ public class ServerStructurePackLoader
         private final String structurePack;
 
         /**
-         * The player UUID to send it to.
+         * The cached archive.
+         */
+        private final Path archive;
+
+        /**
+         * The size of the archive.
+         */
+        private final long size;
+
+        /**
+         * If the archive is the whole pack.
          */
-        private final UUID player;
+        private final boolean fullSync;
 
         /**
-         * The zipped data.
+         * The files the client has to delete.
          */
-        private final ByteBuf buf;
+        private final List<String> deletedFiles;
 
         /**
          * Is this the EOL package? (true if so).
          */
-        private final boolean eol;
+        private boolean eol = false;
+
+        /**
+         * Amount of bytes already sent.
+         */
+        private long position = 0;
+
+        /**
+         * The opened archive, null until the first chunk is read.
+         */
+        private FileChannel channel;
 
         /**
-         * Create a new pack.
+         * Create a new transfer.
          * @param structurePack the name of the pack.
-         * @param player the player to send it to.
-         * @param buf the zipped data.
-         * @param eol last message.
+         * @param archive the cached archive.
+         * @param size the size of the archive.
+         * @param fullSync if the archive is the whole pack.
+         * @param deletedFiles the files the client has to delete.
          */
-        public PackagedPack(final String structurePack, final UUID player, final ByteBuf buf, final boolean eol)
+        private PackTransfer(final String structurePack, final Path archive, final long size, final boolean fullSync, final List<String> deletedFiles)
         {
             this.structurePack = structurePack;
-            this.player = player;
-            this.buf = buf;
-            this.eol = eol;
+            this.archive = archive;
+            this.size = size;
+            this.fullSync = fullSync;
+            this.deletedFiles = deletedFiles;
+        }
+
+        /**
+         * Read the next chunk of the archive.
+         * @param length the amount of bytes to read.
+         * @return the chunk.
+         * @throws IOException if the archive can't be read.
+         */
+        private ByteBuf read(final int length) throws IOException
+        {
+            if (channel == null)
+            {
+                channel = FileChannel.open(archive, StandardOpenOption.READ);
+            }
+
+            final ByteBuf chunk = Unpooled.buffer(length);
+            while (chunk.writerIndex() < length)
+            {
+                if (chunk.writeBytes(channel, position + chunk.writerIndex(), length - chunk.writerIndex()) < 0)
+                {
+                    chunk.release();
+                    throw new EOFException("Unexpected end of pack archive: " + archive);
+                }
+            }
+            position += length;
+            return chunk;
+        }
+
+        /**
+         * Close the archive.
+         */
+        private void close()
+        {
+            if (channel != null)
+            {
+                try
+                {
+                    channel.close();
+                }
+                catch (final IOException e)
+                {
+                    Log.getLogger().warn("Unable to close pack archive: " + archive, e);
+                }
+                channel = null;
+            }
         }
     }
+
+    /**
+     * Pack information reported by a client.
+     *
+     * @param versions  the pack versions by name.
+     * @param manifests the content manifests by name.
+     */
+    private record ClientSyncRequest(Map<String, Double> versions, Map<String, PackManifest> manifests) { }
 }
@@ -1,10 +1,13 @@
 package com.ldtteam.structurize.storage;
 
+import com.google.gson.JsonObject;
 import com.google.gson.internal.Streams;
 import com.google.gson.stream.JsonReader;
 import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.blueprints.v1.Blueprint;
-import com.ldtteam.structurize.blueprints.v1.BlueprintUtil;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadata;
+import com.ldtteam.structurize.blueprints.v1.BlueprintMetadataReader;
+import com.ldtteam.structurize.blueprints.v1.BlueprintStreamReader;
 import com.ldtteam.structurize.util.IOPool;
 import com.ldtteam.structurize.util.ManualBarrier;
 import net.minecraft.nbt.CompoundTag;
@@ -118,6 +121,9 @@ public class StructurePacks
     {
         packMetas.clear();
         clientPackMetas.clear();
+        BlueprintCache.clear();
+        BlueprintMetadataIndex.clear();
+        BlueprintFileIndex.clear();
     }
 
     /**
@@ -137,7 +143,7 @@ public class StructurePacks
      */
     public static Future<Blueprint> getBlueprintFuture(final String structurePackId, final String subPath)
     {
-        return IOPool.submit(() -> getBlueprint(structurePackId, subPath));
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> getBlueprint(structurePackId, subPath));
     }
 
     /**
@@ -148,7 +154,7 @@ public class StructurePacks
      */
     public static Future<byte[]> getBlueprintDataFuture(final String structurePackId, final String subPath)
     {
-        return IOPool.submit(() -> getBlueprintData(structurePackId, subPath));
+        return IOPool.submit(IOPool.Lane.PLACEMENT, () -> getBlueprintData(structurePackId, subPath));
     }
 
     /**
@@ -159,7 +165,7 @@ public class StructurePacks
      */
     public static Future<Path> findBlueprintFuture(final String structurePackId, final String name)
     {
-        return IOPool.submit(() -> findBlueprint(structurePackId, name));
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> findBlueprint(structurePackId, name));
     }
 
     /**
@@ -173,6 +179,17 @@ public class StructurePacks
         return IOPool.submit(() -> getBlueprints(structurePackId, subPath));
     }
 
+    /**
+     * Get a list blueprint metadata future.
+     * @param structurePackId the structure pack the blueprints are in.
+     * @param subPath the path of the set of blueprints (usually a folder).
+     * @return the metadata list (might be empty).
+     */
+    public static Future<List<BlueprintMetadata>> getBlueprintMetadataFuture(final String structurePackId, final String subPath)
+    {
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> getBlueprintMetadata(structurePackId, subPath));
+    }
+
     /**
      * Get a list of categories of a specific sub-path of a given structure pack.
      * @param structurePackId the id of the pack.
@@ -181,7 +198,7 @@ public class StructurePacks
      */
     public static Future<List<Category>> getCategoriesFuture(final String structurePackId, final String subPath)
     {
-        return IOPool.submit(() -> getCategories(structurePackId, subPath));
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> getCategories(structurePackId, subPath));
     }
 
     /**
@@ -192,7 +209,7 @@ public class StructurePacks
      */
     public static Future<Blueprint> getBlueprintFuture(final String packName, final Path path)
     {
-        return IOPool.submit(() -> getBlueprint(packName, path));
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> getBlueprint(packName, path));
     }
 
     /**
@@ -202,7 +219,18 @@ public class StructurePacks
      */
     public static Future<Blueprint> findBlueprintFuture(final String structurePackId, final Predicate<Blueprint> blueprintPredicate)
     {
-        return IOPool.submit(() -> findBlueprint(structurePackId, blueprintPredicate));
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> findBlueprint(structurePackId, blueprintPredicate));
+    }
+
+    /**
+     * Find the blueprint async, only decoding blueprints whose metadata matches.
+     * @param metadataPredicate the predicate to pre-filter the blueprints by metadata.
+     * @param blueprintPredicate the predicate to define the blueprint we're looking for.
+     * @return the blueprint future.
+     */
+    public static Future<Blueprint> findBlueprintFuture(final String structurePackId, final Predicate<BlueprintMetadata> metadataPredicate, final Predicate<Blueprint> blueprintPredicate)
+    {
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> findBlueprint(structurePackId, metadataPredicate, blueprintPredicate));
     }
 
     /**
@@ -214,7 +242,7 @@ public class StructurePacks
      */
     public static Future<Blueprint> getBlueprintFuture(final String structurePackId, final String subPath, final boolean suppressError)
     {
-        return IOPool.submit(() -> getBlueprint(structurePackId, subPath, suppressError));
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> getBlueprint(structurePackId, subPath, suppressError));
     }
 
 
@@ -227,7 +255,7 @@ public class StructurePacks
      */
     public static Future<Blueprint> getBlueprintFuture(final String packName, final Path path, final boolean suppressError)
     {
-        return IOPool.submit(() -> getBlueprint(packName, path, suppressError));
+        return IOPool.submit(IOPool.Lane.INTERACTIVE, () -> getBlueprint(packName, path, suppressError));
     }
 
     // ------------------------- Synchronous Calls ------------------------- //
@@ -279,7 +307,7 @@ public class StructurePacks
 
     /**
      * Find blueprint at path.
-     * Recursively goes through folder structure.
+     * Looked up in the file index of the pack, recursively goes through folder structure if the path isn't in a pack.
      * @param subPath the sub path to check.
      * @param name the name of the file we're looking for.
      * @return the path of the file or null.
@@ -291,6 +319,12 @@ public class StructurePacks
             return Optional.empty();
         }
 
+        final List<Path> indexed = BlueprintFileIndex.getBlueprintFiles(subPath, name);
+        if (indexed != null)
+        {
+            return indexed.stream().findFirst();
+        }
+
         try
         {
             try (final Stream<Path> paths = Files.walk(subPath))
@@ -305,7 +339,7 @@ public class StructurePacks
                 }).findFirst();
             }
         }
-        catch (final IOException e)
+        catch (final IOException | UncheckedIOException e)
         {
             Log.getLogger().error("Error loading blueprint: " + subPath + ":" + name, e);
         }
@@ -319,6 +353,18 @@ public class StructurePacks
      * @return the blueprint or null.
      */
     public static Blueprint findBlueprint(final String structurePackId, final Predicate<Blueprint> blueprintPredicate)
+    {
+        return findBlueprint(structurePackId, metadata -> true, blueprintPredicate);
+    }
+
+    /**
+     * Find a blueprint by metadata and content.
+     * @param structurePackId the pack to search in.
+     * @param metadataPredicate pre-filters the blueprints by metadata, only matching ones are decoded.
+     * @param blueprintPredicate matches the blueprint.
+     * @return the blueprint or null.
+     */
+    public static Blueprint findBlueprint(final String structurePackId, final Predicate<BlueprintMetadata> metadataPredicate, final Predicate<Blueprint> blueprintPredicate)
     {
         if (!waitUntilFinishedLoading())
         {
@@ -331,7 +377,7 @@ public class StructurePacks
             return null;
         }
 
-        return findBlueprint(packMeta.getName(), packMeta.getPath(), blueprintPredicate);
+        return findBlueprint(packMeta.getName(), packMeta.getPath(), metadataPredicate, blueprintPredicate);
     }
 
     /**
@@ -343,12 +389,66 @@ public class StructurePacks
      * @return the path of the file or null.
      */
     public static Blueprint findBlueprint(final String pack, final Path subPath, final Predicate<Blueprint> blueprintPredicate)
+    {
+        return findBlueprint(pack, subPath, metadata -> true, blueprintPredicate);
+    }
+
+    /**
+     * Find blueprint at path.
+     * Goes through the file index of the pack, recursively goes through folder structure if the path isn't indexed.
+     * @param pack the pack we're looking in.
+     * @param subPath the sub path to check.
+     * @param metadataPredicate pre-filters the blueprints by metadata, only matching ones are decoded.
+     * @param blueprintPredicate matches the blueprint.
+     * @return the path of the file or null.
+     */
+    public static Blueprint findBlueprint(final String pack, final Path subPath, final Predicate<BlueprintMetadata> metadataPredicate, final Predicate<Blueprint> blueprintPredicate)
     {
         if (!waitUntilFinishedLoading())
         {
             return null;
         }
 
+        final StructurePackMeta packMeta = getStructurePack(pack);
+        final List<Path> indexed = BlueprintFileIndex.getBlueprintFiles(subPath);
+        if (indexed != null && packMeta != null)
+        {
+            for (final Path file : indexed)
+            {
+                final BlueprintMetadata metadata = BlueprintMetadataIndex.getMetadata(packMeta, file, false);
+                if (metadata == null || !metadataPredicate.test(metadata))
+                {
+                    continue;
+                }
+
+                final Blueprint blueprint = getBlueprint(pack, file);
+                if (blueprint != null && blueprintPredicate.test(blueprint))
+                {
+                    return blueprint;
+                }
+            }
+            return null;
+        }
+
+        return findBlueprintInFolder(pack, packMeta, subPath, metadataPredicate, blueprintPredicate);
+    }
+
+    /**
+     * Find blueprint at path, recursively goes through folder structure.
+     * @param pack the pack we're looking in.
+     * @param packMeta the pack, null if not loaded.
+     * @param subPath the sub path to check.
+     * @param metadataPredicate pre-filters the blueprints by metadata, only matching ones are decoded.
+     * @param blueprintPredicate matches the blueprint.
+     * @return the path of the file or null.
+     */
+    private static Blueprint findBlueprintInFolder(
+      final String pack,
+      @Nullable final StructurePackMeta packMeta,
+      final Path subPath,
+      final Predicate<BlueprintMetadata> metadataPredicate,
+      final Predicate<Blueprint> blueprintPredicate)
+    {
         try
         {
             try (final Stream<Path> paths = Files.list(subPath))
@@ -356,8 +456,14 @@ public class StructurePacks
                 return paths.map(file -> {
                     if (!Files.isDirectory(file) && file.toString().endsWith("blueprint"))
                     {
+                        final BlueprintMetadata metadata = getMetadata(packMeta, file);
+                        if (metadata == null || !metadataPredicate.test(metadata))
+                        {
+                            return null;
+                        }
+
                         final Blueprint blueprint = getBlueprint(pack, file);
-                        if (blueprintPredicate.test(blueprint))
+                        if (blueprint != null && blueprintPredicate.test(blueprint))
                         {
                             blueprint.setFileName(file.getFileName().toString().replace(".blueprint", ""));
                             blueprint.setFilePath(file.getParent()).setPackName(pack);
@@ -366,19 +472,44 @@ public class StructurePacks
                     }
                     else if (Files.isDirectory(file))
                     {
-                        return findBlueprint(pack, file, blueprintPredicate);
+                        return findBlueprintInFolder(pack, packMeta, file, metadataPredicate, blueprintPredicate);
                     }
                     return  null;
                 }).filter(Objects::nonNull).findFirst().orElse(null);
             }
         }
-        catch (final IOException e)
+        catch (final IOException | UncheckedIOException e)
         {
             Log.getLogger().error("Error loading blueprint: " + pack + ":" + subPath, e);
         }
         return null;
     }
 
+    /**
+     * Get the metadata of a blueprint file, from the index of the pack if it is loaded.
+     * @param packMeta the pack, null if not loaded.
+     * @param file the blueprint file.
+     * @return the metadata or null if unreadable.
+     */
+    @Nullable
+    private static BlueprintMetadata getMetadata(@Nullable final StructurePackMeta packMeta, final Path file)
+    {
+        if (packMeta != null)
+        {
+            return BlueprintMetadataIndex.getMetadata(packMeta, file, false);
+        }
+
+        try
+        {
+            return BlueprintMetadataReader.read(file);
+        }
+        catch (final IOException | RuntimeException e)
+        {
+            Log.getLogger().warn("Unable to read blueprint metadata: " + file, e);
+            return null;
+        }
+    }
+
     /**
      * Get a blueprint directly (careful IO, might be slow).
      * @param structurePackId the structure pack the blueprint is in.
@@ -413,16 +544,40 @@ public class StructurePacks
      * @return the blueprint.
      */
     public static Blueprint getBlueprint(final String pack, final Path path, final boolean suppressError)
+    {
+        return getBlueprint(pack, path, suppressError, true);
+    }
+
+    /**
+     * Get the blueprint directly with a path.
+     * @param pack the pack this belongs to.
+     * @param path the path to search for.
+     * @param suppressError log exception or not.
+     * @param cacheResult if a freshly loaded blueprint is put into the cache, bulk loads don't so they don't push out the entries worth keeping.
+     * @return the blueprint.
+     */
+    private static Blueprint getBlueprint(final String pack, final Path path, final boolean suppressError, final boolean cacheResult)
     {
         try
         {
-            final CompoundTag nbt = NbtIo.readCompressed(new ByteArrayInputStream(Files.readAllBytes(path)));
-            final Blueprint blueprint = BlueprintUtil.readBlueprintFromNBT(nbt);
+            final String cacheSubPath = getCacheSubPath(pack, path);
+            final long lastModified = Files.getLastModifiedTime(path).toMillis();
+            final Blueprint cached = BlueprintCache.get(pack, cacheSubPath, lastModified);
+            if (cached != null)
+            {
+                return cached;
+            }
+
+            final Blueprint blueprint = BlueprintStreamReader.read(path);
             if (blueprint == null) return null;
 
             blueprint.setFileName(path.getFileName().toString().replace(".blueprint", ""));
             blueprint.setFilePath(path.getParent()).setPackName(pack);
 
+            if (cacheResult)
+            {
+                BlueprintCache.put(pack, cacheSubPath, lastModified, blueprint);
+            }
             return blueprint;
         }
         catch (final IOException e)
@@ -435,6 +590,18 @@ public class StructurePacks
         return null;
     }
 
+    /**
+     * Get the sub path used as blueprint cache key.
+     * @param pack the pack the blueprint belongs to.
+     * @param path the full path of the blueprint.
+     * @return the normalized sub path.
+     */
+    private static String getCacheSubPath(final String pack, final Path path)
+    {
+        final StructurePackMeta packMeta = getStructurePack(pack);
+        return (packMeta == null ? path.toString() : packMeta.getSubPath(path)).replace("\\", "/");
+    }
+
     /**
      * Get blueprint data directly (careful IO, might be slow).
      * @param structurePackId the structure pack the blueprint is in.
@@ -497,20 +664,10 @@ public class StructurePacks
                 paths.forEach(file -> {
                     if (!Files.isDirectory(file) && file.toString().endsWith("blueprint"))
                     {
-                        try
+                        final Blueprint blueprint = getBlueprint(structurePackId, file, false, false);
+                        if (blueprint != null)
                         {
-                            final CompoundTag nbt = NbtIo.readCompressed(new ByteArrayInputStream(Files.readAllBytes(file)));
-                            final Blueprint blueprint = BlueprintUtil.readBlueprintFromNBT(nbt);
-                            if (blueprint != null)
-                            {
-                                blueprint.setFileName(file.getFileName().toString().replace(".blueprint", ""));
-                                blueprint.setFilePath(file.getParent()).setPackName(structurePackId);
-                                blueprints.add(blueprint);
-                            }
-                        }
-                        catch (final IOException e)
-                        {
-                            Log.getLogger().error("Error loading individual blueprint: " + file, e);
+                            blueprints.add(blueprint);
                         }
                     }
                 });
@@ -525,6 +682,29 @@ public class StructurePacks
         return blueprints;
     }
 
+    /**
+     * Get the metadata of all blueprints in a folder without decoding the blueprints (careful IO, might be slow).
+     * Served from the persistent metadata index, only changed files are read.
+     * @param structurePackId the structure pack the blueprints are in.
+     * @param subPath the folder containing the blueprints.
+     * @return the list of metadata or empty.
+     */
+    public static List<BlueprintMetadata> getBlueprintMetadata(final String structurePackId, final String subPath)
+    {
+        if (!waitUntilFinishedLoading())
+        {
+            return Collections.emptyList();
+        }
+
+        final StructurePackMeta packMeta = getStructurePack(structurePackId);
+        if (packMeta == null)
+        {
+            return Collections.emptyList();
+        }
+
+        return BlueprintMetadataIndex.getMetadata(packMeta, packMeta.getPath().resolve(packMeta.getNormalizedSubPath(subPath)));
+    }
+
     /**
      * Get a list of categories of a specific sub-path of a given structure pack.
      * This has IO, this may be slow.
@@ -634,31 +814,11 @@ public class StructurePacks
             {
                 try (final JsonReader reader = new JsonReader(Files.newBufferedReader(packJsonPath));)
                 {
-                    final StructurePackMeta pack = new StructurePackMeta(Streams.parse(reader).getAsJsonObject(), element, owner);
-                    if (pack.getPackFormat() == PACK_FORMAT)
+                    final StructurePackMeta pack = loadPack(Streams.parse(reader).getAsJsonObject(), element, immutable, modList, owner);
+                    if (pack != null)
                     {
-                        pack.setImmutable(immutable);
-                        for (final String modId : pack.getModList())
-                        {
-                            if (!modList.contains(modId))
-                            {
-                                Log.getLogger().warn("Missing Mod: " + modId + " for Pack: " + pack.getName());
-                                return;
-                            }
-                        }
-                        if (clientPack)
-                        {
-                            clientPackMetas.put(pack.getName(), pack);
-                        }
-                        else
-                        {
-                            packMetas.put(pack.getName(), pack);
-                        }
-                        Log.getLogger().info("Registered structure pack: " + pack.getName());
-                    }
-                    else
-                    {
-                        Log.getLogger().warn("Wrong Pack Format: " + pack.getName());
+                        BlueprintFileIndex.index(pack);
+                        registerPack(pack, clientPack);
                     }
                 }
                 catch (final IOException ex)
@@ -673,6 +833,56 @@ public class StructurePacks
         }
     }
 
+    /**
+     * Create a structure pack from its pack.json and check if it can be used on this instance.
+     * @param json the pack.json contents.
+     * @param element the pack folder.
+     * @param immutable if jar (true), else false.
+     * @param modList the list of mods loaded on this instance.
+     * @param owner the owner of the pack.
+     * @return the pack, or null if it has the wrong format or misses a mod.
+     */
+    @Nullable
+    static StructurePackMeta loadPack(final JsonObject json, final Path element, final boolean immutable, final List<String> modList, final String owner)
+    {
+        final StructurePackMeta pack = new StructurePackMeta(json, element, owner);
+        if (pack.getPackFormat() != PACK_FORMAT)
+        {
+            Log.getLogger().warn("Wrong Pack Format: " + pack.getName());
+            return null;
+        }
+
+        pack.setImmutable(immutable);
+        for (final String modId : pack.getModList())
+        {
+            if (!modList.contains(modId))
+            {
+                Log.getLogger().warn("Missing Mod: " + modId + " for Pack: " + pack.getName());
+                return null;
+            }
+        }
+        return pack;
+    }
+
+    /**
+     * Register a loaded structure pack, replacing a pack of the same name.
+     * @param pack the pack.
+     * @param clientPack if this is a client pack.
+     */
+    static void registerPack(final StructurePackMeta pack, final boolean clientPack)
+    {
+        if (clientPack)
+        {
+            clientPackMetas.put(pack.getName(), pack);
+        }
+        else
+        {
+            packMetas.put(pack.getName(), pack);
+        }
+        BlueprintCache.invalidatePack(pack.getName());
+        Log.getLogger().info("Registered structure pack: " + pack.getName());
+    }
+
     /**
      * Store a blueprint at a given path.
      * @param packName the pack we're storing it in.
@@ -683,6 +893,7 @@ public class StructurePacks
     {
         return IOPool.submit(() ->
         {
+            BlueprintCache.invalidate(packName, getCacheSubPath(packName, path));
             Files.createDirectories(path.getParent());
             try (final OutputStream outputstream = new BufferedOutputStream(Files.newOutputStream(path)))
             {
@@ -693,6 +904,7 @@ public class StructurePacks
                 Log.getLogger().warn("Exception while trying to scan.", e);
                 return null;
             }
+            BlueprintFileIndex.add(path);
             return StructurePacks.getBlueprint(packName, path);
         });
     }
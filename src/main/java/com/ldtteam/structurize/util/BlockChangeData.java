@@ -6,7 +6,10 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * Class which preserves a state change of a block and TE
+ *
+ * @deprecated {@link ChangeStorage} no longer keeps these, see {@link ChangeStorage#getBlocks()}.
  */
+@Deprecated
 public class BlockChangeData
 {
     /**
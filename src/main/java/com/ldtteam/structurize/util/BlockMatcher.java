@@ -0,0 +1,113 @@
+package com.ldtteam.structurize.util;
+
+import com.ldtteam.structurize.api.util.ItemStackUtils;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanMap;
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+
+import java.util.List;
+
+/**
+ * Matches in-world blocks against a list of filter stacks, like {@link BlockUtils#doBlocksMatch} for each of them.
+ * The result is computed once per state, only blocks with a block entity are checked each time since their items may depend on its data.
+ * Not thread safe, use one matcher per operation.
+ */
+public class BlockMatcher
+{
+    /**
+     * The filter stacks.
+     */
+    private final List<ItemStack> filters;
+
+    /**
+     * If one of the filters is air.
+     */
+    private final boolean matchesAir;
+
+    /**
+     * Results of states without block entity.
+     */
+    private final Reference2BooleanMap<BlockState> results = new Reference2BooleanOpenHashMap<>();
+
+    /**
+     * Create a matcher.
+     *
+     * @param filters the filter stacks, a block matches if it matches any of them.
+     */
+    public BlockMatcher(final List<ItemStack> filters)
+    {
+        this.filters = filters;
+        this.matchesAir = filters.stream().anyMatch(filter -> filter.getItem() == Items.AIR);
+    }
+
+    /**
+     * Check if the block at a position matches any of the filters.
+     *
+     * @param world    the world.
+     * @param position the position.
+     * @return true if so.
+     */
+    public boolean matches(final Level world, final BlockPos position)
+    {
+        final BlockState blockState = world.getBlockState(position);
+        if (blockState.hasBlockEntity())
+        {
+            final BlockEntity blockEntity = world.getBlockEntity(position);
+            if (blockEntity != null)
+            {
+                return matches(blockState, BlockUtils.getMatchingItem(world, position, blockState, blockEntity.saveWithFullMetadata()));
+            }
+        }
+
+        return matchesState(world, position, blockState);
+    }
+
+    /**
+     * Check if a block with a state may match any of the filters, without looking at the world.
+     * Used to skip blocks and whole chunk sections cheaply.
+     *
+     * @param world      the world.
+     * @param blockState the state.
+     * @return false if a block with this state never matches.
+     */
+    public boolean mayMatch(final Level world, final BlockState blockState)
+    {
+        return blockState.hasBlockEntity() || matchesState(world, BlockPos.ZERO, blockState);
+    }
+
+    private boolean matchesState(final Level world, final BlockPos position, final BlockState blockState)
+    {
+        if (!results.containsKey(blockState))
+        {
+            results.put(blockState, matches(blockState, BlockUtils.getMatchingItem(world, position, blockState, null)));
+        }
+        return results.getBoolean(blockState);
+    }
+
+    private boolean matches(final BlockState blockState, final ItemStack item)
+    {
+        if (matchesAir && blockState.isAir())
+        {
+            return true;
+        }
+
+        if (ItemStackUtils.isEmpty(item))
+        {
+            return false;
+        }
+
+        for (final ItemStack filter : filters)
+        {
+            if (ItemStackUtils.compareItemStacksIgnoreStackSize(item, filter))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -539,38 +539,34 @@ public final class BlockUtils
     public static boolean doBlocksMatch(final ItemStack block, final ServerLevel world, final BlockPos position)
     {
         final BlockState blockState = world.getBlockState(position);
-        final BlockEntity tileEntity = world.getBlockEntity(position);
-        boolean isMatch = false;
-        boolean handled = false;
-
         if (block.getItem() == Items.AIR && blockState.isAir())
         {
-            isMatch = true;
+            return true;
         }
-        else
-        {
-            for (final IPlacementHandler handler : PlacementHandlers.handlers)
-            {
-                if (handler.canHandle(world, BlockPos.ZERO, blockState))
-                {
-                    final List<ItemStack> itemList =
-                      handler.getRequiredItems(world, position, blockState, tileEntity == null ? null : tileEntity.saveWithFullMetadata(), true);
-                    if (!itemList.isEmpty() && ItemStackUtils.compareItemStacksIgnoreStackSize(itemList.get(0), block))
-                    {
-                        isMatch = true;
-                    }
-                    handled = true;
-                    break;
-                }
-            }
 
-            if (!handled && ItemStackUtils.compareItemStacksIgnoreStackSize(BlockUtils.getItemStackFromBlockState(blockState), block))
-            {
-                isMatch = true;
-            }
-        }
+        final BlockEntity tileEntity = world.getBlockEntity(position);
+        final ItemStack item = getMatchingItem(world, position, blockState, tileEntity == null ? null : tileEntity.saveWithFullMetadata());
+        return !ItemStackUtils.isEmpty(item) && ItemStackUtils.compareItemStacksIgnoreStackSize(item, block);
+    }
 
-        return isMatch;
+    /**
+     * Get the item an in-world block is matched against filters with.
+     *
+     * @param world          the level.
+     * @param position       the position.
+     * @param blockState     the state at the position.
+     * @param tileEntityData the data of the block entity at the position.
+     * @return the item, empty if the block has none.
+     */
+    public static ItemStack getMatchingItem(final Level world, final BlockPos position, final BlockState blockState, @Nullable final CompoundTag tileEntityData)
+    {
+        final IPlacementHandler handler = PlacementHandlers.getHandler(world, BlockPos.ZERO, blockState);
+        if (handler != null)
+        {
+            final List<ItemStack> itemList = handler.getRequiredItems(world, position, blockState, tileEntityData, true);
+            return itemList.isEmpty() ? ItemStack.EMPTY : itemList.get(0);
+        }
+        return getItemStackFromBlockState(blockState);
     }
 
     /**
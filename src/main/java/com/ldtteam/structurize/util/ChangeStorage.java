@@ -1,20 +1,52 @@
 package com.ldtteam.structurize.util;
 
-import com.ldtteam.structurize.Structurize;
+import com.ldtteam.structurize.api.util.Log;
 import com.ldtteam.structurize.management.Manager;
+import com.ldtteam.structurize.management.OperationScheduler;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.Long2IntMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import it.unimi.dsi.fastutil.shorts.ShortArrayList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.Entity;
 import net.minecraft.world.entity.EntityType;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtAccounter;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
 import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Change storage to store changes to an area to be able to undo them.
+ * Changes are kept compact: positions as packed longs, states as indices into a per storage palette,
+ * block entity and entity data as compressed NBT, and spawned entities only by UUID.
  */
 public class ChangeStorage
 {
@@ -23,25 +55,70 @@ public class ChangeStorage
      */
     private static int storageIDs = 0;
 
+    /**
+     * Palette index of positions without recorded state.
+     */
+    private static final short NO_STATE = -1;
+
+    /**
+     * Max amount of states in the palette, the indices are stored as unsigned shorts minus the {@link #NO_STATE} marker.
+     */
+    private static final int MAX_PALETTE_SIZE = 0xFFFF;
+
+    /**
+     * Rough heap size of a palette entry and of the position index per entry, used for the memory estimate.
+     */
+    private static final int PALETTE_ENTRY_BYTES = 48;
+    private static final int INDEX_ENTRY_BYTES   = 24;
+
     /**
      * This storages unique ID
      */
     private final int id;
 
     /**
-     * List of blocks with position.
+     * Changed positions as {@link BlockPos#asLong()}, in the order they were first changed.
+     */
+    private final LongArrayList positions = new LongArrayList();
+
+    /**
+     * Palette indices of the states before and after the change, by position index.
+     */
+    private final ShortArrayList preStates  = new ShortArrayList();
+    private final ShortArrayList postStates = new ShortArrayList();
+
+    /**
+     * The states referenced by the palette indices.
+     */
+    private final List<BlockState> palette = new ArrayList<>();
+
+    /**
+     * Palette index by state, only kept while recording.
+     */
+    @Nullable
+    private Reference2IntMap<BlockState> paletteIndex = new Reference2IntOpenHashMap<>();
+
+    /**
+     * Position index by packed position, only kept while recording.
+     */
+    @Nullable
+    private Long2IntMap positionIndex = new Long2IntOpenHashMap();
+
+    /**
+     * Compressed block entity data before and after the change, by position index.
      */
-    private final Map<BlockPos, BlockChangeData> blocks = new HashMap<>();
+    private final Int2ObjectMap<byte[]> preBlockEntities  = new Int2ObjectOpenHashMap<>();
+    private final Int2ObjectMap<byte[]> postBlockEntities = new Int2ObjectOpenHashMap<>();
 
     /**
-     * List of entities in range.
+     * Compressed data of the entities removed in range.
      */
-    private final List<CompoundTag> removedEntities = new ArrayList<>();
+    private final List<byte[]> removedEntities = new ArrayList<>();
 
     /**
-     * List of entities to kill in range.
+     * UUIDs of the entities to kill in range.
      */
-    private final List<Entity> addedEntities = new ArrayList<>();
+    private final List<UUID> addedEntities = new ArrayList<>();
 
     /**
      * The operation which was done
@@ -49,22 +126,64 @@ public class ChangeStorage
     private final Component operation;
 
     /**
-     * Current operation iteration
+     * Position index of the current undo or redo, negative if none is running.
      */
-    private Iterator<Map.Entry<BlockPos, BlockChangeData>> iterator = null;
+    private int replayIndex = -1;
+
+    /**
+     * Position indices in replay order: grouped by chunk section, sections in the order they were first changed
+     * and positions in placement order within a section. Built when a replay starts.
+     */
+    @Nullable
+    private int[] replayOrder = null;
+
+    /**
+     * Amount of compressed bytes held, kept up to date for the memory estimate.
+     */
+    private long dataBytes = 0;
 
     private final UUID player;
 
+    /**
+     * The level the changes were done in, null while empty.
+     */
+    @Nullable
+    private ResourceKey<Level> dimension = null;
+
     /**
      * Initiate an empty changeStorage to manually fill it.
      *
      * @param player the player owner of it.
      */
     public ChangeStorage(final Component operation, final UUID player)
+    {
+        this(nextID(), operation, player);
+    }
+
+    /**
+     * Create a storage with a known id.
+     *
+     * @param id        the id.
+     * @param operation the operation which was done.
+     * @param player    the player owner of it.
+     */
+    private ChangeStorage(final int id, final Component operation, final UUID player)
     {
         this.player = player;
-        this.id = storageIDs++;
+        this.id = id;
         this.operation = operation;
+        this.paletteIndex.defaultReturnValue(-1);
+        this.positionIndex.defaultReturnValue(-1);
+    }
+
+    /**
+     * Reserve a new storage id, used for history entries which are not loaded.
+     *
+     * @return the id.
+     */
+    public static int nextID()
+    {
+        return storageIDs++;
     }
 
     /**
@@ -75,7 +194,14 @@ public class ChangeStorage
      */
     public void addPreviousDataFor(final BlockPos place, final Level world)
     {
-        blocks.computeIfAbsent(place, p -> new BlockChangeData()).withPreState(world.getBlockState(place)).withPreTE(world.getBlockEntity(place));
+        if (dimension == null)
+        {
+            dimension = world.dimension();
+        }
+
+        final int index = getOrCreateIndex(place);
+        preStates.set(index, getPaletteIndex(world.getBlockState(place)));
+        putBlockEntity(preBlockEntities, index, world.getBlockEntity(place));
     }
 
     /**
@@ -86,7 +212,9 @@ public class ChangeStorage
      */
     public void addPostDataFor(final BlockPos place, final Level world)
     {
-        blocks.computeIfAbsent(place, p -> new BlockChangeData()).withPostState(world.getBlockState(place)).withPostTE(world.getBlockEntity(place));
+        final int index = getOrCreateIndex(place);
+        postStates.set(index, getPaletteIndex(world.getBlockState(place)));
+        putBlockEntity(postBlockEntities, index, world.getBlockEntity(place));
     }
 
     /**
@@ -96,7 +224,20 @@ public class ChangeStorage
      */
     public void addEntities(final List<Entity> list)
     {
-        removedEntities.addAll(list.stream().map(Entity::serializeNBT).collect(Collectors.toList()));
+        if (dimension == null && !list.isEmpty())
+        {
+            dimension = list.get(0).level().dimension();
+        }
+
+        for (final Entity entity : list)
+        {
+            final byte[] data = compress(entity.serializeNBT());
+            if (data != null)
+            {
+                removedEntities.add(data);
+                dataBytes += data.length;
+            }
+        }
     }
 
     /**
@@ -106,7 +247,36 @@ public class ChangeStorage
      */
     public void addToBeKilledEntity(final Entity entity)
     {
-        addedEntities.add(entity);
+        addedEntities.add(entity.getUUID());
+    }
+
+    /**
+     * Drop the lookup structures only needed while recording and trim the arrays.
+     * Called when the storage is added to the history, recording afterwards still works but rebuilds the lookups.
+     */
+    public void compact()
+    {
+        replayOrder = null;
+        paletteIndex = null;
+        positionIndex = null;
+        positions.trim();
+        preStates.trim();
+        postStates.trim();
+    }
+
+    /**
+     * Estimate the heap used by this storage.
+     *
+     * @return the estimate in bytes.
+     */
+    public long getMemoryUsage()
+    {
+        long bytes = positions.size() * (Long.BYTES + 2L * Short.BYTES) + (long) palette.size() * PALETTE_ENTRY_BYTES + dataBytes;
+        if (positionIndex != null)
+        {
+            bytes += (long) positionIndex.size() * INDEX_ENTRY_BYTES;
+        }
+        return bytes + (long) addedEntities.size() * 2 * Long.BYTES;
     }
 
     /**
@@ -118,63 +288,72 @@ public class ChangeStorage
      */
     public boolean undo(final Level world, @Nullable final ChangeStorage undoStorage)
     {
-        if (iterator == null)
-        {
-            iterator = blocks.entrySet().iterator();
-        }
-
+        final int[] order = startReplay();
+        final SectionWriteBatch batch = new SectionWriteBatch(world);
         int count = 0;
-        while (iterator.hasNext())
+        while (replayIndex < order.length)
         {
-            final Map.Entry<BlockPos, BlockChangeData> entry = iterator.next();
+            final int index = order[replayIndex++];
+            final BlockPos pos = BlockPos.of(positions.getLong(index));
+            final BlockState preState = getState(preStates.getShort(index));
             // Only revert block changes which this operation caused
-            if (world.getBlockState(entry.getKey()) != entry.getValue().getPostState())
+            if (preState == null || batch.getBlockState(pos) != getState(postStates.getShort(index)))
             {
                 continue;
             }
 
             if (undoStorage != null)
             {
-                undoStorage.addPreviousDataFor(entry.getKey(), world);
-            }
-            world.setBlockAndUpdate(entry.getKey(), entry.getValue().getPreState());
-
-            if (entry.getValue().getPreTE() != null)
-            {
-                world.setBlockEntity(entry.getValue().getPreTE());
+                undoStorage.addPreviousDataFor(pos, world);
             }
+            batch.setBlock(pos, preState);
+            loadBlockEntity(world, pos, preBlockEntities.get(index));
 
             if (undoStorage != null)
             {
-                undoStorage.addPostDataFor(entry.getKey(), world);
+                undoStorage.addPostDataFor(pos, world);
             }
 
             count++;
 
-            if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get())
+            if (OperationScheduler.isStepOver(count))
             {
+                batch.flush();
                 return false;
             }
         }
+        batch.flush();
 
-        for (final CompoundTag data : removedEntities)
+        for (final byte[] data : removedEntities)
         {
-            final Optional<EntityType<?>> type = EntityType.by(data);
+            final CompoundTag tag = decompress(data);
+            final Optional<EntityType<?>> type = tag == null ? Optional.empty() : EntityType.by(tag);
             if (type.isPresent())
             {
                 final Entity entity = type.get().create(world);
                 if (entity != null)
                 {
-                    entity.deserializeNBT(data);
+                    entity.deserializeNBT(tag);
                     world.addFreshEntity(entity);
                     if (undoStorage != null)
                     {
-                        undoStorage.addedEntities.add(entity);
+                        undoStorage.addedEntities.add(entity.getUUID());
                     }
                 }
             }
         }
-        addedEntities.forEach(e -> e.remove(Entity.RemovalReason.DISCARDED));
+
+        if (world instanceof ServerLevel serverLevel)
+        {
+            for (final UUID uuid : addedEntities)
+            {
+                final Entity entity = serverLevel.getEntity(uuid);
+                if (entity != null)
+                {
+                    entity.remove(Entity.RemovalReason.DISCARDED);
+                }
+            }
+        }
 
         if (undoStorage != null)
         {
@@ -191,37 +370,91 @@ public class ChangeStorage
      */
     public boolean redo(final Level world)
     {
+        final int[] order = startReplay();
+        final SectionWriteBatch batch = new SectionWriteBatch(world);
         int count = 0;
-
-        if (iterator == null)
+        while (replayIndex < order.length)
         {
-            iterator = blocks.entrySet().iterator();
-        }
-
-        while (iterator.hasNext())
-        {
-            final Map.Entry<BlockPos, BlockChangeData> entry = iterator.next();
-            if (world.getBlockState(entry.getKey()) != entry.getValue().getPreState())
+            final int index = order[replayIndex++];
+            final BlockPos pos = BlockPos.of(positions.getLong(index));
+            final BlockState postState = getState(postStates.getShort(index));
+            if (postState == null || batch.getBlockState(pos) != getState(preStates.getShort(index)))
             {
                 continue;
             }
 
-            world.setBlockAndUpdate(entry.getKey(), entry.getValue().getPostState());
-            if (entry.getValue().getPostTE() != null)
-            {
-                world.setBlockEntity(entry.getValue().getPostTE());
-            }
+            batch.setBlock(pos, postState);
+            loadBlockEntity(world, pos, postBlockEntities.get(index));
             count++;
 
-            if (count >= Structurize.getConfig().getServer().maxOperationsPerTick.get())
+            if (OperationScheduler.isStepOver(count))
             {
+                batch.flush();
                 return false;
             }
         }
 
+        batch.flush();
         return true;
     }
 
+    /**
+     * Start or continue a replay.
+     *
+     * @return the position indices in replay order.
+     */
+    private int[] startReplay()
+    {
+        if (replayIndex < 0)
+        {
+            replayIndex = 0;
+        }
+
+        if (replayOrder == null || replayOrder.length != positions.size())
+        {
+            final Long2IntMap sectionOrder = new Long2IntOpenHashMap();
+            final int[] sectionRanks = new int[positions.size()];
+            for (int i = 0; i < positions.size(); i++)
+            {
+                final long section = SectionPos.blockToSection(positions.getLong(i));
+                sectionRanks[i] = sectionOrder.computeIfAbsent(section, key -> sectionOrder.size());
+            }
+
+            replayOrder = new int[positions.size()];
+            for (int i = 0; i < replayOrder.length; i++)
+            {
+                replayOrder[i] = i;
+            }
+            // Stable, so positions keep their placement order within a section
+            IntArrays.mergeSort(replayOrder, (a, b) -> Integer.compare(sectionRanks[a], sectionRanks[b]));
+        }
+        return replayOrder;
+    }
+
+    /**
+     * Get the recorded changes by position. Builds a copy, block entities are recreated without a level.
+     *
+     * @return the changes.
+     * @deprecated the changes are stored compactly, use {@link #undo(Level, ChangeStorage)} and {@link #redo(Level)} to apply them.
+     */
+    @Deprecated
+    public Map<BlockPos, BlockChangeData> getBlocks()
+    {
+        final Map<BlockPos, BlockChangeData> blocks = new LinkedHashMap<>();
+        for (int index = 0; index < positions.size(); index++)
+        {
+            final BlockPos pos = BlockPos.of(positions.getLong(index));
+            final BlockState preState = getState(preStates.getShort(index));
+            final BlockState postState = getState(postStates.getShort(index));
+            blocks.put(pos, new BlockChangeData()
+              .withPreState(preState)
+              .withPostState(postState)
+              .withPreTE(createBlockEntity(pos, preState, preBlockEntities.get(index)))
+              .withPostTE(createBlockEntity(pos, postState, postBlockEntities.get(index))));
+        }
+        return blocks;
+    }
+
     /**
      * Get the operation of this changestorage
      *
@@ -237,7 +470,18 @@ public class ChangeStorage
      */
     public void resetUnRedo()
     {
-        iterator = null;
+        replayIndex = -1;
+        replayOrder = null;
+    }
+
+    /**
+     * Get the progress of the current undo or redo.
+     *
+     * @return the progress between 0 and 1.
+     */
+    public double getUnRedoProgress()
+    {
+        return positions.isEmpty() ? 1 : (double) Math.max(0, replayIndex) / positions.size();
     }
 
     /**
@@ -247,7 +491,18 @@ public class ChangeStorage
      */
     public boolean isDone()
     {
-        return iterator == null || !iterator.hasNext();
+        return replayIndex < 0 || replayIndex >= positions.size();
+    }
+
+    /**
+     * Get the level the changes were done in.
+     *
+     * @return the level, or null if nothing was changed yet.
+     */
+    @Nullable
+    public ResourceKey<Level> getDimension()
+    {
+        return dimension;
     }
 
     /**
@@ -269,4 +524,293 @@ public class ChangeStorage
     {
         return player;
     }
+
+    /**
+     * Write the changes, used to keep history on disk. The operation, player and id are stored by the caller.
+     *
+     * @param out the output.
+     * @throws IOException if writing fails.
+     */
+    public void write(final DataOutput out) throws IOException
+    {
+        out.writeUTF(dimension == null ? "" : dimension.location().toString());
+
+        out.writeInt(palette.size());
+        for (final BlockState state : palette)
+        {
+            NbtIo.write(NbtUtils.writeBlockState(state), out);
+        }
+
+        out.writeInt(positions.size());
+        for (int i = 0; i < positions.size(); i++)
+        {
+            out.writeLong(positions.getLong(i));
+            out.writeShort(preStates.getShort(i));
+            out.writeShort(postStates.getShort(i));
+        }
+
+        writeData(out, preBlockEntities);
+        writeData(out, postBlockEntities);
+
+        out.writeInt(removedEntities.size());
+        for (final byte[] data : removedEntities)
+        {
+            out.writeInt(data.length);
+            out.write(data);
+        }
+
+        out.writeInt(addedEntities.size());
+        for (final UUID uuid : addedEntities)
+        {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    /**
+     * Read changes written by {@link #write(DataOutput)}.
+     *
+     * @param in        the input.
+     * @param id        the id of the storage.
+     * @param operation the operation which was done.
+     * @param player    the player owner of it.
+     * @return the storage, already compacted.
+     * @throws IOException if reading fails.
+     */
+    public static ChangeStorage read(final DataInput in, final int id, final Component operation, final UUID player) throws IOException
+    {
+        final ChangeStorage storage = new ChangeStorage(id, operation, player);
+        final String dimension = in.readUTF();
+        if (!dimension.isEmpty())
+        {
+            storage.dimension = ResourceKey.create(Registries.DIMENSION, new ResourceLocation(dimension));
+        }
+
+        final int paletteSize = in.readInt();
+        for (int i = 0; i < paletteSize; i++)
+        {
+            storage.palette.add(NbtUtils.readBlockState(BuiltInRegistries.BLOCK.asLookup(), NbtIo.read(in, NbtAccounter.UNLIMITED)));
+        }
+
+        final int size = in.readInt();
+        storage.positions.ensureCapacity(size);
+        storage.preStates.ensureCapacity(size);
+        storage.postStates.ensureCapacity(size);
+        for (int i = 0; i < size; i++)
+        {
+            storage.positions.add(in.readLong());
+            storage.preStates.add(in.readShort());
+            storage.postStates.add(in.readShort());
+        }
+
+        storage.readData(in, storage.preBlockEntities);
+        storage.readData(in, storage.postBlockEntities);
+
+        final int removedEntities = in.readInt();
+        for (int i = 0; i < removedEntities; i++)
+        {
+            final byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            storage.removedEntities.add(data);
+            storage.dataBytes += data.length;
+        }
+
+        final int addedEntities = in.readInt();
+        for (int i = 0; i < addedEntities; i++)
+        {
+            storage.addedEntities.add(new UUID(in.readLong(), in.readLong()));
+        }
+
+        storage.compact();
+        return storage;
+    }
+
+    private static void writeData(final DataOutput out, final Int2ObjectMap<byte[]> data) throws IOException
+    {
+        out.writeInt(data.size());
+        for (final Int2ObjectMap.Entry<byte[]> entry : data.int2ObjectEntrySet())
+        {
+            out.writeInt(entry.getIntKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+    }
+
+    private void readData(final DataInput in, final Int2ObjectMap<byte[]> data) throws IOException
+    {
+        final int size = in.readInt();
+        for (int i = 0; i < size; i++)
+        {
+            final int index = in.readInt();
+            final byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            data.put(index, bytes);
+            dataBytes += bytes.length;
+        }
+    }
+
+    /**
+     * Get the index of a position, adding it if not recorded yet.
+     *
+     * @param pos the position.
+     * @return the position index.
+     */
+    private int getOrCreateIndex(final BlockPos pos)
+    {
+        if (positionIndex == null)
+        {
+            positionIndex = new Long2IntOpenHashMap(positions.size());
+            positionIndex.defaultReturnValue(-1);
+            for (int i = 0; i < positions.size(); i++)
+            {
+                positionIndex.put(positions.getLong(i), i);
+            }
+        }
+
+        final long packed = pos.asLong();
+        int index = positionIndex.get(packed);
+        if (index < 0)
+        {
+            index = positions.size();
+            positions.add(packed);
+            preStates.add(NO_STATE);
+            postStates.add(NO_STATE);
+            positionIndex.put(packed, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get the palette index of a state, adding it if not in the palette yet.
+     *
+     * @param state the state.
+     * @return the palette index.
+     */
+    private short getPaletteIndex(final BlockState state)
+    {
+        if (paletteIndex == null)
+        {
+            paletteIndex = new Reference2IntOpenHashMap<>(palette.size());
+            paletteIndex.defaultReturnValue(-1);
+            for (int i = 0; i < palette.size(); i++)
+            {
+                paletteIndex.put(palette.get(i), i);
+            }
+        }
+
+        int index = paletteIndex.getInt(state);
+        if (index < 0)
+        {
+            if (palette.size() >= MAX_PALETTE_SIZE)
+            {
+                Log.getLogger().warn("Too many different states in change storage of " + operation.getString() + ", not recording " + state);
+                return NO_STATE;
+            }
+            index = palette.size();
+            palette.add(state);
+            paletteIndex.put(state, index);
+        }
+        return (short) index;
+    }
+
+    /**
+     * Get the state of a palette index.
+     *
+     * @param index the palette index.
+     * @return the state or null if none was recorded.
+     */
+    @Nullable
+    private BlockState getState(final short index)
+    {
+        return index == NO_STATE ? null : palette.get(Short.toUnsignedInt(index));
+    }
+
+    private void putBlockEntity(final Int2ObjectMap<byte[]> blockEntities, final int index, @Nullable final BlockEntity blockEntity)
+    {
+        final byte[] data = blockEntity == null ? null : compress(blockEntity.saveWithFullMetadata());
+        final byte[] previous = data == null ? blockEntities.remove(index) : blockEntities.put(index, data);
+        if (previous != null)
+        {
+            dataBytes -= previous.length;
+        }
+        if (data != null)
+        {
+            dataBytes += data.length;
+        }
+    }
+
+    private static void loadBlockEntity(final Level world, final BlockPos pos, @Nullable final byte[] data)
+    {
+        if (data == null)
+        {
+            return;
+        }
+
+        final BlockEntity blockEntity = world.getBlockEntity(pos);
+        final CompoundTag tag = decompress(data);
+        if (blockEntity != null && tag != null)
+        {
+            blockEntity.load(tag);
+            blockEntity.setChanged();
+        }
+    }
+
+    @Nullable
+    private static BlockEntity createBlockEntity(final BlockPos pos, @Nullable final BlockState state, @Nullable final byte[] data)
+    {
+        if (state == null || data == null)
+        {
+            return null;
+        }
+
+        final CompoundTag tag = decompress(data);
+        return tag == null ? null : BlockEntity.loadStatic(pos, state, tag);
+    }
+
+    /**
+     * Compress a tag for storage.
+     *
+     * @param tag the tag.
+     * @return the compressed bytes or null if it could not be written.
+     */
+    @Nullable
+    private static byte[] compress(final CompoundTag tag)
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater)))
+        {
+            NbtIo.write(tag, out);
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to store change data", e);
+            return null;
+        }
+        finally
+        {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read a tag written by {@link #compress(CompoundTag)}.
+     *
+     * @param data the compressed bytes.
+     * @return the tag or null if unreadable.
+     */
+    @Nullable
+    private static CompoundTag decompress(final byte[] data)
+    {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(data))))
+        {
+            return NbtIo.read(in, NbtAccounter.UNLIMITED);
+        }
+        catch (final IOException e)
+        {
+            Log.getLogger().warn("Unable to read change data", e);
+            return null;
+        }
+    }
 }
@@ -3,23 +3,92 @@ package com.ldtteam.structurize.util;
 import com.ldtteam.structurize.api.util.Log;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class handling our IO pool.
+ * Tasks are queued in priority lanes, a queued task of a higher lane starts before one of a lower lane unless the lower one waited longer than its lane delay,
+ * so background work can't starve. Tasks of the same lane run in submission order.
+ * The returned futures can be cancelled, which removes the task from the queue if it didn't start yet.
+ * Pack loading runs on its own thread, see {@link #executeLoading(Runnable)}.
  */
 public final class IOPool
 {
+    /**
+     * Max amount of threads picked by processor count.
+     */
+    private static final int MAX_AUTO_THREADS = 4;
+
     /**
      * Hold our IO queue.
      */
-    private static final BlockingQueue<Runnable> ioQueue = new LinkedBlockingDeque<>();
+    private static final BlockingQueue<Runnable> ioQueue = new PriorityBlockingQueue<>();
+
+    /**
+     * Submission counter, keeps tasks of the same lane in order.
+     */
+    private static final AtomicLong sequence = new AtomicLong();
 
     /**
      * Holds the specific executor for the queue.
      */
     private static ThreadPoolExecutor executor;
 
+    /**
+     * Single thread running pack loading and syncing, separate from the lanes since lane tasks wait for loading to finish.
+     */
+    private static ExecutorService loadingExecutor;
+
+    /**
+     * Configured amount of threads, 0 to pick by processor count.
+     */
+    private static volatile int configuredThreads = 0;
+
+    /**
+     * The priority lanes, in order of priority.
+     */
+    public enum Lane
+    {
+        /**
+         * Work a player is waiting for in a window, like listing and previewing blueprints.
+         */
+        INTERACTIVE(0),
+
+        /**
+         * Work needed to place or change something in the world, like loading blueprints to paste or undo data.
+         */
+        PLACEMENT(2),
+
+        /**
+         * Everything else, like pack discovery, folder wide loads and writing files.
+         */
+        BACKGROUND(10);
+
+        /**
+         * How long tasks of higher lanes submitted later may overtake a task of this lane.
+         */
+        final long delayNanos;
+
+        /**
+         * Statistics of the lane.
+         */
+        private final AtomicInteger queued    = new AtomicInteger();
+        private final AtomicLong    completed = new AtomicLong();
+        private final AtomicLong    cancelled = new AtomicLong();
+        private final AtomicLong    waitNanos = new AtomicLong();
+        private final AtomicLong    maxWait   = new AtomicLong();
+        private final AtomicLong    runNanos  = new AtomicLong();
+
+        Lane(final long delaySeconds)
+        {
+            this.delayNanos = TimeUnit.SECONDS.toNanos(delaySeconds);
+        }
+    }
+
     /**
      * Structurize specific thread factory.
      */
@@ -42,26 +111,112 @@ public final class IOPool
     }
 
     /**
-     * Creates a new thread pool for pathfinding jobs
+     * Creates a new thread pool for IO jobs
      *
      * @return the threadpool executor.
      */
-    public static ThreadPoolExecutor getExecutor()
+    public static synchronized ThreadPoolExecutor getExecutor()
     {
         if (executor == null)
         {
-            executor = new ThreadPoolExecutor(1, 2, 10, TimeUnit.SECONDS, ioQueue, new StructurizeThreadFactory());
+            // The queue is unbounded, so the pool never grows past the core size
+            final int threads = getPoolSize();
+            executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS, ioQueue, new StructurizeThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
         }
         return executor;
     }
 
+    /**
+     * Get the pack loading executor.
+     *
+     * @return the executor.
+     */
+    private static synchronized ExecutorService getLoadingExecutor()
+    {
+        if (loadingExecutor == null)
+        {
+            loadingExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "Structurize Pack Loader");
+                thread.setDaemon(true);
+                thread.setUncaughtExceptionHandler((thread1, throwable) -> Log.getLogger().error("Structurize Pack Loader errored! ", throwable));
+                return thread;
+            });
+        }
+        return loadingExecutor;
+    }
+
+    /**
+     * Apply the thread count setting.
+     *
+     * @param threads the amount of threads, 0 to pick by processor count.
+     */
+    public static synchronized void setConfiguredThreads(final int threads)
+    {
+        configuredThreads = threads;
+        updatePoolSize();
+    }
+
+    /**
+     * Apply a changed pool size setting.
+     */
+    public static synchronized void updatePoolSize()
+    {
+        if (executor != null)
+        {
+            final int threads = getPoolSize();
+            if (threads > executor.getMaximumPoolSize())
+            {
+                executor.setMaximumPoolSize(threads);
+                executor.setCorePoolSize(threads);
+            }
+            else
+            {
+                executor.setCorePoolSize(threads);
+                executor.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
+    /**
+     * Get the configured amount of threads.
+     *
+     * @return the amount of threads.
+     */
+    private static int getPoolSize()
+    {
+        // Set once the client or dedicated server config is loaded, the pool may be used before.
+        int threads = configuredThreads;
+        if (threads <= 0)
+        {
+            threads = Math.max(2, Math.min(MAX_AUTO_THREADS, Runtime.getRuntime().availableProcessors() / 2));
+        }
+        return threads;
+    }
+
     /**
      * Stops all running threads in this thread pool
      */
-    public static void shutdown()
+    public static synchronized void shutdown()
     {
+        for (final Lane lane : Lane.values())
+        {
+            final Statistics statistics = getStatistics(lane);
+            Log.getLogger().info(String.format("IO lane %s: %d completed, %d cancelled, %d queued, %.1f ms average wait, %.1f ms max wait, %.1f ms average run time",
+              lane, statistics.completed(), statistics.cancelled(), statistics.queued(), statistics.averageWaitMillis(), statistics.maxWaitMillis(), statistics.averageRunMillis()));
+        }
+
         getExecutor().shutdownNow();
+        if (loadingExecutor != null)
+        {
+            loadingExecutor.shutdownNow();
+            loadingExecutor = null;
+        }
         ioQueue.clear();
+        for (final Lane lane : Lane.values())
+        {
+            lane.queued.set(0);
+        }
         executor = null;
     }
 
@@ -71,22 +226,226 @@ public final class IOPool
     }
 
     /**
-     * Submit a task for processing tothe pool.
+     * Submit a task for processing to the pool, in the background lane.
      * @param task the task to run.
      * @return the future.
      */
     public static <T> Future<T> submit(@NotNull final Callable<T> task)
     {
-        return getExecutor().submit(task);
+        return submit(Lane.BACKGROUND, task);
     }
 
+    /**
+     * Submit a task for processing to the pool.
+     * @param lane the priority lane.
+     * @param task the task to run.
+     * @return the future, cancelling it removes the task from the queue.
+     */
+    public static <T> Future<T> submit(@NotNull final Lane lane, @NotNull final Callable<T> task)
+    {
+        return submit(lane, task, System.nanoTime());
+    }
 
     /**
-     * Execute a task to be processed in the pool.
+     * Submit a task for processing to the pool.
+     * @param lane the priority lane.
+     * @param task the task to run.
+     * @param submitted the submission time in nanos, queue order and wait statistics are based on it.
+     * @return the future, cancelling it removes the task from the queue.
+     */
+    static <T> Future<T> submit(@NotNull final Lane lane, @NotNull final Callable<T> task, final long submitted)
+    {
+        final LaneTask<T> laneTask = new LaneTask<>(lane, task, submitted);
+        lane.queued.incrementAndGet();
+        getExecutor().execute(laneTask);
+        return laneTask;
+    }
+
+    /**
+     * Execute a task to be processed in the pool, in the background lane.
      * @param task the task to run.
      */
     public static void execute(@NotNull final Runnable task)
     {
-        getExecutor().execute(task);
+        execute(Lane.BACKGROUND, task);
+    }
+
+    /**
+     * Execute a task to be processed in the pool.
+     * @param lane the priority lane.
+     * @param task the task to run.
+     */
+    public static void execute(@NotNull final Lane lane, @NotNull final Runnable task)
+    {
+        submit(lane, () -> {
+            try
+            {
+                task.run();
+            }
+            catch (final RuntimeException e)
+            {
+                Log.getLogger().error("Structurize IO Thread errored! ", e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Execute pack loading work, which may open {@link com.ldtteam.structurize.storage.StructurePacks#setFinishedLoading()}.
+     * Such work must never queue behind lane tasks blocked on that barrier, so it runs on its own thread, one task after another in submission order.
+     * @param task the task to run.
+     */
+    public static void executeLoading(@NotNull final Runnable task)
+    {
+        getLoadingExecutor().execute(() -> {
+            try
+            {
+                task.run();
+            }
+            catch (final RuntimeException e)
+            {
+                Log.getLogger().error("Structurize Pack Loader errored! ", e);
+            }
+        });
+    }
+
+    /**
+     * Run a callback once a future is done, on the thread completing it, or right away if it is done already.
+     * Supported for futures of this pool and {@link CompletableFuture}s.
+     * @param future the future.
+     * @param callback the callback.
+     * @return false if the future doesn't support callbacks and has to be polled instead.
+     */
+    public static boolean whenDone(@NotNull final Future<?> future, @NotNull final Runnable callback)
+    {
+        if (future instanceof final LaneTask<?> laneTask)
+        {
+            laneTask.addListener(callback);
+            return true;
+        }
+        if (future instanceof final CompletableFuture<?> completableFuture)
+        {
+            completableFuture.whenComplete((result, throwable) -> callback.run());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the statistics of a lane since startup.
+     * @param lane the lane.
+     * @return the statistics.
+     */
+    public static Statistics getStatistics(final Lane lane)
+    {
+        final long completed = lane.completed.get();
+        return new Statistics(lane.queued.get(),
+          completed,
+          lane.cancelled.get(),
+          completed == 0 ? 0 : lane.waitNanos.get() / 1_000_000.0 / completed,
+          lane.maxWait.get() / 1_000_000.0,
+          completed == 0 ? 0 : lane.runNanos.get() / 1_000_000.0 / completed);
+    }
+
+    /**
+     * Statistics of a lane.
+     *
+     * @param queued            amount of tasks waiting to run.
+     * @param completed         amount of tasks run.
+     * @param cancelled         amount of tasks cancelled before they ran.
+     * @param averageWaitMillis average time between submission and start.
+     * @param maxWaitMillis     longest time between submission and start.
+     * @param averageRunMillis  average run time.
+     */
+    public record Statistics(int queued, long completed, long cancelled, double averageWaitMillis, double maxWaitMillis, double averageRunMillis) { }
+
+    /**
+     * A queued task, ordered by submission time plus the delay of its lane and then submission order.
+     * The key is fixed at submission, so the queue order never changes while queued.
+     */
+    private static class LaneTask<T> extends FutureTask<T> implements Comparable<LaneTask<?>>
+    {
+        private final Lane lane;
+        private final long order = sequence.getAndIncrement();
+        private final long submitted;
+        private final long deadline;
+
+        /**
+         * Set once the task left the queue, by starting or cancellation.
+         */
+        private final AtomicBoolean dequeued = new AtomicBoolean();
+
+        /**
+         * Callbacks to run once done.
+         */
+        private final Queue<Runnable> listeners = new ConcurrentLinkedQueue<>();
+
+        private LaneTask(final Lane lane, final Callable<T> callable, final long submitted)
+        {
+            super(callable);
+            this.lane = lane;
+            this.submitted = submitted;
+            this.deadline = submitted + lane.delayNanos;
+        }
+
+        @Override
+        public void run()
+        {
+            if (!dequeued.compareAndSet(false, true))
+            {
+                return;
+            }
+
+            final long start = System.nanoTime();
+            lane.queued.decrementAndGet();
+            lane.waitNanos.addAndGet(start - submitted);
+            lane.maxWait.accumulateAndGet(start - submitted, Math::max);
+
+            super.run();
+
+            lane.runNanos.addAndGet(System.nanoTime() - start);
+            lane.completed.incrementAndGet();
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning)
+        {
+            final boolean result = super.cancel(mayInterruptIfRunning);
+            if (result && dequeued.compareAndSet(false, true))
+            {
+                ioQueue.remove(this);
+                lane.queued.decrementAndGet();
+                lane.cancelled.incrementAndGet();
+            }
+            return result;
+        }
+
+        private void addListener(final Runnable listener)
+        {
+            listeners.add(listener);
+            // If it finished meanwhile, whoever removes the listener runs it
+            if (isDone() && listeners.remove(listener))
+            {
+                listener.run();
+            }
+        }
+
+        @Override
+        protected void done()
+        {
+            Runnable listener;
+            while ((listener = listeners.poll()) != null)
+            {
+                listener.run();
+            }
+        }
+
+        @Override
+        public int compareTo(@NotNull final LaneTask<?> other)
+        {
+            // Difference instead of comparing directly, nano time may overflow
+            final long difference = deadline - other.deadline;
+            return difference != 0 ? Long.signum(difference) : Long.compare(order, other.order);
+        }
     }
 }
@@ -1,7 +1,10 @@
 package com.ldtteam.structurize.util;
 
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.Level;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public interface ITickedWorldOperation
 {
@@ -20,4 +23,36 @@ public interface ITickedWorldOperation
      */
     @NotNull
     ChangeStorage getChangeStorage();
+
+    /**
+     * Check if this operation works on a change, such changes are kept in memory until it is done.
+     *
+     * @param storage the change.
+     * @return true if it does.
+     */
+    default boolean isUsing(final ChangeStorage storage)
+    {
+        return getChangeStorage() == storage;
+    }
+
+    /**
+     * Get the progress of this operation, used to estimate the remaining time and to detect if it can progress in this tick.
+     *
+     * @return the progress between 0 and 1, or a negative value if unknown.
+     */
+    default double getProgress()
+    {
+        return -1;
+    }
+
+    /**
+     * Get the level this operation runs in, it is only applied to that level.
+     *
+     * @return the level, or null if unknown, it then runs in the overworld.
+     */
+    @Nullable
+    default ResourceKey<Level> getDimension()
+    {
+        return null;
+    }
 }
@@ -3,6 +3,7 @@ package com.ldtteam.structurize.util;
 import com.ldtteam.structurize.blocks.ModBlocks;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.level.Level;
@@ -45,6 +46,12 @@ public class PlacerholderFillOperation implements ITickedWorldOperation
      */
     private final ChangeStorage storage;
 
+    /**
+     * The level the area is in, the one the player was in when starting the operation.
+     */
+    @Nullable
+    private final ResourceKey<Level> dimension;
+
     /**
      * Create a ScanToolOperation.
      *
@@ -66,6 +73,7 @@ public class PlacerholderFillOperation implements ITickedWorldOperation
         this.minDistToBlocks = minDistToBlocks;
         this.endPos = new BlockPos(Math.max(startPos.getX(), endPos.getX()), Math.max(startPos.getY(), endPos.getY()), Math.max(startPos.getZ(), endPos.getZ()));
         this.storage = new ChangeStorage(Component.literal("FILL_TOP_PLACEHOLDERS"), player != null ? player.getUUID() : UUID.randomUUID());
+        this.dimension = player != null ? player.level().dimension() : null;
     }
 
     @Override
@@ -82,6 +90,13 @@ public class PlacerholderFillOperation implements ITickedWorldOperation
         return this.storage;
     }
 
+    @Override
+    @Nullable
+    public ResourceKey<Level> getDimension()
+    {
+        return dimension;
+    }
+
     /**
      * Fills the top area of the schematic with placeholder, in a somewhat circular manner, covering mostly the top corners of a schematic
      *
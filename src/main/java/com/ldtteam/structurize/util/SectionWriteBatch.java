@@ -0,0 +1,143 @@
+package com.ldtteam.structurize.util;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes blocks one chunk section at a time. Blocks are set without client, neighbour and shape updates,
+ * those are done together once the section is done, so the client gets one section update for all changes of the section.
+ * Lighting is queued by the light engine and processed in batches anyway.
+ */
+public class SectionWriteBatch
+{
+    /**
+     * Flags of the deferred block writes.
+     */
+    private static final int WRITE_FLAGS = Block.UPDATE_KNOWN_SHAPE;
+
+    /**
+     * Recursion depth of the deferred shape updates, as for a normal block update.
+     */
+    private static final int SHAPE_UPDATE_DEPTH = 511;
+
+    /**
+     * The world to write in.
+     */
+    private final Level world;
+
+    /**
+     * The section which is being written, as packed section position.
+     */
+    private long section = Long.MIN_VALUE;
+
+    /**
+     * The chunk of the section.
+     */
+    private LevelChunk chunk = null;
+
+    /**
+     * Positions written in the current section and their states before.
+     */
+    private final LongArrayList     changedPositions = new LongArrayList();
+    private final List<BlockState>  previousStates   = new ArrayList<>();
+
+    /**
+     * Create a batch for a world.
+     *
+     * @param world the world.
+     */
+    public SectionWriteBatch(final Level world)
+    {
+        this.world = world;
+    }
+
+    /**
+     * Get the state at a position, reading from the cached chunk.
+     *
+     * @param pos the position.
+     * @return the state.
+     */
+    public BlockState getBlockState(final BlockPos pos)
+    {
+        moveTo(pos);
+        return chunk.getBlockState(pos);
+    }
+
+    /**
+     * Set a block, the updates are done when the section is done.
+     *
+     * @param pos   the position.
+     * @param state the new state.
+     * @return true if the block was changed.
+     */
+    public boolean setBlock(final BlockPos pos, final BlockState state)
+    {
+        moveTo(pos);
+        final BlockState previous = chunk.getBlockState(pos);
+        if (previous == state || !world.setBlock(pos, state, WRITE_FLAGS))
+        {
+            return false;
+        }
+
+        changedPositions.add(pos.asLong());
+        previousStates.add(previous);
+        return true;
+    }
+
+    /**
+     * Do the deferred updates of the current section. Has to be called when done writing.
+     */
+    public void flush()
+    {
+        final BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < changedPositions.size(); i++)
+        {
+            pos.set(changedPositions.getLong(i));
+            final BlockState previous = previousStates.get(i);
+            final BlockState state = world.getBlockState(pos);
+
+            world.sendBlockUpdated(pos, previous, state, Block.UPDATE_ALL);
+            world.blockUpdated(pos, state.getBlock());
+            if (state.hasAnalogOutputSignal())
+            {
+                world.updateNeighbourForOutputSignal(pos, state.getBlock());
+            }
+
+            previous.updateIndirectNeighbourShapes(world, pos, Block.UPDATE_CLIENTS, SHAPE_UPDATE_DEPTH);
+            state.updateNeighbourShapes(world, pos, Block.UPDATE_CLIENTS, SHAPE_UPDATE_DEPTH);
+            state.updateIndirectNeighbourShapes(world, pos, Block.UPDATE_CLIENTS, SHAPE_UPDATE_DEPTH);
+        }
+
+        changedPositions.clear();
+        previousStates.clear();
+    }
+
+    /**
+     * Switch to the section of a position, flushing the previous one.
+     *
+     * @param pos the position.
+     */
+    private void moveTo(final BlockPos pos)
+    {
+        final long newSection = SectionPos.asLong(pos);
+        if (newSection == section)
+        {
+            return;
+        }
+
+        flush();
+        if (chunk == null || chunk.getPos().x != SectionPos.blockToSectionCoord(pos.getX()) || chunk.getPos().z != SectionPos.blockToSectionCoord(pos.getZ()))
+        {
+            chunk = world.getChunkAt(pos);
+        }
+        section = newSection;
+    }
+}
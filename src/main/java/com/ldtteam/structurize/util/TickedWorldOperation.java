@@ -2,23 +2,20 @@ package com.ldtteam.structurize.util;
 
 import com.ldtteam.structurize.Network;
 import com.ldtteam.structurize.Structurize;
-import com.ldtteam.structurize.api.util.ItemStackUtils;
 import com.ldtteam.structurize.network.messages.UpdateClientRender;
 import com.ldtteam.structurize.placement.BlockPlacementResult;
 import com.ldtteam.structurize.placement.StructurePhasePlacementResult;
 import com.ldtteam.structurize.placement.StructurePlacer;
-import com.ldtteam.structurize.placement.handlers.placement.IPlacementHandler;
-import com.ldtteam.structurize.placement.handlers.placement.PlacementHandlers;
 import com.mojang.authlib.GameProfile;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.entity.player.Player;
 import net.minecraft.world.item.BucketItem;
 import net.minecraft.world.item.ItemStack;
-import net.minecraft.world.item.Items;
+import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.*;
-import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.properties.DoubleBlockHalf;
 import net.minecraftforge.common.util.FakePlayer;
@@ -79,6 +76,12 @@ public class TickedWorldOperation implements ITickedWorldOperation
     @Nullable
     private Player player = null;
 
+    /**
+     * The level the operation runs in, fixed when it is created.
+     */
+    @Nullable
+    private final ResourceKey<Level> dimension;
+
     /**
      * The changeStorage associated to this operation..
      */
@@ -99,6 +102,12 @@ public class TickedWorldOperation implements ITickedWorldOperation
      */
     private final ItemStack secondBlock;
 
+    /**
+     * Matches the block being altered, created on first use.
+     */
+    @Nullable
+    private BlockMatcher matcher = null;
+
     /**
      * The structure wrapper if structure place.
      */
@@ -150,6 +159,7 @@ public class TickedWorldOperation implements ITickedWorldOperation
         this.storage = new ChangeStorage(component, player != null ? player.getUUID() : UUID.randomUUID());
         this.placer = null;
         this.pct = pct;
+        this.dimension = player != null ? player.level().dimension() : null;
     }
 
     /**
@@ -174,6 +184,7 @@ public class TickedWorldOperation implements ITickedWorldOperation
             undoStorage = new ChangeStorage(Component.translatable("com.ldtteam.structurize." + operation.toString().toLowerCase(Locale.US), storage.getOperation()), player != null ? player.getUUID() : UUID.randomUUID());
         }
         this.placer = null;
+        this.dimension = storage.getDimension() != null || player == null ? storage.getDimension() : player.level().dimension();
     }
 
     /**
@@ -193,6 +204,7 @@ public class TickedWorldOperation implements ITickedWorldOperation
         this.secondBlock = ItemStack.EMPTY;
         this.storage = new ChangeStorage(Component.translatable("com.ldtteam.structurize." + operation.toString().toLowerCase(Locale.US), placer.getHandler().getBluePrint().getName()), player != null ? player.getUUID() : UUID.randomUUID());
         this.placer = placer;
+        this.dimension = placer.getHandler().getWorld().dimension();
     }
 
     @Override
@@ -203,11 +215,6 @@ public class TickedWorldOperation implements ITickedWorldOperation
             return false;
         }
 
-        if (player != null && player.level().dimension() != world.dimension())
-        {
-            return false;
-        }
-
         if (operation == OperationType.UNDO)
         {
             return storage.undo(world, undoStorage);
@@ -290,6 +297,10 @@ public class TickedWorldOperation implements ITickedWorldOperation
     private boolean run(final ServerLevel world)
     {
         final FakePlayer fakePlayer = new FakePlayer(world, new GameProfile(player == null ? UUID.randomUUID() : player.getUUID(), "structurizefakeplayer"));
+        if (matcher == null)
+        {
+            matcher = new BlockMatcher(List.of(firstBlock));
+        }
         int count = 0;
         for (int y = currentPos.getY(); y <= endPos.getY(); y++)
         {
@@ -299,38 +310,7 @@ public class TickedWorldOperation implements ITickedWorldOperation
                 {
                     final BlockPos here = new BlockPos(x, y, z);
                     final BlockState blockState = world.getBlockState(here);
-                    final BlockEntity tileEntity = world.getBlockEntity(here);
-                    boolean isMatch = false;
-                    boolean handled = false;
-
-                    if (firstBlock.getItem() == Items.AIR && blockState.isAir())
-                    {
-                        isMatch = true;
-                    }
-                    else
-                    {
-                        for (final IPlacementHandler handler : PlacementHandlers.handlers)
-                        {
-                            if (handler.canHandle(world, BlockPos.ZERO, blockState))
-                            {
-                                final List<ItemStack> itemList =
-                                  handler.getRequiredItems(world, here, blockState, tileEntity == null ? null : tileEntity.saveWithFullMetadata(), true);
-                                if (!itemList.isEmpty() && ItemStackUtils.compareItemStacksIgnoreStackSize(itemList.get(0), firstBlock))
-                                {
-                                    isMatch = true;
-                                }
-                                handled = true;
-                                break;
-                            }
-                        }
-
-                        if (!handled && ItemStackUtils.compareItemStacksIgnoreStackSize(BlockUtils.getItemStackFromBlockState(blockState), firstBlock))
-                        {
-                            isMatch = true;
-                        }
-                    }
-
-                    if (isMatch)
+                    if (matcher.matches(world, here))
                     {
                         if (pct < 100 && fakePlayer.getRandom().nextInt(100) > pct)
                         {
@@ -394,4 +374,17 @@ public class TickedWorldOperation implements ITickedWorldOperation
     {
         return this.storage;
     }
+
+    @Override
+    public boolean isUsing(final ChangeStorage storage)
+    {
+        return this.storage == storage || undoStorage == storage;
+    }
+
+    @Override
+    @Nullable
+    public ResourceKey<Level> getDimension()
+    {
+        return dimension;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.ldtteam.structurize.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompletionInboxTest
+{
+    private final CompletionInbox inbox = new CompletionInbox();
+    private final Object target = new Object();
+    private final List<Object> results = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    private <T> void add(final Future<T> future, final long timeoutMillis)
+    {
+        inbox.add(target, future, results::add, errors::add, timeoutMillis);
+    }
+
+    @Test
+    public void testCompletionOrder()
+    {
+        final CompletableFuture<String> first = new CompletableFuture<>();
+        final CompletableFuture<String> second = new CompletableFuture<>();
+        add(first, CompletionInbox.NO_TIMEOUT);
+        add(second, CompletionInbox.NO_TIMEOUT);
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertTrue(results.isEmpty());
+
+        second.complete("second");
+        first.complete("first");
+        inbox.drain(target, Long.MAX_VALUE);
+        assertEquals(List.of("second", "first"), results);
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void testPolledFuture()
+    {
+        final FutureTask<String> future = new FutureTask<>(() -> "polled");
+        add(future, CompletionInbox.NO_TIMEOUT);
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertTrue(results.isEmpty());
+
+        future.run();
+        inbox.drain(target, Long.MAX_VALUE);
+        assertEquals(List.of("polled"), results);
+    }
+
+    @Test
+    public void testOtherTargetNotDrained()
+    {
+        add(CompletableFuture.completedFuture("done"), CompletionInbox.NO_TIMEOUT);
+
+        inbox.drain(new Object(), Long.MAX_VALUE);
+        assertTrue(results.isEmpty());
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertEquals(List.of("done"), results);
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException
+    {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        add(future, 0);
+        Thread.sleep(5);
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertTrue(results.isEmpty());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof TimeoutException);
+        assertTrue(future.isCancelled());
+
+        // A late result is not handed over again
+        inbox.drain(target, Long.MAX_VALUE);
+        assertEquals(1, errors.size());
+    }
+
+    @Test
+    public void testNoTimeout() throws InterruptedException
+    {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        add(future, CompletionInbox.NO_TIMEOUT);
+        Thread.sleep(5);
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertTrue(errors.isEmpty());
+        assertFalse(future.isCancelled());
+
+        future.complete("late");
+        inbox.drain(target, Long.MAX_VALUE);
+        assertEquals(List.of("late"), results);
+    }
+
+    @Test
+    public void testFailureUnwrapped()
+    {
+        final IllegalStateException failure = new IllegalStateException("failed");
+        add(CompletableFuture.failedFuture(failure), CompletionInbox.NO_TIMEOUT);
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertTrue(results.isEmpty());
+        assertEquals(List.of(failure), errors);
+    }
+
+    @Test
+    public void testCancelled()
+    {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        add(future, CompletionInbox.NO_TIMEOUT);
+        future.cancel(false);
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertTrue(results.isEmpty());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof CancellationException);
+    }
+
+    @Test
+    public void testRemoveCancels()
+    {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        add(future, CompletionInbox.NO_TIMEOUT);
+
+        inbox.remove(target);
+        assertTrue(future.isCancelled());
+
+        inbox.drain(target, Long.MAX_VALUE);
+        assertTrue(results.isEmpty());
+        assertTrue(errors.isEmpty());
+    }
+}
@@ -0,0 +1,128 @@
+package com.ldtteam.structurize.storage;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.network.FriendlyByteBuf;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackManifestTest
+{
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(final Path root, final String subPath, final String content) throws IOException
+    {
+        final Path file = root.resolve(subPath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testDiff() throws IOException
+    {
+        final Path server = folder.newFolder("server").toPath();
+        write(server, "pack.json", "{}");
+        write(server, "houses/house1.blueprint", "house one");
+        write(server, "houses/house2.blueprint", "house two, changed");
+        write(server, "towers/tower.blueprint", "new tower");
+
+        final Path client = folder.newFolder("client").toPath();
+        write(client, "pack.json", "{}");
+        write(client, "houses/house1.blueprint", "house one");
+        write(client, "houses/house2.blueprint", "house two");
+        write(client, "old/removed.blueprint", "removed");
+
+        final PackManifest serverManifest = PackManifest.of(server);
+        final PackManifest clientManifest = PackManifest.of(client);
+
+        assertEquals(Set.of("pack.json", "houses/house1.blueprint", "houses/house2.blueprint", "towers/tower.blueprint"), serverManifest.getFiles().keySet());
+        assertEquals(Set.of("houses/house2.blueprint", "towers/tower.blueprint"), Set.copyOf(serverManifest.getChangedFiles(clientManifest)));
+        assertEquals(List.of("old/removed.blueprint"), serverManifest.getDeletedFiles(clientManifest));
+
+        assertTrue(serverManifest.getChangedFiles(serverManifest).isEmpty());
+        assertTrue(serverManifest.getDeletedFiles(serverManifest).isEmpty());
+    }
+
+    @Test
+    public void testRehashOnChange() throws IOException
+    {
+        final Path root = folder.newFolder("pack").toPath();
+        write(root, "a.blueprint", "a");
+        final PackManifest before = PackManifest.of(root);
+
+        write(root, "a.blueprint", "a, but longer");
+        final PackManifest after = PackManifest.of(root);
+
+        assertEquals(List.of("a.blueprint"), after.getChangedFiles(before));
+        assertNotEquals(before.getContentHash(List.of("a.blueprint")), after.getContentHash(List.of("a.blueprint")));
+    }
+
+    @Test
+    public void testContentHashIgnoresOrder() throws IOException
+    {
+        final Path root = folder.newFolder("pack").toPath();
+        write(root, "a.blueprint", "a");
+        write(root, "b.blueprint", "b");
+        final PackManifest manifest = PackManifest.of(root);
+
+        assertEquals(manifest.getContentHash(List.of("a.blueprint", "b.blueprint")), manifest.getContentHash(List.of("b.blueprint", "a.blueprint")));
+        assertNotEquals(manifest.getContentHash(List.of("a.blueprint")), manifest.getContentHash(List.of("a.blueprint", "b.blueprint")));
+    }
+
+    @Test
+    public void testWriteRead() throws IOException
+    {
+        final Path root = folder.newFolder("pack").toPath();
+        write(root, "pack.json", "{}");
+        write(root, "sub/folder/file.blueprint", "content");
+        final PackManifest manifest = PackManifest.of(root);
+
+        final FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        manifest.write(buf);
+        final PackManifest read = PackManifest.read(buf);
+
+        assertEquals(manifest.getFiles(), read.getFiles());
+        assertEquals(0, buf.readableBytes());
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testReadRejectsTooManyFiles()
+    {
+        final FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(Integer.MAX_VALUE);
+        PackManifest.read(buf);
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testReadRejectsLongPaths()
+    {
+        final FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(1);
+        buf.writeUtf("a".repeat(2000));
+        buf.writeByteArray(new byte[32]);
+        PackManifest.read(buf);
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testReadRejectsWrongHashLength()
+    {
+        final FriendlyByteBuf buf = new FriendlyByteBuf(Unpooled.buffer());
+        buf.writeVarInt(1);
+        buf.writeUtf("a.blueprint");
+        buf.writeByteArray(new byte[4]);
+        PackManifest.read(buf);
+    }
+}
@@ -0,0 +1,146 @@
+package com.ldtteam.structurize.util;
+
+import net.minecraft.SharedConstants;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ChangeStorageTest
+{
+    private static final UUID PLAYER = new UUID(1, 2);
+
+    @BeforeClass
+    public static void bootstrap()
+    {
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+    }
+
+    /**
+     * Write changes in the format of {@link ChangeStorage#write(DataOutput)}.
+     */
+    private static byte[] encode(
+      final String dimension,
+      final List<BlockState> palette,
+      final long[] positions,
+      final short[] preStates,
+      final short[] postStates,
+      final byte[] blockEntity,
+      final byte[] entity,
+      final UUID addedEntity) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(dimension);
+
+        out.writeInt(palette.size());
+        for (final BlockState state : palette)
+        {
+            NbtIo.write(NbtUtils.writeBlockState(state), out);
+        }
+
+        out.writeInt(positions.length);
+        for (int i = 0; i < positions.length; i++)
+        {
+            out.writeLong(positions[i]);
+            out.writeShort(preStates[i]);
+            out.writeShort(postStates[i]);
+        }
+
+        // one pre block entity at index 0, no post block entities
+        out.writeInt(1);
+        out.writeInt(0);
+        out.writeInt(blockEntity.length);
+        out.write(blockEntity);
+        out.writeInt(0);
+
+        out.writeInt(1);
+        out.writeInt(entity.length);
+        out.write(entity);
+
+        out.writeInt(1);
+        out.writeLong(addedEntity.getMostSignificantBits());
+        out.writeLong(addedEntity.getLeastSignificantBits());
+        return bytes.toByteArray();
+    }
+
+    private static ChangeStorage read(final byte[] data) throws IOException
+    {
+        return ChangeStorage.read(new DataInputStream(new ByteArrayInputStream(data)), ChangeStorage.nextID(), Component.literal("test"), PLAYER);
+    }
+
+    private static byte[] write(final ChangeStorage storage) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        storage.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        final long[] positions = {
+          new BlockPos(0, 0, 0).asLong(),
+          new BlockPos(-30000000, -64, 29999999).asLong(),
+          new BlockPos(15, 319, -1).asLong()};
+        // -1 is a position without recorded state
+        final short[] preStates = {0, 1, -1};
+        final short[] postStates = {1, 0, 0};
+        final byte[] data = encode("minecraft:the_nether",
+          List.of(Blocks.STONE.defaultBlockState(), Blocks.OAK_STAIRS.defaultBlockState()),
+          positions,
+          preStates,
+          postStates,
+          new byte[] {1, 2, 3},
+          new byte[] {4, 5},
+          new UUID(3, 4));
+
+        final ChangeStorage storage = read(data);
+        assertEquals(Level.NETHER, storage.getDimension());
+        assertEquals(PLAYER, storage.getPlayerID());
+        assertArrayEquals(data, write(storage));
+
+        // compacted: packed positions with both palette indices, the palette, the data and the entity uuid
+        assertEquals(3 * (Long.BYTES + 2 * Short.BYTES) + 2 * 48 + 5 + 2 * Long.BYTES, storage.getMemoryUsage());
+    }
+
+    @Test
+    public void testUnsignedPaletteIndex() throws IOException
+    {
+        // more states than a signed short can address
+        final BlockState[] states = new BlockState[40000];
+        for (int i = 0; i < states.length; i++)
+        {
+            states[i] = i % 2 == 0 ? Blocks.STONE.defaultBlockState() : Blocks.DIRT.defaultBlockState();
+        }
+
+        final short highIndex = (short) (states.length - 1);
+        final byte[] data = encode("",
+          List.of(states),
+          new long[] {new BlockPos(1, 2, 3).asLong()},
+          new short[] {highIndex},
+          new short[] {(short) 32768},
+          new byte[0],
+          new byte[0],
+          new UUID(0, 0));
+
+        final ChangeStorage storage = read(data);
+        assertNull(storage.getDimension());
+        assertArrayEquals(data, write(storage));
+    }
+}
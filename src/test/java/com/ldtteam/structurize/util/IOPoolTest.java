@@ -0,0 +1,125 @@
+package com.ldtteam.structurize.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IOPoolTest
+{
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws InterruptedException
+    {
+        // One thread, so tasks run strictly in the order they leave the queue
+        IOPool.setConfiguredThreads(1);
+        IOPool.execute(IOPool.Lane.INTERACTIVE, () -> {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown()
+    {
+        release.countDown();
+        IOPool.shutdown();
+        IOPool.setConfiguredThreads(0);
+    }
+
+    @Test
+    public void testLaneOrder() throws Exception
+    {
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final List<Future<?>> futures = new ArrayList<>();
+        futures.add(IOPool.submit(IOPool.Lane.BACKGROUND, () -> order.add("background 1")));
+        futures.add(IOPool.submit(IOPool.Lane.PLACEMENT, () -> order.add("placement")));
+        futures.add(IOPool.submit(IOPool.Lane.INTERACTIVE, () -> order.add("interactive 1")));
+        futures.add(IOPool.submit(IOPool.Lane.BACKGROUND, () -> order.add("background 2")));
+        futures.add(IOPool.submit(IOPool.Lane.INTERACTIVE, () -> order.add("interactive 2")));
+
+        release.countDown();
+        for (final Future<?> future : futures)
+        {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("interactive 1", "interactive 2", "placement", "background 1", "background 2"), order);
+    }
+
+    @Test
+    public void testWaitingBackgroundTaskIsNotStarved() throws Exception
+    {
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final List<Future<?>> futures = new ArrayList<>();
+        final long waitedLong = System.nanoTime() - IOPool.Lane.BACKGROUND.delayNanos - TimeUnit.SECONDS.toNanos(1);
+        futures.add(IOPool.submit(IOPool.Lane.BACKGROUND, () -> order.add("background"), waitedLong));
+        futures.add(IOPool.submit(IOPool.Lane.INTERACTIVE, () -> order.add("interactive")));
+
+        release.countDown();
+        for (final Future<?> future : futures)
+        {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of("background", "interactive"), order);
+    }
+
+    @Test
+    public void testCancelRemovesQueuedTask() throws Exception
+    {
+        final long cancelledBefore = IOPool.getStatistics(IOPool.Lane.BACKGROUND).cancelled();
+        final AtomicBoolean ran = new AtomicBoolean();
+        final Future<?> cancelled = IOPool.submit(IOPool.Lane.BACKGROUND, () -> ran.getAndSet(true));
+        assertEquals(1, IOPool.getStatistics(IOPool.Lane.BACKGROUND).queued());
+
+        assertTrue(cancelled.cancel(false));
+        assertTrue(cancelled.isCancelled());
+        assertTrue(IOPool.getExecutor().getQueue().isEmpty());
+        assertEquals(0, IOPool.getStatistics(IOPool.Lane.BACKGROUND).queued());
+        assertEquals(cancelledBefore + 1, IOPool.getStatistics(IOPool.Lane.BACKGROUND).cancelled());
+
+        final Future<?> after = IOPool.submit(IOPool.Lane.BACKGROUND, () -> null);
+        release.countDown();
+        after.get(10, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void testWhenDone() throws Exception
+    {
+        final CountDownLatch callback = new CountDownLatch(1);
+        final Future<?> future = IOPool.submit(IOPool.Lane.BACKGROUND, () -> null);
+        assertTrue(IOPool.whenDone(future, callback::countDown));
+        assertEquals(1, callback.getCount());
+
+        release.countDown();
+        assertTrue(callback.await(10, TimeUnit.SECONDS));
+
+        // Already done, runs right away
+        final AtomicBoolean immediate = new AtomicBoolean();
+        assertTrue(IOPool.whenDone(future, () -> immediate.set(true)));
+        assertTrue(immediate.get());
+    }
+}